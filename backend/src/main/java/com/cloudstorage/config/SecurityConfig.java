@@ -1,7 +1,11 @@
 package com.cloudstorage.config;
 
 import com.cloudstorage.security.JwtAuthenticationFilter;
+import com.cloudstorage.security.ShareLinkThrottleFilter;
+import com.cloudstorage.security.UploadQuotaFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -27,6 +31,8 @@ import java.util.List;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final UploadQuotaFilter uploadQuotaFilter;
+    private final ShareLinkThrottleFilter shareLinkThrottleFilter;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -46,6 +52,9 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 // ✅ OPTIONS requests - must come first for CORS preflight
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+
+                // ✅ Async re-dispatch of an already authorized request (streamed downloads)
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 
                 // ✅ Public share links - no authentication needed
                 .requestMatchers("/s/**").permitAll()                    // All public share links
@@ -53,6 +62,9 @@ public class SecurityConfig {
                 .requestMatchers("/api/folders/s/**").permitAll()        // Folder share links
                 .requestMatchers("/uploads/**").permitAll()              // Static uploads
                 
+                // ✅ Cache and throttle counters - configured admins only
+                .requestMatchers("/api/health/caches").hasRole("ADMIN")
+
                 // ✅ Public auth endpoints
                 .requestMatchers(
                     "/",
@@ -78,7 +90,13 @@ public class SecurityConfig {
             )
 
             // 5️⃣ JWT filter - added AFTER auth rules are defined
-            .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+
+            // 6️⃣ Quota reservation - needs the authenticated user, runs before the body is read
+            .addFilterAfter(uploadQuotaFilter, JwtAuthenticationFilter.class)
+
+            // 7️⃣ Share link throttling - rejects abusive traffic before any token or JWT work
+            .addFilterBefore(shareLinkThrottleFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -124,6 +142,21 @@ public class SecurityConfig {
         return source;
     }
 
+    // Only run the quota filter inside the security chain, not as a plain servlet filter
+    @Bean
+    public FilterRegistrationBean<UploadQuotaFilter> uploadQuotaFilterRegistration(UploadQuotaFilter filter) {
+        FilterRegistrationBean<UploadQuotaFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ShareLinkThrottleFilter> shareLinkThrottleFilterRegistration(ShareLinkThrottleFilter filter) {
+        FilterRegistrationBean<ShareLinkThrottleFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -43,6 +43,13 @@ public class AuthController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
+    // ================= SIGN OUT EVERYWHERE =================
+    @PostMapping("/logout-all")
+    public ResponseEntity<ApiResponse<Void>> logoutEverywhere() {
+        authService.logoutEverywhere();
+        return ResponseEntity.ok(ApiResponse.success("Signed out of all sessions", null));
+    }
+
     // ================= FUTURE: SEND LOGIN OTP =================
     // @PostMapping("/send-login-otp")
     // public ResponseEntity<ApiResponse<Void>> sendLoginOTP(
@@ -0,0 +1,60 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.dto.request.BulkActionRequest;
+import com.cloudstorage.dto.response.ApiResponse;
+import com.cloudstorage.dto.response.BulkJobResponse;
+import com.cloudstorage.security.SecurityUtils;
+import com.cloudstorage.service.BulkJobService;
+import com.cloudstorage.service.BulkOperationService.Action;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/bulk")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@Slf4j
+public class BulkController {
+
+    private final BulkJobService bulkJobService;
+
+    // ================= MOVE =================
+    @PostMapping("/move")
+    public ResponseEntity<ApiResponse<BulkJobResponse>> move(@RequestBody BulkActionRequest request) {
+        return submit(Action.MOVE, request);
+    }
+
+    // ================= DELETE (Move to Trash) =================
+    @PostMapping("/delete")
+    public ResponseEntity<ApiResponse<BulkJobResponse>> delete(@RequestBody BulkActionRequest request) {
+        return submit(Action.DELETE, request);
+    }
+
+    // ================= RESTORE =================
+    @PostMapping("/restore")
+    public ResponseEntity<ApiResponse<BulkJobResponse>> restore(@RequestBody BulkActionRequest request) {
+        return submit(Action.RESTORE, request);
+    }
+
+    // ================= STAR =================
+    @PostMapping("/star")
+    public ResponseEntity<ApiResponse<BulkJobResponse>> star(@RequestBody BulkActionRequest request) {
+        return submit(Action.STAR, request);
+    }
+
+    // ================= JOB PROGRESS =================
+    @GetMapping("/jobs/{jobId}")
+    public ApiResponse<BulkJobResponse> job(@PathVariable String jobId) {
+        return ApiResponse.success(bulkJobService.status(SecurityUtils.currentUserId(), jobId));
+    }
+
+    private ResponseEntity<ApiResponse<BulkJobResponse>> submit(Action action, BulkActionRequest request) {
+        BulkJobResponse response = bulkJobService.submit(SecurityUtils.currentUserId(), action, request);
+        // Large selections come back as a job to poll
+        HttpStatus status = response.getJobId() != null ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return ResponseEntity.status(status).body(ApiResponse.success(response));
+    }
+}
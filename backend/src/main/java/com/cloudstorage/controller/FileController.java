@@ -1,17 +1,32 @@
 package com.cloudstorage.controller;
 
+import com.cloudstorage.service.ArchiveService;
+import com.cloudstorage.service.CopyService;
+import com.cloudstorage.service.FileExportService;
 import com.cloudstorage.service.AuthService;
 import com.cloudstorage.service.FolderService;
+import com.cloudstorage.dto.request.CopyRequest;
+import com.cloudstorage.dto.request.FileFilterRequest;
+import com.cloudstorage.dto.request.SelectionRequest;
 import com.cloudstorage.dto.request.ShareRequest;
 import com.cloudstorage.dto.response.ShareLinkResponse;
 import com.cloudstorage.dto.response.SharedFileResponse;
 import com.cloudstorage.dto.response.SharedByMeResponse;
 import com.cloudstorage.dto.response.ApiResponse;
+import com.cloudstorage.dto.response.ContentSearchResponse;
+import com.cloudstorage.dto.response.FileFilterResponse;
 import com.cloudstorage.dto.response.FileResponse;
+import com.cloudstorage.dto.response.PagedResponse;
 import com.cloudstorage.model.File;
 import com.cloudstorage.model.Folder;
 import com.cloudstorage.model.User;
+import com.cloudstorage.security.SecurityUtils;
+import com.cloudstorage.security.UploadQuotaFilter;
+import com.cloudstorage.service.FileDownload;
+import com.cloudstorage.service.FileFilterService;
 import com.cloudstorage.service.FileService;
+import com.cloudstorage.service.QuotaService;
+import com.cloudstorage.service.SearchService;
 import com.cloudstorage.service.ShareService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
@@ -20,6 +35,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.http.HttpStatus;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.transaction.annotation.Transactional;  // ADD THIS
@@ -40,6 +56,11 @@ public class FileController {
     private final ShareService shareService;
     private final AuthService authService;
     private final FolderService folderService;
+    private final SearchService searchService;
+    private final FileFilterService fileFilterService;
+    private final ArchiveService archiveService;
+    private final CopyService copyService;
+    private final FileExportService fileExportService;
 
     // ================= LIST FILES =================
     @GetMapping
@@ -55,15 +76,31 @@ public class FileController {
         return ResponseEntity.ok(ApiResponse.success(files));
     }
 
+    // ================= STREAMED LISTING =================
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFiles(
+            @RequestParam(required = false) Long folderId,
+            @RequestParam(required = false) String format) {
+
+        FileExportService.Format streamFormat = FileExportService.Format.of(format);
+        FileExportService.Plan plan = fileExportService.plan(folderId);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(streamFormat.contentType()))
+                .body(out -> fileExportService.write(plan, streamFormat, out));
+    }
+
     // ================= UPLOAD =================
     @PostMapping("/upload")
     @Transactional  // ADD THIS
     public ResponseEntity<ApiResponse<FileResponse>> uploadFile(
             @RequestParam("file") MultipartFile file,
-            @RequestParam(required = false) Long folderId) throws IOException {
+            @RequestParam(required = false) Long folderId,
+            @RequestAttribute(name = UploadQuotaFilter.RESERVATION_ATTRIBUTE, required = false)
+            QuotaService.Reservation reservation) throws IOException {
 
         return ResponseEntity.ok(
-            ApiResponse.success(fileService.upload(file, folderId))
+            ApiResponse.success(fileService.upload(file, folderId, reservation))
         );
     }
 
@@ -93,6 +130,18 @@ public class FileController {
         }
     }
 
+    // ================= DOWNLOAD SELECTION AS ZIP =================
+    @PostMapping("/download-zip")
+    public ResponseEntity<StreamingResponseBody> downloadZip(@RequestBody SelectionRequest request) {
+        List<ArchiveService.Entry> entries = archiveService.plan(request);
+        String fileName = "download-" + LocalDateTime.now().toLocalDate() + ".zip";
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(out -> archiveService.write(entries, out));
+    }
+
     // ================= DELETE =================
     @DeleteMapping("/{id}")
     @Transactional  // ADD THIS
@@ -110,6 +159,17 @@ public class FileController {
         );
     }
 
+    // ================= COPY =================
+    @PostMapping("/{id}/copy")
+    public ResponseEntity<ApiResponse<FileResponse>> copyFile(
+            @PathVariable Long id,
+            @RequestBody(required = false) CopyRequest request
+    ) {
+        return ResponseEntity.ok(
+                ApiResponse.success(copyService.copyFile(SecurityUtils.currentUserId(), id, request))
+        );
+    }
+
     // ================= STAR =================
     @PostMapping("/{id}/star")
     @Transactional  // ADD THIS
@@ -128,6 +188,35 @@ public class FileController {
         );
     }
 
+    // ================= SEARCH =================
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<PagedResponse<FileResponse>>> searchFiles(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(
+                ApiResponse.success(searchService.searchFiles(query, page, size))
+        );
+    }
+
+    @GetMapping("/search/content")
+    public ResponseEntity<ApiResponse<PagedResponse<ContentSearchResponse>>> searchFileContents(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(
+                ApiResponse.success(searchService.searchContent(query, page, size))
+        );
+    }
+
+    // ================= FILTER =================
+    @GetMapping("/filter")
+    public ResponseEntity<ApiResponse<FileFilterResponse>> filterFiles(@ModelAttribute FileFilterRequest request) {
+        return ResponseEntity.ok(
+                ApiResponse.success(fileFilterService.filter(request))
+        );
+    }
+
     // ================= TRASH =================
     @GetMapping("/trash")
     @Transactional(readOnly = true)  // ADD THIS
@@ -163,9 +252,11 @@ public class FileController {
     // ================= GENERATE SHARE LINK =================
     @PostMapping("/{id}/share-link")
     @Transactional  // ADD THIS
-    public ResponseEntity<ApiResponse<ShareLinkResponse>> generateShareLink(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<ShareLinkResponse>> generateShareLink(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long ttlSeconds) {
         return ResponseEntity.ok(
-                ApiResponse.success(fileService.generateShareLink(id))
+                ApiResponse.success(fileService.generateShareLink(id, ttlSeconds))
         );
     }
 
@@ -235,14 +326,15 @@ public class FileController {
     public ResponseEntity<byte[]> downloadByShareLink(
             @PathVariable String token) {
 
-        File file = shareService.getSharedFileForDownload(token);
+        FileDownload download = shareService.getSharedFileForDownload(token);
+        File file = download.file();
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION,
                         "attachment; filename=\"" + file.getName() + "\"")
                 .contentType(MediaType.parseMediaType(file.getMimeType()))
                 .contentLength(file.getSize())
-                .body(file.getFileData());
+                .body(download.data());
     }
 
     // ================= UPDATE SHARE PERMISSION =================
@@ -328,7 +420,7 @@ public class FileController {
             boolean changed = false;
             
             if (updates.containsKey("name")) {
-                file.setName((String) updates.get("name"));
+                fileService.renameFile(file, (String) updates.get("name"));
                 changed = true;
             }
             
@@ -336,7 +428,7 @@ public class FileController {
                 Long folderId = extractLongId(updates.get("folderId"));
                 
                 if (folderId == null) {
-                    file.setFolder(null);
+                    fileService.moveFile(file, null);
                     changed = true;
                 } else {
                     Folder folder = folderService.getFolderById(folderId);
@@ -351,7 +443,7 @@ public class FileController {
                                 .body(ApiResponse.error("Cannot move to a deleted folder"));
                     }
                     
-                    file.setFolder(folder);
+                    fileService.moveFile(file, folder);
                     changed = true;
                 }
             }
@@ -361,9 +453,6 @@ public class FileController {
                         .body(ApiResponse.error("No updates provided"));
             }
             
-            file.setUpdatedAt(LocalDateTime.now());
-            fileService.saveFile(file);
-            
             return ResponseEntity.ok(
                 ApiResponse.success(fileService.toResponse(file))
             );
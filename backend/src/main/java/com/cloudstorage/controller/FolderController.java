@@ -1,13 +1,20 @@
 package com.cloudstorage.controller;
 
+import com.cloudstorage.dto.request.CopyRequest;
 import com.cloudstorage.dto.request.CreateFolderRequest;
 import com.cloudstorage.dto.request.ShareRequest;
 import com.cloudstorage.dto.response.ApiResponse;
+import com.cloudstorage.dto.response.BulkJobResponse;
+import com.cloudstorage.dto.response.FolderPathResponse;
 import com.cloudstorage.dto.response.FolderResponse;
+import com.cloudstorage.dto.response.FolderTreeResponse;
 import com.cloudstorage.dto.response.ShareLinkResponse;
 import com.cloudstorage.dto.response.SharedFileResponse;
+import com.cloudstorage.security.SecurityUtils;
+import com.cloudstorage.service.CopyService;
 import com.cloudstorage.service.FolderService;
 import com.cloudstorage.service.FolderShareService;
+import com.cloudstorage.service.FolderTreeService;
 import lombok.extern.slf4j.Slf4j;
 
 import jakarta.validation.Valid;
@@ -34,16 +41,15 @@ public class FolderController {
     private final FolderService folderService;
     private final FolderShareService folderShareService;
     private final AuthService authService;
+    private final CopyService copyService;
+    private final FolderTreeService folderTreeService;
 
     // ================= ROOT FOLDERS =================
     @GetMapping
     @Transactional(readOnly = true)  // ADD THIS - FIX FOR THE ERROR YOU'RE SEEING
     public ResponseEntity<ApiResponse<List<FolderResponse>>> getRootFolders() {
         return ResponseEntity.ok(
-                ApiResponse.success(folderService.getRootFolders()
-                        .stream()
-                        .map(folderService::toResponse)
-                        .toList())
+                ApiResponse.success(folderService.toResponses(folderService.getRootFolders()))
         );
     }
 
@@ -54,10 +60,26 @@ public class FolderController {
             @PathVariable Long parentId
     ) {
         return ResponseEntity.ok(
-                ApiResponse.success(folderService.getSubFolders(parentId)
-                        .stream()
-                        .map(folderService::toResponse)
-                        .toList())
+                ApiResponse.success(folderService.toResponses(folderService.getSubFolders(parentId)))
+        );
+    }
+
+    // ================= TREE =================
+    @GetMapping("/tree")
+    public ResponseEntity<ApiResponse<FolderTreeResponse>> getTree(
+            @RequestParam(required = false) Long rootId,
+            @RequestParam(required = false) Integer depth
+    ) {
+        return ResponseEntity.ok(
+                ApiResponse.success(folderTreeService.tree(SecurityUtils.currentUserId(), rootId, depth))
+        );
+    }
+
+    // ================= BREADCRUMB =================
+    @GetMapping("/{id}/path")
+    public ResponseEntity<ApiResponse<FolderPathResponse>> getPath(@PathVariable Long id) {
+        return ResponseEntity.ok(
+                ApiResponse.success(folderTreeService.path(SecurityUtils.currentUserId(), id))
         );
     }
 
@@ -138,6 +160,18 @@ public class FolderController {
         );
     }
 
+    // ================= COPY =================
+    @PostMapping("/{id}/copy")
+    public ResponseEntity<ApiResponse<BulkJobResponse>> copyFolder(
+            @PathVariable Long id,
+            @RequestBody(required = false) CopyRequest request
+    ) {
+        BulkJobResponse response = copyService.copyFolder(SecurityUtils.currentUserId(), id, request);
+        // Large trees are copied in the background, poll /api/bulk/jobs/{jobId}
+        HttpStatus status = response.getJobId() != null ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return ResponseEntity.status(status).body(ApiResponse.success(response));
+    }
+
     // ================= GET TRASH FOLDERS =================
     @GetMapping("/trash")
     @Transactional(readOnly = true)  // ADD THIS
@@ -195,12 +229,13 @@ public class FolderController {
     @PostMapping("/{id}/share-link")
     @Transactional  // ADD THIS
     public ResponseEntity<ApiResponse<ShareLinkResponse>> generateShareLink(
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            @RequestParam(required = false) Long ttlSeconds) {
 
         User currentUser = authService.getCurrentUserEntity();
 
         ShareLinkResponse response =
-                folderShareService.generateShareLink(id, currentUser);
+                folderShareService.generateShareLink(id, currentUser, ttlSeconds);
 
         return ResponseEntity.ok(
                 ApiResponse.success(response)
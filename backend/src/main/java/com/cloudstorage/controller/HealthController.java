@@ -1,5 +1,9 @@
 package com.cloudstorage.controller;
 
+import com.cloudstorage.security.ShareLinkThrottleFilter;
+import com.cloudstorage.service.FolderPermissionCache;
+import com.cloudstorage.service.ShareTokenRegistry;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -9,8 +13,13 @@ import java.util.HashMap;
 import java.util.Map;
 
 @RestController
+@RequiredArgsConstructor
 public class HealthController {
 
+    private final FolderPermissionCache folderPermissionCache;
+    private final ShareTokenRegistry shareTokenRegistry;
+    private final ShareLinkThrottleFilter shareLinkThrottleFilter;
+
     @GetMapping("/")
     public ResponseEntity<Map<String, String>> root() {
         Map<String, String> response = new HashMap<>();
@@ -29,4 +38,14 @@ public class HealthController {
         response.put("service", "cloud-storage-backend");
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/api/health/caches")
+    public ResponseEntity<Map<String, Object>> caches() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("folderPermissions", folderPermissionCache.stats());
+        response.put("shareTokens", shareTokenRegistry.stats());
+        response.put("shareLinkThrottle", shareLinkThrottleFilter.stats());
+        response.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(response);
+    }
+}
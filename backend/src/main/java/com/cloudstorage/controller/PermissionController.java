@@ -0,0 +1,42 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.dto.request.SelectionRequest;
+import com.cloudstorage.dto.response.ApiResponse;
+import com.cloudstorage.dto.response.BatchPermissionResponse;
+import com.cloudstorage.model.Permission;
+import com.cloudstorage.security.SecurityUtils;
+import com.cloudstorage.service.BatchAuthorizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/permissions")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@Slf4j
+public class PermissionController {
+
+    private final BatchAuthorizer batchAuthorizer;
+
+    // ================= BATCH PERMISSIONS =================
+    @PostMapping("/batch")
+    public ApiResponse<BatchPermissionResponse> batch(@RequestBody SelectionRequest request) {
+        BatchAuthorizer.Result result = batchAuthorizer.authorize(
+                SecurityUtils.currentUserId(), request.getFileIds(), request.getFolderIds());
+
+        return ApiResponse.success(BatchPermissionResponse.builder()
+                .files(labels(result.files()))
+                .folders(labels(result.folders()))
+                .build());
+    }
+
+    private static Map<Long, String> labels(Map<Long, Permission> permissions) {
+        Map<Long, String> labels = new LinkedHashMap<>();
+        permissions.forEach((id, permission) -> labels.put(id, permission.name().toLowerCase()));
+        return labels;
+    }
+}
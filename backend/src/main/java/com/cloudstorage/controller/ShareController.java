@@ -0,0 +1,26 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.dto.request.BulkShareRequest;
+import com.cloudstorage.dto.response.ApiResponse;
+import com.cloudstorage.dto.response.BulkShareResponse;
+import com.cloudstorage.security.SecurityUtils;
+import com.cloudstorage.service.BulkShareService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/shares")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@Slf4j
+public class ShareController {
+
+    private final BulkShareService bulkShareService;
+
+    // ================= BULK SHARE =================
+    @PostMapping("/bulk")
+    public ApiResponse<BulkShareResponse> bulk(@RequestBody BulkShareRequest request) {
+        return ApiResponse.success(bulkShareService.share(SecurityUtils.currentUserId(), request));
+    }
+}
@@ -5,8 +5,10 @@ import com.cloudstorage.dto.response.FileResponse;
 import com.cloudstorage.dto.response.FolderResponse;
 import com.cloudstorage.exception.ResourceNotFoundException;
 import com.cloudstorage.model.File;
+import com.cloudstorage.service.FileDownload;
 import com.cloudstorage.service.FolderShareService;
 import com.cloudstorage.service.ShareService;
+import com.cloudstorage.service.ShareTokenRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.ByteArrayResource;
@@ -14,7 +16,6 @@ import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -25,6 +26,7 @@ public class ShareLinkController {
     
     private final FolderShareService folderShareService;
     private final ShareService shareService;
+    private final ShareTokenRegistry shareTokenRegistry;
     
     /**
      * Universal share link endpoint - detects if it's a file or folder
@@ -33,43 +35,35 @@ public class ShareLinkController {
     @GetMapping("/{token}")
     public ResponseEntity<?> getSharedResource(@PathVariable String token) {
         log.info("📥 Received share link request for token: {}", token);
-        
-        // Try folder first
-        try {
-            FolderResponse folder = folderShareService.getSharedFolderByToken(token);
-            
-            // ✅ Debug: Log the response structure
-            log.info("✅ Share link is a FOLDER: {}", folder.getName());
-            log.info("📋 Folder Response Details:");
-            log.info("  - isFolder: {}", folder.getIsFolder());
-            log.info("  - mimeType: {}", folder.getMimeType());
-            log.info("  - files: {}", folder.getFiles() != null ? folder.getFiles().size() : 0);
-            log.info("  - subfolders: {}", folder.getSubfolders() != null ? folder.getSubfolders().size() : 0);
-            log.info("  - itemCount: {}", folder.getItemCount());
-            
-            return ResponseEntity.ok(ApiResponse.success(folder));
-        } catch (ResourceNotFoundException folderEx) {
-            log.debug("Not a folder share, trying file...");
-        } catch (Exception folderEx) {
-            log.debug("Error checking folder: {}", folderEx.getMessage());
+
+        ShareTokenRegistry.Target target = shareTokenRegistry.resolve(token);
+        if (target == null) {
+            return notFound();
         }
-        
-        // Try file
+
         try {
+            if (target.kind() == ShareTokenRegistry.Kind.FOLDER) {
+                FolderResponse folder = folderShareService.getSharedFolderByToken(token);
+                log.info("✅ Share link is a FOLDER: {} (files: {}, subfolders: {})", folder.getName(),
+                        folder.getFiles() != null ? folder.getFiles().size() : 0,
+                        folder.getSubfolders() != null ? folder.getSubfolders().size() : 0);
+                return ResponseEntity.ok(ApiResponse.success(folder));
+            }
+
             FileResponse file = shareService.getSharedFileDetails(token);
             log.info("✅ Share link is a FILE: {}", file.getName());
             return ResponseEntity.ok(ApiResponse.success(file));
-        } catch (ResourceNotFoundException fileEx) {
-            log.error("❌ Token not found as folder or file: {}", token);
-            return ResponseEntity.status(404)
-                    .body(ApiResponse.error("Invalid or expired share link"));
-        } catch (Exception fileEx) {
-            log.error("❌ Unexpected error: {}", fileEx.getMessage(), fileEx);
+        } catch (ResourceNotFoundException e) {
+            // Revoked since it was cached
+            shareTokenRegistry.evict(token);
+            return notFound();
+        } catch (Exception e) {
+            log.error("❌ Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(500)
                     .body(ApiResponse.error("Server error while loading shared content"));
         }
     }
-    
+
     /**
      * Debug endpoint - check what the backend returns for a token
      * URL: /s/{token}/debug
@@ -78,27 +72,31 @@ public class ShareLinkController {
     @GetMapping("/{token}/debug")
     public ResponseEntity<?> debugShareLink(@PathVariable String token) {
         log.info("🔧 DEBUG: Checking share link token: {}", token);
-        
-        try {
-            FolderResponse folder = folderShareService.getSharedFolderByToken(token);
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(ApiResponse.success(folder));
-        } catch (Exception folderEx) {
-            log.debug("Not a folder, trying file...");
+
+        ShareTokenRegistry.Target target = shareTokenRegistry.resolve(token);
+        if (target == null) {
+            return ResponseEntity.status(404)
+                    .body(ApiResponse.error("Token not found"));
         }
-        
+
         try {
-            FileResponse file = shareService.getSharedFileDetails(token);
+            Object body = target.kind() == ShareTokenRegistry.Kind.FOLDER
+                    ? folderShareService.getSharedFolderByToken(token)
+                    : shareService.getSharedFileDetails(token);
             return ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_JSON)
-                    .body(ApiResponse.success(file));
-        } catch (Exception fileEx) {
+                    .body(ApiResponse.success(body));
+        } catch (Exception e) {
+            shareTokenRegistry.evict(token);
             return ResponseEntity.status(404)
-                    .body(ApiResponse.error("Token not found: " + fileEx.getMessage()));
+                    .body(ApiResponse.error("Token not found: " + e.getMessage()));
         }
     }
+
+    private static ResponseEntity<ApiResponse<Object>> notFound() {
+        return ResponseEntity.status(404)
+                .body(ApiResponse.error("Invalid or expired share link"));
+    }
     
     /**
      * Download shared file or file from shared folder
@@ -106,28 +104,35 @@ public class ShareLinkController {
      * URL: /s/{token}/download?fileId={fileId} (for files in shared folders)
      */
     @GetMapping("/{token}/download")
-    @Transactional(readOnly = true)
     public ResponseEntity<Resource> downloadFile(
             @PathVariable String token,
             @RequestParam(required = false) Long fileId) {
         
         log.info("⬇️ Download request - token: {}, fileId: {}", token, fileId);
+
+        // A file id picks a file inside a shared folder; without one the token must be a file link
+        ShareTokenRegistry.Target target = shareTokenRegistry.resolve(token);
+        ShareTokenRegistry.Kind expected = fileId != null ? ShareTokenRegistry.Kind.FOLDER : ShareTokenRegistry.Kind.FILE;
+        if (target == null || target.kind() != expected) {
+            return ResponseEntity.status(404).build();
+        }
         
         try {
-            File file;
+            FileDownload download;
             
             // If fileId is provided, download that specific file from the shared folder
             if (fileId != null) {
                 log.info("📁 Downloading file {} from shared folder", fileId);
-                file = folderShareService.getFileFromSharedFolder(token, fileId);
+                download = folderShareService.getFileFromSharedFolder(token, fileId);
             } else {
                 // Otherwise, download the single file associated with this share token
                 log.info("📄 Downloading single shared file");
-                file = shareService.getSharedFileForDownload(token);
+                download = shareService.getSharedFileForDownload(token);
             }
             
-            // File data is already loaded within transaction
-            byte[] fileData = file.getFileData();
+            // Loaded inside the service's transaction
+            File file = download.file();
+            byte[] fileData = download.data();
             
             if (fileData == null || fileData.length == 0) {
                 log.error("❌ File data is null or empty for file: {}", file.getName());
@@ -161,7 +166,9 @@ public class ShareLinkController {
                     .body(resource);
                     
         } catch (ResourceNotFoundException e) {
+            // Revoked since it was cached
             log.error("❌ File not found: {}", e.getMessage());
+            shareTokenRegistry.evict(token);
             return ResponseEntity.status(404).build();
         } catch (Exception e) {
             log.error("❌ Download failed: {}", e.getMessage(), e);
@@ -174,19 +181,26 @@ public class ShareLinkController {
      * URL: /s/{token}/folder/{subfolderId}
      */
     @GetMapping("/{token}/folder/{subfolderId}")
-    @Transactional(readOnly = true)
     public ResponseEntity<ApiResponse<FolderResponse>> getSharedSubfolder(
             @PathVariable String token,
             @PathVariable Long subfolderId) {
         
         log.info("📂 Request for subfolder {} with token: {}", subfolderId, token);
+
+        ShareTokenRegistry.Target target = shareTokenRegistry.resolve(token);
+        if (target == null || target.kind() != ShareTokenRegistry.Kind.FOLDER) {
+            return ResponseEntity.status(404)
+                    .body(ApiResponse.error("Subfolder not found"));
+        }
         
         try {
             FolderResponse folder = folderShareService.getSharedSubfolderByToken(token, subfolderId);
             log.info("✅ Retrieved subfolder: {}", folder.getName());
             return ResponseEntity.ok(ApiResponse.success(folder));
         } catch (ResourceNotFoundException e) {
+            // Revoked since it was cached
             log.error("❌ Subfolder not found: {}", e.getMessage());
+            shareTokenRegistry.evict(token);
             return ResponseEntity.status(404)
                     .body(ApiResponse.error("Subfolder not found"));
         } catch (Exception e) {
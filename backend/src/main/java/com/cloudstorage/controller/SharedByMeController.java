@@ -0,0 +1,37 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.dto.response.ApiResponse;
+import com.cloudstorage.dto.response.FolderResponse;
+import com.cloudstorage.dto.response.PagedResponse;
+import com.cloudstorage.dto.response.SharedByMeResponse;
+import com.cloudstorage.security.SecurityUtils;
+import com.cloudstorage.service.SharedByMeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/shared-by-me")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@Slf4j
+public class SharedByMeController {
+
+    private final SharedByMeService sharedByMeService;
+
+    // ================= SHARED FILES =================
+    @GetMapping("/files")
+    public ApiResponse<PagedResponse<SharedByMeResponse>> files(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + SharedByMeService.DEFAULT_PAGE_SIZE) int size) {
+        return ApiResponse.success(sharedByMeService.files(SecurityUtils.currentUserId(), page, size));
+    }
+
+    // ================= SHARED FOLDERS =================
+    @GetMapping("/folders")
+    public ApiResponse<PagedResponse<FolderResponse>> folders(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + SharedByMeService.DEFAULT_PAGE_SIZE) int size) {
+        return ApiResponse.success(sharedByMeService.folders(SecurityUtils.currentUserId(), page, size));
+    }
+}
@@ -0,0 +1,28 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.dto.response.ApiResponse;
+import com.cloudstorage.dto.response.CursorPageResponse;
+import com.cloudstorage.dto.response.SharedInboxItemResponse;
+import com.cloudstorage.security.SecurityUtils;
+import com.cloudstorage.service.SharedInboxService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/shared-with-me")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@Slf4j
+public class SharedWithMeController {
+
+    private final SharedInboxService sharedInboxService;
+
+    // ================= FILES AND FOLDERS, NEWEST FIRST =================
+    @GetMapping
+    public ApiResponse<CursorPageResponse<SharedInboxItemResponse>> list(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + SharedInboxService.DEFAULT_PAGE_SIZE) int size) {
+        return ApiResponse.success(sharedInboxService.page(SecurityUtils.currentUserId(), cursor, size));
+    }
+}
@@ -0,0 +1,42 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.dto.response.AccessStatsResponse;
+import com.cloudstorage.dto.response.ApiResponse;
+import com.cloudstorage.security.SecurityUtils;
+import com.cloudstorage.service.AccessStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@Slf4j
+public class StatsController {
+
+    private static final int MAX_HOT = 50;
+
+    private final AccessStatsService accessStatsService;
+
+    // ================= PER FILE =================
+    @GetMapping("/files/{id}")
+    public ApiResponse<AccessStatsResponse> file(@PathVariable Long id) {
+        return ApiResponse.success(accessStatsService.fileStats(SecurityUtils.currentUserId(), id));
+    }
+
+    // ================= PER SHARE LINK =================
+    @GetMapping("/links/{token}")
+    public ApiResponse<AccessStatsResponse> link(@PathVariable String token) {
+        return ApiResponse.success(accessStatsService.linkStats(SecurityUtils.currentUserId(), token));
+    }
+
+    // ================= HOT ITEMS =================
+    @GetMapping("/hot")
+    public ApiResponse<List<AccessStatsResponse>> hot(@RequestParam(defaultValue = "10") int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_HOT));
+        return ApiResponse.success(accessStatsService.hotForOwner(SecurityUtils.currentUserId(), size));
+    }
+}
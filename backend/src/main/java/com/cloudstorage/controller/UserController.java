@@ -8,6 +8,7 @@ import com.cloudstorage.dto.request.UpdateProfileRequest;
 import com.cloudstorage.dto.request.EmailChangeOTPRequest;
 import com.cloudstorage.dto.request.VerifyEmailOTPRequest;
 import com.cloudstorage.dto.response.ApiResponse;
+import com.cloudstorage.dto.response.AuthResponse;
 import com.cloudstorage.dto.response.UserResponse;
 import com.cloudstorage.service.UserService;
 import jakarta.validation.Valid;
@@ -59,9 +60,10 @@ public class UserController {
     }
 
     @PostMapping("/verify-email-otp")
-    public ResponseEntity<ApiResponse<Void>> verifyEmailChangeOTP(
+    public ResponseEntity<ApiResponse<AuthResponse>> verifyEmailChangeOTP(
             @Valid @RequestBody VerifyEmailOTPRequest request) {
-        userService.verifyEmailChangeOTP(request.getEmail(), request.getOtp());
-        return ResponseEntity.ok(ApiResponse.success("Email updated successfully", null));
+        // Tokens for the old address stop working; the client switches to the one returned here
+        return ResponseEntity.ok(ApiResponse.success("Email updated successfully",
+                userService.verifyEmailChangeOTP(request.getEmail(), request.getOtp())));
     }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.cloudstorage.dto.request;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A multi-select plus the arguments of the action applied to it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkActionRequest {
+    private List<Long> fileIds = new ArrayList<>();
+    private List<Long> folderIds = new ArrayList<>();
+    private Long targetFolderId;  // Move only: destination, null for the root
+    private Boolean starred;      // Star only: the state to set
+}
@@ -0,0 +1,22 @@
+package com.cloudstorage.dto.request;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shares every selected file and folder with every listed email.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkShareRequest {
+    private List<Long> fileIds = new ArrayList<>();
+    private List<Long> folderIds = new ArrayList<>();
+    private List<String> emails = new ArrayList<>();
+    private String permission;
+    private Boolean sendEmail;
+    private String message;
+    private Long ttlSeconds; // Optional: shares stop working after this many seconds
+}
@@ -0,0 +1,16 @@
+package com.cloudstorage.dto.request;
+
+import lombok.*;
+
+/**
+ * Where a copy goes and what it is called. Both are optional: by default the
+ * copy lands next to the original (or in the root when the original's
+ * folder isn't writable) as "Copy of ...".
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CopyRequest {
+    private Long targetFolderId;
+    private String name;
+}
@@ -0,0 +1,33 @@
+package com.cloudstorage.dto.request;
+
+import lombok.*;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileFilterRequest {
+    // image, video, audio, document, pdf, other
+    private List<String> type;
+    private Long minSize;
+    private Long maxSize;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime modifiedAfter;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime modifiedBefore;
+
+    private Long ownerId;
+    private Boolean starred;
+    private Long folderId;
+
+    // name, size, modified, created
+    private String sort = "modified";
+    private String direction = "desc";
+    private int page = 0;
+    private int size = 50;
+}
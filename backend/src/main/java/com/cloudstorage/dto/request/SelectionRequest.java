@@ -0,0 +1,17 @@
+package com.cloudstorage.dto.request;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A multi-select: any mix of file and folder ids.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SelectionRequest {
+    private List<Long> fileIds = new ArrayList<>();
+    private List<Long> folderIds = new ArrayList<>();
+}
@@ -15,4 +15,5 @@ public class ShareRequest {
     private String permission;
     private Boolean sendEmail;
     private String message;
+    private Long ttlSeconds; // Optional: share stops working after this many seconds
 }
\ No newline at end of file
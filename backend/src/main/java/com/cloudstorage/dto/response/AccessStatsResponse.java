@@ -0,0 +1,22 @@
+package com.cloudstorage.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AccessStatsResponse {
+    private String type;           // file, file_link or folder_link
+    private Long id;               // File id, or the link's share id
+    private Long itemId;           // For links: the file or folder behind it
+    private long hits;             // Link opens
+    private long downloads;
+    private long bytesServed;
+    private LocalDateTime lastAccessAt;
+    private Long recentCount;      // Hot list only: estimated hits + downloads since startup
+}
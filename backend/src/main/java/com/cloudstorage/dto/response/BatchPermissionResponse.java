@@ -0,0 +1,15 @@
+package com.cloudstorage.dto.response;
+
+import lombok.*;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPermissionResponse {
+    // id -> none / view / edit / owner
+    private Map<Long, String> files;
+    private Map<Long, String> folders;
+}
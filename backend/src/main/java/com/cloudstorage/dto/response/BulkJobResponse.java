@@ -0,0 +1,40 @@
+package com.cloudstorage.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkJobResponse {
+    private String jobId;          // Only for selections run in the background
+    private String action;         // move, delete, restore, star or copy
+    private String state;          // running, done or failed
+    private int total;
+    private int processed;
+    private int succeeded;
+    private int skipped;
+    private int failed;
+    private Long resultId;         // Copy only: the new folder
+    private String error;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private List<Item> items;      // Once finished
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item {
+        private String type;       // file or folder
+        private Long id;
+        private String status;     // done, skipped, forbidden or invalid
+        private String reason;
+    }
+}
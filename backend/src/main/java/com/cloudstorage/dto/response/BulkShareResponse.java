@@ -0,0 +1,34 @@
+package com.cloudstorage.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkShareResponse {
+    private List<Item> items;
+    private List<String> unknownRecipients;  // Emails with no account, skipped
+    private int sharesCreated;
+    private int sharesUpdated;
+    private int emailsQueued;
+    private LocalDateTime expiresAt;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item {
+        private String type;       // file or folder
+        private Long id;
+        private String name;
+        private String status;     // shared, or forbidden when the caller doesn't own it
+        private Integer recipients;
+    }
+}
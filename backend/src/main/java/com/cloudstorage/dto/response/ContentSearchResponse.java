@@ -0,0 +1,14 @@
+package com.cloudstorage.dto.response;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentSearchResponse {
+    private FileResponse file;
+    // HTML-escaped excerpt with matches wrapped in <mark>
+    private String snippet;
+    private float score;
+}
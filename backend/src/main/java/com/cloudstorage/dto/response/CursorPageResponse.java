@@ -0,0 +1,16 @@
+package com.cloudstorage.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;     // Pass back as ?cursor= for the next page; null on the last page
+    private boolean hasNext;
+}
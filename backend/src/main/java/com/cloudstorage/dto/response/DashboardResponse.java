@@ -1,11 +1,11 @@
 package com.cloudstorage.dto.response;
 
 import lombok.*;
-import com.cloudstorage.model.File;
 import lombok.Builder;
 import lombok.Data;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -13,5 +13,7 @@ public class DashboardResponse {
     private long totalFiles;
     private long folders;
     private long starred;
-    private List<File> recentFiles;
+    // Bytes of live files per category: image, video, audio, document, other
+    private Map<String, Long> typeBreakdown;
+    private List<FileResponse> recentFiles;
 }
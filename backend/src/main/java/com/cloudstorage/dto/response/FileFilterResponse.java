@@ -0,0 +1,20 @@
+package com.cloudstorage.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileFilterResponse {
+    private List<FileResponse> content;
+    private int page;
+    private int size;
+    private long totalElements;
+    private boolean hasNext;
+    // Counts per bucket under every filter except the type filter
+    private Map<String, Long> facets;
+}
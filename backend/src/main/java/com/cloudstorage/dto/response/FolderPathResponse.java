@@ -0,0 +1,19 @@
+package com.cloudstorage.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Breadcrumb of a folder, from the topmost folder the user can see down to
+ * the folder itself, one array per folder in the order given by {@code fields}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FolderPathResponse {
+    private List<String> fields;      // id, name
+    private List<Object[]> path;
+    private boolean sharedRoot;       // Starts at a folder shared with the user rather than at their root
+}
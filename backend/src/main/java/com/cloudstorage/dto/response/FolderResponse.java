@@ -4,7 +4,6 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 @Getter
 @Setter
@@ -26,9 +25,11 @@ public class FolderResponse {
     private Long parentId;
     
     // ========== Content (for folders) ==========
-    private List<Map<String, Object>> files;
-    private List<Map<String, Object>> subfolders;
+    private List<FileItem> files;
+    private List<SubfolderItem> subfolders;
     private Integer itemCount;
+    private Long totalSize;       // Recursive bytes of live descendants
+    private Long totalItems;      // Recursive count of live descendants
     
     // ========== Sharing Info ==========
     private String permission;    // "view" or "edit"
@@ -41,10 +42,22 @@ public class FolderResponse {
     
     // ========== Public Sharing ==========
     private Integer sharedWithCount;  // How many people it's shared with
+    private List<ShareDetailDTO> sharedWith; // First few recipients (shared by me list)
     private Boolean hasPublicLink;    // Whether it has a public share link
     private String publicLink;        // The public share link URL
     
     // ========== Timestamps ==========
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+
+    // ========== Content Items ==========
+    // Fixed shapes, so Jackson resolves one serializer per type instead of one per map value.
+    // Sizes stay boxed: a missing one is written as null, as it always was
+    public record FileItem(long id, String name, Long size, String mimeType,
+                           LocalDateTime createdAt, LocalDateTime updatedAt) {
+    }
+
+    public record SubfolderItem(long id, String name, int itemCount, Long totalSize,
+                                LocalDateTime createdAt, LocalDateTime updatedAt) {
+    }
 }
\ No newline at end of file
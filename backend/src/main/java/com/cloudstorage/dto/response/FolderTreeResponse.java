@@ -0,0 +1,22 @@
+package com.cloudstorage.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * A folder tree as flat rows, one array per folder in the order given by
+ * {@code fields}, parents before their children.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FolderTreeResponse {
+    private Long rootId;              // Null when the tree starts at the user's root
+    private int depth;                // Levels below the root included
+    private List<String> fields;      // id, parentId, name, hasChildren
+    private List<Object[]> folders;
+}
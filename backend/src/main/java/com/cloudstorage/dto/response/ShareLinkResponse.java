@@ -42,7 +42,7 @@ public class ShareLinkResponse {
     private String permission;
 
     /**
-     * Optional: When the link expires (if expiration is implemented)
+     * When the link expires; null if it never does
      */
     private java.time.LocalDateTime expiresAt;
 
@@ -0,0 +1,27 @@
+package com.cloudstorage.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SharedInboxItemResponse {
+    private Long id;               // File or folder id
+    private Long shareId;
+    private Boolean isFolder;
+    private String name;
+    private Long size;
+    private String mimeType;
+    private Boolean isStarred;
+    private String ownerEmail;
+    private String ownerName;
+    private String sharedBy;       // Name of person who shared
+    private String permission;     // "view" or "edit"
+    private LocalDateTime sharedAt;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,19 @@
+package com.cloudstorage.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published once by a bulk share, in place of a share change event per
+ * item: every listed file and folder was shared with every listed user.
+ */
+@Getter
+@AllArgsConstructor
+public class BulkShareChangeEvent {
+
+    private final List<Long> fileIds;
+    private final List<Long> folderIds;
+    private final List<Long> userIds;
+}
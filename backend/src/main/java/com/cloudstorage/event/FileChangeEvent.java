@@ -0,0 +1,49 @@
+package com.cloudstorage.event;
+
+import com.cloudstorage.model.File;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by the file write paths after a file changes state.
+ * Listeners (folder rollups, dashboard stats, search index) react after commit.
+ */
+@Getter
+@AllArgsConstructor
+public class FileChangeEvent {
+
+    public enum Type {
+        CREATED,
+        RENAMED,
+        MOVED,
+        DELETED,
+        RESTORED,
+        STARRED,
+        UNSTARRED,
+        PURGED
+    }
+
+    private final Type type;
+    private final Long fileId;
+    private final Long ownerId;
+    private final Long folderId;
+    private final Long previousFolderId;
+    private final String name;
+    private final String mimeType;
+    private final long size;
+    private final boolean starred;
+
+    public static FileChangeEvent of(Type type, File file) {
+        Long folderId = file.getFolder() != null ? file.getFolder().getId() : null;
+        return new FileChangeEvent(type, file.getId(), file.getUser().getId(), folderId, folderId,
+                file.getName(), file.getMimeType(), file.getSize() != null ? file.getSize() : 0L,
+                Boolean.TRUE.equals(file.getIsStarred()));
+    }
+
+    public static FileChangeEvent moved(File file, Long previousFolderId) {
+        Long folderId = file.getFolder() != null ? file.getFolder().getId() : null;
+        return new FileChangeEvent(Type.MOVED, file.getId(), file.getUser().getId(), folderId, previousFolderId,
+                file.getName(), file.getMimeType(), file.getSize() != null ? file.getSize() : 0L,
+                Boolean.TRUE.equals(file.getIsStarred()));
+    }
+}
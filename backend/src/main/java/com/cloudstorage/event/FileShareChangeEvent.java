@@ -0,0 +1,16 @@
+package com.cloudstorage.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a user's share on a file is granted, changed, starred or
+ * revoked. A null user means every share on the file changed.
+ */
+@Getter
+@AllArgsConstructor
+public class FileShareChangeEvent {
+
+    private final Long fileId;
+    private final Long userId;
+}
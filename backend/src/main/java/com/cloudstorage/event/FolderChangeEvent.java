@@ -0,0 +1,48 @@
+package com.cloudstorage.event;
+
+import com.cloudstorage.model.Folder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by the folder write paths after a folder changes state.
+ * Carries the folder's rollup totals so a move can be propagated without re-reading the subtree.
+ */
+@Getter
+@AllArgsConstructor
+public class FolderChangeEvent {
+
+    public enum Type {
+        CREATED,
+        RENAMED,
+        MOVED,
+        DELETED,
+        RESTORED,
+        PURGED
+    }
+
+    private final Type type;
+    private final Long folderId;
+    private final Long ownerId;
+    private final Long parentId;
+    private final Long previousParentId;
+    private final String name;
+    private final long totalSize;
+    private final long totalItems;
+
+    public static FolderChangeEvent of(Type type, Folder folder) {
+        Long parentId = folder.getParent() != null ? folder.getParent().getId() : null;
+        return new FolderChangeEvent(type, folder.getId(), folder.getUser().getId(), parentId, parentId,
+                folder.getName(), valueOf(folder.getTotalSize()), valueOf(folder.getTotalItems()));
+    }
+
+    public static FolderChangeEvent moved(Folder folder, Long previousParentId) {
+        Long parentId = folder.getParent() != null ? folder.getParent().getId() : null;
+        return new FolderChangeEvent(Type.MOVED, folder.getId(), folder.getUser().getId(), parentId, previousParentId,
+                folder.getName(), valueOf(folder.getTotalSize()), valueOf(folder.getTotalItems()));
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+}
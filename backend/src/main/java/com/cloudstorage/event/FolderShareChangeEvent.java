@@ -0,0 +1,16 @@
+package com.cloudstorage.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a user's share on a folder is granted, changed or revoked.
+ * A null user means every share on the folder changed.
+ */
+@Getter
+@AllArgsConstructor
+public class FolderShareChangeEvent {
+
+    private final Long folderId;
+    private final Long userId;
+}
@@ -7,7 +7,18 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "files")
+@Table(
+    name = "files",
+    indexes = {
+        // Listing and filter paths all lead with the owner and the trash flag
+        @Index(name = "idx_files_user_deleted_updated", columnList = "user_id, is_deleted, updated_at"),
+        @Index(name = "idx_files_user_deleted_name", columnList = "user_id, is_deleted, name"),
+        @Index(name = "idx_files_user_deleted_mime", columnList = "user_id, is_deleted, mime_type"),
+        @Index(name = "idx_files_user_deleted_size", columnList = "user_id, is_deleted, size"),
+        @Index(name = "idx_files_user_starred", columnList = "user_id, is_starred, is_deleted"),
+        @Index(name = "idx_files_folder_deleted", columnList = "folder_id, is_deleted")
+    }
+)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -33,10 +44,16 @@ public class File {
     @Lob
     @Basic(fetch = FetchType.LAZY)
     @Column(name = "file_data")
-    @org.hibernate.annotations.JdbcTypeCode(java.sql.Types.BINARY)
+    @org.hibernate.annotations.JdbcTypeCode(java.sql.Types.VARBINARY)
     @JsonIgnore
     private byte[] fileData;
 
+    // Set on server-side copies, which hold no bytes and read them from the
+    // file they were copied from; see FileRepository.findContent
+    @Column(name = "content_source_id")
+    @JsonIgnore
+    private Long contentSourceId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "folder_id")
     private Folder folder;
@@ -0,0 +1,38 @@
+package com.cloudstorage.model;
+
+/**
+ * Coarse content type buckets used for the storage breakdown on the dashboard.
+ */
+public enum FileCategory {
+    IMAGE,
+    VIDEO,
+    AUDIO,
+    DOCUMENT,
+    OTHER;
+
+    public static FileCategory of(String mimeType) {
+        if (mimeType == null) {
+            return OTHER;
+        }
+        String type = mimeType.toLowerCase();
+        if (type.startsWith("image/")) {
+            return IMAGE;
+        }
+        if (type.startsWith("video/")) {
+            return VIDEO;
+        }
+        if (type.startsWith("audio/")) {
+            return AUDIO;
+        }
+        if (type.startsWith("text/")
+                || type.equals("application/pdf")
+                || type.equals("application/rtf")
+                || type.equals("application/msword")
+                || type.startsWith("application/vnd.ms-")
+                || type.startsWith("application/vnd.openxmlformats-officedocument.")
+                || type.startsWith("application/vnd.oasis.opendocument.")) {
+            return DOCUMENT;
+        }
+        return OTHER;
+    }
+}
@@ -2,6 +2,7 @@ package com.cloudstorage.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
@@ -43,6 +44,17 @@ public class Folder {
     private User deletedBy;
 
 
+    // Recursive rollups of live (non-deleted) descendants, maintained by FolderStatsService
+    @Column(name = "total_size", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long totalSize = 0L;
+
+    @Column(name = "total_items", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long totalItems = 0L;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
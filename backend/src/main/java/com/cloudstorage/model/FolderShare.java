@@ -51,6 +51,9 @@ public class FolderShare {
     @Column(name = "is_active")
     private Boolean isActive;
 
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -58,4 +61,8 @@ public class FolderShare {
             isActive = true;
         }
     }
+
+    public boolean isExpired() {
+        return expiresAt != null && LocalDateTime.now().isAfter(expiresAt);
+    }
 }
\ No newline at end of file
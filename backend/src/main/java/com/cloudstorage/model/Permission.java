@@ -0,0 +1,42 @@
+package com.cloudstorage.model;
+
+/**
+ * Effective access a user has to a folder, ordered from least to most. Share
+ * rows still store the lower-case label ("view" / "edit").
+ */
+public enum Permission {
+    NONE(null),
+    VIEW("view"),
+    EDIT("edit"),
+    OWNER("owner");
+
+    private final String label;
+
+    Permission(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public boolean canView() {
+        return this != NONE;
+    }
+
+    public boolean canEdit() {
+        return compareTo(EDIT) >= 0;
+    }
+
+    public static Permission fromLabel(String label) {
+        if (label == null) {
+            return NONE;
+        }
+        return switch (label.toLowerCase()) {
+            case "owner" -> OWNER;
+            case "edit" -> EDIT;
+            // Any other value on an active share has always granted read access
+            default -> VIEW;
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.cloudstorage.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One item in a user's "shared with me" list, copied from the share, the item
+ * and its owner when the share is written so listing it needs no joins.
+ */
+@Entity
+@Table(
+    name = "shared_inbox",
+    indexes = {
+        @Index(name = "idx_shared_inbox_recipient_shared_at", columnList = "recipient_id, shared_at, id"),
+        @Index(name = "idx_shared_inbox_item", columnList = "item_type, item_id"),
+        @Index(name = "idx_shared_inbox_owner", columnList = "owner_id"),
+        @Index(name = "idx_shared_inbox_shared_by", columnList = "shared_by_id")
+    },
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_shared_inbox_item", columnNames = {"recipient_id", "item_type", "item_id"})
+    }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SharedInboxEntry {
+
+    public enum ItemType {
+        FILE,
+        FOLDER
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "recipient_id", nullable = false)
+    private Long recipientId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "item_type", nullable = false, length = 10)
+    private ItemType itemType;
+
+    @Column(name = "item_id", nullable = false)
+    private Long itemId;
+
+    @Column(name = "share_id", nullable = false)
+    private Long shareId;
+
+    @Column(nullable = false)
+    private String name;
+
+    private Long size;
+
+    @Column(name = "mime_type")
+    private String mimeType;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "owner_email")
+    private String ownerEmail;
+
+    @Column(name = "owner_name")
+    private String ownerName;
+
+    @Column(name = "shared_by_id", nullable = false)
+    private Long sharedById;
+
+    @Column(name = "shared_by_name")
+    private String sharedByName;
+
+    @Column(nullable = false, length = 20)
+    private String permission;
+
+    @Column(name = "is_starred", nullable = false)
+    @Builder.Default
+    private Boolean isStarred = false;
+
+    // The owner trashed the item; hidden until it is restored
+    @Column(name = "item_deleted", nullable = false)
+    @Builder.Default
+    private Boolean itemDeleted = false;
+
+    @Column(name = "shared_at", nullable = false)
+    private LocalDateTime sharedAt;
+
+    @Column(name = "item_created_at")
+    private LocalDateTime itemCreatedAt;
+}
@@ -59,7 +59,10 @@ public class User {
     @Column(name = "is_active", nullable = true)
     private Boolean isActive = true;  // ADDED: Required for UserDetailsService
 
-    
+    @Builder.Default
+    @Column(name = "token_version", nullable = false)
+    private Long tokenVersion = 0L;  // Embedded in JWTs; bump to revoke them
+
 
     @Builder.Default
     @Column(name = "storage_used", nullable = false)
@@ -110,6 +113,9 @@ public class User {
         if (storageLimit == null) {
             storageLimit = 5368709120L;
         }
+        if (tokenVersion == null) {
+            tokenVersion = 0L;
+        }
     }
 
     @PreUpdate
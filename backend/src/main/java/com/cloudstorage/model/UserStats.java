@@ -0,0 +1,115 @@
+package com.cloudstorage.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+
+/**
+ * Materialized dashboard counters for one user, kept current from file and
+ * folder change events. Counters only cover the user's own, non-deleted items.
+ */
+@Entity
+@Table(name = "user_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserStats {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(name = "file_count", nullable = false)
+    private Long fileCount = 0L;
+
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(name = "folder_count", nullable = false)
+    private Long folderCount = 0L;
+
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(name = "starred_count", nullable = false)
+    private Long starredCount = 0L;
+
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(name = "image_bytes", nullable = false)
+    private Long imageBytes = 0L;
+
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(name = "video_bytes", nullable = false)
+    private Long videoBytes = 0L;
+
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(name = "audio_bytes", nullable = false)
+    private Long audioBytes = 0L;
+
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(name = "document_bytes", nullable = false)
+    private Long documentBytes = 0L;
+
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(name = "other_bytes", nullable = false)
+    private Long otherBytes = 0L;
+
+    // JSON list of the five newest files; NULL means it must be re-read from files
+    @Column(name = "recent_files", length = 8000)
+    private String recentFiles;
+
+    @Version
+    private Long version;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public long getBytes(FileCategory category) {
+        return switch (category) {
+            case IMAGE -> imageBytes;
+            case VIDEO -> videoBytes;
+            case AUDIO -> audioBytes;
+            case DOCUMENT -> documentBytes;
+            case OTHER -> otherBytes;
+        };
+    }
+
+    public void addBytes(FileCategory category, long bytes) {
+        switch (category) {
+            case IMAGE -> imageBytes += bytes;
+            case VIDEO -> videoBytes += bytes;
+            case AUDIO -> audioBytes += bytes;
+            case DOCUMENT -> documentBytes += bytes;
+            case OTHER -> otherBytes += bytes;
+        }
+    }
+
+    /**
+     * True when the counters (not the recent list) match another snapshot.
+     */
+    public boolean sameCounters(UserStats other) {
+        return fileCount.equals(other.fileCount)
+                && folderCount.equals(other.folderCount)
+                && starredCount.equals(other.starredCount)
+                && imageBytes.equals(other.imageBytes)
+                && videoBytes.equals(other.videoBytes)
+                && audioBytes.equals(other.audioBytes)
+                && documentBytes.equals(other.documentBytes)
+                && otherBytes.equals(other.otherBytes);
+    }
+}
@@ -3,9 +3,16 @@ package com.cloudstorage.repository;
 import com.cloudstorage.model.File;
 import com.cloudstorage.model.Folder;
 import com.cloudstorage.model.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -54,4 +61,151 @@ public interface FileRepository extends JpaRepository<File, Long> {
 // List<File> findByFolderAndIsDeleted(Folder folder, Boolean isDeleted);
 int countByFolderAndIsDeleted(Folder folder, Boolean isDeleted);
 
+    // ================= ROLLUPS =================
+    @Query("SELECT f.folder.id AS folderId, COUNT(f) AS fileCount, COALESCE(SUM(f.size), 0) AS totalSize " +
+           "FROM File f WHERE f.folder IS NOT NULL AND f.isDeleted = false GROUP BY f.folder.id")
+    List<FolderFileTotals> sumLiveFilesByFolder();
+
+    // ================= SHARED CONTENT =================
+    // A file's bytes, read from its content source when it is a copy
+    @Query(value = "SELECT s.file_data FROM files f JOIN files s ON s.id = COALESCE(f.content_source_id, f.id) " +
+                   "WHERE f.id = :fileId", nativeQuery = true)
+    byte[] findContent(@Param("fileId") Long fileId);
+
+    @Query(value = "SELECT MIN(id) FROM files WHERE content_source_id = :sourceId", nativeQuery = true)
+    Long findFirstCopyId(@Param("sourceId") Long sourceId);
+
+    @Modifying
+    @Query(value = "UPDATE files SET file_data = (SELECT s.file_data FROM files s WHERE s.id = :sourceId), " +
+                   "content_source_id = NULL WHERE id = :heirId", nativeQuery = true)
+    int inheritContent(@Param("sourceId") Long sourceId, @Param("heirId") Long heirId);
+
+    @Modifying
+    @Query(value = "UPDATE files SET content_source_id = :heirId WHERE content_source_id = :sourceId", nativeQuery = true)
+    int repointCopies(@Param("sourceId") Long sourceId, @Param("heirId") Long heirId);
+
+    /**
+     * Before a file that copies read from is purged, moves its bytes to the
+     * oldest copy and points the other copies there.
+     */
+    default void handOverContent(Long sourceId) {
+        Long heirId = findFirstCopyId(sourceId);
+        if (heirId != null) {
+            inheritContent(sourceId, heirId);
+            repointCopies(sourceId, heirId);
+        }
+    }
+
+    // ================= STORAGE QUOTA =================
+    // Trashed files still occupy storage until they are permanently deleted
+    @Query("SELECT f.user.id AS userId, COALESCE(SUM(f.size), 0) AS storageUsed FROM File f GROUP BY f.user.id")
+    List<UserRepository.StorageUsage> sumStorageByUser();
+
+    // ================= USER STATS =================
+    @Query("SELECT f.user.id AS userId, f.mimeType AS mimeType, COUNT(f) AS fileCount, " +
+           "COALESCE(SUM(f.size), 0) AS totalSize, " +
+           "SUM(CASE WHEN f.isStarred = true THEN 1 ELSE 0 END) AS starredCount " +
+           "FROM File f WHERE f.user.id = :userId AND f.isDeleted = false GROUP BY f.user.id, f.mimeType")
+    List<MimeTotals> sumLiveFilesByMimeType(@Param("userId") Long userId);
+
+    @Query("SELECT f.user.id AS userId, f.mimeType AS mimeType, COUNT(f) AS fileCount, " +
+           "COALESCE(SUM(f.size), 0) AS totalSize, " +
+           "SUM(CASE WHEN f.isStarred = true THEN 1 ELSE 0 END) AS starredCount " +
+           "FROM File f WHERE f.isDeleted = false GROUP BY f.user.id, f.mimeType")
+    List<MimeTotals> sumLiveFilesByUserAndMimeType();
+
+    // Column projection so the newest-files list never pulls file_data
+    @Query("SELECT f.id AS id, f.name AS name, f.size AS size, f.mimeType AS mimeType, " +
+           "f.isStarred AS isStarred, fo.id AS folderId, f.createdAt AS createdAt, f.updatedAt AS updatedAt " +
+           "FROM File f LEFT JOIN f.folder fo WHERE f.user.id = :userId AND f.isDeleted = false " +
+           "ORDER BY f.createdAt DESC")
+    List<RecentFile> findRecentFiles(@Param("userId") Long userId, Pageable pageable);
+
+    // Same projection for shared-folder views, which list a folder's files without their bytes
+    @Query("SELECT f.id AS id, f.name AS name, f.size AS size, f.mimeType AS mimeType, " +
+           "f.isStarred AS isStarred, fo.id AS folderId, f.createdAt AS createdAt, f.updatedAt AS updatedAt " +
+           "FROM File f JOIN f.folder fo WHERE fo.id = :folderId AND f.isDeleted = false")
+    List<RecentFile> findLiveFilesInFolder(@Param("folderId") Long folderId);
+
+    // ================= NAME SEARCH =================
+    @Query("SELECT f.id AS id, f.user.id AS ownerId, fo.id AS folderId, f.name AS name " +
+           "FROM File f LEFT JOIN f.folder fo WHERE f.id > :afterId AND f.isDeleted = false ORDER BY f.id")
+    List<NameEntry> findLiveNameEntries(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT f.id AS id, f.name AS name, f.size AS size, f.mimeType AS mimeType, " +
+           "f.isStarred AS isStarred, fo.id AS folderId, f.createdAt AS createdAt, f.updatedAt AS updatedAt, " +
+           "u.id AS ownerId, u.fullName AS ownerName, u.email AS ownerEmail " +
+           "FROM File f JOIN f.user u LEFT JOIN f.folder fo WHERE f.id IN :ids")
+    List<FileSummary> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    // Fallback while the in-memory name index is still loading
+    @Query("SELECT f.id AS id, f.name AS name, f.size AS size, f.mimeType AS mimeType, " +
+           "f.isStarred AS isStarred, fo.id AS folderId, f.createdAt AS createdAt, f.updatedAt AS updatedAt, " +
+           "u.id AS ownerId, u.fullName AS ownerName, u.email AS ownerEmail " +
+           "FROM File f JOIN f.user u LEFT JOIN f.folder fo " +
+           "WHERE u.id = :userId AND f.isDeleted = false AND LOWER(f.name) LIKE LOWER(CONCAT('%', :query, '%')) " +
+           "ORDER BY f.name")
+    Page<FileSummary> searchOwnedSummaries(@Param("userId") Long userId,
+                                           @Param("query") String query,
+                                           Pageable pageable);
+
+    // ================= CONTENT INDEX =================
+    @Query("SELECT f.id AS id, f.user.id AS ownerId, fo.id AS folderId, f.isDeleted AS isDeleted, " +
+           "f.name AS name, f.mimeType AS mimeType, f.size AS size " +
+           "FROM File f LEFT JOIN f.folder fo WHERE f.id > :afterId ORDER BY f.id")
+    List<ContentCandidate> findContentCandidates(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT f.id AS id, f.user.id AS ownerId, fo.id AS folderId, f.isDeleted AS isDeleted, " +
+           "f.name AS name, f.mimeType AS mimeType, f.size AS size " +
+           "FROM File f LEFT JOIN f.folder fo WHERE f.id IN :ids ORDER BY f.id")
+    List<ContentCandidate> findContentCandidatesByIds(@Param("ids") Collection<Long> ids);
+
+    interface ContentCandidate {
+        Long getId();
+        Long getOwnerId();
+        Long getFolderId();
+        Boolean getIsDeleted();
+        String getName();
+        String getMimeType();
+        Long getSize();
+    }
+
+    interface NameEntry {
+        Long getId();
+        Long getOwnerId();
+        Long getFolderId();
+        String getName();
+    }
+
+    interface FileSummary extends RecentFile {
+        Long getOwnerId();
+        String getOwnerName();
+        String getOwnerEmail();
+    }
+
+    interface MimeTotals {
+        Long getUserId();
+        String getMimeType();
+        Long getFileCount();
+        Long getTotalSize();
+        Long getStarredCount();
+    }
+
+    interface RecentFile {
+        Long getId();
+        String getName();
+        Long getSize();
+        String getMimeType();
+        Boolean getIsStarred();
+        Long getFolderId();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getUpdatedAt();
+    }
+
+    interface FolderFileTotals {
+        Long getFolderId();
+        Long getFileCount();
+        Long getTotalSize();
+    }
+
 }
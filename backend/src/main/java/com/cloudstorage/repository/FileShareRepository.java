@@ -30,7 +30,11 @@ public interface FileShareRepository extends JpaRepository<FileShare, Long> {
 
     // ================= EXISTENCE CHECKS =================
 
-    boolean existsByFileAndSharedWithAndIsActive(File file, User user, Boolean isActive);
+    // Expired shares stop granting access here, not only once the sweeper deactivates them
+    @Query("SELECT CASE WHEN COUNT(fs) > 0 THEN true ELSE false END FROM FileShare fs " +
+           "WHERE fs.file = :file AND fs.sharedWith = :user AND fs.isActive = true " +
+           "AND (fs.expiresAt IS NULL OR fs.expiresAt > CURRENT_TIMESTAMP)")
+    boolean hasActiveShare(@Param("file") File file, @Param("user") User user);
 
     boolean existsByFileAndIsActive(File file, Boolean isActive);
 
@@ -63,9 +67,14 @@ public interface FileShareRepository extends JpaRepository<FileShare, Long> {
     @Query("SELECT fs FROM FileShare fs WHERE fs.sharedWith = :user AND fs.permission = 'edit' AND fs.isActive = true")
     List<FileShare> findEditableFilesSharedWith(@Param("user") User user);
 
-    @Query("SELECT CASE WHEN COUNT(fs) > 0 THEN true ELSE false END FROM FileShare fs WHERE fs.file = :file AND fs.shareToken IS NOT NULL AND fs.sharedWith IS NULL AND fs.isActive = true")
+    @Query("SELECT CASE WHEN COUNT(fs) > 0 THEN true ELSE false END FROM FileShare fs WHERE fs.file = :file AND fs.shareToken IS NOT NULL AND fs.sharedWith IS NULL AND fs.isActive = true " +
+           "AND (fs.expiresAt IS NULL OR fs.expiresAt > CURRENT_TIMESTAMP)")
     boolean hasPublicShareLink(@Param("file") File file);
 
+    @Query("SELECT fs.file.id FROM FileShare fs WHERE fs.sharedWith.id = :userId AND fs.isActive = true " +
+           "AND (fs.expiresAt IS NULL OR fs.expiresAt > CURRENT_TIMESTAMP)")
+    List<Long> findActiveSharedFileIds(@Param("userId") Long userId);
+
     Optional<FileShare> findByFile_IdAndSharedWithAndIsActive(
             Long fileId,
             User sharedWith,
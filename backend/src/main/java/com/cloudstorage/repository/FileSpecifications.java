@@ -0,0 +1,155 @@
+package com.cloudstorage.repository;
+
+import com.cloudstorage.model.File;
+import com.cloudstorage.model.FileCategory;
+import com.cloudstorage.model.FileShare;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Subquery;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Composable filters over {@link File}. Each one maps to a column covered by a
+ * composite index on files (see the index list on the entity), so filters can be
+ * combined freely without adding derived query methods.
+ */
+public final class FileSpecifications {
+
+    private static final List<String> DOCUMENT_TYPES = List.of(
+            "application/pdf", "application/rtf", "application/msword");
+
+    private static final List<String> DOCUMENT_PREFIXES = List.of(
+            "text/", "application/vnd.ms-", "application/vnd.openxmlformats-officedocument.",
+            "application/vnd.oasis.opendocument.");
+
+    private FileSpecifications() {
+    }
+
+    /**
+     * Files the user can see: the ones they uploaded, those with an active
+     * direct share, those anyone uploaded into the user's own folders, and
+     * those inside {@code sharedFolderIds}, the folder trees shared with them
+     * (resolved by the caller, since the walk is recursive). Written as
+     * {@code id IN (arm UNION arm ...)} rather than an OR of the arms: each arm
+     * is an index lookup, where the OR forces a scan of every file.
+     */
+    public static Specification<File> visibleTo(Long userId, Collection<Long> sharedFolderIds) {
+        return (root, query, cb) -> {
+            Subquery<Long> owned = query.subquery(Long.class);
+            var own = owned.from(File.class);
+            owned.select(own.get("id"))
+                 .where(cb.equal(own.get("user").get("id"), userId));
+
+            Subquery<Long> shared = query.subquery(Long.class);
+            var share = shared.from(FileShare.class);
+            shared.select(share.get("file").get("id"))
+                  .where(cb.equal(share.get("sharedWith").get("id"), userId),
+                         cb.isTrue(share.get("isActive")),
+                         cb.or(cb.isNull(share.get("expiresAt")),
+                               cb.greaterThan(share.<LocalDateTime>get("expiresAt"), cb.localDateTime())));
+
+            Subquery<Long> inOwnFolders = query.subquery(Long.class);
+            var ownFolderFile = inOwnFolders.from(File.class);
+            inOwnFolders.select(ownFolderFile.get("id"))
+                        .where(cb.equal(ownFolderFile.join("folder").get("user").get("id"), userId));
+
+            HibernateCriteriaBuilder hcb = (HibernateCriteriaBuilder) cb;
+            if (sharedFolderIds.isEmpty()) {
+                return root.get("id").in(hcb.union(owned, shared, inOwnFolders));
+            }
+            Subquery<Long> inSharedFolders = query.subquery(Long.class);
+            var sharedFolderFile = inSharedFolders.from(File.class);
+            inSharedFolders.select(sharedFolderFile.get("id"))
+                           .where(sharedFolderFile.get("folder").get("id").in(sharedFolderIds));
+            return root.get("id").in(hcb.union(owned, shared, inOwnFolders, inSharedFolders));
+        };
+    }
+
+    public static Specification<File> notDeleted() {
+        return (root, query, cb) -> cb.isFalse(root.get("isDeleted"));
+    }
+
+    public static Specification<File> ownedBy(Long ownerId) {
+        return (root, query, cb) -> cb.equal(root.get("user").get("id"), ownerId);
+    }
+
+    public static Specification<File> inFolder(Long folderId) {
+        return (root, query, cb) -> cb.equal(root.get("folder").get("id"), folderId);
+    }
+
+    public static Specification<File> starred(boolean starred) {
+        return (root, query, cb) -> cb.equal(root.get("isStarred"), starred);
+    }
+
+    public static Specification<File> sizeBetween(Long min, Long max) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (min != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("size"), min));
+            }
+            if (max != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("size"), max));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    public static Specification<File> modifiedBetween(LocalDateTime from, LocalDateTime to) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (from != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("updatedAt"), from));
+            }
+            if (to != null) {
+                predicates.add(cb.lessThan(root.get("updatedAt"), to));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Any of the given type buckets ("pdf" plus the {@link FileCategory} names).
+     */
+    public static Specification<File> ofTypes(Collection<String> types) {
+        return (root, query, cb) -> cb.or(types.stream()
+                .map(type -> typePredicate(root.get("mimeType"), type, cb))
+                .toArray(Predicate[]::new));
+    }
+
+    /**
+     * SQL form of {@link FileCategory#of}. Prefix LIKEs keep the mime_type index usable.
+     */
+    public static Predicate typePredicate(Path<String> mimeType, String type, CriteriaBuilder cb) {
+        String key = type.toLowerCase();
+        if ("pdf".equals(key)) {
+            return cb.equal(mimeType, "application/pdf");
+        }
+        return switch (FileCategory.valueOf(key.toUpperCase())) {
+            case IMAGE -> cb.like(mimeType, "image/%");
+            case VIDEO -> cb.like(mimeType, "video/%");
+            case AUDIO -> cb.like(mimeType, "audio/%");
+            case DOCUMENT -> documentPredicate(mimeType, cb);
+            case OTHER -> cb.or(cb.isNull(mimeType), cb.not(cb.or(
+                    cb.like(mimeType, "image/%"),
+                    cb.like(mimeType, "video/%"),
+                    cb.like(mimeType, "audio/%"),
+                    documentPredicate(mimeType, cb))));
+        };
+    }
+
+    private static Predicate documentPredicate(Path<String> mimeType, CriteriaBuilder cb) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(mimeType.in(DOCUMENT_TYPES));
+        for (String prefix : DOCUMENT_PREFIXES) {
+            predicates.add(cb.like(mimeType, prefix + "%"));
+        }
+        return cb.or(predicates.toArray(new Predicate[0]));
+    }
+}
@@ -3,9 +3,16 @@ package com.cloudstorage.repository;
 import com.cloudstorage.model.Folder;
 import com.cloudstorage.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Repository
 public interface FolderRepository extends JpaRepository<Folder, Long> {
@@ -21,9 +28,88 @@ public interface FolderRepository extends JpaRepository<Folder, Long> {
     List<Folder> findByParent(Folder parent);
 
     long countByUserAndIsDeleted(User user, boolean isDeleted);
+
+    long countByUserIdAndIsDeleted(Long userId, Boolean isDeleted);
+
+    @Query("SELECT f.user.id AS userId, COUNT(f) AS folderCount FROM Folder f " +
+           "WHERE f.isDeleted = false GROUP BY f.user.id")
+    List<UserFolderCount> countLiveFoldersByUser();
+
+    interface UserFolderCount {
+        Long getUserId();
+        Long getFolderCount();
+    }
     
    // List<Folder> findByParentAndIsDeleted(Folder parent, Boolean isDeleted);
 
      int countByParentAndIsDeleted(Folder parent, Boolean isDeleted);
 
-}
\ No newline at end of file
+    // ================= AGGREGATE COUNTS =================
+
+    /**
+     * Direct child counts (non-deleted subfolders and files) for a page of folders,
+     * resolved in a single round trip instead of two COUNT queries per folder.
+     */
+    @Query("SELECT f.id AS folderId, " +
+           "(SELECT COUNT(c) FROM Folder c WHERE c.parent = f AND c.isDeleted = false) AS folderCount, " +
+           "(SELECT COUNT(x) FROM File x WHERE x.folder = f AND x.isDeleted = false) AS fileCount " +
+           "FROM Folder f WHERE f.id IN :folderIds")
+    List<ItemCount> countItemsByFolderIds(@Param("folderIds") Collection<Long> folderIds);
+
+    default Map<Long, Integer> countItemsByFolders(Collection<Folder> folders) {
+        if (folders.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> ids = folders.stream().map(Folder::getId).toList();
+        return countItemsByFolderIds(ids).stream()
+                .collect(Collectors.toMap(ItemCount::getFolderId, ItemCount::getTotal));
+    }
+
+    // ================= ROLLUPS =================
+
+    @Query("SELECT f.id AS id, p.id AS parentId FROM Folder f LEFT JOIN f.parent p WHERE f.id IN :ids")
+    List<ParentLink> findParentLinks(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT f.id AS id, p.id AS parentId, f.isDeleted AS deleted, " +
+           "f.totalSize AS totalSize, f.totalItems AS totalItems FROM Folder f LEFT JOIN f.parent p")
+    List<StatsNode> findAllStatsNodes();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Folder f SET f.totalSize = f.totalSize + :bytes, f.totalItems = f.totalItems + :items WHERE f.id = :id")
+    int applyStatsDelta(@Param("id") Long id, @Param("bytes") long bytes, @Param("items") long items);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Folder f SET f.totalSize = :totalSize, f.totalItems = :totalItems " +
+           "WHERE f.id = :id AND f.totalSize = :expectedSize AND f.totalItems = :expectedItems")
+    int resetStats(@Param("id") Long id,
+                   @Param("totalSize") long totalSize,
+                   @Param("totalItems") long totalItems,
+                   @Param("expectedSize") long expectedSize,
+                   @Param("expectedItems") long expectedItems);
+
+    interface ParentLink {
+        Long getId();
+        Long getParentId();
+    }
+
+    interface StatsNode {
+        Long getId();
+        Long getParentId();
+        Boolean getDeleted();
+        Long getTotalSize();
+        Long getTotalItems();
+    }
+
+    interface ItemCount {
+        Long getFolderId();
+        Long getFolderCount();
+        Long getFileCount();
+
+        default int getTotal() {
+            return (int) (getFolderCount() + getFileCount());
+        }
+    }
+
+}
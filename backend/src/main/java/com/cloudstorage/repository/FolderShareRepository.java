@@ -4,8 +4,12 @@ import com.cloudstorage.model.Folder;
 import com.cloudstorage.model.FolderShare;
 import com.cloudstorage.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,5 +28,21 @@ public interface FolderShareRepository extends JpaRepository<FolderShare, Long>
     
     List<FolderShare> findBySharedByAndIsActive(User sharedBy, Boolean isActive);
 
-    void deleteByFolderId(Long folderId);
+    @Query("SELECT fs.folder.id FROM FolderShare fs WHERE fs.sharedWith.id = :userId AND fs.isActive = true " +
+           "AND (fs.expiresAt IS NULL OR fs.expiresAt > CURRENT_TIMESTAMP)")
+    List<Long> findActiveSharedFolderIds(@Param("userId") Long userId);
+
+        void deleteByFolderId(Long folderId);
+
+    @Query("SELECT fs.folder.id AS folderId, fs.permission AS permission, fs.expiresAt AS expiresAt FROM FolderShare fs " +
+           "WHERE fs.sharedWith.id = :userId AND fs.isActive = true AND fs.folder.id IN :folderIds " +
+           "AND (fs.expiresAt IS NULL OR fs.expiresAt > CURRENT_TIMESTAMP)")
+    List<SharePermission> findActivePermissions(@Param("userId") Long userId,
+                                                @Param("folderIds") Collection<Long> folderIds);
+
+    interface SharePermission {
+        Long getFolderId();
+        String getPermission();
+        LocalDateTime getExpiresAt();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.cloudstorage.repository;
+
+import com.cloudstorage.model.SharedInboxEntry;
+import com.cloudstorage.model.SharedInboxEntry.ItemType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SharedInboxRepository extends JpaRepository<SharedInboxEntry, Long> {
+
+    List<SharedInboxEntry> findByItemTypeAndItemId(ItemType itemType, Long itemId);
+
+    List<SharedInboxEntry> findByRecipientIdAndItemTypeAndItemDeletedFalseOrderBySharedAtDescIdDesc(
+            Long recipientId, ItemType itemType);
+
+    // ================= KEYSET PAGES =================
+
+    @Query("SELECT e FROM SharedInboxEntry e WHERE e.recipientId = :recipientId AND e.itemDeleted = false " +
+           "ORDER BY e.sharedAt DESC, e.id DESC")
+    List<SharedInboxEntry> findFirstPage(@Param("recipientId") Long recipientId, Pageable pageable);
+
+    @Query("SELECT e FROM SharedInboxEntry e WHERE e.recipientId = :recipientId AND e.itemDeleted = false " +
+           "AND (e.sharedAt < :sharedAt OR (e.sharedAt = :sharedAt AND e.id < :id)) " +
+           "ORDER BY e.sharedAt DESC, e.id DESC")
+    List<SharedInboxEntry> findPageAfter(@Param("recipientId") Long recipientId,
+                                         @Param("sharedAt") LocalDateTime sharedAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+
+    // ================= FAN-OUT =================
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SharedInboxEntry e SET e.name = :name WHERE e.itemType = :itemType AND e.itemId = :itemId")
+    int renameItem(@Param("itemType") ItemType itemType, @Param("itemId") Long itemId, @Param("name") String name);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SharedInboxEntry e SET e.itemDeleted = :deleted WHERE e.itemType = :itemType AND e.itemId = :itemId")
+    int markItemDeleted(@Param("itemType") ItemType itemType, @Param("itemId") Long itemId,
+                        @Param("deleted") boolean deleted);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SharedInboxEntry e WHERE e.itemType = :itemType AND e.itemId = :itemId")
+    int deleteItem(@Param("itemType") ItemType itemType, @Param("itemId") Long itemId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SharedInboxEntry e SET e.ownerEmail = :email, e.ownerName = :name WHERE e.ownerId = :userId")
+    int updateOwner(@Param("userId") Long userId, @Param("email") String email, @Param("name") String name);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SharedInboxEntry e SET e.sharedByName = :name WHERE e.sharedById = :userId")
+    int updateSharer(@Param("userId") Long userId, @Param("name") String name);
+}
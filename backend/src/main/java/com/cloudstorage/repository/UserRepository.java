@@ -2,8 +2,13 @@ package com.cloudstorage.repository;
 
 import com.cloudstorage.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +16,48 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Optional<User> findByGoogleId(String googleId);
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    // ================= STORAGE QUOTA =================
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.storageUsed = CASE WHEN u.storageUsed + :delta < 0 THEN 0 " +
+           "ELSE u.storageUsed + :delta END WHERE u.id = :id")
+    int adjustStorageUsed(@Param("id") Long id, @Param("delta") long delta);
+
+    // Applies the charge only while it still fits, so concurrent writers cannot overshoot the limit
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.storageUsed = u.storageUsed + :bytes " +
+           "WHERE u.id = :id AND u.storageUsed + :bytes <= u.storageLimit")
+    int chargeStorageUsed(@Param("id") Long id, @Param("bytes") long bytes);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.storageUsed = :actual WHERE u.id = :id AND u.storageUsed = :expected")
+    int resetStorageUsed(@Param("id") Long id, @Param("actual") long actual, @Param("expected") long expected);
+
+    @Query("SELECT u.id AS userId, u.storageUsed AS storageUsed FROM User u")
+    List<StorageUsage> findAllStorageUsage();
+
+    interface StorageUsage {
+        Long getUserId();
+        Long getStorageUsed();
+    }
+
+    // ================= TOKEN VERSION =================
+
+    @Query("SELECT u.id AS id, u.tokenVersion AS tokenVersion, u.isActive AS active FROM User u WHERE u.id = :id")
+    Optional<TokenState> findTokenState(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.tokenVersion = u.tokenVersion + 1 WHERE u.id = :id")
+    int bumpTokenVersion(@Param("id") Long id);
+
+    interface TokenState {
+        Long getId();
+        Long getTokenVersion();
+        Boolean getActive();
+    }
+}
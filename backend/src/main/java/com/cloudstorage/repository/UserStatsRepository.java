@@ -0,0 +1,56 @@
+package com.cloudstorage.repository;
+
+import com.cloudstorage.model.UserStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface UserStatsRepository extends JpaRepository<UserStats, Long> {
+
+    // ================= EVENT DELTAS =================
+    // Relative updates so concurrent writers never overwrite each other;
+    // the version bump lets the reconciler detect rows that moved under it.
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserStats s SET " +
+           "s.fileCount = s.fileCount + :files, " +
+           "s.starredCount = s.starredCount + :starred, " +
+           "s.imageBytes = s.imageBytes + :image, " +
+           "s.videoBytes = s.videoBytes + :video, " +
+           "s.audioBytes = s.audioBytes + :audio, " +
+           "s.documentBytes = s.documentBytes + :document, " +
+           "s.otherBytes = s.otherBytes + :other, " +
+           "s.recentFiles = NULL, " +
+           "s.version = s.version + 1 " +
+           "WHERE s.userId = :userId")
+    int applyFileDelta(@Param("userId") Long userId,
+                       @Param("files") long files,
+                       @Param("starred") long starred,
+                       @Param("image") long image,
+                       @Param("video") long video,
+                       @Param("audio") long audio,
+                       @Param("document") long document,
+                       @Param("other") long other);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserStats s SET s.folderCount = s.folderCount + :folders, s.version = s.version + 1 " +
+           "WHERE s.userId = :userId")
+    int applyFolderDelta(@Param("userId") Long userId, @Param("folders") long folders);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserStats s SET s.recentFiles = NULL WHERE s.userId = :userId")
+    int clearRecentFiles(@Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserStats s SET s.recentFiles = :recentFiles " +
+           "WHERE s.userId = :userId AND s.recentFiles IS NULL")
+    int fillRecentFiles(@Param("userId") Long userId, @Param("recentFiles") String recentFiles);
+}
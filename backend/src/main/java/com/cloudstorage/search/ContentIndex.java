@@ -0,0 +1,318 @@
+package com.cloudstorage.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-disk Lucene index of file contents.
+ *
+ * Each document holds the file id, the indexed text and a stored preview (the
+ * first few thousand characters) used to build snippets. The owner, folder and
+ * trash flag are indexed alongside so access is filtered inside the query
+ * rather than after it; folder and trash flag are doc values, updated in place
+ * when a file moves or is trashed without re-reading its content. The id of
+ * the last file the indexer reached is saved in the commit metadata so
+ * indexing resumes where it stopped after a restart.
+ */
+@Component
+@Slf4j
+public class ContentIndex {
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_CONTENT = "content";
+    private static final String FIELD_PREVIEW = "preview";
+    private static final String FIELD_OWNER = "owner";
+    private static final String FIELD_FOLDER = "folder";
+    private static final String FIELD_TRASHED = "trashed";
+    private static final String CHECKPOINT_KEY = "lastFileId";
+    private static final String FORMAT_KEY = "format";
+    // Bumped when the document layout changes; an older index is rebuilt from scratch
+    private static final String FORMAT = "2";
+    private static final long ROOT_FOLDER = 0L;
+    private static final int PREVIEW_CHARS = 8192;
+    private static final int MAX_WINDOW = 10_000;
+    private static final int SNIPPET_FALLBACK_CHARS = 160;
+
+    @Value("${app.search.content.index-dir:${java.io.tmpdir}/cloud-storage/content-index}")
+    private String indexDir;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile long checkpoint;
+
+    public record Match(Long fileId, float score, String snippet) {
+    }
+
+    public record MatchPage(List<Match> matches, boolean hasNext) {
+    }
+
+    // ================= LIFECYCLE =================
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path path = Path.of(indexDir);
+        Files.createDirectories(path);
+        directory = FSDirectory.open(path);
+
+        boolean current = true;
+        if (DirectoryReader.indexExists(directory)) {
+            Map<String, String> userData = SegmentInfos.readLatestCommit(directory).getUserData();
+            current = FORMAT.equals(userData.get(FORMAT_KEY));
+            checkpoint = current ? Long.parseLong(userData.getOrDefault(CHECKPOINT_KEY, "0")) : 0L;
+        }
+
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(writer, null);
+        if (!current) {
+            log.info("Content index at {} predates format {}, rebuilding", path, FORMAT);
+            writer.deleteAll();
+        }
+        // Written now so that even a close without any indexing records the format
+        commit(checkpoint);
+        log.info("Content index opened at {} (resuming after file {})", path, checkpoint);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (searcherManager != null) {
+            searcherManager.close();
+        }
+        if (writer != null) {
+            writer.close();
+        }
+        if (directory != null) {
+            directory.close();
+        }
+    }
+
+    // ================= WRITE =================
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Indexes a file's text. The reader is consumed while the document is
+     * written, so only the preview is ever held in memory.
+     */
+    public void index(Long fileId, Long ownerId, Long folderId, boolean trashed, Reader text) throws IOException {
+        char[] buf = new char[PREVIEW_CHARS];
+        int filled = 0;
+        int n;
+        while (filled < buf.length && (n = text.read(buf, filled, buf.length - filled)) > 0) {
+            filled += n;
+        }
+        String preview = new String(buf, 0, filled);
+
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_ID, fileId.toString(), Field.Store.YES));
+        doc.add(new StringField(FIELD_OWNER, ownerId.toString(), Field.Store.NO));
+        doc.add(new NumericDocValuesField(FIELD_FOLDER, folderValue(folderId)));
+        doc.add(new NumericDocValuesField(FIELD_TRASHED, trashed ? 1L : 0L));
+        doc.add(new StoredField(FIELD_PREVIEW, preview));
+        doc.add(new TextField(FIELD_CONTENT, preview, Field.Store.NO));
+        doc.add(new TextField(FIELD_CONTENT, text));
+        writer.updateDocument(new Term(FIELD_ID, fileId.toString()), doc);
+    }
+
+    /**
+     * Records a file's current folder and trash flag. A no-op for files not
+     * indexed yet; the indexer reads both from the database when it gets there.
+     */
+    public void updateLocation(Long fileId, Long folderId, boolean trashed) {
+        Term id = new Term(FIELD_ID, fileId.toString());
+        try {
+            writer.updateNumericDocValue(id, FIELD_FOLDER, folderValue(folderId));
+            writer.updateNumericDocValue(id, FIELD_TRASHED, trashed ? 1L : 0L);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void delete(Long fileId) {
+        try {
+            writer.deleteDocuments(new Term(FIELD_ID, fileId.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Durably commits everything written so far together with the indexer position.
+     */
+    public void commit(long lastFileId) throws IOException {
+        writer.setLiveCommitData(Map.of(
+                CHECKPOINT_KEY, Long.toString(lastFileId),
+                FORMAT_KEY, FORMAT).entrySet());
+        writer.commit();
+        checkpoint = lastFileId;
+        searcherManager.maybeRefresh();
+    }
+
+    // ================= QUERY =================
+
+    /**
+     * Returns one page of live matching files within the scope, best match
+     * first, each with a highlighted snippet. The scope is a filter clause of
+     * the query itself, so every hit counts towards the page.
+     */
+    public MatchPage search(String text, int offset, int limit, SearchScope scope) {
+        Query content = buildQuery(text);
+        if (content == null || offset + limit >= MAX_WINDOW) {
+            return new MatchPage(List.of(), false);
+        }
+        Query query = new BooleanQuery.Builder()
+                .add(content, BooleanClause.Occur.MUST)
+                .add(scopeQuery(scope), BooleanClause.Occur.FILTER)
+                .add(NumericDocValuesField.newSlowExactQuery(FIELD_TRASHED, 0L), BooleanClause.Occur.FILTER)
+                .build();
+
+        try {
+            searcherManager.maybeRefresh();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                StoredFields stored = searcher.storedFields();
+                // One extra hit tells whether there is a next page
+                ScoreDoc[] hits = searcher.search(query, offset + limit + 1).scoreDocs;
+
+                Highlighter highlighter = new Highlighter(
+                        new SimpleHTMLFormatter("<mark>", "</mark>"),
+                        new SimpleHTMLEncoder(),
+                        new QueryScorer(content, FIELD_CONTENT));
+
+                List<Match> matches = new ArrayList<>();
+                int end = Math.min(offset + limit, hits.length);
+                for (int i = offset; i < end; i++) {
+                    Document doc = stored.document(hits[i].doc, Set.of(FIELD_ID, FIELD_PREVIEW));
+                    matches.add(new Match(Long.valueOf(doc.get(FIELD_ID)), hits[i].score,
+                            snippet(highlighter, doc.get(FIELD_PREVIEW))));
+                }
+                return new MatchPage(matches, hits.length > offset + limit);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Uploaded by the caller, or shared directly, or in a folder of the scope: a shared
+    // folder tree, or one of the caller's own folders that holds someone else's upload
+    private Query scopeQuery(SearchScope scope) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(FIELD_OWNER, scope.userId().toString())), BooleanClause.Occur.SHOULD);
+        if (!scope.fileIds().isEmpty()) {
+            List<BytesRef> ids = scope.fileIds().stream().map(id -> new BytesRef(id.toString())).toList();
+            builder.add(new TermInSetQuery(FIELD_ID, ids), BooleanClause.Occur.SHOULD);
+        }
+        if (!scope.folderIds().isEmpty()) {
+            long[] folders = scope.folderIds().stream().mapToLong(Long::longValue).toArray();
+            builder.add(NumericDocValuesField.newSlowSetQuery(FIELD_FOLDER, folders), BooleanClause.Occur.SHOULD);
+        }
+        return builder.build();
+    }
+
+    private static long folderValue(Long folderId) {
+        return folderId == null ? ROOT_FOLDER : folderId;
+    }
+
+    // Every term must match; the last one also matches as a prefix for search-as-you-type
+    private Query buildQuery(String text) {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(FIELD_CONTENT, text == null ? "" : text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (int i = 0; i < terms.size(); i++) {
+            Term term = new Term(FIELD_CONTENT, terms.get(i));
+            boolean last = i == terms.size() - 1;
+            if (last && terms.get(i).length() >= 2) {
+                builder.add(new BooleanQuery.Builder()
+                        .add(new TermQuery(term), BooleanClause.Occur.SHOULD)
+                        .add(new PrefixQuery(term), BooleanClause.Occur.SHOULD)
+                        .build(), BooleanClause.Occur.MUST);
+            } else {
+                builder.add(new TermQuery(term), BooleanClause.Occur.MUST);
+            }
+        }
+        return builder.build();
+    }
+
+    private String snippet(Highlighter highlighter, String preview) throws IOException {
+        if (preview == null || preview.isEmpty()) {
+            return "";
+        }
+        try {
+            String fragment = highlighter.getBestFragment(analyzer, FIELD_CONTENT, preview);
+            if (fragment != null) {
+                return fragment.strip();
+            }
+        } catch (InvalidTokenOffsetsException e) {
+            log.debug("Could not highlight snippet: {}", e.getMessage());
+        }
+        // Match lies beyond the stored preview
+        String head = preview.substring(0, Math.min(preview.length(), SNIPPET_FALLBACK_CHARS)).strip();
+        return new SimpleHTMLEncoder().encodeText(head);
+    }
+}
@@ -0,0 +1,198 @@
+package com.cloudstorage.search;
+
+import com.cloudstorage.event.FileChangeEvent;
+import com.cloudstorage.repository.FileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background job that feeds file contents into the {@link ContentIndex}.
+ *
+ * Files are visited in id order from the checkpoint stored in the index, so
+ * new uploads are picked up by the next run and a restart continues where the
+ * last commit left off. Ids are not committed in order, though: a copy or
+ * bulk insert that commits after the scan has passed its ids would be skipped
+ * for good, so every CREATED event at or below the checkpoint is queued and
+ * picked up ahead of the scan. Each run is capped by file count and bytes
+ * read, and content is streamed from the database straight into the index
+ * writer.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ContentIndexer {
+
+    // A copy's bytes live on its content source
+    private static final String CONTENT_SQL =
+            "SELECT s.file_data FROM files f JOIN files s ON s.id = COALESCE(f.content_source_id, f.id) WHERE f.id = ?";
+
+    private final ContentIndex contentIndex;
+    private final FileRepository fileRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.search.content.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.content.batch-size:25}")
+    private int batchSize;
+
+    @Value("${app.search.content.max-bytes-per-run:67108864}")
+    private long maxBytesPerRun;
+
+    @Value("${app.search.content.max-file-bytes:52428800}")
+    private long maxFileBytes;
+
+    @Value("${app.search.content.max-chars-per-file:2000000}")
+    private long maxCharsPerFile;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Files created since startup, waiting for a run
+    private final Set<Long> created = ConcurrentHashMap.newKeySet();
+
+    // ================= INDEXING =================
+
+    @Scheduled(fixedDelayString = "${app.search.content.interval-ms:10000}",
+               initialDelayString = "${app.search.content.initial-delay-ms:30000}")
+    public void indexPending() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        List<Long> late = List.of();
+        try {
+            long checkpoint = contentIndex.getCheckpoint();
+            late = takeLate(checkpoint);
+            List<FileRepository.ContentCandidate> batch =
+                    fileRepository.findContentCandidates(checkpoint, PageRequest.of(0, batchSize));
+            if (late.isEmpty() && batch.isEmpty()) {
+                return;
+            }
+
+            long[] budget = {maxBytesPerRun};
+            List<Long> indexed = new ArrayList<>();
+            if (!late.isEmpty()) {
+                for (FileRepository.ContentCandidate file : fileRepository.findContentCandidatesByIds(late)) {
+                    if (!indexed.isEmpty() && size(file) > budget[0]) {
+                        created.add(file.getId());
+                    } else {
+                        consider(file, budget, indexed);
+                    }
+                }
+            }
+            for (FileRepository.ContentCandidate file : batch) {
+                if (!indexed.isEmpty() && size(file) > budget[0]) {
+                    break;
+                }
+                consider(file, budget, indexed);
+                checkpoint = file.getId();
+            }
+
+            refreshLocations(indexed);
+            contentIndex.commit(checkpoint);
+            log.debug("Content indexer indexed {} files ({} late), checkpoint at {}",
+                    indexed.size(), late.size(), checkpoint);
+        } catch (IOException | RuntimeException e) {
+            created.addAll(late);
+            log.warn("Content indexing run failed, will retry from the last checkpoint: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Queued files the scan has already passed; later ones are left to the scan itself
+    private List<Long> takeLate(long checkpoint) {
+        List<Long> late = new ArrayList<>();
+        for (Iterator<Long> it = created.iterator(); it.hasNext() && late.size() < batchSize; ) {
+            Long id = it.next();
+            it.remove();
+            if (id <= checkpoint) {
+                late.add(id);
+            }
+        }
+        return late;
+    }
+
+    private void consider(FileRepository.ContentCandidate file, long[] budget, List<Long> indexed) {
+        long size = size(file);
+        if (size <= maxFileBytes && TextExtractor.isSupported(file.getName(), file.getMimeType())) {
+            indexFile(file);
+            budget[0] -= size;
+            indexed.add(file.getId());
+        }
+    }
+
+    private static long size(FileRepository.ContentCandidate file) {
+        return file.getSize() != null ? file.getSize() : 0L;
+    }
+
+    // A move or trash that committed while the content was being read found no document to update
+    private void refreshLocations(List<Long> indexed) {
+        if (indexed.isEmpty()) {
+            return;
+        }
+        for (FileRepository.ContentCandidate file : fileRepository.findContentCandidatesByIds(indexed)) {
+            contentIndex.updateLocation(file.getId(), file.getFolderId(), Boolean.TRUE.equals(file.getIsDeleted()));
+        }
+    }
+
+    private void indexFile(FileRepository.ContentCandidate file) {
+        try {
+            jdbcTemplate.query(CONTENT_SQL, rs -> {
+                if (!rs.next()) {
+                    return null;
+                }
+                try (InputStream in = rs.getBinaryStream(1)) {
+                    if (in == null) {
+                        return null;
+                    }
+                    Reader reader = TextExtractor.open(in, file.getName(), file.getMimeType());
+                    if (reader != null) {
+                        contentIndex.index(file.getId(), file.getOwnerId(), file.getFolderId(),
+                                Boolean.TRUE.equals(file.getIsDeleted()),
+                                TextExtractor.limit(reader, maxCharsPerFile));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            }, file.getId());
+        } catch (UncheckedIOException e) {
+            // One unreadable file must not stall the whole queue
+            log.warn("Skipping content of file {}: {}", file.getId(), e.getMessage());
+        }
+    }
+
+    // ================= EVENT HANDLERS =================
+
+    // Trashed files stay indexed with their flag set, so a restore needs no re-read
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFileChange(FileChangeEvent event) {
+        switch (event.getType()) {
+            case CREATED -> created.add(event.getFileId());
+            case MOVED, RESTORED -> contentIndex.updateLocation(event.getFileId(), event.getFolderId(), false);
+            case DELETED -> contentIndex.updateLocation(event.getFileId(), event.getFolderId(), true);
+            case PURGED -> {
+                created.remove(event.getFileId());
+                contentIndex.delete(event.getFileId());
+            }
+            default -> { }
+        }
+    }
+}
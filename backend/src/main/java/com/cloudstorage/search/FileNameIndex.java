@@ -0,0 +1,469 @@
+package com.cloudstorage.search;
+
+import com.cloudstorage.event.FileChangeEvent;
+import com.cloudstorage.repository.FileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory trigram index over the names of all live files.
+ *
+ * Every lower-cased name is broken into overlapping 3-character grams, plus
+ * word-start grams so one and two character queries can still match prefixes.
+ * A query collects candidates from the posting lists of its own grams and then
+ * verifies and ranks each one: exact, prefix, word prefix, substring, and
+ * finally matches within a small edit distance for typos.
+ *
+ * Postings are partitioned by the file's owner, i.e. its uploader, and held
+ * as sorted primitive id arrays, so a search only reads the shards of the
+ * caller and of whoever uploaded into folders the caller can read, each under
+ * its own lock. Only the best page worth
+ * of hits is kept in a bounded heap; the rest are just counted.
+ *
+ * The index is loaded in the background once the application is up and kept
+ * current from file change events.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FileNameIndex {
+
+    private static final char BOUNDARY = '\u0002';
+    private static final int SCORE_EXACT = 1000;
+    private static final int SCORE_PREFIX = 800;
+    private static final int SCORE_WORD_PREFIX = 600;
+    private static final int SCORE_SUBSTRING = 400;
+    private static final int SCORE_FUZZY = 200;
+
+    // Best first: score, then shorter names, then newer files
+    private static final Comparator<Hit> RANKING = Comparator.comparingInt(Hit::score).reversed()
+            .thenComparingInt(h -> h.entry().name().length())
+            .thenComparing(h -> h.entry().id(), Comparator.reverseOrder());
+
+    private final FileRepository fileRepository;
+
+    @Value("${app.search.bootstrap-batch-size:5000}")
+    private int batchSize;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Shard> shards = new ConcurrentHashMap<>();
+
+    // Orders event writes against the bootstrap snapshot; searches never take it
+    private final Object writes = new Object();
+
+    // Ids changed by events while the bootstrap runs; the event wins over the snapshot
+    private final Set<Long> touchedFiles = new HashSet<>();
+    private volatile boolean ready;
+
+    public record Entry(Long id, Long ownerId, Long folderId, String name, String lowerName) {
+    }
+
+    public record Hit(Entry entry, int score) {
+    }
+
+    /**
+     * The best hits, in rank order, and how many files matched in total.
+     */
+    public record Result(List<Hit> hits, int total) {
+    }
+
+    // One owner's postings: gram to sorted file ids
+    private static final class Shard {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, IdList> postings = new HashMap<>();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // ================= BOOTSTRAP =================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBootstrap() {
+        Thread thread = new Thread(this::bootstrap, "file-name-index-bootstrap");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void bootstrap() {
+        long started = System.currentTimeMillis();
+        try {
+            long afterId = 0L;
+            while (true) {
+                List<FileRepository.NameEntry> batch =
+                        fileRepository.findLiveNameEntries(afterId, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                synchronized (writes) {
+                    for (FileRepository.NameEntry row : batch) {
+                        if (!touchedFiles.contains(row.getId()) && !entries.containsKey(row.getId())) {
+                            put(new Entry(row.getId(), row.getOwnerId(), row.getFolderId(),
+                                    row.getName(), normalize(row.getName())));
+                        }
+                    }
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+
+            synchronized (writes) {
+                touchedFiles.clear();
+                ready = true;
+            }
+            log.info("File name index ready: {} files across {} owners in {} ms",
+                    entries.size(), shards.size(), System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            log.error("File name index bootstrap failed, search stays on the database: {}", e.getMessage());
+        }
+    }
+
+    // ================= EVENT HANDLERS =================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFileChange(FileChangeEvent event) {
+        synchronized (writes) {
+            if (!ready) {
+                touchedFiles.add(event.getFileId());
+            }
+            switch (event.getType()) {
+                case CREATED, RESTORED, RENAMED, MOVED -> {
+                    remove(event.getFileId());
+                    put(new Entry(event.getFileId(), event.getOwnerId(), event.getFolderId(),
+                            event.getName(), normalize(event.getName())));
+                }
+                case DELETED, PURGED -> remove(event.getFileId());
+                default -> { }
+            }
+        }
+    }
+
+    private void put(Entry entry) {
+        Shard shard = shards.computeIfAbsent(entry.ownerId(), k -> new Shard());
+        shard.lock.writeLock().lock();
+        try {
+            for (String gram : grams(entry.lowerName())) {
+                shard.postings.computeIfAbsent(gram, k -> new IdList()).add(entry.id());
+            }
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+        entries.put(entry.id(), entry);
+    }
+
+    private void remove(Long fileId) {
+        Entry old = entries.remove(fileId);
+        if (old == null) {
+            return;
+        }
+        Shard shard = shards.get(old.ownerId());
+        if (shard == null) {
+            return;
+        }
+        shard.lock.writeLock().lock();
+        try {
+            for (String gram : grams(old.lowerName())) {
+                IdList ids = shard.postings.get(gram);
+                if (ids != null && ids.remove(fileId) && ids.isEmpty()) {
+                    shard.postings.remove(gram);
+                }
+            }
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    // ================= QUERY =================
+
+    /**
+     * Ranks the files in scope whose name matches the query and returns the
+     * best {@code limit} of them, best match first, with the total match count.
+     */
+    public Result search(String query, SearchScope scope, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return new Result(List.of(), 0);
+        }
+        int maxEdits = q.length() >= 8 ? 2 : q.length() >= 4 ? 1 : 0;
+        TopHits top = new TopHits(limit);
+
+        collect(shards.get(scope.userId()), q, maxEdits, entry -> true, top);
+        for (Long uploaderId : scope.uploaderIds()) {
+            if (!uploaderId.equals(scope.userId())) {
+                collect(shards.get(uploaderId), q, maxEdits,
+                        entry -> entry.folderId() != null && scope.folderIds().contains(entry.folderId()), top);
+            }
+        }
+        for (Long id : scope.fileIds()) {
+            Entry entry = entries.get(id);
+            // Owned files and files in shared folders were already seen above
+            if (entry != null && !entry.ownerId().equals(scope.userId())
+                    && (entry.folderId() == null || !scope.folderIds().contains(entry.folderId()))) {
+                top.offer(entry, score(entry.lowerName(), q, maxEdits));
+            }
+        }
+        return top.result();
+    }
+
+    private void collect(Shard shard, String q, int maxEdits, Predicate<Entry> inScope, TopHits top) {
+        if (shard == null) {
+            return;
+        }
+        long[] ids;
+        shard.lock.readLock().lock();
+        try {
+            ids = candidates(shard, q, maxEdits);
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+        // Verified outside the lock; an entry removed in the meantime is just skipped
+        for (long id : ids) {
+            Entry entry = entries.get(id);
+            if (entry != null && inScope.test(entry)) {
+                top.offer(entry, score(entry.lowerName(), q, maxEdits));
+            }
+        }
+    }
+
+    private static long[] candidates(Shard shard, String q, int maxEdits) {
+        if (q.length() < 3) {
+            String gram = q.length() == 1
+                    ? "" + BOUNDARY + BOUNDARY + q
+                    : BOUNDARY + q;
+            IdList ids = shard.postings.get(gram);
+            return ids == null ? new long[0] : ids.toArray();
+        }
+
+        Set<String> queryGrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            queryGrams.add(q.substring(i, i + 3));
+        }
+
+        List<IdList> lists = new ArrayList<>(queryGrams.size());
+        int total = 0;
+        for (String gram : queryGrams) {
+            IdList ids = shard.postings.get(gram);
+            if (ids != null) {
+                lists.add(ids);
+                total += ids.size();
+            }
+        }
+        if (lists.size() == 1) {
+            return lists.get(0).toArray();
+        }
+
+        // Concatenate and sort, then each id's run length is the number of grams it shares
+        long[] all = new long[total];
+        int at = 0;
+        for (IdList ids : lists) {
+            at = ids.copyTo(all, at);
+        }
+        Arrays.sort(all);
+
+        // A name within k edits of the query shares at least n - 3k of its grams
+        int required = Math.max(1, queryGrams.size() - 3 * maxEdits);
+        long[] result = new long[total];
+        int found = 0;
+        for (int i = 0; i < total; ) {
+            int j = i;
+            while (j < total && all[j] == all[i]) {
+                j++;
+            }
+            if (j - i >= required) {
+                result[found++] = all[i];
+            }
+            i = j;
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    private static int score(String name, String q, int maxEdits) {
+        if (name.equals(q)) {
+            return SCORE_EXACT;
+        }
+        if (name.startsWith(q)) {
+            return SCORE_PREFIX;
+        }
+        int at = name.indexOf(q);
+        if (at > 0) {
+            return Character.isLetterOrDigit(name.charAt(at - 1)) ? SCORE_SUBSTRING : SCORE_WORD_PREFIX;
+        }
+        if (maxEdits == 0) {
+            return 0;
+        }
+        int distance = substringDistance(name, q);
+        return distance <= maxEdits ? SCORE_FUZZY - 50 * distance : 0;
+    }
+
+    /**
+     * Smallest edit distance between the query and any substring of the name
+     * (Sellers' variant of Levenshtein with a free start and end in the text).
+     */
+    static int substringDistance(String text, String pattern) {
+        int m = pattern.length();
+        int[] prev = new int[m + 1];
+        int[] curr = new int[m + 1];
+        for (int i = 0; i <= m; i++) {
+            prev[i] = i;
+        }
+        int best = prev[m];
+        for (int j = 1; j <= text.length(); j++) {
+            curr[0] = 0;
+            char c = text.charAt(j - 1);
+            for (int i = 1; i <= m; i++) {
+                int cost = pattern.charAt(i - 1) == c ? 0 : 1;
+                curr[i] = Math.min(Math.min(curr[i - 1] + 1, prev[i] + 1), prev[i - 1] + cost);
+            }
+            best = Math.min(best, curr[m]);
+            int[] swap = prev;
+            prev = curr;
+            curr = swap;
+        }
+        return best;
+    }
+
+    // ================= TOKENIZING =================
+
+    static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase();
+    }
+
+    static Set<String> grams(String lowerName) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= lowerName.length(); i++) {
+            grams.add(lowerName.substring(i, i + 3));
+        }
+
+        // Word-start grams for one and two character prefix queries
+        for (int i = 0; i < lowerName.length(); i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(lowerName.charAt(i - 1));
+            if (!wordStart) {
+                continue;
+            }
+            grams.add("" + BOUNDARY + BOUNDARY + lowerName.charAt(i));
+            if (i + 1 < lowerName.length()) {
+                grams.add(BOUNDARY + lowerName.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+
+    // ================= COLLECTIONS =================
+
+    /**
+     * Keeps the best {@code limit} hits seen so far, worst on top, and counts
+     * every hit offered.
+     */
+    private static final class TopHits {
+        private final int limit;
+        private final PriorityQueue<Hit> heap;
+        private int total;
+
+        TopHits(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, RANKING.reversed());
+        }
+
+        void offer(Entry entry, int score) {
+            if (score <= 0) {
+                return;
+            }
+            total++;
+            Hit hit = new Hit(entry, score);
+            if (heap.size() < limit) {
+                heap.add(hit);
+            } else if (RANKING.compare(hit, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(hit);
+            }
+        }
+
+        Result result() {
+            List<Hit> hits = new ArrayList<>(heap);
+            hits.sort(RANKING);
+            return new Result(hits, total);
+        }
+    }
+
+    /**
+     * A sorted set of file ids in a plain {@code long[]}. New files have the
+     * highest ids, so adding is nearly always an append.
+     */
+    static final class IdList {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int at = Arrays.binarySearch(ids, 0, size, id);
+                if (at >= 0) {
+                    return;
+                }
+                insert(-at - 1, id);
+                return;
+            }
+            insert(size, id);
+        }
+
+        boolean remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        int copyTo(long[] target, int at) {
+            System.arraycopy(ids, 0, target, at, size);
+            return at + size;
+        }
+
+        private void insert(int at, long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.cloudstorage.search;
+
+import java.util.Set;
+
+/**
+ * The files a user may find through search: the ones they uploaded, those
+ * shared with them directly, and those others put in a folder they can read.
+ * The folder set holds every folder with such files, in a shared folder tree
+ * or among the user's own folders; the uploaders of those files are listed so
+ * an index partitioned by uploader knows where to look.
+ */
+public record SearchScope(Long userId, Set<Long> fileIds, Set<Long> folderIds, Set<Long> uploaderIds) {
+}
@@ -0,0 +1,214 @@
+package com.cloudstorage.search;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Turns file content into a character stream for indexing without buffering
+ * the file: plain text is decoded on the fly and Office Open XML / OpenDocument
+ * files are read entry by entry from the zip stream with a StAX parser.
+ */
+public final class TextExtractor {
+
+    private static final Set<String> TEXT_EXTENSIONS = Set.of(
+            "txt", "md", "markdown", "csv", "tsv", "json", "xml", "yml", "yaml", "log", "ini", "properties",
+            "html", "htm", "css", "java", "kt", "scala", "groovy", "js", "jsx", "ts", "tsx", "py", "rb", "go",
+            "rs", "c", "h", "cpp", "hpp", "cs", "php", "swift", "sql", "sh", "bat", "ps1", "gradle", "toml");
+
+    private static final Set<String> TEXT_MIME_TYPES = Set.of(
+            "application/json", "application/xml", "application/javascript", "application/x-sh",
+            "application/sql", "application/x-yaml", "application/yaml");
+
+    private static final Set<String> OFFICE_EXTENSIONS = Set.of("docx", "pptx", "xlsx", "odt", "odp", "ods");
+
+    // Parts of the package that carry the document text
+    private static final Pattern OFFICE_TEXT_PARTS = Pattern.compile(
+            "word/document\\.xml|ppt/slides/slide\\d+\\.xml|xl/sharedStrings\\.xml|content\\.xml");
+
+    private static final XMLInputFactory XML_FACTORY = createXmlFactory();
+
+    private TextExtractor() {
+    }
+
+    public static boolean isSupported(String name, String mimeType) {
+        return isOffice(name) || isPlainText(name, mimeType);
+    }
+
+    /**
+     * Opens a reader over the text of the given content, or returns null when
+     * the type is not supported. Closing the reader does not close the stream.
+     */
+    public static Reader open(InputStream in, String name, String mimeType) {
+        if (isOffice(name)) {
+            return new OfficeTextReader(new ZipInputStream(in));
+        }
+        if (isPlainText(name, mimeType)) {
+            return new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        }
+        return null;
+    }
+
+    /**
+     * Caps how many characters are read from a very large file.
+     */
+    public static Reader limit(Reader reader, long maxChars) {
+        return new FilterReader(reader) {
+            private long remaining = maxChars;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int c = super.read();
+                if (c >= 0) {
+                    remaining--;
+                }
+                return c;
+            }
+
+            @Override
+            public int read(char[] buf, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int n = super.read(buf, off, (int) Math.min(len, remaining));
+                if (n > 0) {
+                    remaining -= n;
+                }
+                return n;
+            }
+        };
+    }
+
+    private static boolean isOffice(String name) {
+        return OFFICE_EXTENSIONS.contains(extension(name));
+    }
+
+    private static boolean isPlainText(String name, String mimeType) {
+        if (mimeType != null) {
+            String type = mimeType.toLowerCase();
+            if (type.startsWith("text/") || TEXT_MIME_TYPES.contains(type)) {
+                return true;
+            }
+        }
+        return TEXT_EXTENSIONS.contains(extension(name));
+    }
+
+    private static String extension(String name) {
+        if (name == null) {
+            return "";
+        }
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase();
+    }
+
+    private static XMLInputFactory createXmlFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+
+    /**
+     * Pulls character data out of the text-bearing XML parts of a zip package,
+     * one parser event at a time.
+     */
+    private static final class OfficeTextReader extends Reader {
+
+        private final ZipInputStream zip;
+        private XMLStreamReader xml;
+        private String pending = "";
+        private int pos;
+        private boolean finished;
+
+        OfficeTextReader(ZipInputStream zip) {
+            this.zip = zip;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) throws IOException {
+            while (pos >= pending.length()) {
+                if (finished) {
+                    return -1;
+                }
+                advance();
+            }
+            int n = Math.min(len, pending.length() - pos);
+            pending.getChars(pos, pos + n, buf, off);
+            pos += n;
+            return n;
+        }
+
+        private void advance() throws IOException {
+            pending = "";
+            pos = 0;
+            try {
+                if (xml == null) {
+                    ZipEntry entry;
+                    while ((entry = zip.getNextEntry()) != null) {
+                        if (OFFICE_TEXT_PARTS.matcher(entry.getName()).matches()) {
+                            // The JDK parser closes its input at end of document; keep the zip open
+                            xml = XML_FACTORY.createXMLStreamReader(new FilterInputStream(zip) {
+                                @Override
+                                public void close() {
+                                }
+                            });
+                            return;
+                        }
+                    }
+                    finished = true;
+                    return;
+                }
+
+                if (!xml.hasNext()) {
+                    xml.close();
+                    xml = null;
+                    pending = "\n";
+                    return;
+                }
+
+                int event = xml.next();
+                if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    pending = xml.getText();
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    // Paragraph, cell and shared-string boundaries become whitespace
+                    String local = xml.getLocalName();
+                    if ("p".equals(local) || "si".equals(local) || "tab".equals(local) || "br".equals(local)) {
+                        pending = " ";
+                    }
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException("Unreadable document part", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (xml != null) {
+                    xml.close();
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.cloudstorage.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+import java.io.Serializable;
+
+/**
+ * Principal built from the claims of a verified JWT, so a request can be
+ * authenticated without loading the user row. {@link #getName()} stays the
+ * email, which keeps {@code Authentication.getName()} working as before.
+ */
+public record AuthenticatedUser(Long id, String email, long tokenVersion)
+        implements AuthenticatedPrincipal, Serializable {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
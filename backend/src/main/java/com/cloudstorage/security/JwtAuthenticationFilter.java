@@ -1,29 +1,57 @@
 package com.cloudstorage.security;
 
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final List<GrantedAuthority> USER_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority("ROLE_USER"));
+
+    private static final List<GrantedAuthority> ADMIN_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"));
+
     private final JwtTokenProvider tokenProvider;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final TokenVersionCache tokenVersionCache;
+
+    // Accounts allowed to read operational endpoints such as /api/health/caches
+    @Value("${app.admin.emails:}")
+    private List<String> adminEmails;
+
+    private Set<String> admins = Set.of();
+
+    @PostConstruct
+    void init() {
+        admins = adminEmails.stream()
+                .map(email -> email.trim().toLowerCase(Locale.ROOT))
+                .filter(email -> !email.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
 
     @Override
     protected void doFilterInternal(
@@ -51,20 +79,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             if (StringUtils.hasText(jwt)) {
                 log.info("🔑 JWT token found, validating...");
                 
-                if (tokenProvider.validateToken(jwt)) {
-                    String email = tokenProvider.getEmailFromToken(jwt);
-                    log.info("✅ JWT valid for user: {}", email);
-
-                    if (email != null && 
-                        SecurityContextHolder.getContext().getAuthentication() == null) {
-
-                        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+                Claims claims = tokenProvider.verify(jwt);
+                if (claims != null) {
+                    AuthenticatedUser principal = toPrincipal(claims);
+                    if (principal == null) {
+                        log.warn("❌ JWT revoked or missing claims for: {}", path);
+                        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                        response.getWriter().write("{\"error\": \"Invalid or expired token\"}");
+                        return;
+                    }
+                    log.info("✅ JWT valid for user: {}", principal.email());
 
+                    if (SecurityContextHolder.getContext().getAuthentication() == null) {
                         UsernamePasswordAuthenticationToken authentication =
                                 new UsernamePasswordAuthenticationToken(
-                                        userDetails,
+                                        principal,
                                         null,
-                                        userDetails.getAuthorities()
+                                        admins.contains(principal.email().toLowerCase(Locale.ROOT))
+                                                ? ADMIN_AUTHORITIES : USER_AUTHORITIES
                                 );
 
                         authentication.setDetails(
@@ -72,7 +104,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                         );
 
                         SecurityContextHolder.getContext().setAuthentication(authentication);
-                        log.info("✅ JWT authenticated user: {}", email);
+                        log.info("✅ JWT authenticated user: {}", principal.email());
                     }
                 } else {
                     log.warn("❌ JWT validation failed for: {}", path);
@@ -97,6 +129,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Builds the principal from the token claims. Returns null for tokens
+     * issued before the claims existed, for inactive accounts and for tokens
+     * whose version has since been revoked.
+     */
+    private AuthenticatedUser toPrincipal(Claims claims) {
+        Number userId = claims.get(JwtTokenProvider.CLAIM_USER_ID, Number.class);
+        Number version = claims.get(JwtTokenProvider.CLAIM_VERSION, Number.class);
+        Boolean active = claims.get(JwtTokenProvider.CLAIM_ACTIVE, Boolean.class);
+
+        if (userId == null || version == null || claims.getSubject() == null
+                || Boolean.FALSE.equals(active)) {
+            return null;
+        }
+        if (!tokenVersionCache.isCurrent(userId.longValue(), version.longValue())) {
+            return null;
+        }
+        return new AuthenticatedUser(userId.longValue(), claims.getSubject(), version.longValue());
+    }
+
     /**
      * Determines if an endpoint is public (doesn't require JWT)
      */
@@ -104,7 +156,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         return path.startsWith("/api/auth/login") ||
                path.startsWith("/api/auth/register") ||
                path.startsWith("/api/auth/google-login") ||      // ✅ NEW: Google OAuth endpoint
-               path.startsWith("/api/health") ||
+               path.equals("/api/health") ||
                path.startsWith("/actuator/health") ||
                path.startsWith("/api/folders/shared-link/") ||
                path.startsWith("/api/files/shared-link/") ||
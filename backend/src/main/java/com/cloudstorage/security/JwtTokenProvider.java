@@ -1,60 +1,121 @@
 package com.cloudstorage.security;
 
+import com.cloudstorage.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
 public class JwtTokenProvider {
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ACTIVE = "active";
+    public static final String CLAIM_VERSION = "ver";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expiration}")
     private long jwtExpirationMs;
 
-    public String generateToken(String email) {
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    // Built once; both are immutable and safe to share between request threads
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // SHA-256 of the token -> claims, until the token expires; reads take no lock
+    private Cache<String, Verified> verified;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verified = Caffeine.newBuilder()
+                .maximumSize(Math.max(0, verifiedCacheSize))
+                .expireAfter(new TokenExpiry())
+                .build();
+    }
+
+    /**
+     * Issues a token that carries everything the request filter needs, so
+     * authenticating a request does not have to load the user.
+     */
+    public String generateToken(User user) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
 
-        log.info("🔑 Generating JWT token for user: {}", email);
+        log.info("🔑 Generating JWT token for user: {}", user.getEmail());
         log.debug("Token will expire at: {}", expiryDate);
 
         return Jwts.builder()
-                .setSubject(email)
+                .setSubject(user.getEmail())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_ACTIVE, user.isAccountActive())
+                .claim(CLAIM_VERSION, user.getTokenVersion() != null ? user.getTokenVersion() : 0L)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject();
+        Claims claims = verify(token);
+        return claims != null ? claims.getSubject() : null;
     }
 
     public boolean validateToken(String authToken) {
+        return verify(authToken) != null;
+    }
+
+    /**
+     * Verifies the token once and returns its claims, or null if it is not
+     * valid. Tokens verified recently are answered from a bounded concurrent
+     * cache until they expire, so repeat requests skip the parse and the HMAC
+     * check. The cache is keyed by a SHA-256 digest of the token rather than
+     * the token itself, so a heap dump of it holds no usable bearer tokens.
+     */
+    public Claims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            log.error("❌ JWT claims string is empty");
+            return null;
+        }
+
+        String key = digest(token);
+        Verified cached = verified.getIfPresent(key);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached.claims();
+        }
+
         try {
             log.debug("🔍 Validating JWT token...");
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(authToken);
+            Claims claims = parser.parseClaimsJws(token).getBody();
             log.debug("✅ JWT token is valid");
-            return true;
-        } catch (SecurityException ex) {
+
+            Date expiration = claims.getExpiration();
+            if (verifiedCacheSize > 0 && expiration != null) {
+                verified.put(key, new Verified(claims, expiration.getTime()));
+            }
+            return claims;
+        } catch (io.jsonwebtoken.security.SecurityException ex) {
             log.error("❌ Invalid JWT signature: {}", ex.getMessage());
         } catch (MalformedJwtException ex) {
             log.error("❌ Invalid JWT token: {}", ex.getMessage());
@@ -65,12 +126,39 @@ public class JwtTokenProvider {
             log.error("❌ Unsupported JWT token: {}", ex.getMessage());
         } catch (IllegalArgumentException ex) {
             log.error("❌ JWT claims string is empty: {}", ex.getMessage());
+        } catch (JwtException ex) {
+            log.error("❌ Invalid JWT token: {}", ex.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Verified(Claims claims, long expiresAt) {
     }
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static final class TokenExpiry implements Expiry<String, Verified> {
+
+        @Override
+        public long expireAfterCreate(String key, Verified entry, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0L, entry.expiresAt() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Verified entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Verified entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
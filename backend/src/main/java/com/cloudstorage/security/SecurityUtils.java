@@ -0,0 +1,27 @@
+package com.cloudstorage.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Access to the principal of the current request.
+ */
+public final class SecurityUtils {
+
+    private SecurityUtils() {
+    }
+
+    public static AuthenticatedUser currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+
+        if (auth == null || !auth.isAuthenticated()
+                || !(auth.getPrincipal() instanceof AuthenticatedUser principal)) {
+            throw new RuntimeException("User not authenticated");
+        }
+        return principal;
+    }
+
+    public static Long currentUserId() {
+        return currentUser().id();
+    }
+}
@@ -0,0 +1,404 @@
+package com.cloudstorage.security;
+
+import com.cloudstorage.dto.response.ApiResponse;
+import com.cloudstorage.service.ShareTokenRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throttles the public share-link endpoints before any token lookup or
+ * database work happens.
+ *
+ * Every request takes a token from the client IP's bucket and from the
+ * share token's bucket. Tokens that can't have been issued by us are turned
+ * away after the IP check, so junk never gets a bucket of its own. Both
+ * limiters are capped in size and pruned on a schedule, never on the
+ * request path. Downloads also take one of a fixed number of
+ * concurrent download slots for the share token. Rejected requests get 429
+ * with a Retry-After. Downloads are paced once they pass the unthrottled
+ * allowance, so a single link can use at most
+ * {@code max-concurrent-per-token * bytes-per-second} of bandwidth.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShareLinkThrottleFilter extends OncePerRequestFilter {
+
+    private static final List<String> SHARE_PREFIXES = List.of(
+            "/s/",
+            "/api/files/shared-link/",
+            "/api/folders/shared-link/",
+            "/api/files/s/"
+    );
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rate-limit.ip.requests-per-second:10}")
+    private double ipPerSecond;
+
+    @Value("${app.rate-limit.ip.burst:40}")
+    private int ipBurst;
+
+    @Value("${app.rate-limit.token.requests-per-second:20}")
+    private double tokenPerSecond;
+
+    @Value("${app.rate-limit.token.burst:100}")
+    private int tokenBurst;
+
+    @Value("${app.rate-limit.max-keys:100000}")
+    private int maxKeys;
+
+    @Value("${app.rate-limit.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    @Value("${app.rate-limit.download.max-concurrent-per-token:4}")
+    private int maxConcurrentDownloads;
+
+    @Value("${app.rate-limit.download.retry-after-seconds:5}")
+    private long downloadRetryAfterSeconds;
+
+    @Value("${app.rate-limit.download.bytes-per-second:5242880}")
+    private long downloadBytesPerSecond;
+
+    @Value("${app.rate-limit.download.unthrottled-bytes:5242880}")
+    private long unthrottledBytes;
+
+    private TokenBucketLimiter ipLimiter;
+    private TokenBucketLimiter tokenLimiter;
+    private final Map<String, Integer> activeDownloads = new ConcurrentHashMap<>();
+
+    private final LongAdder rejectedByIp = new LongAdder();
+    private final LongAdder rejectedByToken = new LongAdder();
+    private final LongAdder rejectedMalformed = new LongAdder();
+    private final LongAdder rejectedDownloads = new LongAdder();
+
+    public record Stats(boolean enabled, int ipBuckets, int tokenBuckets, int activeDownloadTokens,
+                        long rejectedByIp, long rejectedByToken, long rejectedMalformed, long rejectedDownloads,
+                        long overflowed) {
+    }
+
+    @PostConstruct
+    void init() {
+        ipLimiter = new TokenBucketLimiter(ipPerSecond, ipBurst, maxKeys);
+        tokenLimiter = new TokenBucketLimiter(tokenPerSecond, tokenBurst, maxKeys);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || shareToken(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        String token = shareToken(request);
+        String ip = clientIp(request);
+
+        long wait = ipLimiter.tryAcquire(ip);
+        if (wait > 0) {
+            rejectedByIp.increment();
+            log.debug("⛔ Share link request from {} throttled", ip);
+            tooManyRequests(response, seconds(wait));
+            return;
+        }
+        if (!ShareTokenRegistry.isWellFormed(token)) {
+            rejectedMalformed.increment();
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getWriter(), ApiResponse.error("Invalid or expired share link"));
+            return;
+        }
+        wait = tokenLimiter.tryAcquire(token);
+        if (wait > 0) {
+            rejectedByToken.increment();
+            log.debug("⛔ Share link {} throttled", fingerprint(token));
+            tooManyRequests(response, seconds(wait));
+            return;
+        }
+
+        if (!request.getRequestURI().endsWith("/download")) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (!acquireDownload(token)) {
+            rejectedDownloads.increment();
+            log.debug("⛔ Share link {} already has {} downloads running", fingerprint(token), maxConcurrentDownloads);
+            tooManyRequests(response, downloadRetryAfterSeconds);
+            return;
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                releaseDownload(token);
+            }
+        };
+        try {
+            HttpServletResponse paced = downloadBytesPerSecond > 0 ? new PacedResponse(response) : response;
+            filterChain.doFilter(request, paced);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * A short hash to tell links apart in the logs. The token itself is the
+     * credential for a public link and is never logged.
+     */
+    private static String fingerprint(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 4);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // ================= CONCURRENT DOWNLOADS =================
+
+    private boolean acquireDownload(String token) {
+        boolean[] acquired = {false};
+        activeDownloads.compute(token, (k, running) -> {
+            int current = running == null ? 0 : running;
+            if (current >= maxConcurrentDownloads) {
+                return running;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void releaseDownload(String token) {
+        activeDownloads.computeIfPresent(token, (k, running) -> running > 1 ? running - 1 : null);
+    }
+
+    // ================= HELPERS =================
+
+    /**
+     * The share token a request is addressed to, or null if it isn't a
+     * share-link request.
+     */
+    private static String shareToken(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        for (String prefix : SHARE_PREFIXES) {
+            if (path.startsWith(prefix)) {
+                int end = path.indexOf('/', prefix.length());
+                String token = end < 0 ? path.substring(prefix.length()) : path.substring(prefix.length(), end);
+                return token.isEmpty() ? null : token;
+            }
+        }
+        if (path.startsWith("/api/files/") && path.endsWith("/download")) {
+            String token = request.getParameter("shareToken");
+            return token == null || token.isEmpty() ? null : token;
+        }
+        return null;
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static long seconds(long nanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + 999_999_999L));
+    }
+
+    private void tooManyRequests(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getWriter(),
+                ApiResponse.error("Too many requests for this share link, retry in " + retryAfterSeconds + "s"));
+    }
+
+    // ================= MAINTENANCE =================
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.cleanup-interval-ms:60000}")
+    public void evictIdle() {
+        if (ipLimiter != null) {
+            ipLimiter.evictIdle();
+            tokenLimiter.evictIdle();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(enabled, ipLimiter.size(), tokenLimiter.size(), activeDownloads.size(),
+                rejectedByIp.sum(), rejectedByToken.sum(), rejectedMalformed.sum(), rejectedDownloads.sum(),
+                ipLimiter.overflowed() + tokenLimiter.overflowed());
+    }
+
+    // ================= RESPONSE WRAPPERS =================
+
+    private static final class ReleaseOnComplete implements AsyncListener {
+        private final Runnable release;
+
+        ReleaseOnComplete(Runnable release) {
+            this.release = release;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * Passes the first {@code unthrottledBytes} straight through, then
+     * sleeps between writes so the rest goes out at the configured rate.
+     */
+    private final class PacedResponse extends HttpServletResponseWrapper {
+        private ServletOutputStream stream;
+
+        PacedResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (stream == null) {
+                stream = new PacedOutputStream(super.getOutputStream());
+            }
+            return stream;
+        }
+    }
+
+    private final class PacedOutputStream extends ServletOutputStream {
+        private static final int CHUNK = 16 * 1024;
+
+        private final ServletOutputStream out;
+        private long written;
+        private long pacedSince = -1;
+
+        PacedOutputStream(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            pace(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, CHUNK);
+                pace(n);
+                out.write(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        // Waits until the next n bytes are due, counting from when the allowance ran out
+        private void pace(int n) throws IOException {
+            written += n;
+            long over = written - unthrottledBytes;
+            if (over <= 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (pacedSince < 0) {
+                pacedSince = now;
+            }
+            long due = pacedSince + nanosFor(over);
+            if (due > now) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(due - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Download interrupted while throttled");
+                }
+            }
+        }
+
+        private long nanosFor(long bytes) {
+            return (long) (bytes * 1_000_000_000d / downloadBytesPerSecond);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            out.setWriteListener(listener);
+        }
+    }
+}
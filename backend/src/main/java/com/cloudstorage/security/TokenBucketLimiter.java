@@ -0,0 +1,98 @@
+package com.cloudstorage.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keyed token buckets without locks.
+ *
+ * Each bucket is a single "theoretical arrival time" (the generic cell rate
+ * algorithm): a request moves it forward by one refill interval and is let
+ * through as long as it stays within the burst window ahead of now. That is
+ * the same behaviour as a bucket of {@code burst} tokens refilled at
+ * {@code perSecond}, updated with one compare-and-set.
+ *
+ * At most {@code maxKeys} buckets exist. Once they are all taken, keys
+ * without a bucket share a single overflow bucket, so a flood of new keys
+ * is throttled as one client instead of growing the map. Idle buckets are
+ * only dropped by {@link #evictIdle}, which callers run on a schedule.
+ */
+public class TokenBucketLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong overflow = new AtomicLong(System.nanoTime());
+    private final LongAdder overflowed = new LongAdder();
+
+    public TokenBucketLimiter(double perSecond, int burst, int maxKeys) {
+        this.intervalNanos = Math.max(1L, (long) (1_000_000_000L / perSecond));
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Takes a token for the key. Returns 0 when the request may proceed,
+     * otherwise how many nanoseconds until the next token is available.
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> reserve() ? new AtomicLong(now) : null);
+            if (bucket == null) {
+                overflowed.increment();
+                bucket = overflow;
+            }
+        }
+
+        while (true) {
+            long tat = bucket.get();
+            long next = Math.max(tat, now) + intervalNanos;
+            long ahead = next - now;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            if (bucket.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private boolean reserve() {
+        if (size.incrementAndGet() <= maxKeys) {
+            return true;
+        }
+        size.decrementAndGet();
+        return false;
+    }
+
+    /**
+     * Drops buckets that have refilled completely; they behave exactly like
+     * a missing bucket.
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+            if (entry.getValue().get() <= now && buckets.remove(entry.getKey(), entry.getValue())) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Requests that found the map full and went to the overflow bucket.
+     */
+    public long overflowed() {
+        return overflowed.sum();
+    }
+}
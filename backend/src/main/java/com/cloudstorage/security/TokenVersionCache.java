@@ -0,0 +1,79 @@
+package com.cloudstorage.security;
+
+import com.cloudstorage.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Current token version and active flag per user, used to reject revoked
+ * tokens without a query per request.
+ *
+ * Entries are loaded on first use and dropped by {@link #evict} whenever this
+ * instance changes a user's version or status, again once that change commits
+ * so a request that read the old row in between can't keep it cached. They
+ * also expire after a short TTL so changes made by other instances are picked up.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenVersionCache {
+
+    private final UserRepository userRepository;
+
+    @Value("${app.auth.token-version-ttl-ms:60000}")
+    private long ttlMs;
+
+    private final ConcurrentHashMap<Long, State> states = new ConcurrentHashMap<>();
+
+    record State(long version, boolean active, long loadedAt) {
+    }
+
+    /**
+     * Whether a token issued to this user with this version is still honoured.
+     */
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        State state = states.get(userId);
+        long now = System.currentTimeMillis();
+        if (state == null || now - state.loadedAt() > ttlMs) {
+            state = load(userId, now);
+            if (state == null) {
+                return false;
+            }
+        }
+        return state.active() && state.version() == tokenVersion;
+    }
+
+    public void evict(Long userId) {
+        states.remove(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    states.remove(userId);
+                }
+            });
+        }
+    }
+
+    private State load(Long userId, long now) {
+        State state = userRepository.findTokenState(userId)
+                .map(s -> new State(
+                        s.getTokenVersion() != null ? s.getTokenVersion() : 0L,
+                        !Boolean.FALSE.equals(s.getActive()),
+                        now))
+                .orElse(null);
+        if (state == null) {
+            log.debug("Token presented for unknown user {}", userId);
+            states.remove(userId);
+        } else {
+            states.put(userId, state);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,118 @@
+package com.cloudstorage.security;
+
+import com.cloudstorage.dto.response.ApiResponse;
+import com.cloudstorage.exception.QuotaExceededException;
+import com.cloudstorage.model.User;
+import com.cloudstorage.repository.UserRepository;
+import com.cloudstorage.service.QuotaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Reserves quota for an upload before the multipart body is parsed, so
+ * over-quota uploads are rejected with 413 without reading the payload.
+ * The reserved size is the larger of the X-Upload-Size header and
+ * Content-Length (which slightly over-estimates multipart bodies), so a client
+ * cannot shrink it by declaring less. The reservation is exposed as a request
+ * attribute for the upload to check the real file size against.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UploadQuotaFilter extends OncePerRequestFilter {
+
+    public static final String DECLARED_SIZE_HEADER = "X-Upload-Size";
+    public static final String RESERVATION_ATTRIBUTE = "com.cloudstorage.security.UploadQuotaFilter.reservation";
+
+    private final QuotaService quotaService;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !("POST".equals(request.getMethod())
+                && request.getRequestURI().startsWith("/api/files/upload"));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        long declaredSize;
+        try {
+            declaredSize = getUploadSize(request);
+        } catch (IllegalArgumentException e) {
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+
+        if (declaredSize <= 0 || auth == null || !auth.isAuthenticated()
+                || !(auth.getPrincipal() instanceof AuthenticatedUser principal)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        User user = userRepository.findById(principal.id()).orElse(null);
+        if (user == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        QuotaService.Reservation reservation;
+        try {
+            reservation = quotaService.reserve(user, declaredSize);
+        } catch (QuotaExceededException e) {
+            log.warn("⛔ Upload of {} bytes rejected for user {}: quota exceeded", declaredSize, user.getId());
+            writeError(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+            return;
+        }
+
+        request.setAttribute(RESERVATION_ATTRIBUTE, reservation);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            quotaService.release(reservation);
+        }
+    }
+
+    private long getUploadSize(HttpServletRequest request) {
+        long contentLength = request.getContentLengthLong();
+        String declared = request.getHeader(DECLARED_SIZE_HEADER);
+        if (declared == null) {
+            return contentLength;
+        }
+        long declaredSize;
+        try {
+            declaredSize = Long.parseLong(declared.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed " + DECLARED_SIZE_HEADER + " header");
+        }
+        if (declaredSize < 0) {
+            throw new IllegalArgumentException("Negative " + DECLARED_SIZE_HEADER + " header");
+        }
+        return Math.max(declaredSize, contentLength);
+    }
+
+    private void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getWriter(), ApiResponse.error(message));
+    }
+}
@@ -0,0 +1,362 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.dto.response.AccessStatsResponse;
+import com.cloudstorage.event.FileChangeEvent;
+import com.cloudstorage.model.Permission;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts link opens, downloads and bytes served per file and per share link.
+ *
+ * Hits land on striped in-memory counters and are written in one batch per
+ * flush interval, so a link that goes viral costs one UPDATE per interval
+ * rather than one per request. Pending counts are flushed on shutdown.
+ * A Space-Saving sketch fed at each flush tracks the hottest subjects on
+ * this instance; an owner's hot list is read from the stored totals.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccessStatsService {
+
+    private static final String UPDATE_SQL =
+            "UPDATE access_stats SET hits = hits + ?, downloads = downloads + ?, " +
+            "bytes_served = bytes_served + ?, " +
+            "last_access_at = CASE WHEN last_access_at IS NULL OR last_access_at < ? THEN ? ELSE last_access_at END " +
+            "WHERE subject_type = ? AND subject_id = ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO access_stats (subject_type, subject_id, hits, downloads, bytes_served, last_access_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_SQL =
+            "SELECT hits, downloads, bytes_served, last_access_at FROM access_stats " +
+            "WHERE subject_type = ? AND subject_id = ?";
+
+    private static final String STATS_COLUMNS =
+            "a.subject_type, a.subject_id, a.hits, a.downloads, a.bytes_served, a.last_access_at, " +
+            "a.hits + a.downloads AS heat, ";
+
+    // The owner's files and links, each arm driven from the owner's items into the access_stats key
+    private static final String OWNER_HOT_SQL =
+            "SELECT " + STATS_COLUMNS + "f.id AS item_id FROM files f " +
+            "JOIN access_stats a ON a.subject_type = 'FILE' AND a.subject_id = f.id " +
+            "WHERE f.user_id = :userId " +
+            "UNION ALL " +
+            "SELECT " + STATS_COLUMNS + "f.id FROM files f " +
+            "JOIN file_shares s ON s.file_id = f.id " +
+            "JOIN access_stats a ON a.subject_type = 'FILE_LINK' AND a.subject_id = s.id " +
+            "WHERE f.user_id = :userId " +
+            "UNION ALL " +
+            "SELECT " + STATS_COLUMNS + "d.id FROM folders d " +
+            "JOIN folder_shares s ON s.folder_id = d.id " +
+            "JOIN access_stats a ON a.subject_type = 'FOLDER_LINK' AND a.subject_id = s.id " +
+            "WHERE d.user_id = :userId " +
+            "ORDER BY heat DESC, subject_id DESC " +
+            "LIMIT :limit";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchAuthorizer batchAuthorizer;
+    private final ShareTokenRegistry shareTokenRegistry;
+
+    @Value("${app.access-stats.top-k:100}")
+    private int topK;
+
+    private final ConcurrentHashMap<Subject, Counter> pending = new ConcurrentHashMap<>();
+    private SpaceSavingSketch<Subject> hot;
+
+    public enum Type {
+        FILE,
+        FILE_LINK,      // file_shares.id of a public link
+        FOLDER_LINK     // folder_shares.id of a public link
+    }
+
+    public record Subject(Type type, long id) {
+    }
+
+    public record Stats(Type type, long id, long hits, long downloads, long bytesServed, LocalDateTime lastAccessAt) {
+    }
+
+    public record Hot(Subject subject, long count, long error) {
+    }
+
+    private static final class Counter {
+        final LongAdder hits = new LongAdder();
+        final LongAdder downloads = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        volatile long lastAccess;
+        // Set before the flush removes an idle counter; a late hit moves itself to a new one
+        volatile boolean retired;
+        boolean idle;
+    }
+
+    private record Delta(long hits, long downloads, long bytes, long lastAccess) {
+
+        boolean isZero() {
+            return hits == 0 && downloads == 0 && bytes == 0;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        hot = new SpaceSavingSketch<>(topK);
+    }
+
+    // ================= RECORD =================
+
+    public void recordHit(Type type, Long id) {
+        if (id == null) {
+            return;
+        }
+        Counter counter = counter(type, id);
+        counter.hits.increment();
+        counter.lastAccess = System.currentTimeMillis();
+        if (counter.retired) {
+            moveLate(new Subject(type, id), counter);
+        }
+    }
+
+    public void recordDownload(Type type, Long id, long bytes) {
+        if (id == null) {
+            return;
+        }
+        Counter counter = counter(type, id);
+        counter.downloads.increment();
+        counter.bytes.add(Math.max(0, bytes));
+        counter.lastAccess = System.currentTimeMillis();
+        if (counter.retired) {
+            moveLate(new Subject(type, id), counter);
+        }
+    }
+
+    private Counter counter(Type type, long id) {
+        Subject subject = new Subject(type, id);
+        Counter counter = pending.get(subject);
+        return counter != null ? counter : pending.computeIfAbsent(subject, s -> new Counter());
+    }
+
+    // ================= FLUSH =================
+
+    @Scheduled(fixedDelayString = "${app.access-stats.flush-interval-ms:10000}")
+    @PreDestroy
+    public void flush() {
+        Map<Subject, Delta> drained = new HashMap<>();
+        pending.forEach((subject, counter) -> {
+            Delta delta = drain(counter);
+            if (!delta.isZero()) {
+                counter.idle = false;
+                drained.put(subject, delta);
+            } else if (counter.idle) {
+                // Nothing for two intervals. A hit that reached the counter before it was
+                // retired is drained here; one after sees the flag and moves itself
+                counter.retired = true;
+                pending.remove(subject, counter);
+                Delta late = drain(counter);
+                if (!late.isZero()) {
+                    drained.put(subject, late);
+                }
+            } else {
+                counter.idle = true;
+            }
+        });
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(drained));
+        } catch (RuntimeException e) {
+            log.warn("Access stats flush failed, re-queueing {} subjects: {}", drained.size(), e.getMessage());
+            drained.forEach(this::requeue);
+            return;
+        }
+
+        drained.forEach((subject, delta) -> hot.offer(subject, delta.hits() + delta.downloads()));
+        log.debug("Flushed access stats for {} subjects", drained.size());
+    }
+
+    private void write(Map<Subject, Delta> drained) {
+        List<Map.Entry<Subject, Delta>> rows = new ArrayList<>(drained.entrySet());
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (Map.Entry<Subject, Delta> row : rows) {
+            Delta d = row.getValue();
+            Timestamp at = timestamp(d.lastAccess());
+            updates.add(new Object[]{d.hits(), d.downloads(), d.bytes(), at, at,
+                    row.getKey().type().name(), row.getKey().id()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                Map.Entry<Subject, Delta> row = rows.get(i);
+                Delta d = row.getValue();
+                inserts.add(new Object[]{row.getKey().type().name(), row.getKey().id(),
+                        d.hits(), d.downloads(), d.bytes(), timestamp(d.lastAccess())});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            // Losing a race with another instance fails the whole flush, which is then re-queued
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        }
+    }
+
+    // sumThenReset swaps each cell to zero, so every increment is drained exactly once
+    private static Delta drain(Counter counter) {
+        return new Delta(counter.hits.sumThenReset(), counter.downloads.sumThenReset(),
+                counter.bytes.sumThenReset(), counter.lastAccess);
+    }
+
+    private void moveLate(Subject subject, Counter retired) {
+        Delta late = drain(retired);
+        if (!late.isZero()) {
+            requeue(subject, late);
+        }
+    }
+
+    private void requeue(Subject subject, Delta delta) {
+        Counter counter = counter(subject.type(), subject.id());
+        counter.hits.add(delta.hits());
+        counter.downloads.add(delta.downloads());
+        counter.bytes.add(delta.bytes());
+        counter.lastAccess = Math.max(counter.lastAccess, delta.lastAccess());
+    }
+
+    // ================= READ =================
+
+    /**
+     * Stored totals plus whatever has not been flushed yet.
+     */
+    public Stats stats(Type type, long id) {
+        List<Stats> rows = jdbcTemplate.query(SELECT_SQL, (rs, i) -> {
+            Timestamp at = rs.getTimestamp("last_access_at");
+            return new Stats(type, id, rs.getLong("hits"), rs.getLong("downloads"), rs.getLong("bytes_served"),
+                    at != null ? at.toLocalDateTime() : null);
+        }, type.name(), id);
+        return withPending(rows.isEmpty() ? new Stats(type, id, 0, 0, 0, null) : rows.get(0));
+    }
+
+    private Stats withPending(Stats stored) {
+        Counter counter = pending.get(new Subject(stored.type(), stored.id()));
+        if (counter == null) {
+            return stored;
+        }
+        LocalDateTime last = stored.lastAccessAt();
+        if (counter.lastAccess > 0) {
+            LocalDateTime pendingAt = toLocal(counter.lastAccess);
+            last = last == null || pendingAt.isAfter(last) ? pendingAt : last;
+        }
+        return new Stats(stored.type(), stored.id(), stored.hits() + counter.hits.sum(),
+                stored.downloads() + counter.downloads.sum(), stored.bytesServed() + counter.bytes.sum(), last);
+    }
+
+    /**
+     * Hottest subjects seen by this instance since it started, heaviest first.
+     */
+    public List<Hot> hot(int limit) {
+        return hot.top(limit).stream()
+                .map(e -> new Hot(e.key(), e.count(), e.error()))
+                .toList();
+    }
+
+    // ================= OWNER VIEWS =================
+
+    public AccessStatsResponse fileStats(Long userId, Long fileId) {
+        if (batchAuthorizer.authorize(userId, List.of(fileId), List.of()).file(fileId) != Permission.OWNER) {
+            throw new RuntimeException("Only the owner can see access stats for this file");
+        }
+        return toResponse(stats(Type.FILE, fileId), fileId, null);
+    }
+
+    public AccessStatsResponse linkStats(Long userId, String token) {
+        ShareTokenRegistry.Target target = shareTokenRegistry.resolve(token);
+        if (target == null) {
+            throw new RuntimeException("Invalid or expired share link");
+        }
+        boolean folder = target.kind() == ShareTokenRegistry.Kind.FOLDER;
+        BatchAuthorizer.Result access = folder
+                ? batchAuthorizer.authorize(userId, List.of(), List.of(target.itemId()))
+                : batchAuthorizer.authorize(userId, List.of(target.itemId()), List.of());
+        Permission permission = folder ? access.folder(target.itemId()) : access.file(target.itemId());
+        if (permission != Permission.OWNER) {
+            throw new RuntimeException("Only the owner can see access stats for this link");
+        }
+        return toResponse(stats(folder ? Type.FOLDER_LINK : Type.FILE_LINK, target.shareId()), target.itemId(), null);
+    }
+
+    /**
+     * The caller's most accessed files and links by stored hits plus
+     * downloads, heaviest first. Where a subject is also among the hottest
+     * on this instance, its recent count comes along.
+     */
+    public List<AccessStatsResponse> hotForOwner(Long userId, int limit) {
+        Map<Subject, Long> recent = new HashMap<>();
+        hot(topK).forEach(h -> recent.put(h.subject(), h.count()));
+
+        return namedJdbcTemplate.query(OWNER_HOT_SQL,
+                new MapSqlParameterSource("userId", userId).addValue("limit", limit), (rs, i) -> {
+                    Timestamp at = rs.getTimestamp("last_access_at");
+                    Stats stored = new Stats(Type.valueOf(rs.getString("subject_type")), rs.getLong("subject_id"),
+                            rs.getLong("hits"), rs.getLong("downloads"), rs.getLong("bytes_served"),
+                            at != null ? at.toLocalDateTime() : null);
+                    Subject subject = new Subject(stored.type(), stored.id());
+                    return toResponse(withPending(stored), rs.getLong("item_id"), recent.get(subject));
+                });
+    }
+
+    private static AccessStatsResponse toResponse(Stats stats, Long itemId, Long recentCount) {
+        return AccessStatsResponse.builder()
+                .type(stats.type().name().toLowerCase())
+                .id(stats.id())
+                .itemId(stats.type() == Type.FILE ? null : itemId)
+                .hits(stats.hits())
+                .downloads(stats.downloads())
+                .bytesServed(stats.bytesServed())
+                .lastAccessAt(stats.lastAccessAt())
+                .recentCount(recentCount)
+                .build();
+    }
+
+    // ================= CLEANUP =================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFileChange(FileChangeEvent event) {
+        if (event.getType() == FileChangeEvent.Type.PURGED) {
+            pending.remove(new Subject(Type.FILE, event.getFileId()));
+            jdbcTemplate.update("DELETE FROM access_stats WHERE subject_type = ? AND subject_id = ?",
+                    Type.FILE.name(), event.getFileId());
+        }
+    }
+
+    private static Timestamp timestamp(long millis) {
+        return millis > 0 ? new Timestamp(millis) : null;
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -8,12 +8,12 @@ import com.cloudstorage.model.User;
 import com.cloudstorage.repository.UserRepository;
 import com.cloudstorage.security.GoogleTokenVerifier;
 import com.cloudstorage.security.JwtTokenProvider;
+import com.cloudstorage.security.SecurityUtils;
+import com.cloudstorage.security.TokenVersionCache;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,6 +26,7 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
+    private final TokenVersionCache tokenVersionCache;
     
     @Autowired(required = false)
     private GoogleTokenVerifier googleTokenVerifier;
@@ -53,7 +54,7 @@ public class AuthService {
         userRepository.save(user);
 
         // Generate JWT token
-        String token = jwtTokenProvider.generateToken(user.getEmail());
+        String token = jwtTokenProvider.generateToken(user);
 
         log.info("User registered successfully: {}", user.getEmail());
 
@@ -84,7 +85,7 @@ public class AuthService {
         }
 
         // Generate JWT token
-        String token = jwtTokenProvider.generateToken(user.getEmail());
+        String token = jwtTokenProvider.generateToken(user);
 
         log.info("User logged in successfully: {}", user.getEmail());
 
@@ -104,18 +105,20 @@ public class AuthService {
     }
 
     public User getCurrentUserEntity() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-
-        if (auth == null || !auth.isAuthenticated() || 
-            "anonymousUser".equals(auth.getPrincipal())) {
-            throw new RuntimeException("User not authenticated");
-        }
-
-        String email = auth.getName();
-        return userRepository.findByEmail(email)
+        return userRepository.findById(SecurityUtils.currentUserId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
+    // ================= SIGN OUT EVERYWHERE =================
+    // Bumping the version invalidates every token issued so far, this one included
+    @Transactional
+    public void logoutEverywhere() {
+        Long userId = SecurityUtils.currentUserId();
+        userRepository.bumpTokenVersion(userId);
+        tokenVersionCache.evict(userId);
+        log.info("All sessions revoked for user {}", userId);
+    }
+
     // ================= GOOGLE LOGIN =================
     @Transactional
     public AuthResponse googleLogin(GoogleLoginRequest request) {
@@ -158,7 +161,7 @@ public class AuthService {
             log.info("✅ User saved/updated: {}", user.getEmail());
 
             // Generate JWT token
-            String token = jwtTokenProvider.generateToken(user.getEmail());
+            String token = jwtTokenProvider.generateToken(user);
             log.info("✅ User logged in via Google: {}", user.getEmail());
 
             return AuthResponse.builder()
@@ -262,7 +265,7 @@ public class AuthService {
     //     user.setEmailVerified(true);
     //     userRepository.save(user);
     //
-    //     String token = jwtTokenProvider.generateToken(user.getEmail());
+    //     String token = jwtTokenProvider.generateToken(user);
     //
     //     log.info("User logged in successfully: {}", user.getEmail());
     //
@@ -329,7 +332,7 @@ public class AuthService {
     //     user.setEmailVerified(true);
     //     userRepository.save(user);
     //
-    //     String token = jwtTokenProvider.generateToken(user.getEmail());
+    //     String token = jwtTokenProvider.generateToken(user);
     //
     //     log.info("User registered successfully: {}", user.getEmail());
     //
@@ -0,0 +1,203 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.model.Permission;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves a user's effective permission on many files and folders at once.
+ *
+ * The same rules as {@link FolderShareService#resolvePermission} and the
+ * per-file access check apply, but the whole selection costs three queries
+ * however large it is: the files, their direct and public shares, and one
+ * recursive walk up the folder tree joined with the user's folder shares.
+ * Folder results are also fed into {@link FolderPermissionCache}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchAuthorizer {
+
+    public static final int MAX_ITEMS = 1000;
+    private static final int MAX_DEPTH = 100;
+
+    private static final String FILES_SQL =
+            "SELECT id, user_id, folder_id FROM files WHERE id IN (:fileIds)";
+
+    private static final String FILE_SHARES_SQL =
+            "SELECT file_id, permission, shared_with_user_id FROM file_shares " +
+            "WHERE file_id IN (:fileIds) AND is_active = true " +
+            "AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP) " +
+            "AND (shared_with_user_id = :userId OR (shared_with_user_id IS NULL AND share_token IS NOT NULL))";
+
+    // One row per (requested folder, ancestor), nearest first, with the user's share on that ancestor
+    private static final String FOLDER_CHAIN_SQL =
+            "WITH RECURSIVE chain (start_id, folder_id, parent_id, owner_id, depth) AS ( " +
+            "    SELECT f.id, f.id, f.parent_id, f.user_id, 0 FROM folders f WHERE f.id IN (:folderIds) " +
+            "    UNION ALL " +
+            "    SELECT c.start_id, p.id, p.parent_id, p.user_id, c.depth + 1 " +
+            "    FROM chain c JOIN folders p ON p.id = c.parent_id " +
+            "    WHERE c.depth < " + MAX_DEPTH +
+            ") " +
+            "SELECT c.start_id, c.folder_id, c.owner_id, c.depth, s.permission, s.expires_at " +
+            "FROM chain c " +
+            "LEFT JOIN folder_shares s ON s.folder_id = c.folder_id " +
+            "    AND s.shared_with_user_id = :userId AND s.is_active = true " +
+            "    AND (s.expires_at IS NULL OR s.expires_at > CURRENT_TIMESTAMP) " +
+            "ORDER BY c.start_id, c.depth";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final FolderPermissionCache permissionCache;
+
+    public record Result(Map<Long, Permission> files, Map<Long, Permission> folders) {
+
+        public Permission file(Long id) {
+            return files.getOrDefault(id, Permission.NONE);
+        }
+
+        public Permission folder(Long id) {
+            return folders.getOrDefault(id, Permission.NONE);
+        }
+    }
+
+    private record FileRow(Long ownerId, Long folderId) {
+    }
+
+    private record ChainRow(Long folderId, Long ownerId, String permission, LocalDateTime expiresAt) {
+    }
+
+    /**
+     * Permissions for every requested id. Ids that don't exist resolve to NONE.
+     */
+    public Result authorize(Long userId, Collection<Long> fileIds, Collection<Long> folderIds) {
+        Set<Long> files = fileIds != null ? new HashSet<>(fileIds) : Set.of();
+        Set<Long> folders = folderIds != null ? new HashSet<>(folderIds) : Set.of();
+        if (files.size() + folders.size() > MAX_ITEMS) {
+            throw new RuntimeException("Too many items selected (max " + MAX_ITEMS + ")");
+        }
+
+        Map<Long, FileRow> fileRows = loadFiles(files);
+        Set<Long> chainSeeds = new HashSet<>(folders);
+        fileRows.values().forEach(f -> {
+            if (f.folderId() != null) {
+                chainSeeds.add(f.folderId());
+            }
+        });
+        Map<Long, Permission> folderPermissions = resolveFolders(userId, chainSeeds);
+
+        Map<Long, Permission> fileResult = new LinkedHashMap<>();
+        Map<Long, Permission> shared = loadFileShares(userId, fileRows.keySet());
+        for (Long id : files) {
+            FileRow row = fileRows.get(id);
+            if (row == null) {
+                fileResult.put(id, Permission.NONE);
+            } else if (userId.equals(row.ownerId())) {
+                fileResult.put(id, Permission.OWNER);
+            } else {
+                Permission viaFolder = row.folderId() != null
+                        ? folderPermissions.getOrDefault(row.folderId(), Permission.NONE)
+                        : Permission.NONE;
+                // Owning the folder lets you edit what others put in it, not own it
+                if (viaFolder == Permission.OWNER) {
+                    viaFolder = Permission.EDIT;
+                }
+                fileResult.put(id, max(viaFolder, shared.getOrDefault(id, Permission.NONE)));
+            }
+        }
+
+        Map<Long, Permission> folderResult = new LinkedHashMap<>();
+        for (Long id : folders) {
+            folderResult.put(id, folderPermissions.getOrDefault(id, Permission.NONE));
+        }
+        return new Result(fileResult, folderResult);
+    }
+
+    private Map<Long, FileRow> loadFiles(Set<Long> fileIds) {
+        Map<Long, FileRow> rows = new HashMap<>();
+        if (fileIds.isEmpty()) {
+            return rows;
+        }
+        jdbcTemplate.query(FILES_SQL, new MapSqlParameterSource("fileIds", fileIds), rs -> {
+            rows.put(rs.getLong("id"), new FileRow(rs.getLong("user_id"), rs.getObject("folder_id", Long.class)));
+        });
+        return rows;
+    }
+
+    private Map<Long, Permission> loadFileShares(Long userId, Set<Long> fileIds) {
+        Map<Long, Permission> shared = new HashMap<>();
+        if (fileIds.isEmpty()) {
+            return shared;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("fileIds", fileIds).addValue("userId", userId);
+        jdbcTemplate.query(FILE_SHARES_SQL, params, rs -> {
+            // A public link grants view only, whatever the label says
+            Permission permission = rs.getObject("shared_with_user_id") == null
+                    ? Permission.VIEW
+                    : Permission.fromLabel(rs.getString("permission"));
+            shared.merge(rs.getLong("file_id"), permission, BatchAuthorizer::max);
+        });
+        return shared;
+    }
+
+    private Map<Long, Permission> resolveFolders(Long userId, Set<Long> folderIds) {
+        Map<Long, Permission> result = new HashMap<>();
+        if (folderIds.isEmpty()) {
+            return result;
+        }
+
+        long generation = permissionCache.generation();
+        Map<Long, List<ChainRow>> chains = new LinkedHashMap<>();
+        MapSqlParameterSource params = new MapSqlParameterSource("folderIds", folderIds).addValue("userId", userId);
+        jdbcTemplate.query(FOLDER_CHAIN_SQL, params, rs -> {
+            chains.computeIfAbsent(rs.getLong("start_id"), k -> new ArrayList<>())
+                    .add(new ChainRow(rs.getLong("folder_id"), rs.getLong("owner_id"), rs.getString("permission"),
+                            toLocal(rs.getTimestamp("expires_at"))));
+        });
+
+        chains.forEach((folderId, chain) -> {
+            Permission permission = Permission.NONE;
+            LocalDateTime expiresAt = null;
+            int decidedAt = chain.size() - 1;
+            if (userId.equals(chain.get(0).ownerId())) {
+                permission = Permission.OWNER;
+                decidedAt = 0;
+            } else {
+                for (int i = 0; i < chain.size(); i++) {
+                    if (chain.get(i).permission() != null) {
+                        permission = Permission.fromLabel(chain.get(i).permission());
+                        expiresAt = chain.get(i).expiresAt();
+                        decidedAt = i;
+                        break;
+                    }
+                }
+            }
+            result.put(folderId, permission);
+
+            long[] path = chain.subList(0, decidedAt + 1).stream().mapToLong(ChainRow::folderId).toArray();
+            permissionCache.put(userId, folderId, permission, path, expiresAt, generation);
+        });
+        return result;
+    }
+
+    private static LocalDateTime toLocal(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private static Permission max(Permission a, Permission b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
@@ -0,0 +1,274 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.dto.request.BulkActionRequest;
+import com.cloudstorage.dto.response.BulkJobResponse;
+import com.cloudstorage.service.BulkOperationService.Action;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs bulk actions, small selections inline and large ones in the background.
+ *
+ * A selection up to the async threshold is applied in one transaction and
+ * answered directly. A larger one becomes a job: it is applied slice by
+ * slice on a small worker pool, one transaction per slice, and the caller
+ * polls its progress. A failed slice stops the job; slices already
+ * committed stay applied and are reported. Other long-running work, such as
+ * copying a large folder tree, runs through the same jobs with {@link #start}.
+ * Finished jobs are kept in memory for the retention period.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkJobService {
+
+    public static final int MAX_JOBS_PER_USER = 3;
+
+    private final BulkOperationService bulkOperationService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.bulk.async-threshold:200}")
+    private int asyncThreshold;
+
+    @Value("${app.bulk.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${app.bulk.workers:2}")
+    private int workers;
+
+    @Value("${app.bulk.job-retention-ms:3600000}")
+    private long retentionMs;
+
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    @PostConstruct
+    void startWorkers() {
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, workers), task -> {
+            Thread thread = new Thread(task, "bulk-job-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopWorkers() {
+        executor.shutdownNow();
+    }
+
+    // ================= SUBMIT =================
+
+    public BulkJobResponse submit(Long userId, Action action, BulkActionRequest request) {
+        List<Long> fileIds = distinct(request.getFileIds());
+        List<Long> folderIds = distinct(request.getFolderIds());
+        int total = fileIds.size() + folderIds.size();
+        if (total == 0) {
+            throw new RuntimeException("No items selected");
+        }
+        if (total > BatchAuthorizer.MAX_ITEMS) {
+            throw new RuntimeException("Too many items selected (max " + BatchAuthorizer.MAX_ITEMS + ")");
+        }
+        bulkOperationService.validate(userId, action, request);
+
+        String label = action.name().toLowerCase();
+        if (total <= asyncThreshold) {
+            return runNow(userId, label, total, progress -> transactionTemplate.executeWithoutResult(status ->
+                    progress.record(bulkOperationService.apply(userId, action, fileIds, folderIds, request))));
+        }
+
+        int size = Math.max(1, chunkSize);
+        return start(userId, label, total, progress -> {
+            for (int i = 0; i < fileIds.size(); i += size) {
+                List<Long> slice = fileIds.subList(i, Math.min(fileIds.size(), i + size));
+                transactionTemplate.executeWithoutResult(status ->
+                        progress.record(bulkOperationService.apply(userId, action, slice, List.of(), request)));
+            }
+            for (int i = 0; i < folderIds.size(); i += size) {
+                List<Long> slice = folderIds.subList(i, Math.min(folderIds.size(), i + size));
+                transactionTemplate.executeWithoutResult(status ->
+                        progress.record(bulkOperationService.apply(userId, action, List.of(), slice, request)));
+            }
+        });
+    }
+
+    // ================= JOBS =================
+
+    /**
+     * Where a task reports what it has done so far.
+     */
+    public interface Progress {
+
+        void record(List<BulkJobResponse.Item> outcomes);
+
+        /**
+         * Counts items done without listing them, for tasks too large to itemize.
+         */
+        void advance(int items);
+
+        /**
+         * The id of what the task created, if anything.
+         */
+        void result(Long id);
+    }
+
+    public interface Task {
+        void run(Progress progress);
+    }
+
+    /**
+     * Runs a task on the caller's thread and reports it as a finished job.
+     */
+    public BulkJobResponse runNow(Long userId, String action, int total, Task task) {
+        Job job = new Job(userId, action, total);
+        task.run(job);
+        job.finish(null);
+        return job.snapshot(null);
+    }
+
+    /**
+     * Queues a task on the worker pool. The task manages its own
+     * transactions; if it throws, the job is marked failed with what it had
+     * reported up to then.
+     */
+    public BulkJobResponse start(Long userId, String action, int total, Task task) {
+        if (jobs.values().stream().filter(j -> j.userId.equals(userId) && j.isRunning()).count() >= MAX_JOBS_PER_USER) {
+            throw new RuntimeException("Too many bulk jobs running, try again when one finishes");
+        }
+        String jobId = UUID.randomUUID().toString();
+        Job job = new Job(userId, action, total);
+        jobs.put(jobId, job);
+        executor.submit(() -> run(jobId, job, task));
+        log.info("Bulk {} job {} queued for user {}: {} items", action, jobId, userId, total);
+        return job.snapshot(jobId);
+    }
+
+    private void run(String jobId, Job job, Task task) {
+        try {
+            task.run(job);
+            job.finish(null);
+            log.info("Bulk {} job {} finished: {} done, {} skipped, {} failed",
+                    job.action, jobId, job.succeeded, job.skipped, job.failed);
+        } catch (RuntimeException e) {
+            log.warn("Bulk {} job {} failed after {} items: {}", job.action, jobId, job.processed, e.getMessage());
+            job.finish(e.getMessage());
+        }
+    }
+
+    // ================= PROGRESS =================
+
+    public BulkJobResponse status(Long userId, String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.userId.equals(userId)) {
+            throw new RuntimeException("Job not found");
+        }
+        return job.snapshot(jobId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.bulk.job-retention-ms:3600000}")
+    public void evictFinished() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        jobs.values().removeIf(job -> job.finishedAtMillis() != 0 && job.finishedAtMillis() < cutoff);
+    }
+
+    private static List<Long> distinct(List<Long> ids) {
+        return ids == null ? List.of() : ids.stream().filter(id -> id != null).distinct().toList();
+    }
+
+    // ================= JOB =================
+
+    private static final class Job implements Progress {
+        final Long userId;
+        final String action;
+        final int total;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final List<BulkJobResponse.Item> items = new ArrayList<>();
+        int processed;
+        int succeeded;
+        int skipped;
+        int failed;
+        Long resultId;
+        String error;
+        LocalDateTime finishedAt;
+        long finishedAtMillis;
+
+        Job(Long userId, String action, int total) {
+            this.userId = userId;
+            this.action = action;
+            this.total = total;
+        }
+
+        @Override
+        public synchronized void record(List<BulkJobResponse.Item> outcomes) {
+            for (BulkJobResponse.Item item : outcomes) {
+                switch (item.getStatus()) {
+                    case "done" -> succeeded++;
+                    case "skipped" -> skipped++;
+                    default -> failed++;
+                }
+            }
+            processed += outcomes.size();
+            items.addAll(outcomes);
+        }
+
+        @Override
+        public synchronized void advance(int items) {
+            succeeded += items;
+            processed += items;
+        }
+
+        @Override
+        public synchronized void result(Long id) {
+            this.resultId = id;
+        }
+
+        synchronized void finish(String error) {
+            this.error = error;
+            this.finishedAt = LocalDateTime.now();
+            this.finishedAtMillis = System.currentTimeMillis();
+        }
+
+        synchronized boolean isRunning() {
+            return finishedAt == null;
+        }
+
+        synchronized long finishedAtMillis() {
+            return finishedAtMillis;
+        }
+
+        synchronized BulkJobResponse snapshot(String jobId) {
+            String state = finishedAt == null ? "running" : error == null ? "done" : "failed";
+            return BulkJobResponse.builder()
+                    .jobId(jobId)
+                    .action(action)
+                    .state(state)
+                    .total(total)
+                    .processed(processed)
+                    .succeeded(succeeded)
+                    .skipped(skipped)
+                    .failed(failed)
+                    .resultId(resultId)
+                    .error(error)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    // Outcomes are listed once the job is over, progress polls stay small
+                    .items(finishedAt != null && !items.isEmpty() ? List.copyOf(items) : null)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.dto.request.BulkActionRequest;
+import com.cloudstorage.dto.response.BulkJobResponse;
+import com.cloudstorage.event.FileChangeEvent;
+import com.cloudstorage.event.FolderChangeEvent;
+import com.cloudstorage.model.Permission;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Moves, trashes, restores and stars a slice of a multi-select.
+ *
+ * The slice is authorized in one {@link BatchAuthorizer} pass, its rows are
+ * locked and read in one query per table, and each change is one UPDATE over
+ * every id it applies to. The same rules as the single-item endpoints decide
+ * what is allowed, and the same change events are published per item, so the
+ * folder rollups, dashboard stats, search index and shared inbox follow along.
+ * Runs in the caller's transaction; {@link BulkJobService} decides how a
+ * selection is split into slices.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkOperationService {
+
+    private static final int MAX_DEPTH = 100;
+    // Keeps IN lists well under driver parameter limits when a subtree is large
+    private static final int IN_LIMIT = 1000;
+
+    public enum Action {
+        MOVE,
+        DELETE,
+        RESTORE,
+        STAR
+    }
+
+    private static final String FILES_SQL =
+            "SELECT id, user_id, folder_id, name, mime_type, size, is_starred, is_deleted " +
+            "FROM files WHERE id IN (:ids) FOR UPDATE";
+
+    private static final String FOLDERS_SQL =
+            "SELECT id, user_id, parent_id, name, total_size, total_items, is_deleted " +
+            "FROM folders WHERE id IN (:ids) FOR UPDATE";
+
+    private static final String SUBTREE_SQL =
+            "WITH RECURSIVE tree (id, depth) AS ( " +
+            "    SELECT id, 0 FROM folders WHERE id IN (:ids) AND is_deleted = false " +
+            "    UNION ALL " +
+            "    SELECT c.id, t.depth + 1 FROM tree t JOIN folders c ON c.parent_id = t.id " +
+            "    WHERE c.is_deleted = false AND t.depth < " + MAX_DEPTH +
+            ") " +
+            "SELECT DISTINCT id FROM tree";
+
+    private static final String LIVE_FILES_IN_SQL =
+            "SELECT id, user_id, folder_id, name, mime_type, size, is_starred, is_deleted " +
+            "FROM files WHERE folder_id IN (:ids) AND is_deleted = false FOR UPDATE";
+
+    private static final String ANCESTORS_SQL =
+            "WITH RECURSIVE chain (id, parent_id, depth) AS ( " +
+            "    SELECT id, parent_id, 0 FROM folders WHERE id = :id " +
+            "    UNION ALL " +
+            "    SELECT p.id, p.parent_id, c.depth + 1 FROM chain c JOIN folders p ON p.id = c.parent_id " +
+            "    WHERE c.depth < " + MAX_DEPTH +
+            ") " +
+            "SELECT id FROM chain";
+
+    private static final String TARGET_SQL = "SELECT user_id, is_deleted FROM folders WHERE id = :id";
+
+    private static final String DELETE_FILES_SQL =
+            "UPDATE files SET is_deleted = true, deleted_at = :now, deleted_by = :userId WHERE id IN (:ids)";
+    private static final String DELETE_FOLDERS_SQL =
+            "UPDATE folders SET is_deleted = true, deleted_at = :now, deleted_by = :userId " +
+            "WHERE id IN (:ids) AND is_deleted = false";
+    private static final String RESTORE_FILES_SQL =
+            "UPDATE files SET is_deleted = false, deleted_at = NULL WHERE id IN (:ids)";
+    private static final String RESTORE_FOLDERS_SQL =
+            "UPDATE folders SET is_deleted = false, deleted_at = NULL WHERE id IN (:ids)";
+    private static final String STAR_FILES_SQL =
+            "UPDATE files SET is_starred = :starred WHERE id IN (:ids)";
+    private static final String MOVE_FILES_SQL =
+            "UPDATE files SET folder_id = :target, updated_at = :now WHERE id IN (:ids)";
+    private static final String MOVE_FOLDERS_SQL =
+            "UPDATE folders SET parent_id = :target, updated_at = :now WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final BatchAuthorizer batchAuthorizer;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private interface Row {
+        Long id();
+    }
+
+    private record FileRow(Long id, Long ownerId, Long folderId, String name, String mimeType,
+                           long size, boolean starred, boolean deleted) implements Row {
+    }
+
+    private record FolderRow(Long id, Long ownerId, Long parentId, String name,
+                             long totalSize, long totalItems, boolean deleted) implements Row {
+    }
+
+    // ================= VALIDATION =================
+
+    /**
+     * Rejects arguments that make the whole request meaningless, before any
+     * slice runs.
+     */
+    public void validate(Long userId, Action action, BulkActionRequest request) {
+        if (action == Action.STAR && request.getStarred() == null) {
+            throw new RuntimeException("starred is required");
+        }
+        if (action == Action.MOVE && request.getTargetFolderId() != null) {
+            List<Boolean> target = jdbcTemplate.query(TARGET_SQL,
+                    new MapSqlParameterSource("id", request.getTargetFolderId()),
+                    (rs, i) -> userId.equals(rs.getLong("user_id")) && !rs.getBoolean("is_deleted"));
+            if (target.isEmpty() || !target.get(0)) {
+                throw new RuntimeException("Target folder not found");
+            }
+        }
+    }
+
+    // ================= APPLY =================
+
+    /**
+     * Applies the action to one slice and returns an outcome per requested id,
+     * files first.
+     */
+    public List<BulkJobResponse.Item> apply(Long userId, Action action, List<Long> fileIds, List<Long> folderIds,
+                                            BulkActionRequest request) {
+        BatchAuthorizer.Result access = batchAuthorizer.authorize(userId, fileIds, folderIds);
+        Map<Long, BulkJobResponse.Item> files = new LinkedHashMap<>();
+        Map<Long, BulkJobResponse.Item> folders = new LinkedHashMap<>();
+        fileIds.forEach(id -> files.put(id, item("file", id, "forbidden", null)));
+        folderIds.forEach(id -> folders.put(id, item("folder", id, "forbidden", null)));
+
+        // Trashing needs edit access, as it does one at a time; everything else is the owner's call
+        Predicate<Permission> allowed = action == Action.DELETE ? Permission::canEdit : p -> p == Permission.OWNER;
+        List<FileRow> fileRows = lockFiles(fileIds.stream().filter(id -> allowed.test(access.file(id))).toList());
+        List<FolderRow> folderRows = lockFolders(folderIds.stream().filter(id -> allowed.test(access.folder(id))).toList());
+
+        LocalDateTime now = LocalDateTime.now();
+        switch (action) {
+            case DELETE -> delete(userId, now, fileRows, folderRows, files, folders);
+            case RESTORE -> restore(fileRows, folderRows, files, folders);
+            case STAR -> star(request.getStarred(), fileRows, folderRows, files, folders);
+            case MOVE -> move(request.getTargetFolderId(), now, fileRows, folderRows, files, folders);
+        }
+
+        List<BulkJobResponse.Item> result = new ArrayList<>(files.size() + folders.size());
+        result.addAll(files.values());
+        result.addAll(folders.values());
+        return result;
+    }
+
+    private void delete(Long userId, LocalDateTime now, List<FileRow> fileRows, List<FolderRow> folderRows,
+                        Map<Long, BulkJobResponse.Item> files, Map<Long, BulkJobResponse.Item> folders) {
+        List<FileRow> liveFiles = split(fileRows, FileRow::deleted, files, "skipped", "already in trash");
+        trashFiles(userId, now, liveFiles);
+        liveFiles.forEach(f -> files.get(f.id()).setStatus("done"));
+
+        List<FolderRow> liveFolders = split(folderRows, FolderRow::deleted, folders, "skipped", "already in trash");
+        if (liveFolders.isEmpty()) {
+            return;
+        }
+
+        // Trashing a folder trashes everything still live beneath it
+        List<Long> subtree = new ArrayList<>();
+        for (List<Long> part : partition(liveFolders.stream().map(FolderRow::id).toList())) {
+            subtree.addAll(jdbcTemplate.queryForList(SUBTREE_SQL, new MapSqlParameterSource("ids", part), Long.class));
+        }
+        List<FolderRow> trashed = lockFolders(subtree);
+        List<FileRow> contents = new ArrayList<>();
+        for (List<Long> part : partition(subtree)) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", part)
+                    .addValue("now", Timestamp.valueOf(now))
+                    .addValue("userId", userId);
+            jdbcTemplate.update(DELETE_FOLDERS_SQL, params);
+            contents.addAll(jdbcTemplate.query(LIVE_FILES_IN_SQL, params, BulkOperationService::fileRow));
+        }
+        trashFiles(userId, now, contents);
+
+        trashed.forEach(f -> eventPublisher.publishEvent(folderEvent(FolderChangeEvent.Type.DELETED, f, f.parentId())));
+        liveFolders.forEach(f -> folders.get(f.id()).setStatus("done"));
+        log.info("Bulk trash by user {}: {} folders, {} files beneath them", userId, trashed.size(), contents.size());
+    }
+
+    private void trashFiles(Long userId, LocalDateTime now, List<FileRow> rows) {
+        update(DELETE_FILES_SQL, rows.stream().map(FileRow::id).toList(), new MapSqlParameterSource()
+                .addValue("now", Timestamp.valueOf(now))
+                .addValue("userId", userId));
+        rows.forEach(f -> eventPublisher.publishEvent(fileEvent(FileChangeEvent.Type.DELETED, f, f.folderId(), f.starred())));
+    }
+
+    private void restore(List<FileRow> fileRows, List<FolderRow> folderRows,
+                         Map<Long, BulkJobResponse.Item> files, Map<Long, BulkJobResponse.Item> folders) {
+        List<FileRow> trashedFiles = split(fileRows, f -> !f.deleted(), files, "skipped", "not in trash");
+        update(RESTORE_FILES_SQL, trashedFiles.stream().map(FileRow::id).toList(), new MapSqlParameterSource());
+        trashedFiles.forEach(f -> {
+            eventPublisher.publishEvent(fileEvent(FileChangeEvent.Type.RESTORED, f, f.folderId(), f.starred()));
+            files.get(f.id()).setStatus("done");
+        });
+
+        // As with the single restore, only the folder itself comes back
+        List<FolderRow> trashedFolders = split(folderRows, f -> !f.deleted(), folders, "skipped", "not in trash");
+        update(RESTORE_FOLDERS_SQL, trashedFolders.stream().map(FolderRow::id).toList(), new MapSqlParameterSource());
+        trashedFolders.forEach(f -> {
+            eventPublisher.publishEvent(folderEvent(FolderChangeEvent.Type.RESTORED, f, f.parentId()));
+            folders.get(f.id()).setStatus("done");
+        });
+    }
+
+    private void star(boolean starred, List<FileRow> fileRows, List<FolderRow> folderRows,
+                      Map<Long, BulkJobResponse.Item> files, Map<Long, BulkJobResponse.Item> folders) {
+        folderRows.forEach(f -> folders.put(f.id(), item("folder", f.id(), "invalid", "folders can't be starred")));
+
+        List<FileRow> changed = split(fileRows, f -> f.starred() == starred, files, "skipped",
+                starred ? "already starred" : "not starred");
+        update(STAR_FILES_SQL, changed.stream().map(FileRow::id).toList(),
+                new MapSqlParameterSource("starred", starred));
+        changed.forEach(f -> {
+            // Starring something in the trash doesn't change any live counters
+            if (!f.deleted()) {
+                eventPublisher.publishEvent(fileEvent(
+                        starred ? FileChangeEvent.Type.STARRED : FileChangeEvent.Type.UNSTARRED, f, f.folderId(), starred));
+            }
+            files.get(f.id()).setStatus("done");
+        });
+    }
+
+    private void move(Long target, LocalDateTime now, List<FileRow> fileRows, List<FolderRow> folderRows,
+                      Map<Long, BulkJobResponse.Item> files, Map<Long, BulkJobResponse.Item> folders) {
+        MapSqlParameterSource params = new MapSqlParameterSource("target", target)
+                .addValue("now", Timestamp.valueOf(now));
+
+        List<FileRow> movable = split(fileRows, FileRow::deleted, files, "invalid", "in trash");
+        movable = split(movable, f -> same(f.folderId(), target), files, "skipped", "already there");
+        update(MOVE_FILES_SQL, movable.stream().map(FileRow::id).toList(), params);
+        movable.forEach(f -> {
+            eventPublisher.publishEvent(fileEvent(FileChangeEvent.Type.MOVED, f, target, f.starred()));
+            files.get(f.id()).setStatus("done");
+        });
+
+        // A folder can't go into itself or anything beneath it, i.e. anything on the target's path
+        Set<Long> targetPath = target != null
+                ? new HashSet<>(jdbcTemplate.queryForList(ANCESTORS_SQL, new MapSqlParameterSource("id", target), Long.class))
+                : Set.of();
+        List<FolderRow> movableFolders = split(folderRows, FolderRow::deleted, folders, "invalid", "in trash");
+        movableFolders = split(movableFolders, f -> targetPath.contains(f.id()), folders, "invalid",
+                "can't move a folder into itself");
+        movableFolders = split(movableFolders, f -> same(f.parentId(), target), folders, "skipped", "already there");
+        update(MOVE_FOLDERS_SQL, movableFolders.stream().map(FolderRow::id).toList(), params);
+        movableFolders.forEach(f -> {
+            eventPublisher.publishEvent(folderEvent(FolderChangeEvent.Type.MOVED, f, target));
+            folders.get(f.id()).setStatus("done");
+        });
+    }
+
+    // ================= HELPERS =================
+
+    /**
+     * Marks the rows matching {@code rejected} with the given outcome and
+     * returns the rest.
+     */
+    private static <T extends Row> List<T> split(List<T> rows, Predicate<T> rejected, Map<Long, BulkJobResponse.Item> items,
+                                     String status, String reason) {
+        List<T> rest = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            if (rejected.test(row)) {
+                BulkJobResponse.Item item = items.get(row.id());
+                item.setStatus(status);
+                item.setReason(reason);
+            } else {
+                rest.add(row);
+            }
+        }
+        return rest;
+    }
+
+    private void update(String sql, List<Long> ids, MapSqlParameterSource params) {
+        for (List<Long> part : partition(ids)) {
+            jdbcTemplate.update(sql, new MapSqlParameterSource(params.getValues()).addValue("ids", part));
+        }
+    }
+
+    private List<FileRow> lockFiles(List<Long> ids) {
+        List<FileRow> rows = new ArrayList<>(ids.size());
+        for (List<Long> part : partition(ids)) {
+            rows.addAll(jdbcTemplate.query(FILES_SQL, new MapSqlParameterSource("ids", part), BulkOperationService::fileRow));
+        }
+        return rows;
+    }
+
+    private List<FolderRow> lockFolders(Collection<Long> ids) {
+        List<FolderRow> rows = new ArrayList<>(ids.size());
+        for (List<Long> part : partition(List.copyOf(new HashSet<>(ids)))) {
+            rows.addAll(jdbcTemplate.query(FOLDERS_SQL, new MapSqlParameterSource("ids", part), (rs, i) ->
+                    new FolderRow(rs.getLong("id"), rs.getLong("user_id"), rs.getObject("parent_id", Long.class),
+                            rs.getString("name"), rs.getLong("total_size"), rs.getLong("total_items"),
+                            rs.getBoolean("is_deleted"))));
+        }
+        return rows;
+    }
+
+    private static FileRow fileRow(ResultSet rs, int i) throws SQLException {
+        return new FileRow(rs.getLong("id"), rs.getLong("user_id"), rs.getObject("folder_id", Long.class),
+                rs.getString("name"), rs.getString("mime_type"), rs.getLong("size"),
+                rs.getBoolean("is_starred"), rs.getBoolean("is_deleted"));
+    }
+
+    private static FileChangeEvent fileEvent(FileChangeEvent.Type type, FileRow f, Long folderId, boolean starred) {
+        return new FileChangeEvent(type, f.id(), f.ownerId(), folderId, f.folderId(),
+                f.name(), f.mimeType(), f.size(), starred);
+    }
+
+    private static FolderChangeEvent folderEvent(FolderChangeEvent.Type type, FolderRow f, Long parentId) {
+        return new FolderChangeEvent(type, f.id(), f.ownerId(), parentId, f.parentId(),
+                f.name(), f.totalSize(), f.totalItems());
+    }
+
+    private static BulkJobResponse.Item item(String type, Long id, String status, String reason) {
+        return BulkJobResponse.Item.builder().type(type).id(id).status(status).reason(reason).build();
+    }
+
+    private static boolean same(Long a, Long b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static List<List<Long>> partition(List<Long> ids) {
+        List<List<Long>> parts = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += IN_LIMIT) {
+            parts.add(ids.subList(i, Math.min(ids.size(), i + IN_LIMIT)));
+        }
+        return parts;
+    }
+}
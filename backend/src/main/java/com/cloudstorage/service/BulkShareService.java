@@ -0,0 +1,264 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.dto.request.BulkShareRequest;
+import com.cloudstorage.dto.response.BulkShareResponse;
+import com.cloudstorage.event.BulkShareChangeEvent;
+import com.cloudstorage.model.Permission;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shares many files and folders with many users in one transaction.
+ *
+ * However large the selection, the cost is one authorization pass, one
+ * query for the recipients, one for the item names, and per table one
+ * batched UPDATE of the (item, recipient) pairs followed by one batched
+ * INSERT of the pairs that had no row yet. The whole call publishes one
+ * share change event, which the inbox and the permission cache apply in a
+ * single batch each, and each recipient gets one digest email instead of
+ * one per item.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkShareService {
+
+    public static final int MAX_RECIPIENTS = 100;
+    public static final int MAX_SHARES = 10_000;
+
+    private static final String USERS_SQL =
+            "SELECT id, email, full_name FROM users WHERE email IN (:emails)";
+
+    private static final String SHARER_SQL = "SELECT full_name, email FROM users WHERE id = :userId";
+
+    private static final String FILE_NAMES_SQL = "SELECT id, name FROM files WHERE id IN (:ids)";
+    private static final String FOLDER_NAMES_SQL = "SELECT id, name FROM folders WHERE id IN (:ids)";
+
+    private static final String UPDATE_FILE_SQL =
+            "UPDATE file_shares SET permission = ?, is_active = true, expires_at = ? " +
+            "WHERE file_id = ? AND shared_with_user_id = ?";
+
+    private static final String INSERT_FILE_SQL =
+            "INSERT INTO file_shares (file_id, shared_with_user_id, shared_by_user_id, permission, " +
+            "is_active, is_starred, created_at, expires_at) VALUES (?, ?, ?, ?, true, false, ?, ?)";
+
+    private static final String UPDATE_FOLDER_SQL =
+            "UPDATE folder_shares SET permission = ?, is_active = true, expires_at = ? " +
+            "WHERE folder_id = ? AND shared_with_user_id = ?";
+
+    private static final String INSERT_FOLDER_SQL =
+            "INSERT INTO folder_shares (folder_id, owner_id, shared_by_user_id, shared_with_user_id, permission, " +
+            "is_active, created_at, expires_at) VALUES (?, ?, ?, ?, ?, true, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final BatchAuthorizer batchAuthorizer;
+    private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.frontend-url:http://localhost:3000}")
+    private String frontendUrl;
+
+    private record Recipient(Long id, String email, String name) {
+    }
+
+    private record Counts(int created, int updated) {
+    }
+
+    // ================= BULK SHARE =================
+
+    @Transactional
+    public BulkShareResponse share(Long userId, BulkShareRequest request) {
+        String permission = validate(request);
+        LocalDateTime expiresAt = ShareExpiryService.expiresAt(request.getTtlSeconds());
+
+        List<Long> fileIds = distinct(request.getFileIds());
+        List<Long> folderIds = distinct(request.getFolderIds());
+        BatchAuthorizer.Result access = batchAuthorizer.authorize(userId, fileIds, folderIds);
+        List<Long> files = fileIds.stream().filter(id -> access.file(id) == Permission.OWNER).toList();
+        List<Long> folders = folderIds.stream().filter(id -> access.folder(id) == Permission.OWNER).toList();
+
+        Set<String> emails = new LinkedHashSet<>();
+        request.getEmails().stream()
+                .filter(e -> e != null && !e.isBlank())
+                .forEach(e -> emails.add(e.trim()));
+        List<Recipient> recipients = new ArrayList<>();
+        Set<String> found = new LinkedHashSet<>();
+        if (!emails.isEmpty()) {
+            namedJdbcTemplate.query(USERS_SQL, new MapSqlParameterSource("emails", emails), rs -> {
+                Recipient recipient = new Recipient(rs.getLong("id"), rs.getString("email"), rs.getString("full_name"));
+                found.add(recipient.email());
+                // Sharing with yourself is a no-op here rather than an error
+                if (!recipient.id().equals(userId)) {
+                    recipients.add(recipient);
+                }
+            });
+        }
+        List<String> unknown = emails.stream().filter(e -> !found.contains(e)).toList();
+
+        if ((long) (files.size() + folders.size()) * recipients.size() > MAX_SHARES) {
+            throw new RuntimeException("Too many shares in one request (max " + MAX_SHARES + ")");
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp expires = expiresAt != null ? Timestamp.valueOf(expiresAt) : null;
+        Counts fileCounts = upsert(UPDATE_FILE_SQL, INSERT_FILE_SQL, files, recipients,
+                (itemId, recipient) -> new Object[]{itemId, recipient.id(), userId, permission, now, expires},
+                permission, expires);
+        Counts folderCounts = upsert(UPDATE_FOLDER_SQL, INSERT_FOLDER_SQL, folders, recipients,
+                (itemId, recipient) -> new Object[]{itemId, userId, userId, recipient.id(), permission, now, expires},
+                permission, expires);
+
+        if (!recipients.isEmpty() && !(files.isEmpty() && folders.isEmpty())) {
+            eventPublisher.publishEvent(new BulkShareChangeEvent(files, folders,
+                    recipients.stream().map(Recipient::id).toList()));
+        }
+
+        Map<Long, String> fileNames = names(FILE_NAMES_SQL, files);
+        Map<Long, String> folderNames = names(FOLDER_NAMES_SQL, folders);
+
+        int emailsQueued = 0;
+        if (Boolean.TRUE.equals(request.getSendEmail()) && !recipients.isEmpty() && !(files.isEmpty() && folders.isEmpty())) {
+            emailsQueued = sendDigests(userId, now, recipients, permission, request.getMessage(),
+                    folders.stream().map(folderNames::get).toList(),
+                    files.stream().map(fileNames::get).toList());
+        }
+
+        List<BulkShareResponse.Item> items = new ArrayList<>(fileIds.size() + folderIds.size());
+        fileIds.forEach(id -> items.add(item("file", id, access.file(id), fileNames.get(id), recipients.size())));
+        folderIds.forEach(id -> items.add(item("folder", id, access.folder(id), folderNames.get(id), recipients.size())));
+
+        log.info("Bulk share by user {}: {} files, {} folders, {} recipients, {} created, {} updated",
+                userId, files.size(), folders.size(), recipients.size(),
+                fileCounts.created() + folderCounts.created(), fileCounts.updated() + folderCounts.updated());
+
+        return BulkShareResponse.builder()
+                .items(items)
+                .unknownRecipients(unknown)
+                .sharesCreated(fileCounts.created() + folderCounts.created())
+                .sharesUpdated(fileCounts.updated() + folderCounts.updated())
+                .emailsQueued(emailsQueued)
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    private static String validate(BulkShareRequest request) {
+        String permission = request.getPermission() != null ? request.getPermission().toLowerCase(Locale.ROOT) : null;
+        if (!"view".equals(permission) && !"edit".equals(permission)) {
+            throw new RuntimeException("Permission must be view or edit");
+        }
+        if (request.getEmails() == null || request.getEmails().isEmpty()) {
+            throw new RuntimeException("At least one email is required");
+        }
+        if (request.getEmails().size() > MAX_RECIPIENTS) {
+            throw new RuntimeException("Too many recipients (max " + MAX_RECIPIENTS + ")");
+        }
+        return permission;
+    }
+
+    // ================= WRITES =================
+
+    private interface InsertRow {
+        Object[] values(Long itemId, Recipient recipient);
+    }
+
+    /**
+     * Updates every (item, recipient) pair in one batch, then inserts the
+     * pairs that matched no row. Both tables are unique on the pair, so a
+     * concurrent share of the same pair fails the transaction rather than
+     * leaving a duplicate.
+     */
+    private Counts upsert(String updateSql, String insertSql, List<Long> itemIds, List<Recipient> recipients,
+                          InsertRow insertRow, String permission, Timestamp expires) {
+        if (itemIds.isEmpty() || recipients.isEmpty()) {
+            return new Counts(0, 0);
+        }
+
+        List<Object[]> pairs = new ArrayList<>(itemIds.size() * recipients.size());
+        List<Object[]> updates = new ArrayList<>(itemIds.size() * recipients.size());
+        for (Long itemId : itemIds) {
+            for (Recipient recipient : recipients) {
+                pairs.add(new Object[]{itemId, recipient});
+                updates.add(new Object[]{permission, expires, itemId, recipient.id()});
+            }
+        }
+        int[] updated = jdbcTemplate.batchUpdate(updateSql, updates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                inserts.add(insertRow.values((Long) pairs.get(i)[0], (Recipient) pairs.get(i)[1]));
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertSql, inserts);
+        }
+        return new Counts(inserts.size(), updated.length - inserts.size());
+    }
+
+    // ================= EMAIL =================
+
+    private int sendDigests(Long userId, Timestamp sharedAt, List<Recipient> recipients, String permission, String message,
+                            List<String> folderNames, List<String> fileNames) {
+        List<String> sharer = namedJdbcTemplate.query(SHARER_SQL, new MapSqlParameterSource("userId", userId),
+                (rs, i) -> rs.getString("full_name") != null ? rs.getString("full_name") : rs.getString("email"));
+        String sharedBy = sharer.isEmpty() ? "Someone" : sharer.get(0);
+
+        List<String> itemNames = new ArrayList<>(folderNames.size() + fileNames.size());
+        itemNames.addAll(folderNames);
+        itemNames.addAll(fileNames);
+        String link = frontendUrl + "/shared-with-me";
+
+        for (Recipient recipient : recipients) {
+            emailService.sendShareDigestEmail("bulk-share:" + userId + ":" + sharedAt.getTime(),
+                    recipient.email(), recipient.name(), sharedBy, itemNames,
+                    "edit".equals(permission) ? "Can edit" : "View only", message, link);
+        }
+        return recipients.size();
+    }
+
+    // ================= HELPERS =================
+
+    private Map<Long, String> names(String sql, List<Long> ids) {
+        Map<Long, String> names = new HashMap<>();
+        if (ids.isEmpty()) {
+            return names;
+        }
+        namedJdbcTemplate.query(sql, new MapSqlParameterSource("ids", ids), rs -> {
+            names.put(rs.getLong("id"), rs.getString("name"));
+        });
+        return names;
+    }
+
+    private static BulkShareResponse.Item item(String type, Long id, Permission permission, String name, int recipients) {
+        boolean owned = permission == Permission.OWNER;
+        return BulkShareResponse.Item.builder()
+                .type(type)
+                .id(id)
+                .name(owned ? name : null)
+                .status(owned ? "shared" : "forbidden")
+                .recipients(owned ? recipients : null)
+                .build();
+    }
+
+    private static List<Long> distinct(List<Long> ids) {
+        return ids == null ? List.of() : ids.stream().filter(id -> id != null).distinct().toList();
+    }
+}
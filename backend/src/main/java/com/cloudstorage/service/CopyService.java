@@ -0,0 +1,312 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.dto.request.CopyRequest;
+import com.cloudstorage.dto.response.BulkJobResponse;
+import com.cloudstorage.dto.response.FileResponse;
+import com.cloudstorage.event.FileChangeEvent;
+import com.cloudstorage.event.FolderChangeEvent;
+import com.cloudstorage.model.File;
+import com.cloudstorage.model.Folder;
+import com.cloudstorage.model.User;
+import com.cloudstorage.repository.FileRepository;
+import com.cloudstorage.repository.FolderRepository;
+import com.cloudstorage.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Server-side copies of files and folder trees.
+ *
+ * No bytes are duplicated: a copy is a new files row whose content_source_id
+ * points at the file holding the bytes, and reads follow that pointer (see
+ * {@link FileRepository#findContent}). The copy is otherwise independent, and
+ * owned and charged to the user who made it at its full size, as an upload
+ * would be. The charge comes before any row is written, so a copy that does
+ * not fit fails without leaving anything behind.
+ *
+ * A folder tree is read with one recursive query, then written level by
+ * level with one batched INSERT per level of folders and batched INSERTs for
+ * the files, all in one transaction. Trees above the bulk async threshold
+ * run as a {@link BulkJobService} job; their bytes are reserved against the
+ * quota up front so concurrent uploads can't overshoot it meanwhile.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CopyService {
+
+    private static final int MAX_DEPTH = 100;
+    private static final int INSERT_BATCH = 500;
+
+    private static final String TREE_FOLDERS_SQL =
+            "WITH RECURSIVE tree (id, parent_id, name, depth) AS ( " +
+            "    SELECT id, parent_id, name, 0 FROM folders WHERE id = :rootId AND is_deleted = false " +
+            "    UNION ALL " +
+            "    SELECT c.id, c.parent_id, c.name, t.depth + 1 FROM tree t JOIN folders c ON c.parent_id = t.id " +
+            "    WHERE c.is_deleted = false AND t.depth < " + MAX_DEPTH +
+            ") " +
+            "SELECT id, parent_id, name, depth FROM tree ORDER BY depth, id";
+
+    private static final String TREE_FILES_SQL =
+            "WITH RECURSIVE tree (id, depth) AS ( " +
+            "    SELECT id, 0 FROM folders WHERE id = :rootId AND is_deleted = false " +
+            "    UNION ALL " +
+            "    SELECT c.id, t.depth + 1 FROM tree t JOIN folders c ON c.parent_id = t.id " +
+            "    WHERE c.is_deleted = false AND t.depth < " + MAX_DEPTH +
+            ") " +
+            "SELECT fi.folder_id, fi.name, fi.mime_type, fi.size, COALESCE(fi.content_source_id, fi.id) AS source_id " +
+            "FROM tree t JOIN files fi ON fi.folder_id = t.id AND fi.is_deleted = false " +
+            "ORDER BY fi.folder_id, fi.id";
+
+    private static final String INSERT_FOLDER_SQL =
+            "INSERT INTO folders (name, parent_id, user_id, is_deleted, total_size, total_items, created_at, updated_at) " +
+            "VALUES (:name, :parentId, :userId, false, 0, 0, :now, :now)";
+
+    private static final String INSERT_FILE_SQL =
+            "INSERT INTO files (name, size, mime_type, folder_id, user_id, is_starred, is_deleted, " +
+            "content_source_id, created_at, updated_at) " +
+            "VALUES (:name, :size, :mimeType, :folderId, :userId, false, false, :sourceId, :now, :now)";
+
+    private final FileRepository fileRepository;
+    private final FolderRepository folderRepository;
+    private final UserRepository userRepository;
+    private final FileService fileService;
+    private final BatchAuthorizer batchAuthorizer;
+    private final QuotaService quotaService;
+    private final BulkJobService bulkJobService;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.bulk.async-threshold:200}")
+    private int asyncThreshold;
+
+    @Value("${app.copy.max-items:10000}")
+    private int maxItems;
+
+    private record FolderNode(Long id, Long parentId, String name, int depth) {
+    }
+
+    private record FileNode(Long folderId, String name, String mimeType, long size, Long sourceId) {
+    }
+
+    // ================= FILE =================
+
+    @Transactional
+    public FileResponse copyFile(Long userId, Long fileId, CopyRequest request) {
+        File original = fileRepository.findById(fileId)
+                .filter(f -> !Boolean.TRUE.equals(f.getIsDeleted()))
+                .orElseThrow(() -> new RuntimeException("File not found"));
+        if (!batchAuthorizer.authorize(userId, List.of(fileId), List.of()).file(fileId).canView()) {
+            throw new RuntimeException("File not found");
+        }
+
+        Long originalFolderId = original.getFolder() != null ? original.getFolder().getId() : null;
+        Folder target = targetFolder(userId, request, originalFolderId, null);
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        quotaService.charge(userId, original.getSize());
+
+        // Always point at the file that holds the bytes, never at another copy
+        Long sourceId = original.getContentSourceId() != null ? original.getContentSourceId() : original.getId();
+        File copy = File.builder()
+                .name(copyName(request, original.getName()))
+                .size(original.getSize())
+                .mimeType(original.getMimeType())
+                .contentSourceId(sourceId)
+                .folder(target)
+                .user(user)
+                .isDeleted(false)
+                .isStarred(false)
+                .build();
+
+        File saved = fileRepository.save(copy);
+        eventPublisher.publishEvent(FileChangeEvent.of(FileChangeEvent.Type.CREATED, saved));
+        log.info("User {} copied file {} to {}", userId, fileId, saved.getId());
+        return fileService.toResponse(saved);
+    }
+
+    // ================= FOLDER TREE =================
+
+    public BulkJobResponse copyFolder(Long userId, Long folderId, CopyRequest request) {
+        if (!batchAuthorizer.authorize(userId, List.of(), List.of(folderId)).folder(folderId).canView()) {
+            throw new RuntimeException("Folder not found");
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource("rootId", folderId);
+        List<FolderNode> folders = jdbcTemplate.query(TREE_FOLDERS_SQL, params, (rs, i) ->
+                new FolderNode(rs.getLong("id"), rs.getObject("parent_id", Long.class),
+                        rs.getString("name"), rs.getInt("depth")));
+        if (folders.isEmpty()) {
+            throw new RuntimeException("Folder not found");
+        }
+        List<FileNode> files = jdbcTemplate.query(TREE_FILES_SQL, params, (rs, i) ->
+                new FileNode(rs.getLong("folder_id"), rs.getString("name"), rs.getString("mime_type"),
+                        rs.getLong("size"), rs.getLong("source_id")));
+
+        int total = folders.size() + files.size();
+        if (total > maxItems) {
+            throw new RuntimeException("Folder is too large to copy (max " + maxItems + " items)");
+        }
+
+        FolderNode root = folders.get(0);
+        Long targetId = idOf(targetFolder(userId, request, root.parentId(),
+                folders.stream().map(FolderNode::id).toList()));
+        String rootName = copyName(request, root.name());
+        long bytes = files.stream().mapToLong(FileNode::size).sum();
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        QuotaService.Reservation reservation = quotaService.reserve(user, bytes);
+
+        BulkJobService.Task task = progress -> {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        writeTree(userId, folders, files, targetId, rootName, bytes, progress));
+            } finally {
+                quotaService.release(reservation);
+            }
+        };
+        try {
+            return total <= asyncThreshold
+                    ? bulkJobService.runNow(userId, "copy", total, task)
+                    : bulkJobService.start(userId, "copy", total, task);
+        } catch (RuntimeException e) {
+            // Not queued, or failed inline after releasing; releasing twice is harmless
+            quotaService.release(reservation);
+            throw e;
+        }
+    }
+
+    private void writeTree(Long userId, List<FolderNode> folders, List<FileNode> files, Long targetId,
+                           String rootName, long bytes, BulkJobService.Progress progress) {
+        quotaService.charge(userId, bytes);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<Long, Long> copies = new HashMap<>();
+
+        // Parents before children: one batch per level, whose keys feed the next level
+        Map<Integer, List<FolderNode>> levels = new TreeMap<>();
+        folders.forEach(f -> levels.computeIfAbsent(f.depth(), d -> new ArrayList<>()).add(f));
+        for (List<FolderNode> level : levels.values()) {
+            for (List<FolderNode> batch : partition(level)) {
+                List<SqlParameterSource> rows = new ArrayList<>(batch.size());
+                for (FolderNode f : batch) {
+                    rows.add(new MapSqlParameterSource("name", f.depth() == 0 ? rootName : f.name())
+                            .addValue("parentId", f.depth() == 0 ? targetId : copies.get(f.parentId()))
+                            .addValue("userId", userId)
+                            .addValue("now", now));
+                }
+                List<Long> ids = insert(INSERT_FOLDER_SQL, rows);
+                for (int i = 0; i < batch.size(); i++) {
+                    FolderNode f = batch.get(i);
+                    Long parentId = f.depth() == 0 ? targetId : copies.get(f.parentId());
+                    copies.put(f.id(), ids.get(i));
+                    eventPublisher.publishEvent(new FolderChangeEvent(FolderChangeEvent.Type.CREATED, ids.get(i),
+                            userId, parentId, parentId, (String) rows.get(i).getValue("name"), 0, 0));
+                }
+                progress.advance(batch.size());
+            }
+        }
+
+        for (List<FileNode> batch : partition(files)) {
+            List<SqlParameterSource> rows = new ArrayList<>(batch.size());
+            for (FileNode f : batch) {
+                rows.add(new MapSqlParameterSource("name", f.name())
+                        .addValue("size", f.size())
+                        .addValue("mimeType", f.mimeType())
+                        .addValue("folderId", copies.get(f.folderId()))
+                        .addValue("userId", userId)
+                        .addValue("sourceId", f.sourceId())
+                        .addValue("now", now));
+            }
+            List<Long> ids = insert(INSERT_FILE_SQL, rows);
+            for (int i = 0; i < batch.size(); i++) {
+                FileNode f = batch.get(i);
+                Long folderId = copies.get(f.folderId());
+                eventPublisher.publishEvent(new FileChangeEvent(FileChangeEvent.Type.CREATED, ids.get(i), userId,
+                        folderId, folderId, f.name(), f.mimeType(), f.size(), false));
+            }
+            progress.advance(batch.size());
+        }
+
+        Long rootCopy = copies.get(folders.get(0).id());
+        progress.result(rootCopy);
+        log.info("User {} copied folder {} to {}: {} folders, {} files, {} bytes shared",
+                userId, folders.get(0).id(), rootCopy, folders.size(), files.size(), bytes);
+    }
+
+    // ================= HELPERS =================
+
+    /**
+     * The folder a copy goes into: the requested one, which the user must be
+     * able to write to, or else the original's own folder when writable, or
+     * else the root.
+     */
+    private Folder targetFolder(Long userId, CopyRequest request, Long originalFolderId, List<Long> copiedFolderIds) {
+        Long requested = request != null ? request.getTargetFolderId() : null;
+        Long candidate = requested != null ? requested : originalFolderId;
+        if (candidate == null) {
+            return null;
+        }
+
+        Folder folder = folderRepository.findById(candidate)
+                .filter(f -> !Boolean.TRUE.equals(f.getIsDeleted()))
+                .orElse(null);
+        boolean writable = folder != null
+                && batchAuthorizer.authorize(userId, List.of(), List.of(candidate)).folder(candidate).canEdit();
+        if (!writable) {
+            if (requested != null) {
+                throw new RuntimeException("Target folder not found");
+            }
+            return null;
+        }
+        if (copiedFolderIds != null && copiedFolderIds.contains(candidate) && requested != null) {
+            throw new RuntimeException("Cannot copy a folder into itself");
+        }
+        return folder;
+    }
+
+    private static String copyName(CopyRequest request, String originalName) {
+        String name = request != null ? request.getName() : null;
+        return name != null && !name.isBlank() ? name.trim() : "Copy of " + originalName;
+    }
+
+    private List<Long> insert(String sql, List<SqlParameterSource> rows) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(sql, rows.toArray(SqlParameterSource[]::new), keys, new String[]{"id"});
+        return keys.getKeyList().stream()
+                .map(k -> ((Number) k.values().iterator().next()).longValue())
+                .toList();
+    }
+
+    private static Long idOf(Folder folder) {
+        return folder != null ? folder.getId() : null;
+    }
+
+    private static <T> List<List<T>> partition(List<T> items) {
+        List<List<T>> parts = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += INSERT_BATCH) {
+            parts.add(items.subList(i, Math.min(items.size(), i + INSERT_BATCH)));
+        }
+        return parts;
+    }
+}
@@ -1,45 +1,38 @@
 package com.cloudstorage.service;
 
 import com.cloudstorage.dto.response.DashboardResponse;
-import com.cloudstorage.model.User;
-import com.cloudstorage.repository.FileRepository;
-import com.cloudstorage.repository.FolderRepository;
-import com.cloudstorage.repository.UserRepository;
+import com.cloudstorage.model.FileCategory;
+import com.cloudstorage.model.UserStats;
+import com.cloudstorage.security.SecurityUtils;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DashboardService {
 
-    private final FileRepository fileRepository;
-    private final FolderRepository folderRepository;
-    private final UserRepository userRepository;
-
-    private User getCurrentUser() {
-        String email = SecurityContextHolder.getContext()
-                .getAuthentication()
-                .getName();
+    private final UserStatsService userStatsService;
 
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-    }
-
-    @Transactional(readOnly = true)
+    // Reads the materialized stats row; only builds it (or the recent list) when missing
     public DashboardResponse getDashboard() {
-        User user = getCurrentUser();
+        UserStats stats = userStatsService.getStats(SecurityUtils.currentUserId());
+
+        Map<String, Long> breakdown = new LinkedHashMap<>();
+        for (FileCategory category : FileCategory.values()) {
+            breakdown.put(category.name().toLowerCase(), stats.getBytes(category));
+        }
 
         return DashboardResponse.builder()
-                .totalFiles(fileRepository.countByUserAndIsDeleted(user, false))
-                .folders(folderRepository.countByUserAndIsDeleted(user, false))
-                .starred(fileRepository.countByUserAndIsStarredAndIsDeleted(user, true, false))
-                .recentFiles(
-                        fileRepository.findTop5ByUserAndIsDeletedOrderByCreatedAtDesc(user, false)
-                )
+                .totalFiles(stats.getFileCount())
+                .folders(stats.getFolderCount())
+                .starred(stats.getStarredCount())
+                .typeBreakdown(breakdown)
+                .recentFiles(userStatsService.getRecentFiles(stats))
                 .build();
     }
 }
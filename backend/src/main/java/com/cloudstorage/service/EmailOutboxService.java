@@ -0,0 +1,341 @@
+package com.cloudstorage.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transactional outbox for email.
+ *
+ * {@link #enqueue} only inserts a row, so it commits or rolls back with the
+ * change that triggered it and never waits on SMTP. A scheduled dispatcher
+ * claims due rows in batches and sends each batch over one SMTP connection,
+ * retrying failures with exponential backoff. Each message names the event
+ * that triggered it, and an event is only mailed once to a recipient while
+ * an earlier copy is pending or was sent within the retention window; two
+ * separate events with identical text are both delivered. Messages carrying
+ * a one-time code have their body blanked as soon as they are finished.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutboxService {
+
+    public static final String PENDING = "PENDING";
+    public static final String SENDING = "SENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+    public static final String SKIPPED = "SKIPPED";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO email_outbox (dedup_key, recipient, subject, body, sensitive, status, attempts, " +
+            "                          next_attempt_at, created_at) " +
+            "SELECT :dedupKey, :recipient, :subject, :body, :sensitive, 'PENDING', 0, :now, :now " +
+            "WHERE NOT EXISTS (SELECT 1 FROM email_outbox " +
+            "                  WHERE dedup_key = :dedupKey AND status IN ('PENDING', 'SENDING', 'SENT'))";
+
+    // Rows left SENDING by a dispatcher that died are picked up again once their lease runs out
+    private static final String DUE_SQL =
+            "SELECT id, dedup_key, recipient, subject, body, status, attempts, next_attempt_at FROM email_outbox " +
+            "WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at, id LIMIT :limit";
+
+    private static final String CLAIM_SQL =
+            "UPDATE email_outbox SET status = 'SENDING', next_attempt_at = :leaseUntil " +
+            "WHERE id = :id AND status = :status AND next_attempt_at = :seenNextAttempt";
+
+    private static final String ALREADY_SENT_SQL =
+            "SELECT DISTINCT dedup_key FROM email_outbox WHERE dedup_key IN (:keys) AND status = 'SENT'";
+
+    private static final String SENT_SQL =
+            "UPDATE email_outbox SET status = 'SENT', attempts = attempts + 1, sent_at = :now, last_error = NULL, " +
+            "       body = CASE WHEN sensitive THEN '' ELSE body END " +
+            "WHERE id = :id";
+
+    private static final String SKIPPED_SQL =
+            "UPDATE email_outbox SET status = 'SKIPPED', body = CASE WHEN sensitive THEN '' ELSE body END " +
+            "WHERE id = :id";
+
+    private static final String RETRY_SQL =
+            "UPDATE email_outbox SET status = :status, attempts = :attempts, next_attempt_at = :nextAttempt, " +
+            "       last_error = :error, body = CASE WHEN sensitive AND :status = 'FAILED' THEN '' ELSE body END " +
+            "WHERE id = :id";
+
+    private static final String PURGE_SQL =
+            "DELETE FROM email_outbox WHERE status IN ('SENT', 'FAILED', 'SKIPPED') AND created_at < :before";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final JavaMailSender mailSender;
+
+    @Value("${spring.mail.username}")
+    private String fromEmail;
+
+    @Value("${app.name:Cloud Storage}")
+    private String appName;
+
+    @Value("${app.email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.email.outbox.backoff-ms:30000}")
+    private long backoffMs;
+
+    @Value("${app.email.outbox.max-backoff-ms:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${app.email.outbox.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${app.email.outbox.retention-hours:24}")
+    private long retentionHours;
+
+    private record Row(Long id, String dedupKey, String recipient, String subject, String body,
+                       String status, int attempts, Timestamp nextAttemptAt) {
+    }
+
+    // ================= ENQUEUE =================
+
+    /**
+     * Queues an HTML email for the event named by {@code eventId}. Joins the
+     * caller's transaction when there is one. Returns false if the recipient
+     * already has a queued or just sent email for the same event.
+     */
+    public boolean enqueue(String eventId, String recipient, String subject, String htmlBody) {
+        return insert(eventId, recipient, subject, htmlBody, false);
+    }
+
+    /**
+     * Like {@link #enqueue}, for a body holding a one-time code. The body is
+     * blanked once the message is sent or given up on.
+     */
+    public boolean enqueueSensitive(String eventId, String recipient, String subject, String htmlBody) {
+        return insert(eventId, recipient, subject, htmlBody, true);
+    }
+
+    private boolean insert(String eventId, String recipient, String subject, String htmlBody, boolean sensitive) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("dedupKey", dedupKey(recipient, eventId))
+                .addValue("recipient", recipient)
+                .addValue("subject", subject)
+                .addValue("body", htmlBody)
+                .addValue("sensitive", sensitive)
+                .addValue("now", LocalDateTime.now());
+        boolean queued = jdbcTemplate.update(INSERT_SQL, params) > 0;
+        if (!queued) {
+            log.info("Skipped duplicate email to {}: {}", recipient, subject);
+        }
+        return queued;
+    }
+
+    // ================= DISPATCH =================
+
+    @Scheduled(fixedDelayString = "${app.email.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        List<Row> batch = claim();
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // Duplicates that raced past enqueue, within the batch or against earlier sends
+        Set<String> seen = new HashSet<>(alreadySent(batch));
+        List<Row> toSend = new ArrayList<>();
+        List<Row> skipped = new ArrayList<>();
+        for (Row row : batch) {
+            (seen.add(row.dedupKey()) ? toSend : skipped).add(row);
+        }
+        markSkipped(skipped);
+
+        Map<MimeMessage, Row> messages = new HashMap<>();
+        Map<Row, String> failures = new HashMap<>();
+        for (Row row : toSend) {
+            try {
+                messages.put(toMessage(row), row);
+            } catch (MessagingException e) {
+                failures.put(row, e.getMessage());
+            }
+        }
+
+        if (!messages.isEmpty()) {
+            try {
+                // One connection for the whole batch
+                mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                e.getFailedMessages().forEach((message, error) -> {
+                    Row row = messages.get(message);
+                    if (row != null) {
+                        failures.put(row, error.getMessage());
+                    }
+                });
+                if (e.getFailedMessages().isEmpty()) {
+                    messages.values().forEach(row -> failures.put(row, e.getMessage()));
+                }
+            } catch (MailException e) {
+                messages.values().forEach(row -> failures.put(row, e.getMessage()));
+            }
+        }
+
+        List<Row> sent = messages.values().stream().filter(row -> !failures.containsKey(row)).toList();
+        markSent(sent);
+        markFailed(failures);
+        log.info("Email outbox: {} sent, {} failed, {} duplicates skipped", sent.size(), failures.size(), skipped.size());
+    }
+
+    private List<Row> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Row> due = jdbcTemplate.query(DUE_SQL,
+                new MapSqlParameterSource("now", now).addValue("limit", batchSize),
+                (rs, i) -> new Row(
+                        rs.getLong("id"),
+                        rs.getString("dedup_key"),
+                        rs.getString("recipient"),
+                        rs.getString("subject"),
+                        rs.getString("body"),
+                        rs.getString("status"),
+                        rs.getInt("attempts"),
+                        rs.getTimestamp("next_attempt_at")));
+        if (due.isEmpty()) {
+            return due;
+        }
+
+        // Compare-and-set per row, so two instances never send the same message
+        LocalDateTime leaseUntil = now.plusNanos(leaseMs * 1_000_000);
+        SqlParameterSource[] claims = due.stream()
+                .map(row -> new MapSqlParameterSource("id", row.id())
+                        .addValue("status", row.status())
+                        .addValue("seenNextAttempt", row.nextAttemptAt())
+                        .addValue("leaseUntil", leaseUntil))
+                .toArray(SqlParameterSource[]::new);
+        int[] counts = jdbcTemplate.batchUpdate(CLAIM_SQL, claims);
+
+        List<Row> claimed = new ArrayList<>();
+        for (int i = 0; i < due.size(); i++) {
+            if (counts[i] != 0) {
+                claimed.add(due.get(i));
+            }
+        }
+        return claimed;
+    }
+
+    private List<String> alreadySent(List<Row> batch) {
+        List<String> keys = batch.stream().map(Row::dedupKey).distinct().toList();
+        return jdbcTemplate.queryForList(ALREADY_SENT_SQL, new MapSqlParameterSource("keys", keys), String.class);
+    }
+
+    private MimeMessage toMessage(Row row) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(String.format("\"%s\" <%s>", appName, fromEmail));
+        helper.setTo(row.recipient());
+        helper.setSubject(row.subject());
+        helper.setText(row.body(), true);
+        return message;
+    }
+
+    private void markSent(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(SENT_SQL, rows.stream()
+                .map(row -> new MapSqlParameterSource("id", row.id()).addValue("now", now))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    private void markSkipped(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(SKIPPED_SQL, rows.stream()
+                .map(row -> new MapSqlParameterSource("id", row.id()))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    private void markFailed(Map<Row, String> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<SqlParameterSource> updates = new ArrayList<>();
+        failures.forEach((row, error) -> {
+            int attempts = row.attempts() + 1;
+            boolean exhausted = attempts >= maxAttempts;
+            if (exhausted) {
+                log.error("Giving up on email {} to {} after {} attempts: {}", row.id(), row.recipient(), attempts, error);
+            } else {
+                log.warn("Email {} to {} failed (attempt {}), retrying: {}", row.id(), row.recipient(), attempts, error);
+            }
+            updates.add(new MapSqlParameterSource("id", row.id())
+                    .addValue("status", exhausted ? FAILED : PENDING)
+                    .addValue("attempts", attempts)
+                    .addValue("nextAttempt", now.plusNanos(backoff(attempts) * 1_000_000))
+                    .addValue("error", truncate(error)));
+        });
+        jdbcTemplate.batchUpdate(RETRY_SQL, updates.toArray(SqlParameterSource[]::new));
+    }
+
+    /**
+     * Delay before the next attempt: doubles per failure, up to the cap.
+     */
+    long backoff(int attempts) {
+        long delay = backoffMs << Math.min(attempts - 1, 20);
+        return Math.min(delay, maxBackoffMs);
+    }
+
+    // ================= CLEANUP =================
+
+    @Scheduled(fixedDelayString = "${app.email.outbox.purge-interval-ms:3600000}")
+    public void purge() {
+        int removed = jdbcTemplate.update(PURGE_SQL,
+                new MapSqlParameterSource("before", LocalDateTime.now().minusHours(retentionHours)));
+        if (removed > 0) {
+            log.info("Purged {} finished emails from the outbox", removed);
+        }
+    }
+
+    // ================= HELPERS =================
+
+    private static String dedupKey(String recipient, String eventId) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(recipient.toLowerCase().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(eventId.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
@@ -3,26 +3,25 @@ package com.cloudstorage.service;
 
 import jakarta.annotation.PostConstruct;
 import com.cloudstorage.model.User.OtpPurpose;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
 
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    // Digest emails list this many names, then "and N more"
+    private static final int DIGEST_MAX_ITEMS = 25;
 
-    @Value("${spring.mail.username}")
-    private String fromEmail;
+    private final EmailOutboxService emailOutboxService;
 
     @Value("${app.name:Cloud Storage}")
     private String appName;
@@ -45,26 +44,16 @@ public class EmailService {
     );
 
     /**
-     * Send OTP email with HTML template
+     * Queue OTP email with HTML template (delivered by EmailOutboxService).
+     * Every code is its own event, and its body is not kept once sent.
      */
     public void sendOTPEmail(String email, String otp, OtpPurpose purpose) {
         validateEmailParams(email, otp);
         
-        try {
-            MimeMessageHelper helper = createMimeMessageHelper(
-                email, 
-                OTP_SUBJECTS.getOrDefault(purpose, "Verification Code")
-            );
-
-            String htmlContent = buildOTPEmailTemplate(otp, purpose);
-            helper.setText(htmlContent, true);
-
-            mailSender.send(helper.getMimeMessage());
-            log.info("OTP email sent to: {} for purpose: {}", email, purpose);
-
-        } catch (MessagingException e) {
-            log.error("Error sending OTP email to {}: {}", email, e.getMessage());
-            throw new RuntimeException("Failed to send OTP email", e);
+        String htmlContent = buildOTPEmailTemplate(otp, purpose);
+        if (emailOutboxService.enqueueSensitive("otp:" + UUID.randomUUID(), email,
+                OTP_SUBJECTS.getOrDefault(purpose, "Verification Code"), htmlContent)) {
+            log.info("OTP email queued for: {} for purpose: {}", email, purpose);
         }
     }
 
@@ -102,27 +91,19 @@ public class EmailService {
     }
 
     /**
-     * Send HTML email for file sharing with enhanced formatting
+     * Queue HTML email for file sharing with enhanced formatting.
+     * eventId names the share action, so repeating it sends one email.
      */
-    public void sendFileShareEmail(String recipientEmail, String recipientName, String sharedByUsername, 
+    public void sendFileShareEmail(String eventId, String recipientEmail, String recipientName, String sharedByUsername, 
                                    String sharedByEmail, String fileName, String permission, String downloadLink) {
         validateEmailParams(recipientEmail, fileName);
         
-        try {
-            String subject = String.format("%s shared \"%s\" with you", sharedByUsername, fileName);
-            MimeMessageHelper helper = createMimeMessageHelper(recipientEmail, subject);
-
-            String htmlContent = buildFileShareEmailTemplate(
-                recipientName, sharedByUsername, sharedByEmail, fileName, permission, downloadLink
-            );
-            helper.setText(htmlContent, true);
-
-            mailSender.send(helper.getMimeMessage());
-            log.info("File share email sent to: {}", recipientEmail);
-
-        } catch (MessagingException e) {
-            log.error("Error sending file share email to {}: {}", recipientEmail, e.getMessage());
-            throw new RuntimeException("Failed to send file share email", e);
+        String subject = String.format("%s shared \"%s\" with you", sharedByUsername, fileName);
+        String htmlContent = buildFileShareEmailTemplate(
+            recipientName, sharedByUsername, sharedByEmail, fileName, permission, downloadLink
+        );
+        if (emailOutboxService.enqueue(eventId, recipientEmail, subject, htmlContent)) {
+            log.info("File share email queued for: {}", recipientEmail);
         }
     }
 
@@ -189,27 +170,18 @@ public class EmailService {
     }
 
     /**
-     * Send HTML email for folder sharing with enhanced formatting
+     * Queue HTML email for folder sharing with enhanced formatting.
+     * eventId names the share action, so repeating it sends one email.
      */
-    public void sendFolderShareEmail(String recipientEmail, String sharedByUsername,
+    public void sendFolderShareEmail(String eventId, String recipientEmail, String sharedByUsername,
                                     String folderName, String permission) {
         validateEmailParams(recipientEmail, folderName);
         
-        try {
-            String subject = "Folder shared with you";
-            MimeMessageHelper helper = createMimeMessageHelper(recipientEmail, subject);
-
-            String htmlContent = buildFolderShareEmailTemplate(
-                sharedByUsername, folderName, permission
-            );
-            helper.setText(htmlContent, true);
-
-            mailSender.send(helper.getMimeMessage());
-            log.info("Folder share email sent to: {}", recipientEmail);
-
-        } catch (MessagingException e) {
-            log.error("Error sending folder share email to {}: {}", recipientEmail, e.getMessage());
-            throw new RuntimeException("Failed to send folder share email", e);
+        String htmlContent = buildFolderShareEmailTemplate(
+            sharedByUsername, folderName, permission
+        );
+        if (emailOutboxService.enqueue(eventId, recipientEmail, "Folder shared with you", htmlContent)) {
+            log.info("Folder share email queued for: {}", recipientEmail);
         }
     }
 
@@ -266,15 +238,84 @@ public class EmailService {
     }
 
     /**
-     * Helper method to create MimeMessageHelper
+     * Queue one HTML email listing everything shared in a bulk share.
+     * eventId names the bulk share, so repeating it sends one email.
+     */
+    public void sendShareDigestEmail(String eventId, String recipientEmail, String recipientName, String sharedByUsername,
+                                     List<String> itemNames, String permission, String message, String link) {
+        validateEmailParams(recipientEmail, sharedByUsername);
+
+        String subject = itemNames.size() == 1
+                ? String.format("%s shared \"%s\" with you", sharedByUsername, itemNames.get(0))
+                : String.format("%s shared %d items with you", sharedByUsername, itemNames.size());
+        String htmlContent = buildShareDigestEmailTemplate(
+            recipientName, sharedByUsername, itemNames, permission, message, link
+        );
+        if (emailOutboxService.enqueue(eventId, recipientEmail, subject, htmlContent)) {
+            log.info("Share digest email queued for: {} ({} items)", recipientEmail, itemNames.size());
+        }
+    }
+
+    /**
+     * Build HTML template for share digest email
      */
-    private MimeMessageHelper createMimeMessageHelper(String to, String subject) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-        helper.setFrom(String.format("\"%s\" <%s>", appName, fromEmail));
-        helper.setTo(to);
-        helper.setSubject(subject);
-        return helper;
+    private String buildShareDigestEmailTemplate(String recipientName, String sharedByUsername,
+                                                 List<String> itemNames, String permission,
+                                                 String message, String link) {
+        StringBuilder items = new StringBuilder();
+        itemNames.stream().limit(DIGEST_MAX_ITEMS).forEach(name -> items.append(String.format(
+                "<li style=\"margin: 4px 0; color: #1f2937; font-size: 15px;\">%s</li>", HtmlUtils.htmlEscape(name))));
+        if (itemNames.size() > DIGEST_MAX_ITEMS) {
+            items.append(String.format("<li style=\"margin: 4px 0; color: #6b7280; font-size: 15px;\">and %d more</li>",
+                    itemNames.size() - DIGEST_MAX_ITEMS));
+        }
+        String note = message == null || message.isBlank() ? "" : String.format(
+                "<p style=\"color: #1f2937; font-size: 16px; margin: 20px 0; font-style: italic;\">\"%s\"</p>",
+                HtmlUtils.htmlEscape(message));
+
+        return String.format("""
+                <!DOCTYPE html>
+                <html>
+                <head>
+                    <meta charset="UTF-8">
+                    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+                </head>
+                <body style="margin: 0; padding: 0; background-color: #f5f5f5;">
+                    <div style="font-family: Arial, sans-serif; padding: 20px; max-width: 600px; margin: 0 auto;">
+                        <h2 style="color: #2563eb; margin-top: 0;">%s</h2>
+
+                        <p style="color: #1f2937; font-size: 16px; margin: 20px 0;">Hello %s,</p>
+
+                        <p style="color: #1f2937; font-size: 16px; margin: 20px 0;">
+                            <strong>%s</strong> shared %d items with you with %s access.
+                        </p>
+                        %s
+                        <div style="background-color: #f3f4f6; padding: 20px; border-radius: 8px; margin: 25px 0;">
+                            <ul style="margin: 0; padding-left: 20px;">%s</ul>
+                        </div>
+
+                        <p style="color: #1f2937; font-size: 16px; margin: 20px 0;">
+                            Open them at: <a href="%s" style="color: #2563eb; text-decoration: none; word-break: break-all;">%s</a>
+                        </p>
+
+                        <div style="margin: 30px 0;">
+                            <p style="color: #1f2937; font-size: 16px; margin-bottom: 10px;">Best regards,</p>
+                            <p style="color: #1f2937; font-size: 16px; margin-top: 0;">Cloud Storage Team</p>
+                        </div>
+                    </div>
+                </body>
+                </html>
+                """,
+                appName,
+                HtmlUtils.htmlEscape(recipientName != null ? recipientName : ""),
+                HtmlUtils.htmlEscape(sharedByUsername),
+                itemNames.size(),
+                permission.toLowerCase(),
+                note,
+                items,
+                link,
+                link
+        );
     }
 
     /**
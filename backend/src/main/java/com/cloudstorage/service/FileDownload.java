@@ -0,0 +1,10 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.model.File;
+
+/**
+ * A file handed out for download together with its bytes, which for a copy
+ * were read from the file it was copied from.
+ */
+public record FileDownload(File file, byte[] data) {
+}
@@ -0,0 +1,168 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.security.SecurityUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams full file listings for exports and sync clients.
+ *
+ * Rows are read from a forward-only cursor with a bounded fetch size and
+ * written to the response as each one arrives, with no entity or DTO in
+ * between, so memory stays flat however many rows the listing has. The
+ * cursor runs in a read-only transaction because PostgreSQL only honours
+ * the fetch size outside autocommit; without it the driver reads the whole
+ * result up front.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileExportService {
+
+    private static final String COLUMNS =
+            "SELECT id, name, size, mime_type, folder_id, is_starred, created_at, updated_at FROM files ";
+
+    private static final String OWN_FILES_SQL = COLUMNS + "WHERE user_id = ? AND is_deleted = false ORDER BY id";
+
+    private static final String FOLDER_FILES_SQL = COLUMNS + "WHERE folder_id = ? AND is_deleted = false ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchAuthorizer batchAuthorizer;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.export.fetch-size:500}")
+    private int fetchSize;
+
+    public enum Format {
+        // One JSON object per line
+        NDJSON("application/x-ndjson"),
+        // The usual ApiResponse envelope around an array
+        JSON("application/json");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public static Format of(String value) {
+            try {
+                return value == null ? NDJSON : valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Format must be ndjson or json");
+            }
+        }
+    }
+
+    public record Plan(String sql, Long param) {
+    }
+
+    /**
+     * Checks access before the response starts, so a denied listing still
+     * gets a normal error. Without a folder the listing is every live file
+     * the user owns, across all folders.
+     */
+    public Plan plan(Long folderId) {
+        Long userId = SecurityUtils.currentUserId();
+        if (folderId == null) {
+            return new Plan(OWN_FILES_SQL, userId);
+        }
+        if (!batchAuthorizer.authorize(userId, List.of(), List.of(folderId)).folder(folderId).canView()) {
+            throw new RuntimeException("Folder not found");
+        }
+        return new Plan(FOLDER_FILES_SQL, folderId);
+    }
+
+    public void write(Plan plan, Format format, OutputStream out) throws IOException {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+
+        try (JsonGenerator json = objectMapper.createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Rows are separated by the newline alone, not Jackson's default space
+            json.setRootValueSeparator(null);
+            if (format == Format.JSON) {
+                json.writeStartObject();
+                json.writeBooleanField("success", true);
+                json.writeNullField("message");
+                json.writeArrayFieldStart("data");
+            }
+
+            long[] rows = {0};
+            readOnly.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(plan.sql(),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                ps.setLong(1, plan.param());
+                return ps;
+            }, rs -> {
+                try {
+                    writeRow(json, rs);
+                    if (format == Format.NDJSON) {
+                        json.writeRaw('\n');
+                    }
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+
+            if (format == Format.JSON) {
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            log.info("Streamed {} listing with {} files", format.name().toLowerCase(Locale.ROOT), rows[0]);
+        } catch (UncheckedIOException e) {
+            // Client went away mid-stream
+            throw e.getCause();
+        }
+    }
+
+    private static void writeRow(JsonGenerator json, ResultSet rs) throws IOException, SQLException {
+        json.writeStartObject();
+        json.writeNumberField("id", rs.getLong("id"));
+        json.writeStringField("name", rs.getString("name"));
+        json.writeNumberField("size", rs.getLong("size"));
+        json.writeStringField("mimeType", rs.getString("mime_type"));
+        long folderId = rs.getLong("folder_id");
+        if (rs.wasNull()) {
+            json.writeNullField("folderId");
+        } else {
+            json.writeNumberField("folderId", folderId);
+        }
+        json.writeBooleanField("isStarred", rs.getBoolean("is_starred"));
+        writeTimestamp(json, "createdAt", rs.getTimestamp("created_at"));
+        writeTimestamp(json, "updatedAt", rs.getTimestamp("updated_at"));
+        json.writeEndObject();
+    }
+
+    // Same ISO form as the rest of the API
+    private static void writeTimestamp(JsonGenerator json, String field, Timestamp value) throws IOException {
+        if (value == null) {
+            json.writeNullField(field);
+        } else {
+            json.writeObjectField(field, value.toLocalDateTime());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.dto.request.FileFilterRequest;
+import com.cloudstorage.dto.response.FileFilterResponse;
+import com.cloudstorage.dto.response.FileResponse;
+import com.cloudstorage.dto.response.OwnerDTO;
+import com.cloudstorage.model.File;
+import com.cloudstorage.model.Folder;
+import com.cloudstorage.model.User;
+import com.cloudstorage.repository.FileSpecifications;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import com.cloudstorage.security.SecurityUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generic filter / sort over the files a user can see, with facet counts.
+ *
+ * Each request runs two statements: one aggregate that returns the total and
+ * every facet count via conditional sums, and one projection for the page
+ * (fetching one extra row to know whether another page exists).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileFilterService {
+
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final long LARGE_FILE_BYTES = 100L * 1024 * 1024;
+    private static final Set<String> TYPES = Set.of("image", "video", "audio", "document", "pdf", "other");
+    private static final List<String> TYPE_FACETS = List.of("image", "video", "audio", "document", "pdf", "other");
+    private static final int MAX_DEPTH = 100;
+
+    // Every folder shared with the user and everything below it
+    private static final String SHARED_FOLDER_TREE_SQL =
+            "WITH RECURSIVE tree (id, depth) AS ( " +
+            "    SELECT s.folder_id, 0 FROM folder_shares s " +
+            "    WHERE s.shared_with_user_id = :userId AND s.is_active = true " +
+            "        AND (s.expires_at IS NULL OR s.expires_at > CURRENT_TIMESTAMP) " +
+            "    UNION ALL " +
+            "    SELECT c.id, t.depth + 1 FROM tree t JOIN folders c ON c.parent_id = t.id " +
+            "    WHERE t.depth < " + MAX_DEPTH +
+            ") " +
+            "SELECT DISTINCT id FROM tree";
+
+    private final EntityManager entityManager;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Transactional(readOnly = true)
+    public FileFilterResponse filter(FileFilterRequest request) {
+        Long userId = SecurityUtils.currentUserId();
+        int size = Math.max(1, Math.min(request.getSize(), MAX_PAGE_SIZE));
+        int page = Math.max(0, request.getPage());
+
+        Specification<File> base = baseSpecification(userId, request);
+        Specification<File> typeFilter = typeSpecification(request.getType());
+        Specification<File> full = typeFilter == null ? base : base.and(typeFilter);
+
+        Map<String, Long> facets = new LinkedHashMap<>();
+        long total = countWithFacets(base, typeFilter, facets);
+        List<FileResponse> rows = fetchPage(full, request, page, size);
+
+        boolean hasNext = rows.size() > size;
+        return FileFilterResponse.builder()
+                .content(hasNext ? rows.subList(0, size) : rows)
+                .page(page)
+                .size(size)
+                .totalElements(total)
+                .hasNext(hasNext)
+                .facets(facets)
+                .build();
+    }
+
+    // ================= SPECIFICATIONS =================
+
+    private Specification<File> baseSpecification(Long userId, FileFilterRequest request) {
+        List<Long> sharedFolderIds = jdbcTemplate.queryForList(SHARED_FOLDER_TREE_SQL,
+                new MapSqlParameterSource("userId", userId), Long.class);
+        Specification<File> spec = FileSpecifications.visibleTo(userId, sharedFolderIds)
+                .and(FileSpecifications.notDeleted());
+        if (request.getOwnerId() != null) {
+            spec = spec.and(FileSpecifications.ownedBy(request.getOwnerId()));
+        }
+        if (request.getFolderId() != null) {
+            spec = spec.and(FileSpecifications.inFolder(request.getFolderId()));
+        }
+        if (request.getStarred() != null) {
+            spec = spec.and(FileSpecifications.starred(request.getStarred()));
+        }
+        if (request.getMinSize() != null || request.getMaxSize() != null) {
+            spec = spec.and(FileSpecifications.sizeBetween(request.getMinSize(), request.getMaxSize()));
+        }
+        if (request.getModifiedAfter() != null || request.getModifiedBefore() != null) {
+            spec = spec.and(FileSpecifications.modifiedBetween(request.getModifiedAfter(), request.getModifiedBefore()));
+        }
+        return spec;
+    }
+
+    private Specification<File> typeSpecification(List<String> types) {
+        if (types == null || types.isEmpty()) {
+            return null;
+        }
+        for (String type : types) {
+            if (!TYPES.contains(type.toLowerCase())) {
+                throw new IllegalArgumentException("Unknown file type filter: " + type);
+            }
+        }
+        return FileSpecifications.ofTypes(types);
+    }
+
+    // ================= FACETS =================
+
+    private long countWithFacets(Specification<File> base, Specification<File> typeFilter, Map<String, Long> facets) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<File> file = query.from(File.class);
+        Path<String> mimeType = file.get("mimeType");
+
+        Predicate matchesType = typeFilter == null ? cb.conjunction() : typeFilter.toPredicate(file, query, cb);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(countIf(cb, matchesType).alias("total"));
+        for (String type : TYPE_FACETS) {
+            selections.add(countIf(cb, FileSpecifications.typePredicate(mimeType, type, cb)).alias(type));
+        }
+        selections.add(countIf(cb, cb.greaterThan(file.get("size"), LARGE_FILE_BYTES)).alias("large"));
+        selections.add(countIf(cb, cb.isTrue(file.get("isStarred"))).alias("starred"));
+
+        query.multiselect(selections).where(base.toPredicate(file, query, cb));
+        Tuple row = entityManager.createQuery(query).getSingleResult();
+
+        for (String type : TYPE_FACETS) {
+            facets.put(type, toLong(row.get(type)));
+        }
+        facets.put("large", toLong(row.get("large")));
+        facets.put("starred", toLong(row.get("starred")));
+        return toLong(row.get("total"));
+    }
+
+    private static Expression<Long> countIf(CriteriaBuilder cb, Predicate predicate) {
+        return cb.sum(cb.<Long>selectCase().when(predicate, 1L).otherwise(0L));
+    }
+
+    private static long toLong(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    // ================= PAGE =================
+
+    private List<FileResponse> fetchPage(Specification<File> spec, FileFilterRequest request, int page, int size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<File> file = query.from(File.class);
+        Join<File, User> owner = file.join("user");
+        Join<File, Folder> folder = file.join("folder", JoinType.LEFT);
+
+        // Columns only, so file_data is never loaded
+        query.multiselect(
+                file.get("id").alias("id"),
+                file.get("name").alias("name"),
+                file.get("size").alias("size"),
+                file.get("mimeType").alias("mimeType"),
+                file.get("isStarred").alias("isStarred"),
+                folder.get("id").alias("folderId"),
+                file.get("createdAt").alias("createdAt"),
+                file.get("updatedAt").alias("updatedAt"),
+                owner.get("id").alias("ownerId"),
+                owner.get("fullName").alias("ownerName"),
+                owner.get("email").alias("ownerEmail"))
+             .where(spec.toPredicate(file, query, cb))
+             .orderBy(order(cb, file, request), cb.desc(file.get("id")));
+
+        return entityManager.createQuery(query)
+                .setFirstResult(page * size)
+                .setMaxResults(size + 1)
+                .getResultList()
+                .stream()
+                .map(FileFilterService::toResponse)
+                .toList();
+    }
+
+    private static Order order(CriteriaBuilder cb, Root<File> file, FileFilterRequest request) {
+        String attribute = switch (request.getSort() == null ? "modified" : request.getSort().toLowerCase()) {
+            case "name" -> "name";
+            case "size" -> "size";
+            case "created" -> "createdAt";
+            case "modified" -> "updatedAt";
+            default -> throw new IllegalArgumentException("Unknown sort: " + request.getSort());
+        };
+        return "asc".equalsIgnoreCase(request.getDirection())
+                ? cb.asc(file.get(attribute))
+                : cb.desc(file.get(attribute));
+    }
+
+    private static FileResponse toResponse(Tuple row) {
+        Long folderId = row.get("folderId", Long.class);
+        return FileResponse.builder()
+                .id(row.get("id", Long.class))
+                .name(row.get("name", String.class))
+                .size(row.get("size", Long.class))
+                .mimeType(row.get("mimeType", String.class))
+                .isStarred(row.get("isStarred", Boolean.class))
+                .isDeleted(false)
+                .isFolder(false)
+                .folderId(folderId)
+                .parentId(folderId)
+                .owner(OwnerDTO.builder()
+                        .id(row.get("ownerId", Long.class))
+                        .name(row.get("ownerName", String.class))
+                        .email(row.get("ownerEmail", String.class))
+                        .build())
+                .createdAt(row.get("createdAt", LocalDateTime.class))
+                .updatedAt(row.get("updatedAt", LocalDateTime.class))
+                .build();
+    }
+}
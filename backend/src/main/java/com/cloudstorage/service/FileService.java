@@ -1,5 +1,7 @@
 package com.cloudstorage.service;
 
+import com.cloudstorage.event.FileChangeEvent;
+import com.cloudstorage.event.FileShareChangeEvent;
 import com.cloudstorage.exception.ResourceNotFoundException;
 import com.cloudstorage.dto.response.FileResponse;
 import com.cloudstorage.dto.response.OwnerDTO;
@@ -15,11 +17,11 @@ import com.cloudstorage.repository.FileShareRepository;
 import com.cloudstorage.repository.FolderShareRepository;
 import com.cloudstorage.dto.response.ShareLinkResponse;
 import com.cloudstorage.dto.response.SharedFileResponse;
+import com.cloudstorage.security.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -47,18 +49,15 @@ public class FileService {
     private final FileShareRepository fileShareRepository;
     private final FolderShareRepository folderShareRepository;
     private final FolderShareService folderShareService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SharedInboxService sharedInboxService;
+    private final AccessStatsService accessStatsService;
+    private final QuotaService quotaService;
+    private final ShareTokenRegistry shareTokenRegistry;
     
     // ================= CURRENT USER =================
     private User getCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-
-        if (auth == null || !auth.isAuthenticated()
-                || "anonymousUser".equals(auth.getPrincipal())) {
-            throw new RuntimeException("User not authenticated");
-        }
-
-        String email = auth.getName();
-        return userRepository.findByEmail(email)
+        return userRepository.findById(SecurityUtils.currentUserId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
@@ -90,7 +89,8 @@ public class FileService {
 
     // ================= UPLOAD (KEEP ONLY THIS ONE) =================
     @Transactional
-    public File uploadFile(MultipartFile file, Long folderId) throws IOException {
+    public File uploadFile(MultipartFile file, Long folderId, QuotaService.Reservation reservation)
+            throws IOException {
         User user = getCurrentUser();
 
         Folder folder = null;
@@ -107,6 +107,10 @@ public class FileService {
             }
         }
 
+        // Charge before reading the bytes: fails, and rolls back, once the upload no longer fits
+        quotaService.checkReserved(reservation, file.getSize());
+        quotaService.charge(user.getId(), file.getSize());
+
         File fileEntity = File.builder()
                 .name(file.getOriginalFilename())
                 .size(file.getSize())
@@ -118,11 +122,14 @@ public class FileService {
                 .isStarred(false)
                 .build();
 
-        return fileRepository.save(fileEntity);
+        File saved = fileRepository.save(fileEntity);
+        eventPublisher.publishEvent(FileChangeEvent.of(FileChangeEvent.Type.CREATED, saved));
+        return saved;
     }
 
-    public FileResponse upload(MultipartFile file, Long folderId) throws IOException {
-        File saved = uploadFile(file, folderId);
+    public FileResponse upload(MultipartFile file, Long folderId, QuotaService.Reservation reservation)
+            throws IOException {
+        File saved = uploadFile(file, folderId, reservation);
         return toResponse(saved);
     }
 
@@ -133,7 +140,10 @@ public class FileService {
 
     // ================= DOWNLOAD =================
     public byte[] downloadFile(Long id) {
-        return getAccessibleFile(id).getFileData();
+        getAccessibleFile(id);
+        byte[] data = fileRepository.findContent(id);
+        accessStatsService.recordDownload(AccessStatsService.Type.FILE, id, data != null ? data.length : 0);
+        return data;
     }
 
     // ================= DELETE (SOFT) =================
@@ -166,6 +176,7 @@ public class FileService {
         file.setDeletedAt(LocalDateTime.now());
         file.setDeletedBy(user);
         fileRepository.save(file);
+        eventPublisher.publishEvent(FileChangeEvent.of(FileChangeEvent.Type.DELETED, file));
     }
 
     // ================= RESTORE =================
@@ -178,9 +189,14 @@ public class FileService {
             throw new RuntimeException("Unauthorized: Only the owner can restore this file");
         }
         
+        boolean wasDeleted = Boolean.TRUE.equals(file.getIsDeleted());
         file.setIsDeleted(false);
         file.setDeletedAt(null);
-        return fileRepository.save(file);
+        File saved = fileRepository.save(file);
+        if (wasDeleted) {
+            eventPublisher.publishEvent(FileChangeEvent.of(FileChangeEvent.Type.RESTORED, saved));
+        }
+        return saved;
     }
 
     // ================= STAR =================
@@ -188,14 +204,16 @@ public class FileService {
     public FileResponse toggleStar(Long id) {
         File file = getAccessibleFile(id);
         file.setIsStarred(!Boolean.TRUE.equals(file.getIsStarred()));
-        return toResponse(fileRepository.save(file));
-    }
-
-    // ================= SEARCH =================
-    public List<File> searchFiles(String query) {
-        return fileRepository.findByUserAndNameContainingIgnoreCaseAndIsDeleted(
-                getCurrentUser(), query, false
-        );
+        File saved = fileRepository.save(file);
+        // Starring something in the trash doesn't change any live counters
+        if (!Boolean.TRUE.equals(saved.getIsDeleted())) {
+            eventPublisher.publishEvent(FileChangeEvent.of(
+                    Boolean.TRUE.equals(saved.getIsStarred())
+                            ? FileChangeEvent.Type.STARRED
+                            : FileChangeEvent.Type.UNSTARRED,
+                    saved));
+        }
+        return toResponse(saved);
     }
 
     // ================= STARRED =================
@@ -239,8 +257,13 @@ public class FileService {
         // Delete all shares first (foreign key constraint)
         fileShareRepository.deleteByFileId(id);
 
-        // Then delete the file
+        // Copies reading this file's bytes keep them
+        fileRepository.handOverContent(id);
+
+        // Then delete the file and give the space back
         fileRepository.delete(file);
+        quotaService.free(file.getUser().getId(), file.getSize());
+        eventPublisher.publishEvent(FileChangeEvent.of(FileChangeEvent.Type.PURGED, file));
     }
 
     // ================= DTO MAPPER =================
@@ -286,6 +309,7 @@ public class FileService {
             share.setPermission(permission);
             share.setIsActive(true);
             fileShareRepository.save(share);
+            publishShareChange(share);
             return;
         }
         
@@ -298,24 +322,42 @@ public class FileService {
                 .build();
                 
         fileShareRepository.save(share);
+        publishShareChange(share);
     }
 
     // ================= GENERATE SHARE LINK =================
     @Transactional
-    public ShareLinkResponse generateShareLink(Long fileId) {
+    public ShareLinkResponse generateShareLink(Long fileId, Long ttlSeconds) {
         File file = getAccessibleFile(fileId);
+        LocalDateTime expiresAt = ShareExpiryService.expiresAt(ttlSeconds);
         
-        // Check if share link already exists
-        Optional<FileShare> existingLink = fileShareRepository.findByFileAndIsActive(file, true)
-                .stream()
-                .filter(share -> share.getShareToken() != null && share.getSharedWith() == null)
-                .findFirst();
+        // Check if share link already exists; expired ones the sweeper hasn't reached yet are retired
+        Optional<FileShare> existingLink = Optional.empty();
+        for (FileShare share : fileShareRepository.findByFileAndIsActive(file, true)) {
+            if (share.getShareToken() == null || share.getSharedWith() != null) {
+                continue;
+            }
+            if (share.isExpired()) {
+                share.setIsActive(false);
+                fileShareRepository.save(share);
+                shareTokenRegistry.evict(share.getShareToken());
+            } else if (existingLink.isEmpty()) {
+                existingLink = Optional.of(share);
+            }
+        }
         
         if (existingLink.isPresent()) {
-            String shareUrl = "http://localhost:3000/s/" + existingLink.get().getShareToken();
+            FileShare link = existingLink.get();
+            if (expiresAt != null) {
+                link.setExpiresAt(expiresAt);
+                fileShareRepository.save(link);
+                shareTokenRegistry.evict(link.getShareToken());
+            }
+            String shareUrl = "http://localhost:3000/s/" + link.getShareToken();
             return ShareLinkResponse.builder()
                     .shareUrl(shareUrl)
-                    .token(existingLink.get().getShareToken())
+                    .token(link.getShareToken())
+                    .expiresAt(link.getExpiresAt())
                     .build();
         }
         
@@ -327,6 +369,7 @@ public class FileService {
                 .shareToken(token)
                 .permission("view")
                 .isActive(true)
+                .expiresAt(expiresAt)
                 .build();
         
         fileShareRepository.save(shareLink);
@@ -336,6 +379,7 @@ public class FileService {
         return ShareLinkResponse.builder()
                 .shareUrl(shareUrl)
                 .token(token)
+                .expiresAt(expiresAt)
                 .build();
     }
 
@@ -347,6 +391,7 @@ public class FileService {
         Optional<FileShare> existingLink = fileShareRepository.findByFileAndIsActive(file, true)
                 .stream()
                 .filter(share -> share.getShareToken() != null && share.getSharedWith() == null)
+                .filter(share -> !share.isExpired())
                 .findFirst();
         
         if (existingLink.isEmpty()) {
@@ -357,6 +402,7 @@ public class FileService {
         return ShareLinkResponse.builder()
                 .shareUrl(shareUrl)
                 .token(existingLink.get().getShareToken())
+                .expiresAt(existingLink.get().getExpiresAt())
                 .build();
     }
 
@@ -373,29 +419,14 @@ public class FileService {
         for (FileShare link : publicLinks) {
             link.setIsActive(false);
             fileShareRepository.save(link);
+            shareTokenRegistry.evict(link.getShareToken());
         }
     }
 
     // ================= GET SHARED WITH ME =================
     @Transactional(readOnly = true)
     public List<SharedFileResponse> getSharedWithMe() {
-        User currentUser = getCurrentUser();
-        
-        return fileShareRepository.findBySharedWithAndIsActive(currentUser, true)
-                .stream()
-                .map(share -> SharedFileResponse.builder()
-                        .id(share.getFile().getId())
-                        .shareId(share.getId())        
-                        .name(share.getFile().getName())
-                        .size(share.getFile().getSize())
-                        .mimeType(share.getFile().getMimeType())
-                        .isStarred(share.getIsStarred())
-                        .ownerEmail(share.getFile().getUser().getEmail())
-                        .permission(share.getPermission())
-                        .sharedAt(share.getCreatedAt())
-                        .createdAt(share.getFile().getCreatedAt())
-                        .build())
-                .toList();
+        return sharedInboxService.files(SecurityUtils.currentUserId());
     }
 
     // ================= GET PEOPLE WITH ACCESS =================
@@ -430,6 +461,7 @@ public class FileService {
         
         share.setPermission(permission);
         fileShareRepository.save(share);
+        publishShareChange(share);
     }
 
     // ================= REVOKE SHARE =================
@@ -446,6 +478,7 @@ public class FileService {
         
         share.setIsActive(false);
         fileShareRepository.save(share);
+        publishShareChange(share);
     }
 
     // ================= DISABLE SHARE LINK =================
@@ -462,6 +495,15 @@ public class FileService {
         
         share.setIsActive(false);
         fileShareRepository.save(share);
+        shareTokenRegistry.evict(token);
+    }
+
+    // Link shares have no recipient and don't appear in anyone's inbox
+    private void publishShareChange(FileShare share) {
+        if (share.getSharedWith() != null) {
+            eventPublisher.publishEvent(
+                    new FileShareChangeEvent(share.getFile().getId(), share.getSharedWith().getId()));
+        }
     }
 
     // ================= HELPER: GET ACCESSIBLE FILE =================
@@ -475,8 +517,7 @@ public class FileService {
         boolean isOwner = file.getUser().getId().equals(user.getId());
         
         // Check if file is directly shared with user
-        boolean isShared = fileShareRepository
-                .existsByFileAndSharedWithAndIsActive(file, user, true);
+        boolean isShared = fileShareRepository.hasActiveShare(file, user);
 
         // Check if file has a public share link
         boolean hasPublic = fileShareRepository.hasPublicShareLink(file);
@@ -496,6 +537,30 @@ public class FileService {
         return file;
     }
 
+    // ================= RENAME / MOVE =================
+    @Transactional
+    public File renameFile(File file, String newName) {
+        file.setName(newName);
+        file.setUpdatedAt(LocalDateTime.now());
+        File saved = fileRepository.save(file);
+        if (!Boolean.TRUE.equals(saved.getIsDeleted())) {
+            eventPublisher.publishEvent(FileChangeEvent.of(FileChangeEvent.Type.RENAMED, saved));
+        }
+        return saved;
+    }
+
+    @Transactional
+    public File moveFile(File file, Folder target) {
+        Long previousFolderId = file.getFolder() != null ? file.getFolder().getId() : null;
+        file.setFolder(target);
+        file.setUpdatedAt(LocalDateTime.now());
+        File saved = fileRepository.save(file);
+        if (!Boolean.TRUE.equals(saved.getIsDeleted())) {
+            eventPublisher.publishEvent(FileChangeEvent.moved(saved, previousFolderId));
+        }
+        return saved;
+    }
+
     // ================= SAVE FILE =================
     @Transactional
     public void saveFile(File file) {
@@ -519,6 +584,7 @@ public class FileService {
         // Check if the folder has an active share with this token
         FolderShare share = folderShareRepository
                 .findByShareTokenAndIsActiveTrue(shareToken)
+                .filter(s -> !s.isExpired())
                 .orElseThrow(() -> new RuntimeException("Invalid or expired share link"));
         
         // Verify the file belongs to the shared folder (or a subfolder)
@@ -529,12 +595,14 @@ public class FileService {
         }
         
         // Return file data (stored in database)
-        byte[] fileData = file.getFileData();
+        byte[] fileData = fileRepository.findContent(file.getId());
         if (fileData == null) {
             throw new RuntimeException("File data not found");
         }
         
         Resource resource = new org.springframework.core.io.ByteArrayResource(fileData);
+        accessStatsService.recordDownload(AccessStatsService.Type.FOLDER_LINK, share.getId(), fileData.length);
+        accessStatsService.recordDownload(AccessStatsService.Type.FILE, file.getId(), fileData.length);
         
         // Return file
         return ResponseEntity.ok()
@@ -0,0 +1,232 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.event.BulkShareChangeEvent;
+import com.cloudstorage.event.FolderChangeEvent;
+import com.cloudstorage.event.FolderShareChangeEvent;
+import com.cloudstorage.model.Permission;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of resolved folder permissions per (user, folder).
+ *
+ * Each entry remembers the folder chain that was walked to resolve it, and
+ * every folder on that chain points back at the entry, so a share change or
+ * move drops exactly the entries whose chain contains the affected folder
+ * without looking at any other. Reads never take a lock. A generation counter
+ * keeps a lookup that raced with an invalidation from caching what it read
+ * before the change committed. Permissions granted by a time-limited share
+ * expire with the share.
+ */
+@Component
+@Slf4j
+public class FolderPermissionCache {
+
+    @Value("${app.permissions.cache-size:50000}")
+    private int maxEntries;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private Cache<Key, Entry> entries;
+
+    // Folder id -> keys of the entries whose chain contains it; each set is only touched inside compute
+    private final Map<Long, Set<Key>> byFolder = new ConcurrentHashMap<>();
+
+    record Key(long userId, long folderId) {
+    }
+
+    // Chain runs from the folder itself up to the folder that decided the result
+    record Entry(Permission permission, long[] chain, LocalDateTime expiresAt) {
+
+        boolean covers(long folderId) {
+            for (long id : chain) {
+                if (id == folderId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public record Stats(int size, long hits, long misses, double hitRate, long invalidations, long evictions) {
+    }
+
+    @PostConstruct
+    void init() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new ShareExpiry())
+                // Unindex on the calling thread so the folder index never lags the cache
+                .executor(Runnable::run)
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    // ================= READ / WRITE =================
+
+    /**
+     * The cached permission, or null on a miss.
+     */
+    public Permission get(Long userId, Long folderId) {
+        Entry entry = entries.getIfPresent(new Key(userId, folderId));
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.permission();
+    }
+
+    /**
+     * Read before resolving a miss and pass to {@link #put}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(Long userId, Long folderId, Permission permission, long[] chain, long seenGeneration) {
+        put(userId, folderId, permission, chain, null, seenGeneration);
+    }
+
+    /**
+     * Caches a permission that stops holding at {@code expiresAt} (null for never).
+     */
+    public void put(Long userId, Long folderId, Permission permission, long[] chain,
+                    LocalDateTime expiresAt, long seenGeneration) {
+        if (generation.get() != seenGeneration) {
+            return;
+        }
+        Key key = new Key(userId, folderId);
+        for (long id : chain) {
+            byFolder.compute(id, (f, keys) -> {
+                Set<Key> set = keys != null ? keys : new HashSet<>();
+                set.add(key);
+                return set;
+            });
+        }
+        entries.put(key, new Entry(permission, chain, expiresAt));
+
+        // An invalidation bumps the generation before reading the index, so
+        // either it saw this entry or we see its bump here
+        if (generation.get() != seenGeneration) {
+            entries.invalidate(key);
+        }
+    }
+
+    private void onRemoval(Key key, Entry entry, RemovalCause cause) {
+        if (key == null || entry == null) {
+            return;
+        }
+        if (cause.wasEvicted()) {
+            evictions.increment();
+        }
+        for (long id : entry.chain()) {
+            byFolder.computeIfPresent(id, (f, keys) -> {
+                // A replacing entry may still cover this folder
+                Entry current = entries.getIfPresent(key);
+                if (current == null || !current.covers(f)) {
+                    keys.remove(key);
+                }
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    // ================= INVALIDATION =================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShareChange(FolderShareChangeEvent event) {
+        invalidate(List.of(event.getFolderId()), event.getUserId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkShareChange(BulkShareChangeEvent event) {
+        if (!event.getFolderIds().isEmpty()) {
+            invalidate(event.getFolderIds(), null);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFolderChange(FolderChangeEvent event) {
+        switch (event.getType()) {
+            case MOVED, PURGED -> invalidate(List.of(event.getFolderId()), null);
+            default -> { }
+        }
+    }
+
+    /**
+     * Drops the entries of one user (all users when null) whose chain
+     * contains any of the folders.
+     */
+    public void invalidate(Collection<Long> folderIds, Long userId) {
+        generation.incrementAndGet();
+        List<Key> stale = new ArrayList<>();
+        for (Long folderId : folderIds) {
+            byFolder.computeIfPresent(folderId, (f, keys) -> {
+                if (userId == null) {
+                    stale.addAll(keys);
+                    return null;
+                }
+                keys.removeIf(k -> k.userId() == userId && stale.add(k));
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+        entries.invalidateAll(stale);
+        invalidations.add(stale.size());
+        log.debug("Invalidated {} cached folder permissions for {} folders", stale.size(), folderIds.size());
+    }
+
+    // ================= STATS =================
+
+    public Stats stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        return new Stats((int) entries.estimatedSize(), h, m, h + m == 0 ? 0.0 : (double) h / (h + m),
+                invalidations.sum(), evictions.sum());
+    }
+
+    // Entries from a time-limited share live until the share expires, the rest until evicted
+    private static final class ShareExpiry implements Expiry<Key, Entry> {
+
+        @Override
+        public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+            if (entry.expiresAt() == null) {
+                return Long.MAX_VALUE;
+            }
+            return Math.max(0L, Duration.between(LocalDateTime.now(), entry.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Key key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
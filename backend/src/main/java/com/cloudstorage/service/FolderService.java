@@ -5,12 +5,15 @@ import com.cloudstorage.repository.FolderShareRepository;
 import com.cloudstorage.repository.ShareLinkRepository;
 import com.cloudstorage.dto.request.CreateFolderRequest;
 import com.cloudstorage.dto.response.FolderResponse;
+import com.cloudstorage.event.FileChangeEvent;
+import com.cloudstorage.event.FolderChangeEvent;
 import com.cloudstorage.model.Folder;
 import com.cloudstorage.model.User;
 import com.cloudstorage.repository.FolderRepository;
 import com.cloudstorage.repository.UserRepository;
+import com.cloudstorage.security.SecurityUtils;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.cloudstorage.model.File;
@@ -20,7 +23,9 @@ import com.cloudstorage.dto.response.OwnerDTO;
 import java.time.LocalDateTime;
 
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 @Service
@@ -35,11 +40,12 @@ public class FolderService {
 private final FolderShareRepository folderShareRepository;
 private final ShareLinkRepository shareLinkRepository;
 private final FileShareRepository fileShareRepository;
+private final ApplicationEventPublisher eventPublisher;
+private final QuotaService quotaService;
 
 
     private User getCurrentUser() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepository.findByEmail(email)
+        return userRepository.findById(SecurityUtils.currentUserId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
@@ -95,7 +101,9 @@ public Folder createFolder(String name, Long parentId) {
             .isDeleted(false)
             .build();
 
-    return folderRepository.save(folder);
+    Folder saved = folderRepository.save(folder);
+    eventPublisher.publishEvent(FolderChangeEvent.of(FolderChangeEvent.Type.CREATED, saved));
+    return saved;
 }
 
 
@@ -113,7 +121,9 @@ public Folder createFolder(String name, Long parentId) {
         }
 
         folder.setName(newName);
-        return folderRepository.save(folder);
+        Folder saved = folderRepository.save(folder);
+        eventPublisher.publishEvent(FolderChangeEvent.of(FolderChangeEvent.Type.RENAMED, saved));
+        return saved;
     }
 
 
@@ -151,10 +161,14 @@ public void moveToTrash(Long folderId) {
 
 // ================= MARK AS DELETED (UPDATED WITH USER TRACKING) =================
 private void markAsDeleted(Folder folder, User deletedBy) {
+    boolean wasDeleted = Boolean.TRUE.equals(folder.getIsDeleted());
     folder.setIsDeleted(true);
     folder.setDeletedAt(LocalDateTime.now());
     folder.setDeletedBy(deletedBy);
     folderRepository.save(folder);
+    if (!wasDeleted) {
+        eventPublisher.publishEvent(FolderChangeEvent.of(FolderChangeEvent.Type.DELETED, folder));
+    }
 
     // Recursively delete subfolders
     List<Folder> subfolders = folderRepository.findByParentAndIsDeleted(folder, false);
@@ -169,6 +183,7 @@ private void markAsDeleted(Folder folder, User deletedBy) {
         file.setDeletedAt(LocalDateTime.now());
         file.setDeletedBy(deletedBy);
         fileRepository.save(file);
+        eventPublisher.publishEvent(FileChangeEvent.of(FileChangeEvent.Type.DELETED, file));
     }
 }
 
@@ -188,6 +203,7 @@ private void markAsDeleted(Folder folder, User deletedBy) {
 
         folder.setIsDeleted(false);
         folderRepository.save(folder);
+        eventPublisher.publishEvent(FolderChangeEvent.of(FolderChangeEvent.Type.RESTORED, folder));
 
         return toResponse(folder);
     }
@@ -218,22 +234,28 @@ public void permanentlyDelete(Long folderId) {
         throw new RuntimeException("Folder must be in trash before permanent delete");
     }
 
-    permanentlyDeleteRecursive(folder);
+    // Files inside may belong to other users (editors upload into shared folders)
+    Map<Long, Long> freedByOwner = new HashMap<>();
+    permanentlyDeleteRecursive(folder, freedByOwner);
+    freedByOwner.forEach(quotaService::free);
 }
 
 // ================= PERMANENT DELETE RECURSIVE (SAME AS BEFORE) =================
-private void permanentlyDeleteRecursive(Folder folder) {
+private void permanentlyDeleteRecursive(Folder folder, Map<Long, Long> freedByOwner) {
     // 1. Delete files (and their shares)
     List<File> files = fileRepository.findByFolderAndIsDeleted(folder, true);
     for (File file : files) {
         fileShareRepository.deleteByFileId(file.getId());
+        fileRepository.handOverContent(file.getId());
         fileRepository.delete(file);
+        freedByOwner.merge(file.getUser().getId(), file.getSize(), Long::sum);
+        eventPublisher.publishEvent(FileChangeEvent.of(FileChangeEvent.Type.PURGED, file));
     }
 
     // 2. Delete subfolders recursively
     List<Folder> subfolders = folderRepository.findByParent(folder);
     for (Folder subfolder : subfolders) {
-        permanentlyDeleteRecursive(subfolder);
+        permanentlyDeleteRecursive(subfolder, freedByOwner);
     }
 
     // 3. Delete folder shares
@@ -244,6 +266,7 @@ private void permanentlyDeleteRecursive(Folder folder) {
 
     // 5. Delete folder
     folderRepository.delete(folder);
+    eventPublisher.publishEvent(FolderChangeEvent.of(FolderChangeEvent.Type.PURGED, folder));
 }
 
     @Transactional(readOnly = true)
@@ -268,6 +291,20 @@ private void permanentlyDeleteRecursive(Folder folder) {
 
 // ================= DTO MAPPER (UPDATED WITH OWNER) =================
 public FolderResponse toResponse(Folder f) {
+    return toResponse(f, null);
+}
+
+/**
+ * Map a listing of folders, resolving direct item counts for the whole page in one query.
+ */
+public List<FolderResponse> toResponses(List<Folder> folders) {
+    java.util.Map<Long, Integer> itemCounts = folderRepository.countItemsByFolders(folders);
+    return folders.stream()
+            .map(f -> toResponse(f, itemCounts.getOrDefault(f.getId(), 0)))
+            .toList();
+}
+
+private FolderResponse toResponse(Folder f, Integer itemCount) {
     // Build owner DTO
     OwnerDTO ownerDTO = OwnerDTO.builder()
             .id(f.getUser().getId())
@@ -281,6 +318,9 @@ public FolderResponse toResponse(Folder f) {
             .isFolder(true)
             .owner(ownerDTO)
             .parentId(f.getParent() != null ? f.getParent().getId() : null)
+            .itemCount(itemCount)
+            .totalSize(f.getTotalSize())
+            .totalItems(f.getTotalItems())
             .createdAt(f.getCreatedAt())
             .updatedAt(f.getUpdatedAt())
             .build();
@@ -309,10 +349,14 @@ public FolderResponse toResponse(Folder f) {
             throw new RuntimeException("Cannot move deleted folder");
         }
         
+        Long previousParentId = folder.getParent() != null ? folder.getParent().getId() : null;
+
         if (newParentId == null) {
             folder.setParent(null);
             folder.setUpdatedAt(java.time.LocalDateTime.now());
-            return toResponse(folderRepository.save(folder));
+            Folder saved = folderRepository.save(folder);
+            eventPublisher.publishEvent(FolderChangeEvent.moved(saved, previousParentId));
+            return toResponse(saved);
         }
         
         Folder newParent = folderRepository.findById(newParentId)
@@ -336,7 +380,9 @@ public FolderResponse toResponse(Folder f) {
         
         folder.setParent(newParent);
         folder.setUpdatedAt(java.time.LocalDateTime.now());
-        return toResponse(folderRepository.save(folder));
+        Folder saved = folderRepository.save(folder);
+        eventPublisher.publishEvent(FolderChangeEvent.moved(saved, previousParentId));
+        return toResponse(saved);
     }
 
     private boolean isDescendant(Folder ancestor, Folder descendant) {
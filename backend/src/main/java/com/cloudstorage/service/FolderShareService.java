@@ -7,23 +7,31 @@ import com.cloudstorage.dto.request.ShareRequest;
 import com.cloudstorage.dto.response.ShareLinkResponse;
 import com.cloudstorage.dto.response.SharedFileResponse;
 import com.cloudstorage.dto.response.FolderResponse;
+import com.cloudstorage.event.FileChangeEvent;
+import com.cloudstorage.event.FolderChangeEvent;
+import com.cloudstorage.event.FolderShareChangeEvent;
+import com.cloudstorage.exception.ResourceNotFoundException;
 
 import com.cloudstorage.model.Folder;
 import com.cloudstorage.model.FolderShare;
+import com.cloudstorage.model.Permission;
 import com.cloudstorage.model.User;
 import com.cloudstorage.repository.FolderRepository;
 import com.cloudstorage.repository.FolderShareRepository;
 import com.cloudstorage.repository.UserRepository;
+import com.cloudstorage.security.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import com.cloudstorage.dto.response.OwnerDTO;
 import com.cloudstorage.repository.FileRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -32,11 +40,19 @@ import java.util.stream.Collectors;
 @Slf4j
 public class FolderShareService {
 
+    private static final int MAX_DEPTH = 100;
+
     private final FolderRepository folderRepository;
     private final FolderShareRepository folderShareRepository;
     private final FileRepository fileRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SharedInboxService sharedInboxService;
+    private final SharedByMeService sharedByMeService;
+    private final AccessStatsService accessStatsService;
+    private final FolderPermissionCache permissionCache;
+    private final ShareTokenRegistry shareTokenRegistry;
 
     // ✅ FIX: Use frontend URL for generating share links
     @Value("${app.frontend-url:http://localhost:3000}")
@@ -49,11 +65,7 @@ public class FolderShareService {
     // ================= AUTH =================
 
     private User getCurrentUser() {
-        String email = SecurityContextHolder.getContext()
-                .getAuthentication()
-                .getName();
-
-        return userRepository.findByEmail(email)
+        return userRepository.findById(SecurityUtils.currentUserId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
@@ -61,55 +73,75 @@ public class FolderShareService {
 
     /**
      * Check if user has access to a folder (directly or through parent folders)
-     * Returns the permission level (view/edit) or null if no access
+     * Returns the permission level (view/edit/owner) or null if no access
      */
     @Transactional(readOnly = true)
     public String getUserFolderPermission(Long folderId, User user) {
+        return resolvePermission(folderId, user.getId()).label();
+    }
+
+    /**
+     * Effective permission of a user on a folder: owner, else the nearest active
+     * share on the folder or one of its ancestors. Answered from
+     * {@link FolderPermissionCache} when possible.
+     */
+    @Transactional(readOnly = true)
+    public Permission resolvePermission(Long folderId, Long userId) {
+        Permission cached = permissionCache.get(userId, folderId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = permissionCache.generation();
         Folder folder = folderRepository.findById(folderId)
                 .orElseThrow(() -> new RuntimeException("Folder not found"));
-        
-        // Check if user owns the folder
-        if (folder.getUser().getId().equals(user.getId())) {
-            return "owner";
+
+        if (folder.getUser().getId().equals(userId)) {
+            permissionCache.put(userId, folderId, Permission.OWNER, new long[] {folderId}, generation);
+            return Permission.OWNER;
         }
-        
-        // Check if user has direct access to this folder
-        java.util.Optional<FolderShare> directShare = folderShareRepository
-                .findByFolderAndSharedWith(folder, user);
-        
-        if (directShare.isPresent() && directShare.get().getIsActive()) {
-            return directShare.get().getPermission();
+
+        // Folder first, then its ancestors up to the root
+        List<Long> chain = new ArrayList<>();
+        for (Folder current = folder; current != null && chain.size() < MAX_DEPTH; current = current.getParent()) {
+            chain.add(current.getId());
         }
-        
-        // Check parent folders recursively for inherited permissions
-        Folder current = folder.getParent();
-        while (current != null) {
-            java.util.Optional<FolderShare> parentShare = folderShareRepository
-                    .findByFolderAndSharedWith(current, user);
-            
-            if (parentShare.isPresent() && parentShare.get().getIsActive()) {
-                return parentShare.get().getPermission();
+
+        Map<Long, FolderShareRepository.SharePermission> shares = new HashMap<>();
+        folderShareRepository.findActivePermissions(userId, chain)
+                .forEach(s -> shares.put(s.getFolderId(), s));
+
+        // Nearest share wins; the cached chain stops at the folder that decided it
+        Permission permission = Permission.NONE;
+        LocalDateTime expiresAt = null;
+        int decidedAt = chain.size() - 1;
+        for (int i = 0; i < chain.size(); i++) {
+            FolderShareRepository.SharePermission share = shares.get(chain.get(i));
+            if (share != null) {
+                permission = Permission.fromLabel(share.getPermission());
+                expiresAt = share.getExpiresAt();
+                decidedAt = i;
+                break;
             }
-            current = current.getParent();
         }
-        
-        return null; // No access
+
+        long[] path = chain.subList(0, decidedAt + 1).stream().mapToLong(Long::longValue).toArray();
+        permissionCache.put(userId, folderId, permission, path, expiresAt, generation);
+        return permission;
     }
 
     /**
      * Verify user has at least view access to a folder
      */
     public boolean canAccessFolder(Long folderId, User user) {
-        String permission = getUserFolderPermission(folderId, user);
-        return permission != null;
+        return resolvePermission(folderId, user.getId()).canView();
     }
 
     /**
      * Verify user has edit access to a folder
      */
     public boolean canEditFolder(Long folderId, User user) {
-        String permission = getUserFolderPermission(folderId, user);
-        return "edit".equals(permission) || "owner".equals(permission);
+        return resolvePermission(folderId, user.getId()).canEdit();
     }
 
     // ================= USER BASED SHARING =================
@@ -144,12 +176,15 @@ public class FolderShareService {
 
         share.setPermission(request.getPermission());
         share.setIsActive(true);
+        share.setExpiresAt(ShareExpiryService.expiresAt(request.getTtlSeconds()));
 
         folderShareRepository.save(share);
+        publishShareChange(share);
 
         // Send email notification
         if (Boolean.TRUE.equals(request.getSendEmail())) {
             emailService.sendFolderShareEmail(
+                    "folder-share:" + share.getId() + ":" + System.currentTimeMillis(),
                     sharedWith.getEmail(),
                     currentUser.getFullName(),
                     folder.getName(),
@@ -186,7 +221,7 @@ public class FolderShareService {
     // ================= LINK BASED SHARING =================
 
     @Transactional
-    public ShareLinkResponse generateShareLink(Long folderId, User currentUser) {
+    public ShareLinkResponse generateShareLink(Long folderId, User currentUser, Long ttlSeconds) {
         Folder folder = folderRepository.findById(folderId)
                 .orElseThrow(() -> new RuntimeException("Folder not found"));
 
@@ -194,19 +229,38 @@ public class FolderShareService {
             throw new RuntimeException("Unauthorized");
         }
 
-        FolderShare publicShare = folderShareRepository
+        LocalDateTime expiresAt = ShareExpiryService.expiresAt(ttlSeconds);
+        FolderShare existing = folderShareRepository
                 .findByFolderAndShareTokenIsNotNullAndIsActiveTrue(folder)
-                .orElseGet(() -> {
-                    FolderShare fs = FolderShare.builder()
-                            .folder(folder)
-                            .owner(folder.getUser())
-                            .sharedBy(currentUser)
-                            .permission("view")
-                            .shareToken(UUID.randomUUID().toString())
-                            .isActive(true)
-                            .build();
-                    return folderShareRepository.save(fs);
-                });
+                .orElse(null);
+
+        // An expired link the sweeper hasn't reached yet is retired, not handed out again
+        if (existing != null && existing.isExpired()) {
+            existing.setIsActive(false);
+            folderShareRepository.saveAndFlush(existing);
+            shareTokenRegistry.evict(existing.getShareToken());
+            existing = null;
+        }
+
+        FolderShare publicShare;
+        if (existing != null) {
+            publicShare = existing;
+            if (expiresAt != null) {
+                publicShare.setExpiresAt(expiresAt);
+                folderShareRepository.save(publicShare);
+                shareTokenRegistry.evict(publicShare.getShareToken());
+            }
+        } else {
+            publicShare = folderShareRepository.save(FolderShare.builder()
+                    .folder(folder)
+                    .owner(folder.getUser())
+                    .sharedBy(currentUser)
+                    .permission("view")
+                    .shareToken(UUID.randomUUID().toString())
+                    .isActive(true)
+                    .expiresAt(expiresAt)
+                    .build());
+        }
 
         // ✅ CRITICAL FIX: Use frontendUrl instead of baseUrl
         String shareUrl = frontendUrl + "/s/" + publicShare.getShareToken();
@@ -217,6 +271,7 @@ public class FolderShareService {
                 .shareUrl(shareUrl)
                 .permission(publicShare.getPermission())
                 .isActive(true)
+                .expiresAt(publicShare.getExpiresAt())
                 .build();
     }
 
@@ -233,6 +288,7 @@ public class FolderShareService {
         
         return folderShareRepository
                 .findByFolderAndShareTokenIsNotNullAndIsActiveTrue(folder)
+                .filter(share -> !share.isExpired())
                 .map(share -> {
                     // ✅ CRITICAL FIX: Use frontendUrl instead of baseUrl
                     String shareUrl = frontendUrl + "/s/" + share.getShareToken();
@@ -241,6 +297,7 @@ public class FolderShareService {
                             .shareUrl(shareUrl)
                             .permission(share.getPermission())
                             .isActive(true)
+                            .expiresAt(share.getExpiresAt())
                             .build();
                 })
                 .orElse(null);
@@ -262,6 +319,7 @@ public class FolderShareService {
                 .ifPresent(share -> {
                     share.setIsActive(false);
                     folderShareRepository.save(share);
+                    shareTokenRegistry.evict(share.getShareToken());
                     log.info("🔒 Revoked share link for folder: {}", folder.getId());
                 });
     }
@@ -288,6 +346,7 @@ public class FolderShareService {
 
         share.setIsActive(false);
         folderShareRepository.save(share);
+        publishShareChange(share);
         log.info("✂️ Revoked user share for folder: {}", folderId);
     }
 
@@ -311,6 +370,7 @@ public class FolderShareService {
 
         share.setPermission(permission);
         folderShareRepository.save(share);
+        publishShareChange(share);
         log.info("🔄 Updated share permission to: {}", permission);
     }
 
@@ -331,7 +391,11 @@ public class FolderShareService {
         for (FolderShare share : shares) {
             share.setIsActive(false);
             folderShareRepository.save(share);
+            if (share.getShareToken() != null) {
+                shareTokenRegistry.evict(share.getShareToken());
+            }
         }
+        eventPublisher.publishEvent(new FolderShareChangeEvent(folderId, null));
         
         markAsDeleted(folder, owner);
         
@@ -341,80 +405,13 @@ public class FolderShareService {
     // ================= SHARED WITH ME =================
     @Transactional(readOnly = true)
     public List<FolderResponse> getFoldersSharedWithMe(User currentUser) {
-        List<FolderShare> shares = folderShareRepository
-                .findBySharedWithAndIsActive(currentUser, true);
-
-        return shares.stream()
-                .map(share -> FolderResponse.builder()
-                        .id(share.getFolder().getId())
-                        .name(share.getFolder().getName())
-                        .isFolder(true)
-                        .mimeType("folder")
-                        .ownerEmail(share.getFolder().getUser().getEmail())
-                        .permission(share.getPermission())
-                        .sharedAt(share.getCreatedAt())
-                        .createdAt(share.getFolder().getCreatedAt())
-                        .build())
-                .collect(Collectors.toList());
+        return sharedInboxService.folders(currentUser.getId());
     }
 
     // ================= SHARED BY ME =================
     @Transactional(readOnly = true)
     public List<FolderResponse> getFoldersSharedByMe(User currentUser) {
-        List<Folder> ownedFolders = folderRepository.findByUserAndIsDeleted(currentUser, false);
-        
-        return ownedFolders.stream()
-                .filter(folder -> {
-                    List<FolderShare> shares = folderShareRepository
-                            .findByFolderAndIsActiveTrue(folder);
-                    return !shares.isEmpty();
-                })
-                .map(folder -> {
-                    List<FolderShare> shares = folderShareRepository
-                            .findByFolderAndIsActiveTrue(folder);
-                    
-                    OwnerDTO ownerDTO = OwnerDTO.builder()
-                            .id(folder.getUser().getId())
-                            .name(folder.getUser().getFullName())
-                            .email(folder.getUser().getEmail())
-                            .build();
-                    
-                    long userShareCount = shares.stream()
-                            .filter(s -> s.getSharedWith() != null)
-                            .count();
-                    
-                    boolean hasPublicLink = shares.stream()
-                            .anyMatch(s -> s.getShareToken() != null && 
-                                          s.getSharedWith() == null);
-                    
-                    String publicLink = null;
-                    if (hasPublicLink) {
-                        publicLink = shares.stream()
-                                .filter(s -> s.getShareToken() != null && 
-                                            s.getSharedWith() == null)
-                                .findFirst()
-                                // ✅ CRITICAL FIX: Use frontendUrl instead of baseUrl
-                                .map(s -> frontendUrl + "/s/" + s.getShareToken())
-                                .orElse(null);
-                    }
-                    
-                    FolderResponse.FolderResponseBuilder builder = FolderResponse.builder()
-                            .id(folder.getId())
-                            .name(folder.getName())
-                            .isFolder(true)
-                            .mimeType("folder")
-                            .owner(ownerDTO)
-                            .sharedWithCount((int) userShareCount)
-                            .hasPublicLink(hasPublicLink)
-                            .createdAt(folder.getCreatedAt());
-                    
-                    if (publicLink != null) {
-                        builder.publicLink(publicLink);
-                    }
-                    
-                    return builder.build();
-                })
-                .collect(Collectors.toList());
+        return sharedByMeService.allFolders(currentUser.getId());
     }
 
     /**
@@ -422,13 +419,14 @@ public class FolderShareService {
      * Verifies that the file belongs to the shared folder or its subfolders
      */
     @Transactional(readOnly = true)
-    public File getFileFromSharedFolder(String token, Long fileId) {
+    public FileDownload getFileFromSharedFolder(String token, Long fileId) {
         log.info("📥 Getting file {} from shared folder with token {}", fileId, token);
         
         // Verify the share token is valid
         FolderShare share = folderShareRepository
                 .findByShareTokenAndIsActiveTrue(token)
-                .orElseThrow(() -> new RuntimeException("Invalid or expired share link"));
+                .filter(s -> !s.isExpired())
+                .orElseThrow(() -> new ResourceNotFoundException("Invalid or expired share link"));
         
         Folder sharedRootFolder = share.getFolder();
         log.info("✅ Valid share found for root folder: {}", sharedRootFolder.getName());
@@ -456,15 +454,17 @@ public class FolderShareService {
         log.info("✅ Access verified - file is within shared hierarchy");
         
         // Eagerly load file data within transaction
-        byte[] fileData = file.getFileData();
+        byte[] fileData = fileRepository.findContent(fileId);
         if (fileData == null || fileData.length == 0) {
             log.error("❌ File data is null or empty for file ID: {}", fileId);
             throw new RuntimeException("File data not found in database");
         }
         
         log.info("✅ File data loaded: {} bytes", fileData.length);
+        accessStatsService.recordDownload(AccessStatsService.Type.FOLDER_LINK, share.getId(), fileData.length);
+        accessStatsService.recordDownload(AccessStatsService.Type.FILE, fileId, fileData.length);
         
-        return file;
+        return new FileDownload(file, fileData);
     }
 
     // ================= REMOVE SELF =================
@@ -478,6 +478,7 @@ public class FolderShareService {
 
         share.setIsActive(false);
         folderShareRepository.save(share);
+        publishShareChange(share);
         log.info("👤 User removed themselves from shared folder: {}", folderId);
     }
 
@@ -488,10 +489,12 @@ public class FolderShareService {
         
         FolderShare share = folderShareRepository
                 .findByShareTokenAndIsActiveTrue(token)
-                .orElseThrow(() -> new RuntimeException("Invalid or expired share link"));
+                .filter(s -> !s.isExpired())
+                .orElseThrow(() -> new ResourceNotFoundException("Invalid or expired share link"));
         
         Folder folder = share.getFolder();
         log.info("✅ Found shared folder: {}", folder.getName());
+        accessStatsService.recordHit(AccessStatsService.Type.FOLDER_LINK, share.getId());
         
         return buildFolderResponse(folder, share);
     }
@@ -503,7 +506,8 @@ public class FolderShareService {
         
         FolderShare share = folderShareRepository
                 .findByShareTokenAndIsActiveTrue(token)
-                .orElseThrow(() -> new RuntimeException("Invalid or expired share link"));
+                .filter(s -> !s.isExpired())
+                .orElseThrow(() -> new ResourceNotFoundException("Invalid or expired share link"));
         
         Folder sharedRootFolder = share.getFolder();
         log.info("✅ Valid share found for root folder: {}", sharedRootFolder.getName());
@@ -533,37 +537,34 @@ public class FolderShareService {
     private FolderResponse buildFolderResponse(Folder folder, FolderShare share) {
         log.info("🏗️ Building response for folder: {}", folder.getName());
         
-        // Build subfolders list
-        List<java.util.Map<String, Object>> subfolders = folderRepository
-                .findByParentAndIsDeleted(folder, false)
+        // Build subfolders list (item counts for the whole page in one query)
+        List<Folder> children = folderRepository.findByParentAndIsDeleted(folder, false);
+        java.util.Map<Long, Integer> itemCounts = folderRepository.countItemsByFolders(children);
+
+        List<FolderResponse.SubfolderItem> subfolders = children
                 .stream()
-                .map(subfolder -> {
-                    java.util.Map<String, Object> subMap = new java.util.HashMap<>();
-                    subMap.put("id", subfolder.getId());
-                    subMap.put("name", subfolder.getName());
-                    subMap.put("itemCount", countFolderItems(subfolder));
-                    subMap.put("createdAt", subfolder.getCreatedAt());
-                    subMap.put("updatedAt", subfolder.getUpdatedAt());
-                    return subMap;
-                })
+                .map(subfolder -> new FolderResponse.SubfolderItem(
+                        subfolder.getId(),
+                        subfolder.getName(),
+                        itemCounts.getOrDefault(subfolder.getId(), 0),
+                        subfolder.getTotalSize(),
+                        subfolder.getCreatedAt(),
+                        subfolder.getUpdatedAt()))
                 .toList();
         
         log.info("📁 Found {} subfolders", subfolders.size());
         
-        // Build files list
-        List<java.util.Map<String, Object>> files = fileRepository
-                .findByFolderAndIsDeleted(folder, false)
+        // Build files list from a column projection, file_data is never loaded
+        List<FolderResponse.FileItem> files = fileRepository
+                .findLiveFilesInFolder(folder.getId())
                 .stream()
-                .map(file -> {
-                    java.util.Map<String, Object> fileMap = new java.util.HashMap<>();
-                    fileMap.put("id", file.getId());
-                    fileMap.put("name", file.getName());
-                    fileMap.put("size", file.getSize());
-                    fileMap.put("mimeType", file.getMimeType());
-                    fileMap.put("createdAt", file.getCreatedAt());
-                    fileMap.put("updatedAt", file.getUpdatedAt());
-                    return fileMap;
-                })
+                .map(file -> new FolderResponse.FileItem(
+                        file.getId(),
+                        file.getName(),
+                        file.getSize(),
+                        file.getMimeType(),
+                        file.getCreatedAt(),
+                        file.getUpdatedAt()))
                 .toList();
         
         log.info("📄 Found {} files", files.size());
@@ -584,6 +585,8 @@ public class FolderShareService {
                 .files(files)
                 .subfolders(subfolders)
                 .itemCount(itemCount)
+                .totalSize(folder.getTotalSize())
+                .totalItems(folder.getTotalItems())
                 .createdAt(folder.getCreatedAt())
                 .updatedAt(folder.getUpdatedAt())
                 .build();
@@ -609,17 +612,23 @@ public class FolderShareService {
         return false;
     }
 
-    private int countFolderItems(Folder folder) {
-        int subfolderCount = folderRepository.countByParentAndIsDeleted(folder, false);
-        int fileCount = fileRepository.countByFolderAndIsDeleted(folder, false);
-        return subfolderCount + fileCount;
+    // Link shares have no recipient and don't affect anyone's folder permission
+    private void publishShareChange(FolderShare share) {
+        if (share.getSharedWith() != null) {
+            eventPublisher.publishEvent(
+                    new FolderShareChangeEvent(share.getFolder().getId(), share.getSharedWith().getId()));
+        }
     }
 
     private void markAsDeleted(Folder folder, User deletedBy) {
+        boolean wasDeleted = Boolean.TRUE.equals(folder.getIsDeleted());
         folder.setIsDeleted(true);
         folder.setDeletedAt(LocalDateTime.now());
         folder.setDeletedBy(deletedBy);
         folderRepository.save(folder);
+        if (!wasDeleted) {
+            eventPublisher.publishEvent(FolderChangeEvent.of(FolderChangeEvent.Type.DELETED, folder));
+        }
 
         List<Folder> subfolders = folderRepository.findByParentAndIsDeleted(folder, false);
         for (Folder subfolder : subfolders) {
@@ -632,6 +641,7 @@ public class FolderShareService {
             file.setDeletedAt(LocalDateTime.now());
             file.setDeletedBy(deletedBy);
             fileRepository.save(file);
+            eventPublisher.publishEvent(FileChangeEvent.of(FileChangeEvent.Type.DELETED, file));
         }
     }
 }
\ No newline at end of file
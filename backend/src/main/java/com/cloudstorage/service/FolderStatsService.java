@@ -0,0 +1,221 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.event.FileChangeEvent;
+import com.cloudstorage.event.FolderChangeEvent;
+import com.cloudstorage.repository.FileRepository;
+import com.cloudstorage.repository.FolderRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains the recursive size / item rollups stored on each folder.
+ *
+ * Changes are recorded against the folder that directly contains the item and
+ * coalesced in memory; a periodic flush resolves the ancestor chains level by level
+ * and applies one relative UPDATE per affected folder, so a hot folder sees one
+ * write per flush interval instead of one per upload. A reconciler recomputes the
+ * rollups from the base tables to repair any drift.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FolderStatsService {
+
+    private static final int MAX_DEPTH = 100;
+
+    private final FolderRepository folderRepository;
+    private final FileRepository fileRepository;
+
+    private final ConcurrentHashMap<Long, Delta> pending = new ConcurrentHashMap<>();
+
+    // ================= EVENT HANDLERS =================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFileChange(FileChangeEvent event) {
+        switch (event.getType()) {
+            case CREATED, RESTORED -> record(event.getFolderId(), event.getSize(), 1);
+            case DELETED -> record(event.getFolderId(), -event.getSize(), -1);
+            case MOVED -> {
+                record(event.getPreviousFolderId(), -event.getSize(), -1);
+                record(event.getFolderId(), event.getSize(), 1);
+            }
+            default -> { }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFolderChange(FolderChangeEvent event) {
+        switch (event.getType()) {
+            case CREATED, RESTORED -> record(event.getParentId(), 0, 1);
+            case DELETED -> record(event.getParentId(), 0, -1);
+            case MOVED -> {
+                record(event.getPreviousParentId(), -event.getTotalSize(), -(event.getTotalItems() + 1));
+                record(event.getParentId(), event.getTotalSize(), event.getTotalItems() + 1);
+            }
+            default -> { }
+        }
+    }
+
+    void record(Long folderId, long bytes, long items) {
+        if (folderId == null || (bytes == 0 && items == 0)) {
+            return;
+        }
+        pending.merge(folderId, new Delta(bytes, items), Delta::plus);
+    }
+
+    // ================= FLUSH =================
+
+    @Scheduled(fixedDelayString = "${app.folder-stats.flush-interval-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Delta> drained = new HashMap<>();
+        for (Long folderId : pending.keySet()) {
+            Delta delta = pending.remove(folderId);
+            if (delta != null) {
+                drained.put(folderId, delta);
+            }
+        }
+
+        Map<Long, Delta> totals;
+        try {
+            totals = propagate(drained);
+        } catch (RuntimeException e) {
+            log.warn("Folder stats flush failed, re-queueing {} deltas: {}", drained.size(), e.getMessage());
+            drained.forEach((id, delta) -> pending.merge(id, delta, Delta::plus));
+            return;
+        }
+
+        totals.forEach((folderId, delta) -> {
+            if (delta.isZero()) {
+                return;
+            }
+            try {
+                folderRepository.applyStatsDelta(folderId, delta.bytes(), delta.items());
+            } catch (RuntimeException e) {
+                // Leave it to the reconciler rather than re-propagating a partial chain
+                log.warn("Could not apply stats delta to folder {}: {}", folderId, e.getMessage());
+            }
+        });
+
+        log.debug("Flushed folder stats for {} folders", totals.size());
+    }
+
+    /**
+     * Adds each recorded delta to every ancestor, resolving one tree level per query.
+     */
+    private Map<Long, Delta> propagate(Map<Long, Delta> direct) {
+        Map<Long, Delta> totals = new HashMap<>();
+        Map<Long, Delta> frontier = direct;
+        int depth = 0;
+
+        while (!frontier.isEmpty() && depth++ < MAX_DEPTH) {
+            frontier.forEach((id, delta) -> totals.merge(id, delta, Delta::plus));
+
+            Map<Long, Delta> next = new HashMap<>();
+            Map<Long, Delta> level = frontier;
+            folderRepository.findParentLinks(level.keySet()).forEach(link -> {
+                if (link.getParentId() != null) {
+                    next.merge(link.getParentId(), level.get(link.getId()), Delta::plus);
+                }
+            });
+            frontier = next;
+        }
+        return totals;
+    }
+
+    // ================= RECONCILE =================
+
+    /**
+     * Recomputes every folder's rollup from the files and folders tables and
+     * repairs rows that drifted. Rows changed concurrently are skipped and
+     * picked up by the next run.
+     */
+    @Scheduled(fixedDelayString = "${app.folder-stats.reconcile-interval-ms:21600000}",
+               initialDelayString = "${app.folder-stats.reconcile-initial-delay-ms:60000}")
+    public void reconcile() {
+        flush();
+
+        List<FolderRepository.StatsNode> nodes = folderRepository.findAllStatsNodes();
+        Map<Long, FolderRepository.StatsNode> byId = new HashMap<>();
+        Map<Long, List<Long>> children = new HashMap<>();
+        List<Long> roots = new ArrayList<>();
+        for (FolderRepository.StatsNode node : nodes) {
+            byId.put(node.getId(), node);
+        }
+        for (FolderRepository.StatsNode node : nodes) {
+            if (node.getParentId() == null || !byId.containsKey(node.getParentId())) {
+                roots.add(node.getId());
+            } else {
+                children.computeIfAbsent(node.getParentId(), k -> new ArrayList<>()).add(node.getId());
+            }
+        }
+
+        Map<Long, Delta> computed = new HashMap<>();
+        fileRepository.sumLiveFilesByFolder().forEach(t ->
+                computed.put(t.getFolderId(), new Delta(t.getTotalSize(), t.getFileCount())));
+
+        // Iterative post-order so deep trees don't blow the stack
+        Deque<Long> stack = new ArrayDeque<>(roots);
+        List<Long> order = new ArrayList<>(nodes.size());
+        while (!stack.isEmpty()) {
+            Long id = stack.pop();
+            order.add(id);
+            children.getOrDefault(id, List.of()).forEach(stack::push);
+        }
+
+        int repaired = 0;
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Long id = order.get(i);
+            FolderRepository.StatsNode node = byId.get(id);
+            Delta own = computed.getOrDefault(id, Delta.ZERO);
+
+            for (Long childId : children.getOrDefault(id, List.of())) {
+                if (Boolean.TRUE.equals(byId.get(childId).getDeleted())) {
+                    continue;
+                }
+                Delta child = computed.getOrDefault(childId, Delta.ZERO);
+                own = own.plus(new Delta(child.bytes(), child.items() + 1));
+            }
+            computed.put(id, own);
+
+            long storedSize = node.getTotalSize() != null ? node.getTotalSize() : 0L;
+            long storedItems = node.getTotalItems() != null ? node.getTotalItems() : 0L;
+            if (storedSize != own.bytes() || storedItems != own.items()) {
+                repaired += folderRepository.resetStats(id, own.bytes(), own.items(), storedSize, storedItems);
+            }
+        }
+
+        if (repaired > 0) {
+            log.info("Folder stats reconcile repaired {} of {} folders", repaired, nodes.size());
+        }
+    }
+
+    record Delta(long bytes, long items) {
+
+        static final Delta ZERO = new Delta(0, 0);
+
+        Delta plus(Delta other) {
+            return new Delta(bytes + other.bytes, items + other.items);
+        }
+
+        boolean isZero() {
+            return bytes == 0 && items == 0;
+        }
+    }
+}
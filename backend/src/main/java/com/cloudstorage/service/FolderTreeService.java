@@ -0,0 +1,154 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.dto.response.FolderPathResponse;
+import com.cloudstorage.dto.response.FolderTreeResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Folder trees and breadcrumbs, each answered by one recursive query.
+ *
+ * The tree walks down one level past the requested depth so that folders on
+ * the last level can still say whether they have children, which is all the
+ * sidebar needs to draw an expander. Both walks follow folders.parent_id, on
+ * the (parent_id, is_deleted) index.
+ */
+@Service
+@RequiredArgsConstructor
+public class FolderTreeService {
+
+    public static final int MAX_DEPTH = 100;
+
+    private static final List<String> TREE_FIELDS = List.of("id", "parentId", "name", "hasChildren");
+    private static final List<String> PATH_FIELDS = List.of("id", "name");
+
+    private static final String TREE_FROM_ROOT_SEED =
+            "SELECT id, parent_id, name, 1 FROM folders " +
+            "WHERE user_id = :userId AND parent_id IS NULL AND is_deleted = false";
+
+    private static final String TREE_FROM_FOLDER_SEED =
+            "SELECT id, parent_id, name, 1 FROM folders WHERE parent_id = :rootId AND is_deleted = false";
+
+    private static final String TREE_SQL =
+            "WITH RECURSIVE tree (id, parent_id, name, depth) AS ( " +
+            "    %s " +
+            "    UNION ALL " +
+            "    SELECT c.id, c.parent_id, c.name, t.depth + 1 FROM tree t JOIN folders c ON c.parent_id = t.id " +
+            "    WHERE c.is_deleted = false AND t.depth <= :depth " +
+            ") " +
+            "SELECT id, parent_id, name, depth FROM tree ORDER BY depth, name, id";
+
+    // The folder and its ancestors, nearest first, flagged where the user owns or was given access
+    private static final String PATH_SQL =
+            "WITH RECURSIVE chain (id, parent_id, name, owner_id, depth) AS ( " +
+            "    SELECT id, parent_id, name, user_id, 0 FROM folders WHERE id = :folderId " +
+            "    UNION ALL " +
+            "    SELECT p.id, p.parent_id, p.name, p.user_id, c.depth + 1 " +
+            "    FROM chain c JOIN folders p ON p.id = c.parent_id " +
+            "    WHERE c.depth < " + MAX_DEPTH +
+            ") " +
+            "SELECT c.id, c.name, c.owner_id, " +
+            "    CASE WHEN EXISTS (SELECT 1 FROM folder_shares s WHERE s.folder_id = c.id " +
+            "        AND s.shared_with_user_id = :userId AND s.is_active = true " +
+            "        AND (s.expires_at IS NULL OR s.expires_at > CURRENT_TIMESTAMP)) THEN 1 ELSE 0 END AS shared " +
+            "FROM chain c ORDER BY c.depth";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final BatchAuthorizer batchAuthorizer;
+
+    private record Node(Long id, Long parentId, String name, int depth) {
+    }
+
+    private record Ancestor(Long id, String name, Long ownerId, boolean shared) {
+    }
+
+    // ================= TREE =================
+
+    /**
+     * Live folders under the user's root, or under a folder they can view,
+     * down to the given depth (all levels when null).
+     */
+    public FolderTreeResponse tree(Long userId, Long rootId, Integer depth) {
+        int levels = depth == null ? MAX_DEPTH : Math.min(depth, MAX_DEPTH);
+        if (levels < 1) {
+            throw new RuntimeException("Depth must be at least 1");
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource("depth", levels);
+        String seed;
+        if (rootId == null) {
+            seed = TREE_FROM_ROOT_SEED;
+            params.addValue("userId", userId);
+        } else {
+            if (!batchAuthorizer.authorize(userId, List.of(), List.of(rootId)).folder(rootId).canView()) {
+                throw new RuntimeException("Folder not found");
+            }
+            seed = TREE_FROM_FOLDER_SEED;
+            params.addValue("rootId", rootId);
+        }
+
+        List<Node> nodes = jdbcTemplate.query(String.format(TREE_SQL, seed), params, (rs, i) ->
+                new Node(rs.getLong("id"), rs.getObject("parent_id", Long.class),
+                        rs.getString("name"), rs.getInt("depth")));
+
+        Set<Long> parents = new HashSet<>();
+        nodes.forEach(n -> parents.add(n.parentId()));
+        List<Object[]> rows = new ArrayList<>(nodes.size());
+        for (Node n : nodes) {
+            // The extra level only answers hasChildren for the last one
+            if (n.depth() <= levels) {
+                rows.add(new Object[]{n.id(), n.parentId(), n.name(), parents.contains(n.id())});
+            }
+        }
+
+        return FolderTreeResponse.builder()
+                .rootId(rootId)
+                .depth(levels)
+                .fields(TREE_FIELDS)
+                .folders(rows)
+                .build();
+    }
+
+    // ================= PATH =================
+
+    /**
+     * The breadcrumb of a folder. For a folder inside someone else's tree it
+     * starts at the topmost folder shared with the user, so names above the
+     * share are never revealed.
+     */
+    public FolderPathResponse path(Long userId, Long folderId) {
+        List<Ancestor> chain = jdbcTemplate.query(PATH_SQL,
+                new MapSqlParameterSource("folderId", folderId).addValue("userId", userId), (rs, i) ->
+                        new Ancestor(rs.getLong("id"), rs.getString("name"),
+                                rs.getLong("owner_id"), rs.getInt("shared") == 1));
+
+        // Access is inherited downwards, so everything below the topmost accessible folder is visible
+        int top = -1;
+        for (int i = 0; i < chain.size(); i++) {
+            Ancestor a = chain.get(i);
+            if (userId.equals(a.ownerId()) || a.shared()) {
+                top = i;
+            }
+        }
+        if (top < 0) {
+            throw new RuntimeException("Folder not found");
+        }
+
+        List<Object[]> path = new ArrayList<>(top + 1);
+        for (int i = top; i >= 0; i--) {
+            path.add(new Object[]{chain.get(i).id(), chain.get(i).name()});
+        }
+        return FolderPathResponse.builder()
+                .fields(PATH_FIELDS)
+                .path(path)
+                .sharedRoot(!userId.equals(chain.get(top).ownerId()))
+                .build();
+    }
+}
@@ -0,0 +1,127 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.exception.QuotaExceededException;
+import com.cloudstorage.model.User;
+import com.cloudstorage.repository.FileRepository;
+import com.cloudstorage.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Storage quota accounting.
+ *
+ * In-flight uploads reserve their size in memory before the request body is
+ * read (see UploadQuotaFilter), so an upload that cannot fit is rejected early.
+ * The limit itself is enforced when bytes are committed: charge is a conditional
+ * UPDATE of users.storage_used inside the write transaction that fails once the
+ * limit would be exceeded, so parallel uploads by the same user cannot overshoot
+ * it. A periodic reconciler corrects drift against the files table.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class QuotaService {
+
+    private final UserRepository userRepository;
+    private final FileRepository fileRepository;
+
+    // userId -> bytes reserved by uploads that have not finished yet
+    private final ConcurrentHashMap<Long, Long> reserved = new ConcurrentHashMap<>();
+
+    public record Reservation(Long userId, long bytes) { }
+
+    // ================= RESERVATIONS =================
+
+    /**
+     * Reserve bytes for an upload that is about to start.
+     * @throws QuotaExceededException if committed + reserved + requested bytes exceed the limit
+     */
+    public Reservation reserve(User user, long bytes) {
+        long used = user.getStorageUsed() != null ? user.getStorageUsed() : 0L;
+        long limit = user.getStorageLimit() != null ? user.getStorageLimit() : 0L;
+
+        reserved.compute(user.getId(), (id, current) -> {
+            long inFlight = current != null ? current : 0L;
+            if (used + inFlight + bytes > limit) {
+                throw new QuotaExceededException(String.format(
+                        "Storage quota exceeded: %d of %d bytes used, upload needs %d bytes",
+                        used + inFlight, limit, bytes));
+            }
+            return inFlight + bytes;
+        });
+        return new Reservation(user.getId(), bytes);
+    }
+
+    public void release(Reservation reservation) {
+        reserved.computeIfPresent(reservation.userId(), (id, current) -> {
+            long remaining = current - reservation.bytes();
+            return remaining > 0 ? remaining : null;
+        });
+    }
+
+    public long getReservedBytes(Long userId) {
+        return reserved.getOrDefault(userId, 0L);
+    }
+
+    // ================= COMMITTED USAGE =================
+
+    /**
+     * Fails the upload when the bytes it actually carries exceed what was
+     * reserved for it up front.
+     */
+    public void checkReserved(Reservation reservation, long bytes) {
+        if (reservation != null && bytes > reservation.bytes()) {
+            throw new QuotaExceededException(String.format(
+                    "Upload is %d bytes but only %d bytes were declared", bytes, reservation.bytes()));
+        }
+    }
+
+    /**
+     * Adds committed bytes to the user's usage, inside the caller's transaction.
+     * @throws QuotaExceededException if the bytes no longer fit, which rolls the write back
+     */
+    public void charge(Long userId, long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        if (userRepository.chargeStorageUsed(userId, bytes) == 0) {
+            throw new QuotaExceededException(String.format(
+                    "Storage quota exceeded: upload needs %d bytes", bytes));
+        }
+    }
+
+    public void free(Long userId, long bytes) {
+        if (bytes != 0) {
+            userRepository.adjustStorageUsed(userId, -bytes);
+        }
+    }
+
+    // ================= RECONCILE =================
+
+    @Scheduled(fixedDelayString = "${app.quota.reconcile-interval-ms:3600000}",
+               initialDelayString = "${app.quota.reconcile-initial-delay-ms:120000}")
+    public void reconcile() {
+        Map<Long, Long> actual = fileRepository.sumStorageByUser().stream()
+                .collect(Collectors.toMap(UserRepository.StorageUsage::getUserId,
+                                          UserRepository.StorageUsage::getStorageUsed));
+
+        int repaired = 0;
+        for (UserRepository.StorageUsage usage : userRepository.findAllStorageUsage()) {
+            long stored = usage.getStorageUsed() != null ? usage.getStorageUsed() : 0L;
+            long real = actual.getOrDefault(usage.getUserId(), 0L);
+            if (stored != real) {
+                repaired += userRepository.resetStorageUsed(usage.getUserId(), real, stored);
+            }
+        }
+
+        if (repaired > 0) {
+            log.info("Storage quota reconcile repaired {} users", repaired);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.dto.response.ContentSearchResponse;
+import com.cloudstorage.dto.response.FileResponse;
+import com.cloudstorage.dto.response.OwnerDTO;
+import com.cloudstorage.dto.response.PagedResponse;
+import com.cloudstorage.repository.FileRepository;
+import com.cloudstorage.repository.FileShareRepository;
+import com.cloudstorage.search.ContentIndex;
+import com.cloudstorage.search.FileNameIndex;
+import com.cloudstorage.search.SearchScope;
+import com.cloudstorage.security.SecurityUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_DEPTH = 100;
+
+    // Folders holding files the user can see but did not upload, with those uploaders: every folder
+    // shared with the user and everything below it, plus the user's own folders others uploaded into
+    private static final String SCOPE_FOLDERS_SQL =
+            "WITH RECURSIVE tree (id, depth) AS ( " +
+            "    SELECT s.folder_id, 0 FROM folder_shares s " +
+            "    WHERE s.shared_with_user_id = :userId AND s.is_active = true " +
+            "        AND (s.expires_at IS NULL OR s.expires_at > CURRENT_TIMESTAMP) " +
+            "    UNION ALL " +
+            "    SELECT c.id, t.depth + 1 FROM tree t JOIN folders c ON c.parent_id = t.id " +
+            "    WHERE t.depth < " + MAX_DEPTH +
+            ") " +
+            "SELECT f.folder_id, f.user_id FROM tree t JOIN files f ON f.folder_id = t.id " +
+            "WHERE f.user_id <> :userId AND f.is_deleted = false " +
+            "UNION " +
+            "SELECT f.folder_id, f.user_id FROM folders d JOIN files f ON f.folder_id = d.id " +
+            "WHERE d.user_id = :userId AND f.user_id <> :userId AND f.is_deleted = false";
+
+    private final FileNameIndex fileNameIndex;
+    private final ContentIndex contentIndex;
+    private final FileRepository fileRepository;
+    private final FileShareRepository fileShareRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // ================= FILE NAME SEARCH =================
+
+    /**
+     * Ranked name search over the caller's own files and everything shared with
+     * them directly or through a shared folder.
+     */
+    public PagedResponse<FileResponse> searchFiles(String query, int page, int size) {
+        Long userId = SecurityUtils.currentUserId();
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageIndex = Math.max(0, page);
+
+        if (query == null || query.isBlank()) {
+            return PagedResponse.<FileResponse>builder()
+                    .content(List.of()).page(pageIndex).size(pageSize).build();
+        }
+
+        if (!fileNameIndex.isReady()) {
+            return searchOwnedInDatabase(userId, query.trim(), pageIndex, pageSize);
+        }
+
+        int from = pageIndex * pageSize;
+        FileNameIndex.Result result = fileNameIndex.search(query, scopeFor(userId), from + pageSize);
+        List<FileNameIndex.Hit> hits = result.hits();
+        int to = Math.min(from + pageSize, hits.size());
+        List<Long> ids = from >= to ? List.of() : hits.subList(from, to).stream().map(h -> h.entry().id()).toList();
+
+        Map<Long, FileRepository.FileSummary> byId = ids.isEmpty()
+                ? Map.of()
+                : fileRepository.findSummariesByIds(ids).stream()
+                        .collect(Collectors.toMap(FileRepository.FileSummary::getId, Function.identity()));
+
+        List<FileResponse> content = ids.stream()
+                .map(byId::get)
+                .filter(s -> s != null)
+                .map(this::toResponse)
+                .toList();
+
+        return PagedResponse.<FileResponse>builder()
+                .content(content)
+                .page(pageIndex)
+                .size(pageSize)
+                .totalElements(result.total())
+                .hasNext(from + pageSize < result.total())
+                .build();
+    }
+
+    // ================= CONTENT SEARCH =================
+
+    /**
+     * Full-text search over indexed file contents, restricted to live files the
+     * caller can read. The caller's owner id, direct shares and the folders of
+     * {@link SearchScope} (shared folder trees, and the caller's own folders
+     * that hold collaborators' uploads) go into the index query as a filter,
+     * so a page is never thinned out after the search.
+     */
+    public PagedResponse<ContentSearchResponse> searchContent(String query, int page, int size) {
+        Long userId = SecurityUtils.currentUserId();
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageIndex = Math.max(0, page);
+
+        if (query == null || query.isBlank()) {
+            return PagedResponse.<ContentSearchResponse>builder()
+                    .content(List.of()).page(pageIndex).size(pageSize).build();
+        }
+
+        ContentIndex.MatchPage result = contentIndex.search(query, pageIndex * pageSize, pageSize, scopeFor(userId));
+
+        List<Long> ids = result.matches().stream().map(ContentIndex.Match::fileId).toList();
+        Map<Long, FileRepository.FileSummary> byId = ids.isEmpty()
+                ? Map.of()
+                : fileRepository.findSummariesByIds(ids).stream()
+                        .collect(Collectors.toMap(FileRepository.FileSummary::getId, Function.identity()));
+
+        List<ContentSearchResponse> content = result.matches().stream()
+                .filter(m -> byId.containsKey(m.fileId()))
+                .map(m -> ContentSearchResponse.builder()
+                        .file(toResponse(byId.get(m.fileId())))
+                        .snippet(m.snippet())
+                        .score(m.score())
+                        .build())
+                .toList();
+
+        return PagedResponse.<ContentSearchResponse>builder()
+                .content(content)
+                .page(pageIndex)
+                .size(pageSize)
+                .totalElements(-1)
+                .hasNext(result.hasNext())
+                .build();
+    }
+
+    // One query for the direct shares, one recursive walk for the folders and their uploaders
+    private SearchScope scopeFor(Long userId) {
+        Set<Long> folderIds = new HashSet<>();
+        Set<Long> uploaderIds = new HashSet<>();
+        jdbcTemplate.query(SCOPE_FOLDERS_SQL, new MapSqlParameterSource("userId", userId), rs -> {
+            folderIds.add(rs.getLong("folder_id"));
+            uploaderIds.add(rs.getLong("user_id"));
+        });
+        return new SearchScope(userId, new HashSet<>(fileShareRepository.findActiveSharedFileIds(userId)),
+                folderIds, uploaderIds);
+    }
+
+    private PagedResponse<FileResponse> searchOwnedInDatabase(Long userId, String query, int page, int size) {
+        Page<FileRepository.FileSummary> result =
+                fileRepository.searchOwnedSummaries(userId, query, PageRequest.of(page, size));
+
+        return PagedResponse.<FileResponse>builder()
+                .content(result.getContent().stream().map(this::toResponse).toList())
+                .page(page)
+                .size(size)
+                .totalElements(result.getTotalElements())
+                .hasNext(result.hasNext())
+                .build();
+    }
+
+    private FileResponse toResponse(FileRepository.FileSummary file) {
+        return FileResponse.builder()
+                .id(file.getId())
+                .name(file.getName())
+                .size(file.getSize())
+                .mimeType(file.getMimeType())
+                .isStarred(file.getIsStarred())
+                .isDeleted(false)
+                .isFolder(false)
+                .folderId(file.getFolderId())
+                .parentId(file.getFolderId())
+                .owner(OwnerDTO.builder()
+                        .id(file.getOwnerId())
+                        .name(file.getOwnerName())
+                        .email(file.getOwnerEmail())
+                        .build())
+                .createdAt(file.getCreatedAt())
+                .updatedAt(file.getUpdatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,126 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.event.FileShareChangeEvent;
+import com.cloudstorage.event.FolderShareChangeEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Time-limited shares.
+ *
+ * Expiry is enforced where shares are read: token lookups check the
+ * expires_at of the row they already loaded, and permission queries filter
+ * on it. This service only turns expired rows inactive afterwards, in
+ * batches walked in deadline order over the expiry index, and publishes the
+ * usual share change events so caches and the shared-with-me inbox follow.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShareExpiryService {
+
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private static final String EXPIRED_FILE_SHARES_SQL =
+            "SELECT id, file_id AS item_id, shared_with_user_id, share_token FROM file_shares " +
+            "WHERE is_active = true AND expires_at <= :now " +
+            "ORDER BY expires_at LIMIT :limit";
+
+    private static final String EXPIRED_FOLDER_SHARES_SQL =
+            "SELECT id, folder_id AS item_id, shared_with_user_id, share_token FROM folder_shares " +
+            "WHERE is_active = true AND expires_at <= :now " +
+            "ORDER BY expires_at LIMIT :limit";
+
+    private static final String DEACTIVATE_FILE_SHARES_SQL =
+            "UPDATE file_shares SET is_active = false WHERE id IN (:ids) AND is_active = true";
+
+    private static final String DEACTIVATE_FOLDER_SHARES_SQL =
+            "UPDATE folder_shares SET is_active = false WHERE id IN (:ids) AND is_active = true";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShareTokenRegistry shareTokenRegistry;
+
+    @Value("${app.shares.expiry-sweep-batch:500}")
+    private int batchSize;
+
+    private record Expired(Long id, Long itemId, Long userId, String token) {
+    }
+
+    /**
+     * Deadline for a share created with the given TTL, or null for none.
+     */
+    public static LocalDateTime expiresAt(Long ttlSeconds) {
+        if (ttlSeconds == null) {
+            return null;
+        }
+        if (ttlSeconds <= 0) {
+            throw new RuntimeException("ttlSeconds must be positive");
+        }
+        return LocalDateTime.now().plusSeconds(ttlSeconds);
+    }
+
+    // ================= SWEEP =================
+
+    @Scheduled(fixedDelayString = "${app.shares.expiry-sweep-interval-ms:60000}")
+    public void sweep() {
+        int files = sweep(EXPIRED_FILE_SHARES_SQL, DEACTIVATE_FILE_SHARES_SQL, false);
+        int folders = sweep(EXPIRED_FOLDER_SHARES_SQL, DEACTIVATE_FOLDER_SHARES_SQL, true);
+        if (files + folders > 0) {
+            log.info("Deactivated {} expired file shares and {} expired folder shares", files, folders);
+        }
+    }
+
+    private int sweep(String selectSql, String deactivateSql, boolean folders) {
+        int total = 0;
+        for (int round = 0; round < MAX_BATCHES_PER_RUN; round++) {
+            Integer swept = transactionTemplate.execute(status -> deactivateBatch(selectSql, deactivateSql, folders));
+            int count = swept != null ? swept : 0;
+            total += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private int deactivateBatch(String selectSql, String deactivateSql, boolean folders) {
+        MapSqlParameterSource params = new MapSqlParameterSource("now", LocalDateTime.now())
+                .addValue("limit", batchSize);
+        List<Expired> expired = jdbcTemplate.query(selectSql, params, (rs, i) -> new Expired(
+                rs.getLong("id"),
+                rs.getLong("item_id"),
+                rs.getObject("shared_with_user_id", Long.class),
+                rs.getString("share_token")));
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        jdbcTemplate.update(deactivateSql, new MapSqlParameterSource("ids", expired.stream().map(Expired::id).toList()));
+
+        for (Expired share : expired) {
+            if (share.token() != null) {
+                shareTokenRegistry.evict(share.token());
+            }
+            // Public links aren't in anyone's inbox or permission cache
+            if (share.userId() == null) {
+                continue;
+            }
+            eventPublisher.publishEvent(folders
+                    ? new FolderShareChangeEvent(share.itemId(), share.userId())
+                    : new FileShareChangeEvent(share.itemId(), share.userId()));
+        }
+        return expired.size();
+    }
+}
@@ -2,12 +2,13 @@ package com.cloudstorage.service;
 
 import java.util.Optional;
 import com.cloudstorage.dto.response.SharedByMeResponse;
-import com.cloudstorage.dto.response.ShareDetailDTO;
 import java.time.LocalDateTime;
 import com.cloudstorage.dto.response.FileResponse;
 import com.cloudstorage.dto.request.ShareRequest;
 import com.cloudstorage.dto.response.ShareLinkResponse;
 import com.cloudstorage.dto.response.SharedFileResponse;
+import com.cloudstorage.event.FileChangeEvent;
+import com.cloudstorage.event.FileShareChangeEvent;
 import com.cloudstorage.exception.ResourceNotFoundException;
 import com.cloudstorage.exception.UnauthorizedException;
 import com.cloudstorage.model.File;
@@ -16,18 +17,17 @@ import com.cloudstorage.model.User;
 import com.cloudstorage.repository.FileRepository;
 import com.cloudstorage.repository.FileShareRepository;
 import com.cloudstorage.repository.UserRepository;
+import com.cloudstorage.security.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import com.cloudstorage.dto.response.OwnerDTO;
 import jakarta.annotation.PostConstruct;
 
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 
 
@@ -40,6 +40,11 @@ public class ShareService {
     private final FileRepository fileRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SharedInboxService sharedInboxService;
+    private final SharedByMeService sharedByMeService;
+    private final AccessStatsService accessStatsService;
+    private final ShareTokenRegistry shareTokenRegistry;
 
     @Value("${app.url:https://cloud-storage-project-tau.vercel.app}")
     private String appUrl;
@@ -67,12 +72,7 @@ public class ShareService {
     }
 
     private User getCurrentUser() {
-        String email = org.springframework.security.core.context.SecurityContextHolder
-                .getContext()
-                .getAuthentication()
-                .getName();
-
-        return userRepository.findByEmail(email)
+        return userRepository.findById(SecurityUtils.currentUserId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
@@ -105,6 +105,7 @@ public class ShareService {
             fileShare = existingShare.get();
             fileShare.setPermission(request.getPermission());
             fileShare.setIsActive(true);
+            fileShare.setExpiresAt(ShareExpiryService.expiresAt(request.getTtlSeconds()));
         } else {
             // Create new share
             fileShare = FileShare.builder()
@@ -113,10 +114,12 @@ public class ShareService {
                     .sharedBy(currentUser)
                     .permission(request.getPermission())
                     .isActive(true)
+                    .expiresAt(ShareExpiryService.expiresAt(request.getTtlSeconds()))
                     .build();
         }
 
         FileShare savedShare = fileShareRepository.save(fileShare);
+        publishShareChange(savedShare);
 
         // 🔍 DEBUG LOG
         log.info("FILE SHARE REQUEST → email={}, permission={}, sendEmail={}",
@@ -132,6 +135,7 @@ public class ShareService {
             String downloadLink = getFrontendUrl() + "/shared-with-me";
             
             emailService.sendFileShareEmail(
+                    "file-share:" + savedShare.getId() + ":" + System.currentTimeMillis(), // this share action
                     shareWithUser.getEmail(),           // recipient email
                     shareWithUser.getFullName(),        // recipient name
                     currentUser.getFullName(),          // shared by username
@@ -162,24 +166,7 @@ public class ShareService {
 
     @Transactional(readOnly = true)
     public List<SharedFileResponse> getFilesSharedWithMe(User currentUser) {
-
-        List<FileShare> shares =
-                fileShareRepository.findBySharedWithAndIsActive(currentUser, true);
-
-        return shares.stream()
-            .map(share -> SharedFileResponse.builder()
-                .id(share.getFile().getId())            // fileId
-                .shareId(share.getId())                 // ⭐ CRITICAL
-                .name(share.getFile().getName())
-                .size(share.getFile().getSize())
-                .mimeType(share.getFile().getMimeType())
-                .isStarred(share.getIsStarred())        // ⭐ per-user star
-                .ownerEmail(share.getFile().getUser().getEmail())
-                .permission(share.getPermission())
-                .sharedAt(share.getCreatedAt())
-                .createdAt(share.getFile().getCreatedAt())
-                .build())
-            .collect(Collectors.toList());
+        return sharedInboxService.files(currentUser.getId());
     }
 
     @Transactional
@@ -195,7 +182,7 @@ public class ShareService {
         // Check if share link already exists
         List<FileShare> existingShares = fileShareRepository.findByFileAndIsActive(file, true);
         for (FileShare share : existingShares) {
-            if (share.getShareToken() != null && share.getSharedWith() == null) {
+            if (share.getShareToken() != null && share.getSharedWith() == null && !share.isExpired()) {
                 // Public share link already exists
                 String shareUrl = getFrontendUrl() + "/s/" + share.getShareToken();
                 return ShareLinkResponse.builder()
@@ -239,7 +226,7 @@ public class ShareService {
         List<FileShare> shares = fileShareRepository.findByFileAndIsActive(file, true);
         
         for (FileShare share : shares) {
-            if (share.getShareToken() != null && share.getSharedWith() == null) {
+            if (share.getShareToken() != null && share.getSharedWith() == null && !share.isExpired()) {
                 String shareUrl = getFrontendUrl() + "/s/" + share.getShareToken();
                 return ShareLinkResponse.builder()
                         .shareUrl(shareUrl)
@@ -266,6 +253,7 @@ public class ShareService {
             if (share.getShareToken() != null && share.getSharedWith() == null) {
                 share.setIsActive(false);
                 fileShareRepository.save(share);
+                shareTokenRegistry.evict(share.getShareToken());
             }
         }
     }
@@ -282,6 +270,7 @@ public class ShareService {
 
         share.setPermission(permission);
         fileShareRepository.save(share);
+        publishShareChange(share);
     }
 
     @Transactional
@@ -296,11 +285,13 @@ public class ShareService {
 
         share.setIsActive(false);
         fileShareRepository.save(share);
+        publishShareChange(share);
     }
 
     @Transactional(readOnly = true)
     public File getFileByShareToken(String token) {
         FileShare share = fileShareRepository.findByShareTokenAndIsActive(token, true)
+                .filter(s -> !s.isExpired())
                 .orElseThrow(() -> new ResourceNotFoundException("Invalid or expired share link"));
 
         return share.getFile();
@@ -311,70 +302,7 @@ public class ShareService {
     // ============================================
     @Transactional(readOnly = true)
     public List<SharedByMeResponse> getFilesSharedByMe(User currentUser) {
-        // Get all files owned by current user that have active shares
-        List<FileShare> shares = fileShareRepository.findBySharedByAndIsActive(currentUser, true);
-        
-        // Group shares by file
-        Map<Long, List<FileShare>> sharesByFile = shares.stream()
-                .collect(Collectors.groupingBy(share -> share.getFile().getId()));
-        
-        return sharesByFile.entrySet().stream()
-                .map(entry -> {
-                    File file = shares.stream()
-                            .filter(s -> s.getFile().getId().equals(entry.getKey()))
-                            .findFirst()
-                            .get()
-                            .getFile();
-                    
-                    // Build owner DTO
-                    OwnerDTO ownerDTO = OwnerDTO.builder()
-                            .id(file.getUser().getId())
-                            .name(file.getUser().getFullName())
-                            .email(file.getUser().getEmail())
-                            .build();
-                    
-                    List<ShareDetailDTO> sharedWith = entry.getValue().stream()
-                            .filter(share -> share.getSharedWith() != null)
-                            .map(share -> ShareDetailDTO.builder()
-                                    .shareId(share.getId())
-                                    .email(share.getSharedWith().getEmail())
-                                    .name(share.getSharedWith().getFullName())
-                                    .permission(share.getPermission())
-                                    .sharedAt(share.getCreatedAt())
-                                    .build())
-                            .collect(Collectors.toList());
-                    
-                    // Check if has public link
-                    boolean hasPublicLink = entry.getValue().stream()
-                            .anyMatch(share -> share.getShareToken() != null && 
-                                             share.getSharedWith() == null);
-                    
-                    String publicLink = null;
-                    if (hasPublicLink) {
-                        publicLink = entry.getValue().stream()
-                                .filter(share -> share.getShareToken() != null && 
-                                               share.getSharedWith() == null)
-                                .findFirst()
-                                .map(share -> getFrontendUrl() + "/s/" + share.getShareToken())
-                                .orElse(null);
-                    }
-                    
-                    return SharedByMeResponse.builder()
-                            .id(file.getId())
-                            .name(file.getName())
-                            .size(file.getSize())
-                            .mimeType(file.getMimeType())
-                            .isStarred(Boolean.TRUE.equals(file.getIsStarred()))
-                            .isFolder("folder".equals(file.getMimeType()))
-                            .owner(ownerDTO)
-                            .sharedWithCount(sharedWith.size())
-                            .sharedWith(sharedWith)
-                            .hasPublicLink(hasPublicLink)
-                            .publicLink(publicLink)
-                            .createdAt(file.getCreatedAt())
-                            .build();
-                })
-                .collect(Collectors.toList());
+        return sharedByMeService.allFiles(currentUser.getId());
     }
 
     // =========================================
@@ -400,12 +328,17 @@ public class ShareService {
             share.setIsActive(false);
             fileShareRepository.save(share);
         }
+        eventPublisher.publishEvent(new FileShareChangeEvent(fileId, null));
         
         // 3. Soft delete the file
+        boolean wasDeleted = Boolean.TRUE.equals(file.getIsDeleted());
         file.setIsDeleted(true);
         file.setDeletedAt(LocalDateTime.now());
         file.setDeletedBy(currentUser);
         fileRepository.save(file);
+        if (!wasDeleted) {
+            eventPublisher.publishEvent(FileChangeEvent.of(FileChangeEvent.Type.DELETED, file));
+        }
         
         log.info("All access removed and file soft-deleted: {}", fileId);
     }
@@ -422,6 +355,7 @@ public class ShareService {
 
         share.setIsStarred(!Boolean.TRUE.equals(share.getIsStarred()));
         fileShareRepository.save(share);
+        publishShareChange(share);
     }
 
     @Transactional
@@ -438,6 +372,7 @@ public class ShareService {
 
         share.setIsActive(false);
         fileShareRepository.save(share);
+        publishShareChange(share);
     }
 
     /**
@@ -461,10 +396,19 @@ public class ShareService {
         // Deactivate the share
         share.setIsActive(false);
         fileShareRepository.save(share);
+        publishShareChange(share);
         
         log.info("User {} removed themselves from file {}", currentUser.getEmail(), fileId);
     }
 
+    // Link shares have no recipient and don't appear in anyone's inbox
+    private void publishShareChange(FileShare share) {
+        if (share.getSharedWith() != null) {
+            eventPublisher.publishEvent(
+                    new FileShareChangeEvent(share.getFile().getId(), share.getSharedWith().getId()));
+        }
+    }
+
     /**
      * Get shared file details (metadata only)
      * Used by frontend to display file info
@@ -475,10 +419,12 @@ public class ShareService {
         
         FileShare share = fileShareRepository
                 .findByShareTokenAndIsActive(token, true)
+                .filter(s -> !s.isExpired())
                 .orElseThrow(() ->
                         new ResourceNotFoundException("Invalid or expired share link"));
 
         File file = share.getFile();
+        accessStatsService.recordHit(AccessStatsService.Type.FILE_LINK, share.getId());
         
         // Eagerly access properties to avoid lazy loading issues
         FileResponse response = FileResponse.builder()
@@ -499,11 +445,12 @@ public class ShareService {
      * CRITICAL: Must be @Transactional to maintain DB session for lazy loading
      */
     @Transactional(readOnly = true)
-    public File getSharedFileForDownload(String token) {
+    public FileDownload getSharedFileForDownload(String token) {
         log.info("📥 Getting file for download, share token: {}", token);
         
         FileShare share = fileShareRepository
                 .findByShareTokenAndIsActive(token, true)
+                .filter(s -> !s.isExpired())
                 .orElseThrow(() ->
                         new ResourceNotFoundException("Invalid or expired share link"));
 
@@ -515,7 +462,7 @@ public class ShareService {
         String fileName = file.getName();
         String mimeType = file.getMimeType();
         Long fileSize = file.getSize();
-        byte[] fileData = file.getFileData(); // Force load the lazy property
+        byte[] fileData = fileRepository.findContent(fileId); // Read through to the source for a copy
         
         // Validate file data
         if (fileData == null || fileData.length == 0) {
@@ -524,7 +471,9 @@ public class ShareService {
         }
         
         log.info("✅ File loaded: {} ({} bytes)", fileName, fileData.length);
+        accessStatsService.recordDownload(AccessStatsService.Type.FILE_LINK, share.getId(), fileData.length);
+        accessStatsService.recordDownload(AccessStatsService.Type.FILE, fileId, fileData.length);
         
-        return file;
+        return new FileDownload(file, fileData);
     }
 }
\ No newline at end of file
@@ -0,0 +1,215 @@
+package com.cloudstorage.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves a public share token to the file or folder it links to.
+ *
+ * File and folder link tokens are looked up together in one query. Known
+ * tokens are kept in a bounded concurrent cache, which saves a popular link
+ * the query that works out whether it is a file or a folder link, and unknown
+ * tokens are remembered for a short while so a scanner hammering the same
+ * guesses never reaches the database. Tokens that can't have been issued by us
+ * are rejected on shape alone.
+ *
+ * A cached hit only says what kind of item the token points to; the services
+ * that serve it still load the share by token and check it is active, and
+ * the controller calls {@link #evict} when it isn't. Revoking or disabling a
+ * link evicts its token too. A known token is dropped when its share expires,
+ * and after a TTL in any case, so a change made elsewhere is picked up
+ * eventually even if nobody evicts it here.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShareTokenRegistry {
+
+    // File links are dashless UUIDs, folder links dashed ones
+    private static final Pattern TOKEN_SHAPE = Pattern.compile("[0-9a-fA-F-]{32,36}");
+
+    private static final String LOOKUP_SQL =
+            "SELECT 'FILE' AS kind, id AS share_id, file_id AS item_id, expires_at FROM file_shares " +
+            "WHERE share_token = :token AND is_active = true " +
+            "UNION ALL " +
+            "SELECT 'FOLDER', id, folder_id, expires_at FROM folder_shares " +
+            "WHERE share_token = :token AND is_active = true";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${app.share-tokens.cache-size:10000}")
+    private int maxKnown;
+
+    @Value("${app.share-tokens.ttl-ms:600000}")
+    private long knownTtlMs;
+
+    @Value("${app.share-tokens.negative-cache-size:100000}")
+    private int maxUnknown;
+
+    @Value("${app.share-tokens.negative-ttl-ms:60000}")
+    private long unknownTtlMs;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    // Bumped by every eviction, so a lookup that raced one doesn't cache what it read
+    private final AtomicLong generation = new AtomicLong();
+
+    private Cache<String, Target> known;
+    private Cache<String, Boolean> unknown;
+
+    public enum Kind {
+        FILE,
+        FOLDER
+    }
+
+    public record Target(Kind kind, Long shareId, Long itemId, LocalDateTime expiresAt) {
+
+        boolean isExpired() {
+            return expiresAt != null && LocalDateTime.now().isAfter(expiresAt);
+        }
+    }
+
+    public record Stats(int known, int unknown, long hits, long lookups, long rejected) {
+    }
+
+    @PostConstruct
+    void init() {
+        known = Caffeine.newBuilder()
+                .maximumSize(maxKnown)
+                .expireAfter(new ShareExpiry(knownTtlMs))
+                .build();
+        unknown = Caffeine.newBuilder()
+                .maximumSize(maxUnknown)
+                .expireAfterWrite(Duration.ofMillis(unknownTtlMs))
+                .build();
+    }
+
+    // ================= RESOLVE =================
+
+    /**
+     * The item behind an active link token, or null if there is none.
+     */
+    public Target resolve(String token) {
+        if (!isWellFormed(token)) {
+            rejected.increment();
+            return null;
+        }
+
+        Target target = known.getIfPresent(token);
+        if (target != null && !target.isExpired()) {
+            hits.increment();
+            return target;
+        }
+        if (target != null || unknown.getIfPresent(token) != null) {
+            rejected.increment();
+            return null;
+        }
+
+        long seen = generation.get();
+        lookups.increment();
+        List<Target> rows = jdbcTemplate.query(LOOKUP_SQL, new MapSqlParameterSource("token", token), (rs, i) ->
+                new Target(Kind.valueOf(rs.getString("kind")), rs.getLong("share_id"), rs.getLong("item_id"),
+                        toLocal(rs.getTimestamp("expires_at"))));
+
+        target = rows.isEmpty() || rows.get(0).isExpired() ? null : rows.get(0);
+        if (target != null) {
+            known.put(token, target);
+        } else {
+            unknown.put(token, Boolean.TRUE);
+            log.debug("Unknown share token {}", token);
+        }
+        // An eviction bumps the generation before dropping the token, so
+        // either it dropped what we just cached or we see its bump here
+        if (generation.get() != seen) {
+            forget(token);
+        }
+        return target;
+    }
+
+    /**
+     * Whether the token has the shape of one we issue. Anything else can be
+     * turned away without a lookup or any per-token state.
+     */
+    public static boolean isWellFormed(String token) {
+        return token != null && TOKEN_SHAPE.matcher(token).matches();
+    }
+
+    /**
+     * Forgets a token that turned out to be revoked or was just changed.
+     * Inside a transaction the token is forgotten again once it commits, so
+     * a request that read the old row before the commit can't leave it
+     * cached.
+     */
+    public void evict(String token) {
+        forget(token);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    forget(token);
+                }
+            });
+        }
+    }
+
+    private void forget(String token) {
+        generation.incrementAndGet();
+        known.invalidate(token);
+        unknown.invalidate(token);
+    }
+
+    private static LocalDateTime toLocal(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    // ================= STATS =================
+
+    public Stats stats() {
+        return new Stats((int) known.estimatedSize(), (int) unknown.estimatedSize(),
+                hits.sum(), lookups.sum(), rejected.sum());
+    }
+
+    // Until the share expires, but never longer than the TTL
+    private record ShareExpiry(long ttlMs) implements Expiry<String, Target> {
+
+        @Override
+        public long expireAfterCreate(String token, Target target, long currentTime) {
+            long ttl = ttlMs;
+            if (target.expiresAt() != null) {
+                ttl = Math.min(ttl, Math.max(0L, Duration.between(LocalDateTime.now(), target.expiresAt()).toMillis()));
+            }
+            return TimeUnit.MILLISECONDS.toNanos(ttl);
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Target target, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, target, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, Target target, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.dto.response.FolderResponse;
+import com.cloudstorage.dto.response.OwnerDTO;
+import com.cloudstorage.dto.response.PagedResponse;
+import com.cloudstorage.dto.response.ShareDetailDTO;
+import com.cloudstorage.dto.response.SharedByMeResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The "shared by me" view, built from aggregate queries over the share tables.
+ *
+ * Each resource type costs three queries whatever the user owns: one page of
+ * shared items with their recipient count and public link, the total, and
+ * the first few recipients of the items on the page. The unpaginated lists
+ * carry every recipient, since the older pages show them as the full access
+ * list.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SharedByMeService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    // ================= FILES =================
+
+    private static final String FILES_SQL =
+            "SELECT f.id, f.name, f.size, f.mime_type, f.is_starred, f.created_at, " +
+            "       o.id AS owner_id, o.full_name AS owner_name, o.email AS owner_email, " +
+            "       a.recipients, a.link_token, a.last_shared_at " +
+            "FROM ( " +
+            "    SELECT s.file_id, " +
+            "           COUNT(s.shared_with_user_id) AS recipients, " +
+            "           MAX(CASE WHEN s.shared_with_user_id IS NULL THEN s.share_token END) AS link_token, " +
+            "           MAX(s.created_at) AS last_shared_at " +
+            "    FROM file_shares s " +
+            "    WHERE s.shared_by_user_id = :userId AND s.is_active = true " +
+            "    GROUP BY s.file_id " +
+            ") a " +
+            "JOIN files f ON f.id = a.file_id " +
+            "JOIN users o ON o.id = f.user_id " +
+            "ORDER BY a.last_shared_at DESC, f.id DESC";
+
+    private static final String FILES_COUNT_SQL =
+            "SELECT COUNT(DISTINCT file_id) FROM file_shares " +
+            "WHERE shared_by_user_id = :userId AND is_active = true";
+
+    private static final String FILE_RECIPIENTS_SQL =
+            "SELECT p.item_id, p.share_id, p.permission, p.created_at, u.email, u.full_name " +
+            "FROM ( " +
+            "    SELECT s.file_id AS item_id, s.id AS share_id, s.permission, s.created_at, s.shared_with_user_id, " +
+            "           ROW_NUMBER() OVER (PARTITION BY s.file_id ORDER BY s.created_at, s.id) AS rn " +
+            "    FROM file_shares s " +
+            "    WHERE s.file_id IN (:ids) AND s.shared_by_user_id = :userId " +
+            "      AND s.is_active = true AND s.shared_with_user_id IS NOT NULL " +
+            ") p " +
+            "JOIN users u ON u.id = p.shared_with_user_id " +
+            "%s" +
+            "ORDER BY p.item_id, p.rn";
+
+    // ================= FOLDERS =================
+
+    private static final String FOLDERS_SQL =
+            "SELECT f.id, f.name, f.created_at, " +
+            "       o.id AS owner_id, o.full_name AS owner_name, o.email AS owner_email, " +
+            "       COUNT(s.shared_with_user_id) AS recipients, " +
+            "       MAX(CASE WHEN s.shared_with_user_id IS NULL THEN s.share_token END) AS link_token, " +
+            "       COALESCE(MAX(s.created_at), f.created_at) AS last_shared_at " +
+            "FROM folders f " +
+            "JOIN folder_shares s ON s.folder_id = f.id AND s.is_active = true " +
+            "JOIN users o ON o.id = f.user_id " +
+            "WHERE f.user_id = :userId AND f.is_deleted = false " +
+            "GROUP BY f.id, f.name, f.created_at, o.id, o.full_name, o.email " +
+            "ORDER BY last_shared_at DESC, f.id DESC";
+
+    private static final String FOLDERS_COUNT_SQL =
+            "SELECT COUNT(DISTINCT f.id) FROM folders f " +
+            "JOIN folder_shares s ON s.folder_id = f.id AND s.is_active = true " +
+            "WHERE f.user_id = :userId AND f.is_deleted = false";
+
+    private static final String FOLDER_RECIPIENTS_SQL =
+            "SELECT p.item_id, p.share_id, p.permission, p.created_at, u.email, u.full_name " +
+            "FROM ( " +
+            "    SELECT s.folder_id AS item_id, s.id AS share_id, s.permission, s.created_at, s.shared_with_user_id, " +
+            "           ROW_NUMBER() OVER (PARTITION BY s.folder_id ORDER BY s.created_at, s.id) AS rn " +
+            "    FROM folder_shares s " +
+            "    WHERE s.folder_id IN (:ids) AND s.is_active = true AND s.shared_with_user_id IS NOT NULL " +
+            ") p " +
+            "JOIN users u ON u.id = p.shared_with_user_id " +
+            "%s" +
+            "ORDER BY p.item_id, p.rn";
+
+    private static final String PREVIEW_FILTER = "WHERE p.rn <= :preview ";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${app.shares.recipient-preview:5}")
+    private int recipientPreview;
+
+    @Value("${app.frontend-url:http://localhost:3000}")
+    private String frontendUrl;
+
+    // ================= FILES =================
+
+    public PagedResponse<SharedByMeResponse> files(Long userId, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageIndex = Math.max(0, page);
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+
+        List<SharedByMeResponse> content = loadFiles(userId, pageSize, pageIndex);
+        long total = content.size() < pageSize && pageIndex == 0
+                ? content.size()
+                : jdbcTemplate.queryForObject(FILES_COUNT_SQL, params, Long.class);
+
+        return PagedResponse.<SharedByMeResponse>builder()
+                .content(content)
+                .page(pageIndex)
+                .size(pageSize)
+                .totalElements(total)
+                .hasNext((long) (pageIndex + 1) * pageSize < total)
+                .build();
+    }
+
+    /**
+     * Every shared file with all of its recipients, for the unpaginated list
+     * endpoint.
+     */
+    public List<SharedByMeResponse> allFiles(Long userId) {
+        return loadFiles(userId, null, 0);
+    }
+
+    private List<SharedByMeResponse> loadFiles(Long userId, Integer limit, int page) {
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+        List<SharedByMeResponse> items = jdbcTemplate.query(paged(FILES_SQL, params, limit, page), params, (rs, i) -> {
+            String token = rs.getString("link_token");
+            return SharedByMeResponse.builder()
+                    .id(rs.getLong("id"))
+                    .name(rs.getString("name"))
+                    .size(rs.getLong("size"))
+                    .mimeType(rs.getString("mime_type"))
+                    .isStarred(rs.getBoolean("is_starred"))
+                    .isFolder(false)
+                    .owner(OwnerDTO.builder()
+                            .id(rs.getLong("owner_id"))
+                            .name(rs.getString("owner_name"))
+                            .email(rs.getString("owner_email"))
+                            .build())
+                    .sharedWithCount(rs.getInt("recipients"))
+                    .hasPublicLink(token != null)
+                    .publicLink(link(token))
+                    .createdAt(toLocal(rs.getTimestamp("created_at")))
+                    .build();
+        });
+
+        Map<Long, List<ShareDetailDTO>> recipients = loadRecipients(FILE_RECIPIENTS_SQL, userId,
+                items.stream().map(SharedByMeResponse::getId).toList(), limit != null);
+        items.forEach(item -> item.setSharedWith(recipients.getOrDefault(item.getId(), List.of())));
+        return items;
+    }
+
+    // ================= FOLDERS =================
+
+    public PagedResponse<FolderResponse> folders(Long userId, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageIndex = Math.max(0, page);
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+
+        List<FolderResponse> content = loadFolders(userId, pageSize, pageIndex);
+        long total = content.size() < pageSize && pageIndex == 0
+                ? content.size()
+                : jdbcTemplate.queryForObject(FOLDERS_COUNT_SQL, params, Long.class);
+
+        return PagedResponse.<FolderResponse>builder()
+                .content(content)
+                .page(pageIndex)
+                .size(pageSize)
+                .totalElements(total)
+                .hasNext((long) (pageIndex + 1) * pageSize < total)
+                .build();
+    }
+
+    /**
+     * Every shared folder with all of its recipients, for the unpaginated
+     * list endpoint.
+     */
+    public List<FolderResponse> allFolders(Long userId) {
+        return loadFolders(userId, null, 0);
+    }
+
+    private List<FolderResponse> loadFolders(Long userId, Integer limit, int page) {
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+        List<FolderResponse> items = jdbcTemplate.query(paged(FOLDERS_SQL, params, limit, page), params, (rs, i) -> {
+            String token = rs.getString("link_token");
+            return FolderResponse.builder()
+                    .id(rs.getLong("id"))
+                    .name(rs.getString("name"))
+                    .isFolder(true)
+                    .mimeType("folder")
+                    .owner(OwnerDTO.builder()
+                            .id(rs.getLong("owner_id"))
+                            .name(rs.getString("owner_name"))
+                            .email(rs.getString("owner_email"))
+                            .build())
+                    .sharedWithCount(rs.getInt("recipients"))
+                    .hasPublicLink(token != null)
+                    .publicLink(link(token))
+                    .sharedAt(toLocal(rs.getTimestamp("last_shared_at")))
+                    .createdAt(toLocal(rs.getTimestamp("created_at")))
+                    .build();
+        });
+
+        Map<Long, List<ShareDetailDTO>> recipients = loadRecipients(FOLDER_RECIPIENTS_SQL, userId,
+                items.stream().map(FolderResponse::getId).toList(), limit != null);
+        items.forEach(item -> item.setSharedWith(recipients.getOrDefault(item.getId(), List.of())));
+        return items;
+    }
+
+    // ================= HELPERS =================
+
+    // Only the first few per item when previewing, otherwise all of them
+    private Map<Long, List<ShareDetailDTO>> loadRecipients(String sql, Long userId, List<Long> ids, boolean preview) {
+        Map<Long, List<ShareDetailDTO>> recipients = new HashMap<>();
+        if (ids.isEmpty() || (preview && recipientPreview <= 0)) {
+            return recipients;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids)
+                .addValue("userId", userId)
+                .addValue("preview", recipientPreview);
+        jdbcTemplate.query(String.format(sql, preview ? PREVIEW_FILTER : ""), params, rs -> {
+            recipients.computeIfAbsent(rs.getLong("item_id"), k -> new ArrayList<>())
+                    .add(ShareDetailDTO.builder()
+                            .shareId(rs.getLong("share_id"))
+                            .email(rs.getString("email"))
+                            .name(rs.getString("full_name"))
+                            .permission(rs.getString("permission"))
+                            .sharedAt(toLocal(rs.getTimestamp("created_at")))
+                            .build());
+        });
+        return recipients;
+    }
+
+    private static String paged(String sql, MapSqlParameterSource params, Integer limit, int page) {
+        if (limit == null) {
+            return sql;
+        }
+        params.addValue("limit", limit).addValue("offset", (long) page * limit);
+        return sql + " LIMIT :limit OFFSET :offset";
+    }
+
+    private String link(String token) {
+        return token != null ? frontendUrl + "/s/" + token : null;
+    }
+
+    private static LocalDateTime toLocal(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,448 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.dto.response.CursorPageResponse;
+import com.cloudstorage.dto.response.FolderResponse;
+import com.cloudstorage.dto.response.SharedFileResponse;
+import com.cloudstorage.dto.response.SharedInboxItemResponse;
+import com.cloudstorage.event.BulkShareChangeEvent;
+import com.cloudstorage.event.FileChangeEvent;
+import com.cloudstorage.event.FileShareChangeEvent;
+import com.cloudstorage.event.FolderChangeEvent;
+import com.cloudstorage.event.FolderShareChangeEvent;
+import com.cloudstorage.model.File;
+import com.cloudstorage.model.FileShare;
+import com.cloudstorage.model.Folder;
+import com.cloudstorage.model.FolderShare;
+import com.cloudstorage.model.SharedInboxEntry;
+import com.cloudstorage.model.SharedInboxEntry.ItemType;
+import com.cloudstorage.model.User;
+import com.cloudstorage.repository.FileRepository;
+import com.cloudstorage.repository.FileShareRepository;
+import com.cloudstorage.repository.FolderRepository;
+import com.cloudstorage.repository.FolderShareRepository;
+import com.cloudstorage.repository.SharedInboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the "shared with me" inbox: one denormalized row per recipient
+ * and shared item, written when shares or the shared items change so that
+ * reading the list is a single indexed query.
+ *
+ * A share change re-derives every inbox row of that item from the share
+ * table, so the handlers don't need to know what exactly changed. A bulk
+ * share only grants, so it rewrites just the (item, recipient) pairs it
+ * touched, with one read and one batched UPDATE and INSERT per item type.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SharedInboxService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final String INBOX_COLUMNS =
+            "s.id AS share_id, s.shared_with_user_id AS recipient_id, s.permission, s.created_at AS shared_at, " +
+            "i.name, i.is_deleted, i.created_at AS item_created_at, " +
+            "o.id AS owner_id, o.email AS owner_email, o.full_name AS owner_name, " +
+            "b.id AS shared_by_id, b.full_name AS shared_by_name ";
+
+    private static final String BULK_FILE_SHARES_SQL =
+            "SELECT s.file_id AS item_id, i.size, i.mime_type, s.is_starred, " + INBOX_COLUMNS +
+            "FROM file_shares s " +
+            "JOIN files i ON i.id = s.file_id " +
+            "JOIN users o ON o.id = i.user_id " +
+            "JOIN users b ON b.id = s.shared_by_user_id " +
+            "WHERE s.file_id IN (:ids) AND s.shared_with_user_id IN (:userIds) AND s.is_active = true";
+
+    private static final String BULK_FOLDER_SHARES_SQL =
+            "SELECT s.folder_id AS item_id, " + INBOX_COLUMNS +
+            "FROM folder_shares s " +
+            "JOIN folders i ON i.id = s.folder_id " +
+            "JOIN users o ON o.id = i.user_id " +
+            "JOIN users b ON b.id = s.shared_by_user_id " +
+            "WHERE s.folder_id IN (:ids) AND s.shared_with_user_id IN (:userIds) AND s.is_active = true";
+
+    // Leaves shared_at alone, so an updated share keeps its place in the inbox
+    private static final String UPDATE_INBOX_SQL =
+            "UPDATE shared_inbox SET share_id = ?, name = ?, size = ?, mime_type = ?, owner_id = ?, " +
+            "owner_email = ?, owner_name = ?, shared_by_id = ?, shared_by_name = ?, permission = ?, " +
+            "is_starred = ?, item_deleted = ?, item_created_at = ? " +
+            "WHERE recipient_id = ? AND item_type = ? AND item_id = ?";
+
+    private static final String INSERT_INBOX_SQL =
+            "INSERT INTO shared_inbox (share_id, name, size, mime_type, owner_id, owner_email, owner_name, " +
+            "shared_by_id, shared_by_name, permission, is_starred, item_deleted, item_created_at, " +
+            "recipient_id, item_type, item_id, shared_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final SharedInboxRepository inboxRepository;
+    private final FileRepository fileRepository;
+    private final FileShareRepository fileShareRepository;
+    private final FolderRepository folderRepository;
+    private final FolderShareRepository folderShareRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    // ================= READ =================
+
+    /**
+     * Files and folders shared with the user, newest share first. The cursor
+     * is the opaque value returned as nextCursor by the previous page.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<SharedInboxItemResponse> page(Long userId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // One extra row tells us whether there is a next page
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<SharedInboxEntry> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = inboxRepository.findFirstPage(userId, limit);
+        } else {
+            Cursor after = Cursor.decode(cursor);
+            rows = inboxRepository.findPageAfter(userId, after.sharedAt(), after.id(), limit);
+        }
+
+        boolean hasNext = rows.size() > pageSize;
+        if (hasNext) {
+            rows = rows.subList(0, pageSize);
+        }
+        String nextCursor = hasNext ? Cursor.of(rows.get(rows.size() - 1)).encode() : null;
+
+        return CursorPageResponse.<SharedInboxItemResponse>builder()
+                .content(rows.stream().map(SharedInboxService::toResponse).toList())
+                .size(pageSize)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public List<SharedFileResponse> files(Long userId) {
+        return inboxRepository
+                .findByRecipientIdAndItemTypeAndItemDeletedFalseOrderBySharedAtDescIdDesc(userId, ItemType.FILE)
+                .stream()
+                .map(e -> SharedFileResponse.builder()
+                        .id(e.getItemId())
+                        .shareId(e.getShareId())
+                        .name(e.getName())
+                        .size(e.getSize())
+                        .mimeType(e.getMimeType())
+                        .isStarred(e.getIsStarred())
+                        .ownerEmail(e.getOwnerEmail())
+                        .permission(e.getPermission())
+                        .sharedAt(e.getSharedAt())
+                        .createdAt(e.getItemCreatedAt())
+                        .build())
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<FolderResponse> folders(Long userId) {
+        return inboxRepository
+                .findByRecipientIdAndItemTypeAndItemDeletedFalseOrderBySharedAtDescIdDesc(userId, ItemType.FOLDER)
+                .stream()
+                .map(e -> FolderResponse.builder()
+                        .id(e.getItemId())
+                        .name(e.getName())
+                        .isFolder(true)
+                        .mimeType("folder")
+                        .ownerEmail(e.getOwnerEmail())
+                        .sharedBy(e.getSharedByName())
+                        .permission(e.getPermission())
+                        .sharedAt(e.getSharedAt())
+                        .createdAt(e.getItemCreatedAt())
+                        .build())
+                .toList();
+    }
+
+    // ================= SHARE CHANGES =================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onFileShareChange(FileShareChangeEvent event) {
+        syncFile(event.getFileId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onFolderShareChange(FolderShareChangeEvent event) {
+        syncFolder(event.getFolderId());
+    }
+
+    private void syncFile(Long fileId) {
+        File file = fileRepository.findById(fileId).orElse(null);
+        if (file == null) {
+            inboxRepository.deleteItem(ItemType.FILE, fileId);
+            return;
+        }
+
+        Map<Long, SharedInboxEntry> stale = byRecipient(ItemType.FILE, fileId);
+        for (FileShare share : fileShareRepository.findByFileAndIsActive(file, true)) {
+            if (share.getSharedWith() == null) {
+                continue;
+            }
+            SharedInboxEntry entry = stale.remove(share.getSharedWith().getId());
+            if (entry == null) {
+                entry = SharedInboxEntry.builder()
+                        .recipientId(share.getSharedWith().getId())
+                        .itemType(ItemType.FILE)
+                        .itemId(fileId)
+                        .build();
+            }
+            entry.setShareId(share.getId());
+            entry.setName(file.getName());
+            entry.setSize(file.getSize());
+            entry.setMimeType(file.getMimeType());
+            entry.setIsStarred(Boolean.TRUE.equals(share.getIsStarred()));
+            entry.setItemDeleted(Boolean.TRUE.equals(file.getIsDeleted()));
+            entry.setItemCreatedAt(file.getCreatedAt());
+            fill(entry, file.getUser(), share.getSharedBy(), share.getPermission(), share.getCreatedAt());
+            inboxRepository.save(entry);
+        }
+        inboxRepository.deleteAll(stale.values());
+    }
+
+    private void syncFolder(Long folderId) {
+        Folder folder = folderRepository.findById(folderId).orElse(null);
+        if (folder == null) {
+            inboxRepository.deleteItem(ItemType.FOLDER, folderId);
+            return;
+        }
+
+        Map<Long, SharedInboxEntry> stale = byRecipient(ItemType.FOLDER, folderId);
+        for (FolderShare share : folderShareRepository.findByFolderAndIsActiveTrue(folder)) {
+            if (share.getSharedWith() == null) {
+                continue;
+            }
+            SharedInboxEntry entry = stale.remove(share.getSharedWith().getId());
+            if (entry == null) {
+                entry = SharedInboxEntry.builder()
+                        .recipientId(share.getSharedWith().getId())
+                        .itemType(ItemType.FOLDER)
+                        .itemId(folderId)
+                        .build();
+            }
+            entry.setShareId(share.getId());
+            entry.setName(folder.getName());
+            entry.setMimeType("folder");
+            entry.setIsStarred(false);
+            entry.setItemDeleted(Boolean.TRUE.equals(folder.getIsDeleted()));
+            entry.setItemCreatedAt(folder.getCreatedAt());
+            fill(entry, folder.getUser(), share.getSharedBy(), share.getPermission(), share.getCreatedAt());
+            inboxRepository.save(entry);
+        }
+        inboxRepository.deleteAll(stale.values());
+    }
+
+    private Map<Long, SharedInboxEntry> byRecipient(ItemType type, Long itemId) {
+        Map<Long, SharedInboxEntry> entries = new HashMap<>();
+        for (SharedInboxEntry entry : inboxRepository.findByItemTypeAndItemId(type, itemId)) {
+            entries.put(entry.getRecipientId(), entry);
+        }
+        return entries;
+    }
+
+    private static void fill(SharedInboxEntry entry, User owner, User sharedBy, String permission,
+                             LocalDateTime sharedAt) {
+        entry.setOwnerId(owner.getId());
+        entry.setOwnerEmail(owner.getEmail());
+        entry.setOwnerName(owner.getFullName());
+        entry.setSharedById(sharedBy.getId());
+        entry.setSharedByName(sharedBy.getFullName());
+        entry.setPermission(permission);
+        // Keep the original position in the inbox when a share is only updated
+        if (entry.getSharedAt() == null) {
+            entry.setSharedAt(sharedAt != null ? sharedAt : LocalDateTime.now());
+        }
+    }
+
+    // ================= BULK SHARES =================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onBulkShareChange(BulkShareChangeEvent event) {
+        int files = upsertGranted(BULK_FILE_SHARES_SQL, ItemType.FILE, event.getFileIds(), event.getUserIds());
+        int folders = upsertGranted(BULK_FOLDER_SHARES_SQL, ItemType.FOLDER, event.getFolderIds(), event.getUserIds());
+        log.debug("Inbox bulk share wrote {} file and {} folder rows", files, folders);
+    }
+
+    /**
+     * Rewrites the inbox rows of the active shares between the items and
+     * users: one batched UPDATE, then one batched INSERT of the pairs that
+     * had no row yet.
+     */
+    private int upsertGranted(String sql, ItemType type, List<Long> itemIds, List<Long> userIds) {
+        if (itemIds.isEmpty() || userIds.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", itemIds).addValue("userIds", userIds);
+        List<Object[]> rows = namedJdbcTemplate.query(sql, params, (rs, i) -> inboxRow(rs, type));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        // Both statements take the same values; the update just ignores shared_at
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        rows.forEach(row -> updates.add(Arrays.copyOf(row, row.length - 1)));
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_INBOX_SQL, updates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                inserts.add(rows.get(i));
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_INBOX_SQL, inserts);
+        }
+        return rows.size();
+    }
+
+    private static Object[] inboxRow(ResultSet rs, ItemType type) throws SQLException {
+        boolean file = type == ItemType.FILE;
+        Timestamp sharedAt = rs.getTimestamp("shared_at");
+        return new Object[]{
+                rs.getLong("share_id"),
+                rs.getString("name"),
+                file ? rs.getObject("size", Long.class) : null,
+                file ? rs.getString("mime_type") : "folder",
+                rs.getLong("owner_id"),
+                rs.getString("owner_email"),
+                rs.getString("owner_name"),
+                rs.getLong("shared_by_id"),
+                rs.getString("shared_by_name"),
+                rs.getString("permission"),
+                file && rs.getBoolean("is_starred"),
+                rs.getBoolean("is_deleted"),
+                rs.getTimestamp("item_created_at"),
+                rs.getLong("recipient_id"),
+                type.name(),
+                rs.getLong("item_id"),
+                sharedAt != null ? sharedAt : Timestamp.valueOf(LocalDateTime.now())
+        };
+    }
+
+    // ================= ITEM CHANGES =================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onFileChange(FileChangeEvent event) {
+        apply(ItemType.FILE, event.getFileId(), event.getName(), switch (event.getType()) {
+            case RENAMED -> Change.RENAME;
+            case DELETED -> Change.TRASH;
+            case RESTORED -> Change.RESTORE;
+            case PURGED -> Change.PURGE;
+            default -> null;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onFolderChange(FolderChangeEvent event) {
+        apply(ItemType.FOLDER, event.getFolderId(), event.getName(), switch (event.getType()) {
+            case RENAMED -> Change.RENAME;
+            case DELETED -> Change.TRASH;
+            case RESTORED -> Change.RESTORE;
+            case PURGED -> Change.PURGE;
+            default -> null;
+        });
+    }
+
+    private enum Change {
+        RENAME,
+        TRASH,
+        RESTORE,
+        PURGE
+    }
+
+    private void apply(ItemType type, Long itemId, String name, Change change) {
+        if (change == null) {
+            return;
+        }
+        int updated = switch (change) {
+            case RENAME -> inboxRepository.renameItem(type, itemId, name);
+            case TRASH -> inboxRepository.markItemDeleted(type, itemId, true);
+            case RESTORE -> inboxRepository.markItemDeleted(type, itemId, false);
+            case PURGE -> inboxRepository.deleteItem(type, itemId);
+        };
+        if (updated > 0) {
+            log.debug("Inbox {} of {} {} touched {} rows", change, type, itemId, updated);
+        }
+    }
+
+    /**
+     * Copies a changed name or email onto the rows that display it.
+     */
+    @Transactional
+    public void onProfileChange(User user) {
+        inboxRepository.updateOwner(user.getId(), user.getEmail(), user.getFullName());
+        inboxRepository.updateSharer(user.getId(), user.getFullName());
+    }
+
+    // ================= MAPPING =================
+
+    private static SharedInboxItemResponse toResponse(SharedInboxEntry e) {
+        boolean folder = e.getItemType() == ItemType.FOLDER;
+        return SharedInboxItemResponse.builder()
+                .id(e.getItemId())
+                .shareId(e.getShareId())
+                .isFolder(folder)
+                .name(e.getName())
+                .size(e.getSize())
+                .mimeType(e.getMimeType())
+                .isStarred(folder ? null : e.getIsStarred())
+                .ownerEmail(e.getOwnerEmail())
+                .ownerName(e.getOwnerName())
+                .sharedBy(e.getSharedByName())
+                .permission(e.getPermission())
+                .sharedAt(e.getSharedAt())
+                .createdAt(e.getItemCreatedAt())
+                .build();
+    }
+
+    // Position of the last row of a page: (shared_at, id)
+    private record Cursor(LocalDateTime sharedAt, Long id) {
+
+        static Cursor of(SharedInboxEntry entry) {
+            return new Cursor(entry.getSharedAt(), entry.getId());
+        }
+
+        String encode() {
+            String raw = sharedAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String value) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Invalid cursor");
+            }
+        }
+    }
+}
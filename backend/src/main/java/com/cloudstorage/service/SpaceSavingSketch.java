@@ -0,0 +1,74 @@
+package com.cloudstorage.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving top-K sketch: tracks the heaviest keys of a stream in a fixed
+ * number of slots. When a new key arrives and every slot is taken, the
+ * lightest slot is handed over and the new key inherits its count as an
+ * upper bound on the error. Any key heavier than total / capacity is
+ * guaranteed to be present.
+ */
+public class SpaceSavingSketch<K> {
+
+    private final int capacity;
+    private final Map<K, Slot> slots = new HashMap<>();
+
+    public record Estimate<K>(K key, long count, long error) {
+    }
+
+    private static final class Slot {
+        long count;
+        long error;
+
+        Slot(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public synchronized void offer(K key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        Slot slot = slots.get(key);
+        if (slot != null) {
+            slot.count += weight;
+            return;
+        }
+        if (slots.size() < capacity) {
+            slots.put(key, new Slot(weight, 0));
+            return;
+        }
+
+        // Capacity is small and offers come in batches, so a scan is cheap enough
+        K lightest = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<K, Slot> e : slots.entrySet()) {
+            if (e.getValue().count < min) {
+                min = e.getValue().count;
+                lightest = e.getKey();
+            }
+        }
+        slots.remove(lightest);
+        slots.put(key, new Slot(min + weight, min));
+    }
+
+    /**
+     * The heaviest keys, heaviest first.
+     */
+    public synchronized List<Estimate<K>> top(int limit) {
+        List<Estimate<K>> result = new ArrayList<>(slots.size());
+        slots.forEach((key, slot) -> result.add(new Estimate<>(key, slot.count, slot.error)));
+        result.sort(Comparator.comparingLong((Estimate<K> e) -> e.count()).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+}
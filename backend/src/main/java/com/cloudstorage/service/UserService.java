@@ -5,9 +5,12 @@
 package com.cloudstorage.service;
 
 import com.cloudstorage.dto.request.UpdateProfileRequest;
+import com.cloudstorage.dto.response.AuthResponse;
 import com.cloudstorage.dto.response.UserResponse;
 import com.cloudstorage.model.User;
 import com.cloudstorage.repository.UserRepository;
+import com.cloudstorage.security.JwtTokenProvider;
+import com.cloudstorage.security.TokenVersionCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -29,6 +32,9 @@ public class UserService {
     private final UserRepository userRepository;
     private final AuthService authService;
     private final EmailService emailService;
+    private final SharedInboxService sharedInboxService;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final TokenVersionCache tokenVersionCache;
 
     @Value("${profile.upload.dir:uploads/profile-pictures}")
     private String uploadDir;
@@ -50,6 +56,7 @@ public class UserService {
         }
 
         userRepository.save(user);
+        sharedInboxService.onProfileChange(user);
         log.info("Profile updated for user: {}", user.getEmail());
 
         return mapToUserResponse(user);
@@ -123,8 +130,13 @@ public class UserService {
         log.info("Email change OTP sent to: {}", newEmail);
     }
 
+    /**
+     * Switches the account to the new address and returns a token for it.
+     * Tokens carry the email, and admin rights are granted from it, so every
+     * token issued for the old address is revoked.
+     */
     @Transactional
-    public void verifyEmailChangeOTP(String newEmail, String otp) {
+    public AuthResponse verifyEmailChangeOTP(String newEmail, String otp) {
         User user = authService.getCurrentUserEntity();
 
         if (!user.verifyOTP(otp, User.OtpPurpose.EMAIL_CHANGE)) {
@@ -133,9 +145,16 @@ public class UserService {
 
         user.setEmail(newEmail);
         user.clearOTP();
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
+        tokenVersionCache.evict(user.getId());
+        sharedInboxService.onProfileChange(user);
 
         log.info("Email updated successfully to: {}", newEmail);
+        return AuthResponse.builder()
+                .token(jwtTokenProvider.generateToken(user))
+                .user(mapToUserResponse(user))
+                .build();
     }
 
     private UserResponse mapToUserResponse(User user) {
@@ -0,0 +1,215 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.dto.response.FileResponse;
+import com.cloudstorage.event.FileChangeEvent;
+import com.cloudstorage.event.FolderChangeEvent;
+import com.cloudstorage.model.FileCategory;
+import com.cloudstorage.model.UserStats;
+import com.cloudstorage.repository.FileRepository;
+import com.cloudstorage.repository.FolderRepository;
+import com.cloudstorage.repository.UserStatsRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the materialized {@link UserStats} row per user in step with file and
+ * folder writes, so the dashboard is a primary key read instead of several
+ * COUNT queries.
+ *
+ * Rows are created lazily from the base tables on first read. Events only apply
+ * relative updates to rows that exist; a periodic reconcile repairs any drift.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserStatsService {
+
+    private static final int RECENT_FILES = 5;
+
+    private final UserStatsRepository userStatsRepository;
+    private final FileRepository fileRepository;
+    private final FolderRepository folderRepository;
+    private final ObjectMapper objectMapper;
+
+    // ================= READ =================
+
+    public UserStats getStats(Long userId) {
+        return userStatsRepository.findById(userId)
+                .orElseGet(() -> build(userId));
+    }
+
+    /**
+     * Newest files for the dashboard. The cached list is invalidated by file
+     * events and refilled here on the next read.
+     */
+    public List<FileResponse> getRecentFiles(UserStats stats) {
+        if (stats.getRecentFiles() != null) {
+            try {
+                return objectMapper.readValue(stats.getRecentFiles(), new TypeReference<List<FileResponse>>() {});
+            } catch (JsonProcessingException e) {
+                log.warn("Discarding unreadable recent files for user {}: {}", stats.getUserId(), e.getMessage());
+            }
+        }
+
+        List<FileResponse> recent = loadRecentFiles(stats.getUserId());
+        try {
+            userStatsRepository.fillRecentFiles(stats.getUserId(), objectMapper.writeValueAsString(recent));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not cache recent files for user {}: {}", stats.getUserId(), e.getMessage());
+        }
+        return recent;
+    }
+
+    private List<FileResponse> loadRecentFiles(Long userId) {
+        return fileRepository.findRecentFiles(userId, PageRequest.of(0, RECENT_FILES)).stream()
+                .map(f -> FileResponse.builder()
+                        .id(f.getId())
+                        .name(f.getName())
+                        .size(f.getSize())
+                        .mimeType(f.getMimeType())
+                        .isStarred(f.getIsStarred())
+                        .isDeleted(false)
+                        .isFolder(false)
+                        .folderId(f.getFolderId())
+                        .createdAt(f.getCreatedAt())
+                        .updatedAt(f.getUpdatedAt())
+                        .build())
+                .toList();
+    }
+
+    private UserStats build(Long userId) {
+        UserStats stats = compute(userId);
+        try {
+            return userStatsRepository.save(stats);
+        } catch (DataIntegrityViolationException e) {
+            // Another request built the row first
+            return userStatsRepository.findById(userId).orElse(stats);
+        }
+    }
+
+    private UserStats compute(Long userId) {
+        UserStats stats = UserStats.builder()
+                .userId(userId)
+                .folderCount(folderRepository.countByUserIdAndIsDeleted(userId, false))
+                .build();
+        fileRepository.sumLiveFilesByMimeType(userId).forEach(t -> add(stats, t));
+        return stats;
+    }
+
+    private static void add(UserStats stats, FileRepository.MimeTotals totals) {
+        stats.setFileCount(stats.getFileCount() + totals.getFileCount());
+        stats.setStarredCount(stats.getStarredCount() + (totals.getStarredCount() != null ? totals.getStarredCount() : 0L));
+        stats.addBytes(FileCategory.of(totals.getMimeType()), totals.getTotalSize());
+    }
+
+    // ================= EVENT HANDLERS =================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onFileChange(FileChangeEvent event) {
+        int sign = switch (event.getType()) {
+            case CREATED, RESTORED -> 1;
+            case DELETED -> -1;
+            default -> 0;
+        };
+
+        if (sign != 0) {
+            applyFileDelta(event.getOwnerId(), sign, event.isStarred() ? sign : 0,
+                    FileCategory.of(event.getMimeType()), sign * event.getSize());
+            return;
+        }
+
+        switch (event.getType()) {
+            case STARRED -> applyFileDelta(event.getOwnerId(), 0, 1, FileCategory.OTHER, 0);
+            case UNSTARRED -> applyFileDelta(event.getOwnerId(), 0, -1, FileCategory.OTHER, 0);
+            case RENAMED, MOVED -> userStatsRepository.clearRecentFiles(event.getOwnerId());
+            default -> { }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onFolderChange(FolderChangeEvent event) {
+        switch (event.getType()) {
+            case CREATED, RESTORED -> userStatsRepository.applyFolderDelta(event.getOwnerId(), 1);
+            case DELETED -> userStatsRepository.applyFolderDelta(event.getOwnerId(), -1);
+            default -> { }
+        }
+    }
+
+    private void applyFileDelta(Long userId, long files, long starred, FileCategory category, long bytes) {
+        userStatsRepository.applyFileDelta(userId, files, starred,
+                category == FileCategory.IMAGE ? bytes : 0,
+                category == FileCategory.VIDEO ? bytes : 0,
+                category == FileCategory.AUDIO ? bytes : 0,
+                category == FileCategory.DOCUMENT ? bytes : 0,
+                category == FileCategory.OTHER ? bytes : 0);
+    }
+
+    // ================= RECONCILE =================
+
+    /**
+     * Recomputes every materialized row from the files and folders tables and
+     * rewrites the ones that drifted. A row updated by an event while this runs
+     * fails its version check and is left for the next run.
+     */
+    @Scheduled(fixedDelayString = "${app.user-stats.reconcile-interval-ms:21600000}",
+               initialDelayString = "${app.user-stats.reconcile-initial-delay-ms:90000}")
+    public void reconcile() {
+        List<UserStats> rows = userStatsRepository.findAll();
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        Map<Long, UserStats> actual = new HashMap<>();
+        for (UserStats row : rows) {
+            actual.put(row.getUserId(), UserStats.builder().userId(row.getUserId()).build());
+        }
+        folderRepository.countLiveFoldersByUser().forEach(c -> {
+            UserStats stats = actual.get(c.getUserId());
+            if (stats != null) {
+                stats.setFolderCount(c.getFolderCount());
+            }
+        });
+        fileRepository.sumLiveFilesByUserAndMimeType().forEach(t -> {
+            UserStats stats = actual.get(t.getUserId());
+            if (stats != null) {
+                add(stats, t);
+            }
+        });
+
+        int repaired = 0;
+        for (UserStats row : rows) {
+            UserStats real = actual.get(row.getUserId());
+            if (row.sameCounters(real)) {
+                continue;
+            }
+            real.setVersion(row.getVersion());
+            try {
+                userStatsRepository.save(real);
+                repaired++;
+            } catch (ObjectOptimisticLockingFailureException e) {
+                log.debug("User stats for {} changed during reconcile, skipping", row.getUserId());
+            }
+        }
+
+        if (repaired > 0) {
+            log.info("User stats reconcile repaired {} of {} rows", repaired, rows.size());
+        }
+    }
+}
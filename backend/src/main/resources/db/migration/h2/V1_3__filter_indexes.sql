@@ -0,0 +1,8 @@
+-- Composite indexes for the faceted file filter (FileSpecifications), also
+-- declared on the File entity.
+create index if not exists idx_files_user_deleted_updated on files (user_id, is_deleted, updated_at);
+create index if not exists idx_files_user_deleted_name on files (user_id, is_deleted, name);
+create index if not exists idx_files_user_deleted_mime on files (user_id, is_deleted, mime_type);
+create index if not exists idx_files_user_deleted_size on files (user_id, is_deleted, size);
+create index if not exists idx_files_user_starred on files (user_id, is_starred, is_deleted);
+create index if not exists idx_files_folder_deleted on files (folder_id, is_deleted);
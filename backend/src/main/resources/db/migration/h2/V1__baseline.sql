@@ -0,0 +1,185 @@
+-- Baseline schema: the tables as they stood when migrations were introduced.
+-- Databases previously managed by ddl-auto=update are baselined at this
+-- version (spring.flyway.baseline-on-migrate) and start from V1_1. Keep this
+-- file identical to that schema: anything added later goes in a new version.
+
+create table file_shares (
+    is_active boolean not null,
+    is_starred boolean not null,
+    created_at timestamp(6) not null,
+    expires_at timestamp(6),
+    file_id bigint not null,
+    id bigint generated by default as identity,
+    shared_by_user_id bigint not null,
+    shared_with_user_id bigint,
+    permission varchar(20) not null,
+    share_token varchar(255) unique,
+    primary key (id),
+    constraint uk_file_shared_with unique (file_id, shared_with_user_id)
+);
+
+create table files (
+    is_deleted boolean,
+    is_starred boolean,
+    created_at timestamp(6),
+    deleted_at timestamp(6),
+    deleted_by bigint,
+    folder_id bigint,
+    id bigint generated by default as identity,
+    size bigint not null,
+    updated_at timestamp(6),
+    user_id bigint not null,
+    file_data varbinary,
+    mime_type varchar(255),
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table folder_shares (
+    is_active boolean,
+    created_at timestamp(6),
+    folder_id bigint not null,
+    id bigint generated by default as identity,
+    owner_id bigint not null,
+    shared_by_user_id bigint,
+    shared_with_user_id bigint,
+    permission varchar(255) not null,
+    share_token varchar(255),
+    primary key (id),
+    unique (folder_id, shared_with_user_id),
+    unique (share_token)
+);
+
+create table folders (
+    is_deleted boolean not null,
+    created_at timestamp(6),
+    deleted_at timestamp(6),
+    deleted_by bigint,
+    id bigint generated by default as identity,
+    parent_id bigint,
+    updated_at timestamp(6),
+    user_id bigint not null,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table share_links (
+    access_count integer,
+    is_active boolean,
+    created_at timestamp(6),
+    created_by bigint,
+    expires_at timestamp(6),
+    file_id bigint,
+    folder_id bigint,
+    id bigint generated by default as identity,
+    permission varchar(255) check (permission in ('view','edit')),
+    token varchar(255) not null unique,
+    primary key (id)
+);
+
+create table users (
+    email_verified boolean not null,
+    is_active boolean,
+    otp_code varchar(6),
+    created_at timestamp(6) not null,
+    id bigint generated by default as identity,
+    otp_expires_at timestamp(6),
+    storage_limit bigint not null,
+    storage_used bigint not null,
+    updated_at timestamp(6) not null,
+    otp_purpose varchar(20) check (otp_purpose in ('LOGIN','REGISTER','EMAIL_CHANGE','PASSWORD_RESET')),
+    phone varchar(20),
+    provider varchar(20) not null check (provider in ('LOCAL','GOOGLE')),
+    profile_picture varchar(500),
+    email varchar(255) not null unique,
+    full_name varchar(255) not null,
+    google_id varchar(255) unique,
+    password varchar(255),
+    primary key (id)
+);
+
+create index idx_file_shares_file_id
+   on file_shares (file_id);
+
+create index idx_file_shares_shared_with
+   on file_shares (shared_with_user_id);
+
+create index idx_file_shares_shared_by
+   on file_shares (shared_by_user_id);
+
+create index idx_file_shares_token
+   on file_shares (share_token);
+
+create index idx_file_shares_active
+   on file_shares (is_active);
+
+create index idx_users_email
+   on users (email);
+
+create index idx_users_google_id
+   on users (google_id);
+
+alter table if exists file_shares
+   add constraint fk_file_shares_file
+   foreign key (file_id)
+   references files;
+
+alter table if exists file_shares
+   add constraint fk_file_shares_shared_by
+   foreign key (shared_by_user_id)
+   references users;
+
+alter table if exists file_shares
+   add constraint fk_file_shares_shared_with
+   foreign key (shared_with_user_id)
+   references users;
+
+alter table if exists files
+   add constraint FKia0fa7qkw07xa513d5551xcee
+   foreign key (deleted_by)
+   references users;
+
+alter table if exists files
+   add constraint FKe9awb46i258gxwjtbjprmtpmi
+   foreign key (folder_id)
+   references folders;
+
+alter table if exists files
+   add constraint FKdgr5hx49828s5vhjo1s8q3wdp
+   foreign key (user_id)
+   references users;
+
+alter table if exists folder_shares
+   add constraint FK7dt5wks1knchyho9pa1svg0nx
+   foreign key (folder_id)
+   references folders;
+
+alter table if exists folder_shares
+   add constraint FK6hsq08d4pevpspqabmmjdx1on
+   foreign key (owner_id)
+   references users;
+
+alter table if exists folder_shares
+   add constraint FK1903fxrr1r2wfiqm095xuvxm3
+   foreign key (shared_by_user_id)
+   references users;
+
+alter table if exists folder_shares
+   add constraint FK7q9m58k45dt2ikg3qnsb5hoy8
+   foreign key (shared_with_user_id)
+   references users;
+
+alter table if exists folders
+   add constraint FK5vsgnw90c527oeuxmn5dskxi3
+   foreign key (deleted_by)
+   references users;
+
+alter table if exists folders
+   add constraint FKqcp836dgme9195j0wy9v3b6o3
+   foreign key (parent_id)
+   references folders;
+
+alter table if exists folders
+   add constraint FKc2qooq7m62v6o0c8ptaj3x4cj
+   foreign key (user_id)
+   references users;
@@ -0,0 +1,30 @@
+-- Composite indexes matched to the listing queries in FileRepository,
+-- FolderRepository and FolderShareRepository. H2 has no partial indexes,
+-- so the PostgreSQL partial variants are covered by these composites here.
+
+-- ================= FILES =================
+
+create index if not exists idx_files_user_folder_deleted
+    on files (user_id, folder_id, is_deleted);
+
+create index if not exists idx_files_user_trash
+    on files (user_id, is_deleted, deleted_at);
+
+-- ================= FOLDERS =================
+
+create index if not exists idx_folders_parent_deleted
+    on folders (parent_id, is_deleted);
+
+create index if not exists idx_folders_user_parent_deleted
+    on folders (user_id, parent_id, is_deleted);
+
+-- ================= FOLDER SHARES =================
+
+create index if not exists idx_folder_shares_recipient
+    on folder_shares (shared_with_user_id, is_active);
+
+create index if not exists idx_folder_shares_sharer
+    on folder_shares (shared_by_user_id, is_active);
+
+create index if not exists idx_folder_shares_folder
+    on folder_shares (folder_id, is_active);
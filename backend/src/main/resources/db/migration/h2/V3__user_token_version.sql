@@ -0,0 +1,3 @@
+-- Bumped to revoke every token issued to a user (sign out everywhere,
+-- deactivation). Tokens carry the version they were issued with.
+alter table users add column token_version bigint default 0 not null;
@@ -0,0 +1,12 @@
+-- Access and download counters for files and share links. Written in
+-- batches by AccessStatsService; one row per subject.
+
+create table access_stats (
+    subject_type varchar(20) not null,
+    subject_id bigint not null,
+    hits bigint default 0 not null,
+    downloads bigint default 0 not null,
+    bytes_served bigint default 0 not null,
+    last_access_at timestamp(6),
+    primary key (subject_type, subject_id)
+);
@@ -0,0 +1,11 @@
+-- Time-limited shares. File shares already had expires_at; folder shares
+-- get it here. H2 has no partial indexes, so the sweeper's expiry index
+-- leads with is_active instead.
+
+alter table folder_shares add column expires_at timestamp(6);
+
+create index if not exists idx_file_shares_expiry
+    on file_shares (is_active, expires_at);
+
+create index if not exists idx_folder_shares_expiry
+    on folder_shares (is_active, expires_at);
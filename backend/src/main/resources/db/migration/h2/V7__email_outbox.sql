@@ -0,0 +1,24 @@
+-- Outgoing email, written in the same transaction as the change that
+-- triggers it and delivered by EmailOutboxService. H2 has no partial
+-- indexes, so the dispatcher index leads with status.
+
+create table email_outbox (
+    id bigint generated by default as identity,
+    dedup_key varchar(64) not null,
+    recipient varchar(255) not null,
+    subject varchar(500) not null,
+    body clob not null,
+    status varchar(20) not null,
+    attempts integer default 0 not null,
+    next_attempt_at timestamp(6) not null,
+    last_error varchar(1000),
+    created_at timestamp(6) not null,
+    sent_at timestamp(6),
+    primary key (id)
+);
+
+create index idx_email_outbox_due
+    on email_outbox (status, next_attempt_at);
+
+create index idx_email_outbox_dedup
+    on email_outbox (dedup_key);
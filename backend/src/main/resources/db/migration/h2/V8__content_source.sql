@@ -0,0 +1,12 @@
+-- Server-side copies. A copy stores no bytes of its own and points at the
+-- file that holds them; the pointer always names a file that owns its
+-- bytes, never another copy. H2 has no partial indexes, so the lookup of a
+-- source's copies uses a plain one.
+
+alter table files add column content_source_id bigint;
+
+alter table files add constraint fk_files_content_source
+    foreign key (content_source_id) references files (id);
+
+create index if not exists idx_files_content_source
+    on files (content_source_id);
@@ -0,0 +1,4 @@
+-- Recursive size and item rollups on folders. Existing rows start at zero
+-- and are filled in by FolderStatsService's first reconcile run.
+alter table folders add column if not exists total_size bigint default 0 not null;
+alter table folders add column if not exists total_items bigint default 0 not null;
@@ -0,0 +1,16 @@
+-- Materialized per-user dashboard counters, maintained by UserStatsService.
+create table if not exists user_stats (
+    audio_bytes bigint default 0 not null,
+    document_bytes bigint default 0 not null,
+    file_count bigint default 0 not null,
+    folder_count bigint default 0 not null,
+    image_bytes bigint default 0 not null,
+    other_bytes bigint default 0 not null,
+    starred_count bigint default 0 not null,
+    updated_at timestamp(6),
+    user_id bigint not null,
+    version bigint,
+    video_bytes bigint default 0 not null,
+    recent_files varchar(8000),
+    primary key (user_id)
+);
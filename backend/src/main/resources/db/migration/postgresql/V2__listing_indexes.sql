@@ -0,0 +1,45 @@
+-- Indexes matched to the listing queries in FileRepository, FolderRepository
+-- and FolderShareRepository, one per query shape. Where a query only ever asks
+-- for live or active rows the index is partial, so it stays small and skips
+-- the rows the query never reads. Shapes that also read deleted rows (trash,
+-- purge) keep a full composite. The file filter indexes come from V1_3.
+
+-- ================= FILES =================
+
+-- findByUserAndFolderAndIsDeleted / findByUserAndFolderIsNullAndIsDeleted (live listings)
+create index if not exists idx_files_user_folder_live
+    on files (user_id, folder_id)
+    where is_deleted = false;
+
+-- Trash view
+create index if not exists idx_files_user_trash
+    on files (user_id, deleted_at)
+    where is_deleted = true;
+
+-- findByFolderAndIsDeleted, live and deleted, is served by idx_files_folder_deleted (V1_3)
+-- Starred view is served by idx_files_user_starred (V1_3)
+
+-- ================= FOLDERS =================
+
+-- findByParentAndIsDeleted / countByParentAndIsDeleted / findByParent
+create index if not exists idx_folders_parent_deleted
+    on folders (parent_id, is_deleted);
+
+-- findByUserAndParentIsNullAndIsDeleted / findByUserAndParentAndIsDeleted / findByUserAndIsDeleted
+create index if not exists idx_folders_user_parent_deleted
+    on folders (user_id, parent_id, is_deleted);
+
+-- ================= FOLDER SHARES =================
+
+-- findBySharedWithAndIsActive(.., true) / findBySharedByAndIsActive(.., true)
+create index if not exists idx_folder_shares_recipient_active
+    on folder_shares (shared_with_user_id)
+    where is_active = true;
+
+create index if not exists idx_folder_shares_sharer_active
+    on folder_shares (shared_by_user_id)
+    where is_active = true;
+
+-- findByFolderAndIsActiveTrue / deleteByFolderId
+create index if not exists idx_folder_shares_folder
+    on folder_shares (folder_id, is_active);
@@ -0,0 +1,66 @@
+-- Denormalized "shared with me" inbox: one row per recipient and shared item,
+-- holding what the listing displays so it is served without joins.
+-- Kept in step by SharedInboxService on share and item changes.
+
+create table shared_inbox (
+    id bigserial not null,
+    recipient_id bigint not null,
+    item_type varchar(10) not null,
+    item_id bigint not null,
+    share_id bigint not null,
+    name varchar(255) not null,
+    size bigint,
+    mime_type varchar(255),
+    owner_id bigint not null,
+    owner_email varchar(255),
+    owner_name varchar(255),
+    shared_by_id bigint not null,
+    shared_by_name varchar(255),
+    permission varchar(20) not null,
+    is_starred boolean not null,
+    item_deleted boolean not null,
+    shared_at timestamp(6) not null,
+    item_created_at timestamp(6),
+    primary key (id),
+    constraint uk_shared_inbox_item unique (recipient_id, item_type, item_id)
+);
+
+-- Keyset pagination: newest share first, id as tie-breaker
+create index idx_shared_inbox_recipient_shared_at
+    on shared_inbox (recipient_id, shared_at, id);
+
+-- Fan-out on rename, delete and revoke of an item
+create index idx_shared_inbox_item
+    on shared_inbox (item_type, item_id);
+
+-- Profile changes of owners and sharers
+create index idx_shared_inbox_owner
+    on shared_inbox (owner_id);
+
+create index idx_shared_inbox_shared_by
+    on shared_inbox (shared_by_id);
+
+-- Backfill from the existing shares
+insert into shared_inbox (recipient_id, item_type, item_id, share_id, name, size, mime_type,
+                          owner_id, owner_email, owner_name, shared_by_id, shared_by_name, permission,
+                          is_starred, item_deleted, shared_at, item_created_at)
+select s.shared_with_user_id, 'FILE', f.id, s.id, f.name, f.size, f.mime_type,
+       o.id, o.email, o.full_name, b.id, b.full_name, s.permission,
+       s.is_starred, coalesce(f.is_deleted, false), s.created_at, f.created_at
+from file_shares s
+join files f on f.id = s.file_id
+join users o on o.id = f.user_id
+join users b on b.id = s.shared_by_user_id
+where s.shared_with_user_id is not null and s.is_active = true;
+
+insert into shared_inbox (recipient_id, item_type, item_id, share_id, name, size, mime_type,
+                          owner_id, owner_email, owner_name, shared_by_id, shared_by_name, permission,
+                          is_starred, item_deleted, shared_at, item_created_at)
+select s.shared_with_user_id, 'FOLDER', f.id, s.id, f.name, null, 'folder',
+       o.id, o.email, o.full_name, b.id, b.full_name, s.permission,
+       false, f.is_deleted, coalesce(s.created_at, current_timestamp), f.created_at
+from folder_shares s
+join folders f on f.id = s.folder_id
+join users o on o.id = f.user_id
+join users b on b.id = s.shared_by_user_id
+where s.shared_with_user_id is not null and coalesce(s.is_active, false) = true;
@@ -0,0 +1,13 @@
+-- Time-limited shares. File shares already had expires_at; folder shares
+-- get it here. Lookups check expiry themselves, these indexes drive the
+-- sweeper that deactivates expired rows, soonest deadline first.
+
+alter table folder_shares add column expires_at timestamp(6);
+
+create index if not exists idx_file_shares_expiry
+    on file_shares (expires_at)
+    where is_active = true and expires_at is not null;
+
+create index if not exists idx_folder_shares_expiry
+    on folder_shares (expires_at)
+    where is_active = true and expires_at is not null;
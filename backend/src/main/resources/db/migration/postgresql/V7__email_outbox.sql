@@ -0,0 +1,28 @@
+-- Outgoing email, written in the same transaction as the change that
+-- triggers it and delivered by EmailOutboxService. Rows move
+-- PENDING -> SENDING -> SENT, or back to PENDING with a later
+-- next_attempt_at after a failure, and end as FAILED once retries run out.
+-- dedup_key is a hash of recipient, subject and body.
+
+create table email_outbox (
+    id bigserial not null,
+    dedup_key varchar(64) not null,
+    recipient varchar(255) not null,
+    subject varchar(500) not null,
+    body text not null,
+    status varchar(20) not null,
+    attempts integer default 0 not null,
+    next_attempt_at timestamp(6) not null,
+    last_error varchar(1000),
+    created_at timestamp(6) not null,
+    sent_at timestamp(6),
+    primary key (id)
+);
+
+-- Dispatcher: due messages, oldest first
+create index idx_email_outbox_due
+    on email_outbox (next_attempt_at)
+    where status in ('PENDING', 'SENDING');
+
+create index idx_email_outbox_dedup
+    on email_outbox (dedup_key);
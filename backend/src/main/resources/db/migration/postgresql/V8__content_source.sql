@@ -0,0 +1,13 @@
+-- Server-side copies. A copy stores no bytes of its own and points at the
+-- file that holds them; the pointer always names a file that owns its
+-- bytes, never another copy. Purging a source hands its bytes to one copy
+-- first, so the foreign key never has to give way.
+
+alter table files add column content_source_id bigint;
+
+alter table files add constraint fk_files_content_source
+    foreign key (content_source_id) references files (id);
+
+create index if not exists idx_files_content_source
+    on files (content_source_id)
+    where content_source_id is not null;
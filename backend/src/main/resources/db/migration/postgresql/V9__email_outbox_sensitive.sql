@@ -0,0 +1,5 @@
+-- Messages carrying a one-time code. Their body is blanked as soon as the
+-- row is finished (sent, skipped or given up on) instead of staying in the
+-- outbox for the retention window. From here on dedup_key hashes the
+-- recipient and the event that triggered the mail, not the rendered body.
+alter table email_outbox add column sensitive boolean default false not null;
@@ -9,7 +9,7 @@ import org.springframework.test.context.TestPropertySource;
     // Database
     "spring.datasource.url=jdbc:h2:mem:testdb",
     "spring.datasource.driver-class-name=org.h2.Driver",
-    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.hibernate.ddl-auto=validate",
     
     // JWT
     "jwt.secret=test-jwt-secret-for-testing-only",
@@ -34,6 +34,10 @@ import org.springframework.test.context.TestPropertySource;
     // App Configuration
     "APP_BASE_URL=http://localhost:3000",
     "FRONTEND_URL=http://localhost:3000",
+    "APP_FRONTEND_URL=http://localhost:3000",
+
+    // Search
+    "app.search.content.index-dir=target/test-content-index",
     
     // Server
     "server.port=8080"
@@ -0,0 +1,122 @@
+package com.cloudstorage.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The PostgreSQL counterpart of {@link QueryPlanTest}, for the partial indexes
+ * H2 cannot create. Migrates a throwaway schema on a real server, fills it with
+ * enough rows for the planner to prefer an index, and checks the listing
+ * queries pick the partial ones. Skipped unless a server is given:
+ *
+ *   mvn test -Dtest=PostgresQueryPlanTest \
+ *       -Dplans.postgres.url=jdbc:postgresql://localhost:5432/postgres -Dplans.postgres.user=postgres
+ *
+ * Values are written inline, as the custom plans PostgreSQL makes for bound
+ * parameters see them; a partial index only matches a known is_deleted or
+ * is_active value.
+ */
+@EnabledIfSystemProperty(named = "plans.postgres.url", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PostgresQueryPlanTest {
+
+    private static final String SCHEMA = "query_plans";
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeAll
+    void migrateAndSeed() {
+        dataSource = new SingleConnectionDataSource(System.getProperty("plans.postgres.url"),
+                System.getProperty("plans.postgres.user", "postgres"),
+                System.getProperty("plans.postgres.password", ""), true);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(SCHEMA)
+                .locations("classpath:db/migration/postgresql")
+                .load()
+                .migrate();
+        jdbc.execute("SET search_path TO " + SCHEMA);
+
+        // 1,000 users, 20 folders each, 200 files each with one in ten in the trash,
+        // and every user sharing five folders with other users
+        jdbc.execute("INSERT INTO users (id, email, full_name, email_verified, provider, storage_limit, " +
+                "storage_used, created_at, updated_at) " +
+                "SELECT u, 'user' || u || '@example.com', 'User', true, 'LOCAL', 0, 0, now(), now() " +
+                "FROM generate_series(1, 1000) u");
+        jdbc.execute("INSERT INTO folders (id, name, user_id, parent_id, is_deleted, created_at) " +
+                "SELECT f, 'folder' || f, (f - 1) / 20 + 1, NULL, f % 10 = 0, now() " +
+                "FROM generate_series(1, 20000) f");
+        jdbc.execute("INSERT INTO files (id, name, size, user_id, folder_id, is_deleted, is_starred, " +
+                "deleted_at, created_at, updated_at) " +
+                "SELECT i, 'file' || i, 1024, (i - 1) / 200 + 1, " +
+                "    CASE WHEN i % 4 = 0 THEN NULL ELSE ((i - 1) / 200) * 20 + i % 20 + 1 END, " +
+                "    i % 10 = 0, i % 50 = 0, CASE WHEN i % 10 = 0 THEN now() END, now(), now() " +
+                "FROM generate_series(1, 200000) i");
+        jdbc.execute("INSERT INTO folder_shares (folder_id, owner_id, shared_by_user_id, shared_with_user_id, " +
+                "permission, is_active, created_at) " +
+                "SELECT s, (s - 1) / 20 + 1, (s - 1) / 20 + 1, ((s - 1) / 20 + s % 20) % 1000 + 1, " +
+                "    'view', s % 3 <> 0, now() " +
+                "FROM generate_series(1, 20000) s WHERE s % 20 BETWEEN 1 AND 5");
+        jdbc.execute("ANALYZE");
+    }
+
+    @AfterAll
+    void dropSchema() {
+        if (jdbc != null) {
+            jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            dataSource.destroy();
+        }
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbc.queryForList("EXPLAIN " + sql, String.class));
+    }
+
+    @Test
+    void ownerFolderListingUsesLiveIndex() {
+        assertThat(explain("SELECT id FROM files WHERE user_id = 7 AND folder_id = 125 AND is_deleted = false"))
+                .contains("idx_files_user_folder_live");
+    }
+
+    @Test
+    void ownerRootListingUsesLiveIndex() {
+        assertThat(explain("SELECT id FROM files WHERE user_id = 7 AND folder_id IS NULL AND is_deleted = false"))
+                .contains("idx_files_user_folder_live");
+    }
+
+    @Test
+    void trashListingUsesTrashIndex() {
+        assertThat(explain("SELECT id FROM files WHERE user_id = 7 AND is_deleted = true ORDER BY deleted_at DESC"))
+                .contains("idx_files_user_trash");
+    }
+
+    @Test
+    void sharedWithMeUsesActiveRecipientIndex() {
+        assertThat(explain("SELECT folder_id FROM folder_shares WHERE shared_with_user_id = 7 AND is_active = true"))
+                .contains("idx_folder_shares_recipient_active");
+    }
+
+    @Test
+    void sharedByMeUsesActiveSharerIndex() {
+        assertThat(explain("SELECT folder_id FROM folder_shares WHERE shared_by_user_id = 7 AND is_active = true"))
+                .contains("idx_folder_shares_sharer_active");
+    }
+
+    @Test
+    void folderListingUsesFolderIndex() {
+        assertThat(explain("SELECT id FROM files WHERE folder_id = 125 AND is_deleted = false"))
+                .contains("idx_files_folder_deleted");
+    }
+}
@@ -0,0 +1,149 @@
+package com.cloudstorage.repository;
+
+import com.cloudstorage.model.File;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the main listing and filter query shapes are served by the
+ * indexes created in the migrations rather than by table scans.
+ *
+ * Specification-based queries are explained as Hibernate generates them:
+ * the SQL is captured on its way to the driver, with values inlined so it
+ * can be explained as is.
+ *
+ * H2 has no partial indexes, so this checks the H2 composites; the
+ * PostgreSQL partial indexes are checked by {@link PostgresQueryPlanTest}.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.cloudstorage.repository.QueryPlanTest$CapturedSql",
+        "spring.jpa.properties.hibernate.criteria.value_handling_mode=inline"
+})
+class QueryPlanTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    public static class CapturedSql implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    private String explain(String sql) {
+        Object plan = entityManager.createNativeQuery("EXPLAIN " + sql).getSingleResult();
+        return plan.toString().toLowerCase();
+    }
+
+    // Runs the specification the way FileFilterService does and explains the SQL it produced
+    private String explain(Specification<File> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<File> file = query.from(File.class);
+        query.select(file.get("id"))
+             .where(spec.toPredicate(file, query, cb))
+             .orderBy(cb.desc(file.get("updatedAt")));
+
+        CapturedSql.STATEMENTS.clear();
+        entityManager.createQuery(query).getResultList();
+        assertThat(CapturedSql.STATEMENTS).hasSize(1);
+        return explain(CapturedSql.STATEMENTS.get(0));
+    }
+
+    @Test
+    void recentListingUsesOwnerUpdatedIndex() {
+        assertThat(explain("SELECT id FROM files WHERE user_id = 1 AND is_deleted = FALSE ORDER BY updated_at DESC"))
+                .contains("idx_files_user_deleted_updated");
+    }
+
+    @Test
+    void typeFilterUsesMimeIndex() {
+        assertThat(explain("SELECT id FROM files WHERE user_id = 1 AND is_deleted = FALSE AND mime_type LIKE 'image/%'"))
+                .contains("idx_files_user_deleted_mime");
+    }
+
+    @Test
+    void sizeRangeUsesSizeIndex() {
+        assertThat(explain("SELECT id FROM files WHERE user_id = 1 AND is_deleted = FALSE AND size >= 104857600"))
+                .contains("idx_files_user_deleted_size");
+    }
+
+    @Test
+    void starredFilterUsesStarredIndex() {
+        assertThat(explain("SELECT id FROM files WHERE user_id = 1 AND is_starred = TRUE AND is_deleted = FALSE"))
+                .contains("idx_files_user_starred");
+    }
+
+    @Test
+    void ownerFolderListingUsesOwnerFolderIndex() {
+        assertThat(explain("SELECT id FROM files WHERE user_id = 1 AND folder_id = 7 AND is_deleted = FALSE"))
+                .contains("idx_files_user_folder_deleted");
+    }
+
+    @Test
+    void ownerRootListingUsesOwnerFolderIndex() {
+        assertThat(explain("SELECT id FROM files WHERE user_id = 1 AND folder_id IS NULL AND is_deleted = FALSE"))
+                .contains("idx_files_user_folder_deleted");
+    }
+
+    @Test
+    void subfolderListingUsesParentIndex() {
+        assertThat(explain("SELECT id FROM folders WHERE parent_id = 7 AND is_deleted = FALSE"))
+                .contains("idx_folders_parent_deleted");
+    }
+
+    @Test
+    void rootFolderListingUsesOwnerParentIndex() {
+        assertThat(explain("SELECT id FROM folders WHERE user_id = 1 AND parent_id IS NULL AND is_deleted = FALSE"))
+                .contains("idx_folders_user_parent_deleted");
+    }
+
+    @Test
+    void sharedWithMeUsesRecipientIndex() {
+        assertThat(explain("SELECT id FROM folder_shares WHERE shared_with_user_id = 1 AND is_active = TRUE"))
+                .contains("idx_folder_shares_recipient");
+    }
+
+    @Test
+    void folderListingUsesFolderIndex() {
+        assertThat(explain("SELECT id FROM files WHERE folder_id = 7 AND is_deleted = FALSE"))
+                .contains("idx_files_folder_deleted");
+    }
+
+    @Test
+    void visibleFilesAreLookedUpNotScanned() {
+        String plan = explain(FileSpecifications.visibleTo(1L, List.of()).and(FileSpecifications.notDeleted()));
+        assertThat(plan)
+                .doesNotContain("tablescan")
+                .contains("idx_file_shares_shared_with");
+    }
+
+    @Test
+    void visibleFilesInSharedFoldersAreLookedUpNotScanned() {
+        String plan = explain(FileSpecifications.visibleTo(1L, List.of(7L, 8L)).and(FileSpecifications.notDeleted()));
+        assertThat(plan)
+                .doesNotContain("tablescan")
+                .contains("idx_file_shares_shared_with")
+                // H2 names the index it probes next to the condition; any index on folder_id will do
+                .containsPattern("index_\\w+: folder_id in\\(7, 8\\)")
+                .containsPattern("index_\\w+: folder_id = \\w+\\.id");
+    }
+}
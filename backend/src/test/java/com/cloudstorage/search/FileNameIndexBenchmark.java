@@ -0,0 +1,138 @@
+package com.cloudstorage.search;
+
+import com.cloudstorage.repository.FileRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Name search latency over a synthetic corpus, loaded through the real
+ * bootstrap path. The default size runs in a normal heap; the 10M file
+ * measurement needs a bigger one:
+ *
+ *   mvn -Pbenchmark -DskipTests test \
+ *       -Dbenchmark="FileNameIndex -p files=10000000 -jvmArgsAppend -Xmx12g"
+ *
+ * The searching user owns an average share of the files, has two folders
+ * shared with them by other owners and a handful of directly shared files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FileNameIndexBenchmark {
+
+    private static final String[] WORDS = {
+            "report", "invoice", "budget", "quarterly", "summary", "photo", "draft", "contract",
+            "meeting", "notes", "design", "backup", "final", "plan", "roadmap", "receipt"
+    };
+    private static final String[] EXTENSIONS = {".pdf", ".docx", ".xlsx", ".png", ".txt", ".zip"};
+    private static final int FOLDERS_PER_OWNER = 20;
+    private static final int PAGE = 20;
+
+    @Param({"1000000"})
+    public int files;
+
+    @Param({"10000"})
+    public int owners;
+
+    // Prefix, substring and a typo
+    @Param({"rep", "budget", "quartrly"})
+    public String query;
+
+    private FileNameIndex index;
+    private SearchScope scope;
+
+    private record Row(Long id, Long ownerId, Long folderId, String name) implements FileRepository.NameEntry {
+        public Long getId() {
+            return id;
+        }
+
+        public Long getOwnerId() {
+            return ownerId;
+        }
+
+        public Long getFolderId() {
+            return folderId;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void load() {
+        int batchSize = 50_000;
+        FileRepository repository = mock(FileRepository.class);
+        when(repository.findLiveNameEntries(anyLong(), any(Pageable.class))).thenAnswer(call -> {
+            long afterId = call.getArgument(0);
+            List<FileRepository.NameEntry> batch = new ArrayList<>(batchSize);
+            for (long id = afterId + 1; id <= Math.min(files, afterId + batchSize); id++) {
+                batch.add(row(id));
+            }
+            return batch;
+        });
+
+        index = new FileNameIndex(repository);
+        ReflectionTestUtils.setField(index, "batchSize", batchSize);
+        index.bootstrap();
+
+        long userId = 1L;
+        Set<Long> sharedFolders = new HashSet<>();
+        Set<Long> uploaders = new HashSet<>();
+        for (long owner : new long[]{2L, 3L}) {
+            sharedFolders.add(folderOf(owner, 0));
+            uploaders.add(owner);
+        }
+        Set<Long> sharedFiles = new HashSet<>();
+        for (long id = 4; id <= files && sharedFiles.size() < 10; id += files / 10 + 1) {
+            sharedFiles.add(id);
+        }
+        scope = new SearchScope(userId, sharedFiles, sharedFolders, uploaders);
+    }
+
+    @Benchmark
+    public FileNameIndex.Result firstPage() {
+        return index.search(query, scope, PAGE);
+    }
+
+    // Deterministic per id, so every run and fork sees the same corpus
+    private Row row(long id) {
+        Random random = new Random(id);
+        long owner = 1 + random.nextInt(owners);
+        String name = WORDS[random.nextInt(WORDS.length)] + "-" + WORDS[random.nextInt(WORDS.length)]
+                + "-" + (2000 + random.nextInt(25)) + "-" + random.nextInt(10_000)
+                + EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+        return new Row(id, owner, folderOf(owner, random.nextInt(FOLDERS_PER_OWNER)), name);
+    }
+
+    private static long folderOf(long owner, int n) {
+        return owner * FOLDERS_PER_OWNER + n;
+    }
+}
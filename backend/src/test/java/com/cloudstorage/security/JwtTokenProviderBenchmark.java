@@ -0,0 +1,85 @@
+package com.cloudstorage.security;
+
+import com.cloudstorage.model.User;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request from its bearer token, with and without
+ * the verified-token cache, from several request threads at once. A pool of
+ * distinct users keeps the cache doing real lookups rather than hitting one
+ * hot entry:
+ *
+ *   mvn -Pbenchmark -DskipTests test -Dbenchmark="JwtTokenProvider"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-0123456789";
+
+    @Param({"1000"})
+    public int users;
+
+    private JwtTokenProvider cached;
+    private JwtTokenProvider uncached;
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cached = provider(10_000);
+        uncached = provider(0);
+        tokens = new String[users];
+        for (int i = 0; i < users; i++) {
+            User user = User.builder().id((long) i + 1).email("user" + i + "@example.com").build();
+            tokens[i] = cached.generateToken(user);
+        }
+        for (String token : tokens) {
+            cached.verify(token);
+        }
+    }
+
+    @Benchmark
+    public Claims parseEveryRequest() {
+        return uncached.verify(next());
+    }
+
+    @Benchmark
+    public Claims verifiedCache() {
+        return cached.verify(next());
+    }
+
+    private String next() {
+        return tokens[ThreadLocalRandom.current().nextInt(tokens.length)];
+    }
+
+    private static JwtTokenProvider provider(int cacheSize) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(provider, "verifiedCacheSize", cacheSize);
+        provider.init();
+        return provider;
+    }
+}
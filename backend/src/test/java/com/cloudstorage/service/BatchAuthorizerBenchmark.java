@@ -0,0 +1,125 @@
+package com.cloudstorage.service;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authorizing a multi-select in one batch against one call per item, on an
+ * in-memory H2 database built from the migrations. The selection is made by
+ * a user who was given a top-level folder, so every item resolves through a
+ * walk up the tree to that share:
+ *
+ *   mvn -Pbenchmark -DskipTests test -Dbenchmark="BatchAuthorizer"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchAuthorizerBenchmark {
+
+    private static final long OWNER = 1L;
+    private static final long RECIPIENT = 2L;
+
+    @Param({"200"})
+    public int selection;
+
+    @Param({"8"})
+    public int depth;
+
+    private SingleConnectionDataSource dataSource;
+    private BatchAuthorizer authorizer;
+    private List<Long> fileIds;
+    private List<Long> folderIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:authorizer;DB_CLOSE_DELAY=-1", "sa", "", true);
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/h2")
+                .placeholderReplacement(false)
+                .load()
+                .migrate();
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        for (long id : new long[]{OWNER, RECIPIENT}) {
+            jdbc.update("INSERT INTO users (id, email, full_name, email_verified, provider, storage_limit, " +
+                    "storage_used, created_at, updated_at) VALUES (?, ?, 'User', true, 'LOCAL', 0, 0, " +
+                    "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", id, "user" + id + "@example.com");
+        }
+
+        // Branches of nested folders under one shared root; files and selected folders sit at every level
+        jdbc.update("INSERT INTO folders (id, name, user_id, parent_id, is_deleted) VALUES (1, 'root', ?, NULL, false)",
+                OWNER);
+        jdbc.update("INSERT INTO folder_shares (folder_id, owner_id, shared_by_user_id, shared_with_user_id, " +
+                "permission, is_active, created_at) VALUES (1, ?, ?, ?, 'view', true, CURRENT_TIMESTAMP)",
+                OWNER, OWNER, RECIPIENT);
+        List<Long> folders = new ArrayList<>();
+        long nextFolder = 2;
+        for (int branch = 0; branch < 10; branch++) {
+            long parent = 1;
+            for (int level = 0; level < depth; level++) {
+                jdbc.update("INSERT INTO folders (id, name, user_id, parent_id, is_deleted) VALUES (?, ?, ?, ?, false)",
+                        nextFolder, "f" + nextFolder, OWNER, parent);
+                folders.add(nextFolder);
+                parent = nextFolder++;
+            }
+        }
+
+        fileIds = new ArrayList<>();
+        for (long id = 1; id <= selection; id++) {
+            jdbc.update("INSERT INTO files (id, name, size, user_id, folder_id, is_deleted, is_starred) " +
+                    "VALUES (?, ?, 1, ?, ?, false, false)", id, "file" + id, OWNER, folders.get((int) (id % folders.size())));
+            fileIds.add(id);
+        }
+        folderIds = folders.subList(0, Math.min(folders.size(), selection / 10));
+
+        FolderPermissionCache cache = new FolderPermissionCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 50_000);
+        cache.init();
+        authorizer = new BatchAuthorizer(new NamedParameterJdbcTemplate(dataSource), cache);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public BatchAuthorizer.Result batch() {
+        return authorizer.authorize(RECIPIENT, fileIds, folderIds);
+    }
+
+    @Benchmark
+    public void perItem(Blackhole blackhole) {
+        for (Long id : fileIds) {
+            blackhole.consume(authorizer.authorize(RECIPIENT, List.of(id), List.of()));
+        }
+        for (Long id : folderIds) {
+            blackhole.consume(authorizer.authorize(RECIPIENT, List.of(), List.of(id)));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.dto.request.CopyRequest;
+import com.cloudstorage.exception.QuotaExceededException;
+import com.cloudstorage.repository.FileRepository;
+import com.cloudstorage.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Copies share their source's bytes, so purging the source must hand the
+ * bytes over (fk_files_content_source would reject the delete otherwise).
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:copydb",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.hibernate.ddl-auto=validate",
+    "jwt.secret=test-jwt-secret-for-testing-only",
+    "google.client.id=test-client-id",
+    "aws.access.key.id=test-access-key",
+    "aws.secret.access.key=test-secret-key",
+    "aws.region=us-east-1",
+    "aws.s3.bucket.name=test-bucket",
+    "spring.mail.host=smtp.test.com",
+    "spring.mail.port=587",
+    "spring.mail.username=test@example.com",
+    "spring.mail.password=test-password",
+    "APP_BASE_URL=http://localhost:3000",
+    "FRONTEND_URL=http://localhost:3000",
+    "APP_FRONTEND_URL=http://localhost:3000",
+    "app.search.content.index-dir=target/test-content-index-copy"
+})
+class CopyServiceTest {
+
+    private static final byte[] CONTENT = "quarterly numbers".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private CopyService copyService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FolderService folderService;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+
+    @BeforeEach
+    void signIn() {
+        String email = "copier" + System.nanoTime() + "@example.com";
+        jdbcTemplate.update("INSERT INTO users (email, full_name, email_verified, provider, storage_limit, " +
+                "storage_used, created_at, updated_at) VALUES (?, 'Copier', true, 'LOCAL', 1000, 0, " +
+                "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", email);
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(userId, email, 0), null, List.of()));
+    }
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void copiesKeepTheirBytesWhenTheSourceFileIsPurged() {
+        Long target = folder("copies");
+        Long source = file("report.txt", null);
+        Long first = copyService.copyFile(userId, source, new CopyRequest(target, null)).getId();
+        Long second = copyService.copyFile(userId, source, new CopyRequest(target, null)).getId();
+
+        trash("files", source);
+        fileService.permanentlyDeleteFile(source);
+
+        assertThat(fileRepository.existsById(source)).isFalse();
+        assertThat(fileRepository.findContent(first)).isEqualTo(CONTENT);
+        assertThat(fileRepository.findContent(second)).isEqualTo(CONTENT);
+        assertThat(contentSource(first)).isNull();
+        assertThat(contentSource(second)).isEqualTo(first);
+    }
+
+    @Test
+    void copiesKeepTheirBytesWhenTheSourceFolderIsPurged() {
+        Long target = folder("copies");
+        Long folder = folder("originals");
+        Long source = file("report.txt", folder);
+        Long first = copyService.copyFile(userId, source, new CopyRequest(target, null)).getId();
+        Long second = copyService.copyFile(userId, source, new CopyRequest(target, null)).getId();
+
+        trash("folders", folder);
+        trash("files", source);
+        folderService.permanentlyDelete(folder);
+
+        assertThat(fileRepository.existsById(source)).isFalse();
+        assertThat(fileRepository.findContent(first)).isEqualTo(CONTENT);
+        assertThat(fileRepository.findContent(second)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void copyThatDoesNotFitLeavesNothingBehind() {
+        Long source = file("report.txt", null);
+        jdbcTemplate.update("UPDATE users SET storage_used = storage_limit - ? + 1 WHERE id = ?",
+                CONTENT.length, userId);
+
+        assertThatThrownBy(() -> copyService.copyFile(userId, source, null))
+                .isInstanceOf(QuotaExceededException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM files WHERE content_source_id = ?",
+                Integer.class, source)).isZero();
+    }
+
+    private Long folder(String name) {
+        jdbcTemplate.update("INSERT INTO folders (name, user_id, parent_id, is_deleted, total_size, total_items, " +
+                "created_at, updated_at) VALUES (?, ?, NULL, false, 0, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)",
+                name, userId);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM folders WHERE user_id = ?", Long.class, userId);
+    }
+
+    private Long file(String name, Long folderId) {
+        jdbcTemplate.update("INSERT INTO files (name, size, mime_type, user_id, folder_id, file_data, is_deleted, " +
+                "is_starred, created_at, updated_at) VALUES (?, ?, 'text/plain', ?, ?, ?, false, false, " +
+                "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", name, CONTENT.length, userId, folderId, CONTENT);
+        jdbcTemplate.update("UPDATE users SET storage_used = storage_used + ? WHERE id = ?", CONTENT.length, userId);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM files WHERE user_id = ?", Long.class, userId);
+    }
+
+    private void trash(String table, Long id) {
+        jdbcTemplate.update("UPDATE " + table + " SET is_deleted = true WHERE id = ?", id);
+    }
+
+    private Long contentSource(Long fileId) {
+        return jdbcTemplate.queryForObject("SELECT content_source_id FROM files WHERE id = ?", Long.class, fileId);
+    }
+}
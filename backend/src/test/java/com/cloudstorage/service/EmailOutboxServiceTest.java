@@ -0,0 +1,175 @@
+package com.cloudstorage.service;
+
+import com.cloudstorage.model.User.OtpPurpose;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Delivers the outbox to an in-process SMTP server.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:outboxdb",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.hibernate.ddl-auto=validate",
+    "jwt.secret=test-jwt-secret-for-testing-only",
+    "google.client.id=test-client-id",
+    "aws.access.key.id=test-access-key",
+    "aws.secret.access.key=test-secret-key",
+    "aws.region=us-east-1",
+    "aws.s3.bucket.name=test-bucket",
+    "APP_BASE_URL=http://localhost:3000",
+    "FRONTEND_URL=http://localhost:3000",
+    "APP_FRONTEND_URL=http://localhost:3000",
+    "app.search.content.index-dir=target/test-content-index-outbox",
+
+    // GreenMail on localhost, no auth or TLS
+    "spring.mail.host=localhost",
+    "spring.mail.port=3025",
+    "spring.mail.username=noreply@example.com",
+    "spring.mail.password=",
+    "spring.mail.properties.mail.smtp.auth=false",
+    "spring.mail.properties.mail.smtp.starttls.enable=false",
+    "spring.mail.properties.mail.smtp.starttls.required=false",
+
+    // Dispatch only when the test asks for it
+    "app.email.outbox.poll-interval-ms=3600000"
+})
+class EmailOutboxServiceTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxService outbox;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void clearOutbox() {
+        jdbcTemplate.update("DELETE FROM email_outbox");
+    }
+
+    @Test
+    void queuedMailIsDeliveredInOneBatchAndDuplicatesAreSkipped() throws Exception {
+        emailService.sendFolderShareEmail("folder-share:1:100", "bob@example.com", "Alice", "Reports", "view");
+        emailService.sendFolderShareEmail("folder-share:1:100", "bob@example.com", "Alice", "Reports", "view");
+        emailService.sendOTPEmail("carol@example.com", "123456", OtpPurpose.LOGIN);
+
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+        assertThat(count("PENDING")).isEqualTo(2);
+
+        outbox.dispatch();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(2);
+        assertThat(received).extracting(MimeMessage::getSubject)
+                .containsExactlyInAnyOrder("Folder shared with you", "Login Verification Code");
+        assertThat(count("SENT")).isEqualTo(2);
+
+        // Already sent, so queuing it again is a no-op
+        emailService.sendFolderShareEmail("folder-share:1:100", "bob@example.com", "Alice", "Reports", "view");
+        assertThat(count("PENDING")).isZero();
+    }
+
+    @Test
+    void sharingAgainSendsAnotherEmail() {
+        emailService.sendFolderShareEmail("folder-share:1:100", "bob@example.com", "Alice", "Reports", "view");
+        outbox.dispatch();
+
+        // Same text, new share action
+        emailService.sendFolderShareEmail("folder-share:1:200", "bob@example.com", "Alice", "Reports", "view");
+        outbox.dispatch();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(2);
+    }
+
+    @Test
+    void otpBodyIsNotKeptAfterSending() {
+        emailService.sendOTPEmail("carol@example.com", "654321", OtpPurpose.LOGIN);
+        emailService.sendFolderShareEmail("folder-share:1:100", "bob@example.com", "Alice", "Reports", "view");
+        assertThat(jdbcTemplate.queryForObject("SELECT body FROM email_outbox WHERE recipient = 'carol@example.com'",
+                String.class)).contains("654321");
+
+        outbox.dispatch();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT body FROM email_outbox WHERE recipient = 'carol@example.com'",
+                String.class)).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT body FROM email_outbox WHERE recipient = 'bob@example.com'",
+                String.class)).contains("Reports");
+    }
+
+    @Test
+    void failedDeliveryIsRetriedWithBackoff() {
+        greenMail.stop();
+        emailService.sendFolderShareEmail("folder-share:2:100", "dave@example.com", "Alice", "Plans", "edit");
+
+        outbox.dispatch();
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT status, attempts, next_attempt_at, last_error FROM email_outbox");
+        assertThat(row.get("STATUS")).isEqualTo("PENDING");
+        assertThat(row.get("ATTEMPTS")).isEqualTo(1);
+        assertThat(((Timestamp) row.get("NEXT_ATTEMPT_AT")).toLocalDateTime()).isAfter(LocalDateTime.now());
+        assertThat(row.get("LAST_ERROR")).isNotNull();
+
+        // Not due yet
+        greenMail.start();
+        outbox.dispatch();
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+
+        jdbcTemplate.update("UPDATE email_outbox SET next_attempt_at = ?", LocalDateTime.now().minusSeconds(1));
+        outbox.dispatch();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT attempts FROM email_outbox WHERE status = 'SENT'", Integer.class))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void mailIsDroppedWhenTheTransactionRollsBack() {
+        transactionTemplate.executeWithoutResult(status -> {
+            emailService.sendFolderShareEmail("folder-share:3:100", "erin@example.com", "Alice", "Drafts", "view");
+            status.setRollbackOnly();
+        });
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM email_outbox", Integer.class)).isZero();
+    }
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        assertThat(outbox.backoff(1)).isEqualTo(30_000);
+        assertThat(outbox.backoff(2)).isEqualTo(60_000);
+        assertThat(outbox.backoff(4)).isEqualTo(240_000);
+        assertThat(outbox.backoff(30)).isEqualTo(3_600_000);
+    }
+
+    private int count(String status) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM email_outbox WHERE status = ?", Integer.class, status);
+    }
+}